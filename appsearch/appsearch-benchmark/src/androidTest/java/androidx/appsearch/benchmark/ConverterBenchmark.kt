@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.appsearch.benchmark
+
+import androidx.appsearch.app.GenericDocument
+import androidx.appsearch.localstorage.converter.GenericDocumentToProtoConverter
+import androidx.appsearch.localstorage.converter.SearchResultToProtoConverter
+import androidx.appsearch.localstorage.util.PrefixUtil
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import com.google.android.icing.proto.SchemaTypeConfigProto
+import com.google.android.icing.proto.SearchResultProto
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Converts pages of search results and documents being put, comparing the conversion of the
+ * prefixed protos stored in Icing to copying the protos to add or remove the prefixes first.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class ConverterBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val documents = List(PAGE_SIZE) { createDocument(it) }
+
+    private val searchResultProto = SearchResultProto.newBuilder().apply {
+        for (document in documents) {
+            addResults(
+                SearchResultProto.ResultProto.newBuilder().setDocument(
+                    GenericDocumentToProtoConverter.toDocumentProto(document, PREFIX)
+                )
+            )
+        }
+    }.build()
+
+    private val packageNames = List(PAGE_SIZE) { PACKAGE_NAME }
+    private val databaseNames = List(PAGE_SIZE) { DATABASE_NAME }
+    private val schemaMap = mapOf(
+        PREFIX to mapOf(
+            PREFIX + SCHEMA_TYPE to SchemaTypeConfigProto.newBuilder()
+                .setSchemaType(PREFIX + SCHEMA_TYPE).build(),
+            PREFIX + NESTED_SCHEMA_TYPE to SchemaTypeConfigProto.newBuilder()
+                .setSchemaType(PREFIX + NESTED_SCHEMA_TYPE).build()
+        )
+    )
+
+    @Test
+    fun toSearchResultPage_removePrefixesFirst() {
+        benchmarkRule.measureRepeated {
+            val resultsBuilder = searchResultProto.toBuilder()
+            for (i in 0 until searchResultProto.resultsCount) {
+                val resultBuilder = searchResultProto.getResults(i).toBuilder()
+                val documentBuilder = resultBuilder.document.toBuilder()
+                PrefixUtil.removePrefixesFromDocument(documentBuilder)
+                resultBuilder.setDocument(documentBuilder)
+                resultsBuilder.setResults(i, resultBuilder)
+            }
+            SearchResultToProtoConverter.toSearchResultPage(
+                resultsBuilder, packageNames, databaseNames, schemaMap
+            )
+        }
+    }
+
+    @Test
+    fun toSearchResultPage_fromPrefixedProto() {
+        benchmarkRule.measureRepeated {
+            SearchResultToProtoConverter.toSearchResultPageFromPrefixedProto(
+                searchResultProto, packageNames, databaseNames, schemaMap
+            )
+        }
+    }
+
+    @Test
+    fun toDocumentProto_addPrefixesAfter() {
+        benchmarkRule.measureRepeated {
+            for (document in documents) {
+                val documentBuilder =
+                    GenericDocumentToProtoConverter.toDocumentProto(document).toBuilder()
+                PrefixUtil.addPrefixToDocument(documentBuilder, PREFIX)
+                documentBuilder.build()
+            }
+        }
+    }
+
+    @Test
+    fun toDocumentProto_withPrefix() {
+        benchmarkRule.measureRepeated {
+            for (document in documents) {
+                GenericDocumentToProtoConverter.toDocumentProto(document, PREFIX)
+            }
+        }
+    }
+
+    companion object {
+        private const val PAGE_SIZE = 1000
+        private const val PACKAGE_NAME = "package"
+        private const val DATABASE_NAME = "database"
+        private val PREFIX = PrefixUtil.createPrefix(PACKAGE_NAME, DATABASE_NAME)
+        private const val SCHEMA_TYPE = "Email"
+        private const val NESTED_SCHEMA_TYPE = "Person"
+
+        private fun createDocument(index: Int): GenericDocument {
+            val sender = GenericDocument.Builder<GenericDocument.Builder<*>>(
+                "namespace", "sender$index", NESTED_SCHEMA_TYPE
+            )
+                .setPropertyString("name", "Sender $index")
+                .setPropertyString("address", "sender$index@example.com")
+                .build()
+            return GenericDocument.Builder<GenericDocument.Builder<*>>(
+                "namespace", "id$index", SCHEMA_TYPE
+            )
+                .setCreationTimestampMillis(index.toLong())
+                .setPropertyString("subject", "Subject of email $index")
+                .setPropertyString("body", "Body of email $index, long enough to be realistic.")
+                .setPropertyLong("size", 1024L + index)
+                .setPropertyDocument("sender", sender)
+                .build()
+        }
+    }
+}
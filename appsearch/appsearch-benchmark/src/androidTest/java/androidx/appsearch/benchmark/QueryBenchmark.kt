@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.appsearch.benchmark
+
+import android.content.Context
+import android.os.Process
+import androidx.appsearch.app.AppSearchSchema
+import androidx.appsearch.app.GenericDocument
+import androidx.appsearch.app.SearchSpec
+import androidx.appsearch.localstorage.AppSearchImpl
+import androidx.appsearch.localstorage.OptimizeStrategy
+import androidx.appsearch.localstorage.UnlimitedLimitConfig
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+
+/**
+ * Queries one database among many, so that the time spent rewriting the search spec and the
+ * results in the Java layer is not hidden by the time Icing spends on a large index.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class QueryBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var icingDir: File
+    private lateinit var appSearchImpl: AppSearchImpl
+
+    @Before
+    fun setup() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        icingDir = File(context.cacheDir, "appsearch_query_benchmark")
+        icingDir.deleteRecursively()
+        appSearchImpl = AppSearchImpl.create(
+            icingDir,
+            UnlimitedLimitConfig(),
+            /*initStatsBuilder=*/ null,
+            OptimizeStrategy { false }
+        )
+        val schema = AppSearchSchema.Builder(SCHEMA_TYPE)
+            .addProperty(
+                AppSearchSchema.StringPropertyConfig.Builder("body")
+                    .setIndexingType(AppSearchSchema.StringPropertyConfig.INDEXING_TYPE_PREFIXES)
+                    .setTokenizerType(AppSearchSchema.StringPropertyConfig.TOKENIZER_TYPE_PLAIN)
+                    .build()
+            )
+            .build()
+        for (packageIndex in 0 until PACKAGE_COUNT) {
+            for (databaseIndex in 0 until DATABASES_PER_PACKAGE) {
+                val packageName = "package$packageIndex"
+                val databaseName = "database$databaseIndex"
+                appSearchImpl.setSchema(
+                    packageName,
+                    databaseName,
+                    listOf(schema),
+                    /*visibilityStore=*/ null,
+                    /*schemasNotDisplayedBySystem=*/ emptyList(),
+                    /*schemasVisibleToPackages=*/ emptyMap(),
+                    /*forceOverride=*/ false,
+                    /*version=*/ 0,
+                    /*setSchemaStatsBuilder=*/ null
+                )
+                for (i in 0 until DOCUMENTS_PER_DATABASE) {
+                    appSearchImpl.putDocument(
+                        packageName,
+                        databaseName,
+                        GenericDocument.Builder<GenericDocument.Builder<*>>(
+                            "namespace$i", "id$i", SCHEMA_TYPE
+                        )
+                            .setPropertyString("body", "body of document $i")
+                            .build(),
+                        /*logger=*/ null
+                    )
+                }
+            }
+        }
+    }
+
+    @After
+    fun teardown() {
+        if (::appSearchImpl.isInitialized) {
+            appSearchImpl.close()
+        }
+        icingDir.deleteRecursively()
+    }
+
+    @Test
+    fun query() {
+        benchmarkRule.measureRepeated {
+            val page = appSearchImpl.query(
+                "package0", "database0", "body", SEARCH_SPEC, /*logger=*/ null
+            )
+            runWithTimingDisabled { invalidate(page.nextPageToken) }
+        }
+    }
+
+    @Test
+    fun globalQuery() {
+        benchmarkRule.measureRepeated {
+            val page = appSearchImpl.globalQuery(
+                "body",
+                SEARCH_SPEC,
+                "package0",
+                /*visibilityStore=*/ null,
+                Process.myUid(),
+                /*callerHasSystemAccess=*/ false,
+                /*logger=*/ null
+            )
+            runWithTimingDisabled { invalidate(page.nextPageToken) }
+        }
+    }
+
+    private fun invalidate(nextPageToken: Long) {
+        // A token of 0 means there is no other page, it wasn't stored
+        if (nextPageToken != 0L) {
+            appSearchImpl.invalidateNextPageToken("package0", nextPageToken)
+        }
+    }
+
+    companion object {
+        private const val PACKAGE_COUNT = 50
+        private const val DATABASES_PER_PACKAGE = 2
+        private const val DOCUMENTS_PER_DATABASE = 10
+        private const val SCHEMA_TYPE = "Email"
+
+        private val SEARCH_SPEC = SearchSpec.Builder()
+            .setTermMatch(SearchSpec.TERM_MATCH_PREFIX)
+            .setResultCountPerPage(DOCUMENTS_PER_DATABASE)
+            .build()
+    }
+}
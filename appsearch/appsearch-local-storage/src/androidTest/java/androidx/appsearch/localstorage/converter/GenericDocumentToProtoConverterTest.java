@@ -18,7 +18,12 @@ package androidx.appsearch.localstorage.converter;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.junit.Assert.assertThrows;
+
+import androidx.appsearch.app.AppSearchResult;
 import androidx.appsearch.app.GenericDocument;
+import androidx.appsearch.exceptions.AppSearchException;
+import androidx.appsearch.localstorage.util.PrefixUtil;
 
 import com.google.android.icing.proto.DocumentProto;
 import com.google.android.icing.proto.PropertyConfigProto;
@@ -230,4 +235,57 @@ public class GenericDocumentToProtoConverterTest {
                 expectedDocument.getPropertyDocument(documentPropertyName).getPropertyStringArray(
                         emptyStringPropertyName)).isEmpty();
     }
+
+    @Test
+    public void testPrefixedDocumentProtoConvert() throws Exception {
+        GenericDocument document =
+                new GenericDocument.Builder<GenericDocument.Builder<?>>("namespace", "id1",
+                        SCHEMA_TYPE_1)
+                        .setCreationTimestampMillis(5L)
+                        .setPropertyString("stringKey1", "test-value1")
+                        .setPropertyDocument("documentKey1", DOCUMENT_PROPERTIES_1)
+                        .setPropertyDocument("documentKey2", DOCUMENT_PROPERTIES_2)
+                        .build();
+
+        DocumentProto.Builder expectedBuilder =
+                GenericDocumentToProtoConverter.toDocumentProto(document).toBuilder();
+        PrefixUtil.addPrefixToDocument(expectedBuilder, PREFIX);
+        DocumentProto prefixedDocumentProto =
+                GenericDocumentToProtoConverter.toDocumentProto(document, PREFIX);
+        assertThat(prefixedDocumentProto).isEqualTo(expectedBuilder.build());
+
+        GenericDocument convertedGenericDocument =
+                GenericDocumentToProtoConverter.toGenericDocumentFromPrefixedProto(
+                        prefixedDocumentProto, PREFIX, SCHEMA_MAP);
+        assertThat(convertedGenericDocument).isEqualTo(document);
+    }
+
+    @Test
+    public void testPrefixedDocumentProtoConvert_wrongPrefix() {
+        GenericDocument document =
+                new GenericDocument.Builder<GenericDocument.Builder<?>>("namespace", "id1",
+                        SCHEMA_TYPE_1)
+                        .setCreationTimestampMillis(5L)
+                        .setPropertyDocument("documentKey1", DOCUMENT_PROPERTIES_1)
+                        .build();
+        DocumentProto documentProto =
+                GenericDocumentToProtoConverter.toDocumentProto(document, PREFIX);
+
+        AppSearchException e = assertThrows(AppSearchException.class,
+                () -> GenericDocumentToProtoConverter.toGenericDocumentFromPrefixedProto(
+                        documentProto, "package$otherDatabase/", SCHEMA_MAP));
+        assertThat(e.getResultCode()).isEqualTo(AppSearchResult.RESULT_INTERNAL_ERROR);
+
+        // A nested document with another prefix is rejected too.
+        DocumentProto.Builder nestedBuilder = documentProto.toBuilder();
+        DocumentProto nestedDocumentProto = GenericDocumentToProtoConverter.toDocumentProto(
+                DOCUMENT_PROPERTIES_1, "package$otherDatabase/");
+        nestedBuilder.setProperties(0, documentProto.getProperties(0).toBuilder()
+                .setDocumentValues(0, nestedDocumentProto));
+        DocumentProto mixedDocumentProto = nestedBuilder.build();
+        e = assertThrows(AppSearchException.class,
+                () -> GenericDocumentToProtoConverter.toGenericDocumentFromPrefixedProto(
+                        mixedDocumentProto, PREFIX, SCHEMA_MAP));
+        assertThat(e.getResultCode()).isEqualTo(AppSearchResult.RESULT_INTERNAL_ERROR);
+    }
 }
@@ -16,13 +16,11 @@
 
 package androidx.appsearch.localstorage;
 
-import static androidx.appsearch.localstorage.util.PrefixUtil.addPrefixToDocument;
 import static androidx.appsearch.localstorage.util.PrefixUtil.createPrefix;
 import static androidx.appsearch.localstorage.util.PrefixUtil.getDatabaseName;
 import static androidx.appsearch.localstorage.util.PrefixUtil.getPackageName;
 import static androidx.appsearch.localstorage.util.PrefixUtil.getPrefix;
 import static androidx.appsearch.localstorage.util.PrefixUtil.removePrefix;
-import static androidx.appsearch.localstorage.util.PrefixUtil.removePrefixesFromDocument;
 
 import android.os.Bundle;
 import android.os.SystemClock;
@@ -34,6 +32,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
+import androidx.appsearch.app.AppSearchBatchResult;
 import androidx.appsearch.app.AppSearchResult;
 import androidx.appsearch.app.AppSearchSchema;
 import androidx.appsearch.app.GenericDocument;
@@ -101,6 +100,7 @@ import com.google.android.icing.proto.UsageReport;
 import java.io.Closeable;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -629,47 +629,8 @@ public final class AppSearchImpl implements Closeable {
         try {
             throwIfClosedLocked();
 
-            // Generate Document Proto
-            long generateDocumentProtoStartTimeMillis = SystemClock.elapsedRealtime();
-            DocumentProto.Builder documentBuilder = GenericDocumentToProtoConverter.toDocumentProto(
-                    document).toBuilder();
-            long generateDocumentProtoEndTimeMillis = SystemClock.elapsedRealtime();
-
-            // Rewrite Document Type
-            long rewriteDocumentTypeStartTimeMillis = SystemClock.elapsedRealtime();
-            String prefix = createPrefix(packageName, databaseName);
-            addPrefixToDocument(documentBuilder, prefix);
-            long rewriteDocumentTypeEndTimeMillis = SystemClock.elapsedRealtime();
-            DocumentProto finalDocument = documentBuilder.build();
-
-            // Check limits
-            int newDocumentCount = enforceLimitConfigLocked(
-                    packageName, finalDocument.getUri(), finalDocument.getSerializedSize());
-
-            // Insert document
-            mLogUtil.piiTrace("putDocument, request", finalDocument.getUri(), finalDocument);
-            PutResultProto putResultProto = mIcingSearchEngineLocked.put(finalDocument);
-            mLogUtil.piiTrace("putDocument, response", putResultProto.getStatus(), putResultProto);
-
-            // Update caches
-            addToMap(mNamespaceMapLocked, prefix, finalDocument.getNamespace());
-            mDocumentCountMapLocked.put(packageName, newDocumentCount);
-
-            // Logging stats
-            if (pStatsBuilder != null) {
-                pStatsBuilder
-                        .setStatusCode(statusProtoToResultCode(putResultProto.getStatus()))
-                        .setGenerateDocumentProtoLatencyMillis(
-                                (int) (generateDocumentProtoEndTimeMillis
-                                        - generateDocumentProtoStartTimeMillis))
-                        .setRewriteDocumentTypesLatencyMillis(
-                                (int) (rewriteDocumentTypeEndTimeMillis
-                                        - rewriteDocumentTypeStartTimeMillis));
-                AppSearchLoggerHelper.copyNativeStats(putResultProto.getPutDocumentStats(),
-                        pStatsBuilder);
-            }
-
-            checkSuccess(putResultProto.getStatus());
+            putDocumentLocked(packageName, createPrefix(packageName, databaseName), document,
+                    pStatsBuilder);
         } finally {
             mReadWriteLock.writeLock().unlock();
 
@@ -682,6 +643,116 @@ public final class AppSearchImpl implements Closeable {
         }
     }
 
+    /**
+     * Adds a batch of documents to the AppSearch index, and persists them to disk with
+     * {@link PersistType.Code#LITE}.
+     *
+     * <p>Unlike calling {@link #putDocument} for each document, the lock is only acquired once
+     * for the whole batch, and a single {@link PutDocumentStats} holding the sum of the stats of
+     * the documents is logged.
+     *
+     * <p>This method belongs to mutate group.
+     *
+     * @param packageName  The package name that owns these documents.
+     * @param databaseName The databaseName these documents reside in.
+     * @param documents    The documents to index.
+     * @return The result of indexing each document, keyed by document ID.
+     * @throws AppSearchException on IcingSearchEngine error while persisting the documents.
+     */
+    @NonNull
+    public AppSearchBatchResult<String, Void> putDocuments(@NonNull String packageName,
+            @NonNull String databaseName, @NonNull List<GenericDocument> documents,
+            @Nullable AppSearchLogger logger) throws AppSearchException {
+        long totalStartTimeMillis = SystemClock.elapsedRealtime();
+        AppSearchBatchResult.Builder<String, Void> resultBuilder =
+                new AppSearchBatchResult.Builder<>();
+        List<PutDocumentStats> documentStats = null;
+        if (logger != null) {
+            documentStats = new ArrayList<>(documents.size());
+        }
+        @AppSearchResult.ResultCode int statusCode = AppSearchResult.RESULT_OK;
+
+        mReadWriteLock.writeLock().lock();
+        try {
+            String prefix = createPrefix(packageName, databaseName);
+            for (int i = 0; i < documents.size(); i++) {
+                GenericDocument document = documents.get(i);
+                PutDocumentStats.Builder pStatsBuilder = null;
+                if (logger != null) {
+                    pStatsBuilder = new PutDocumentStats.Builder(packageName, databaseName);
+                }
+                try {
+                    throwIfClosedLocked();
+                    putDocumentLocked(packageName, prefix, document, pStatsBuilder);
+                    resultBuilder.setSuccess(document.getId(), /*value=*/ null);
+                } catch (Throwable t) {
+                    AppSearchResult<Void> result = AppSearchResult.throwableToFailedResult(t);
+                    resultBuilder.setResult(document.getId(), result);
+                    if (statusCode == AppSearchResult.RESULT_OK) {
+                        statusCode = result.getResultCode();
+                    }
+                } finally {
+                    if (pStatsBuilder != null) {
+                        documentStats.add(pStatsBuilder.build());
+                    }
+                }
+            }
+
+            // Now that the batch has been written. Persist the newly written data.
+            persistToDiskLocked(PersistType.Code.LITE);
+        } finally {
+            mReadWriteLock.writeLock().unlock();
+
+            if (logger != null) {
+                PutDocumentStats.Builder pStatsBuilder =
+                        new PutDocumentStats.Builder(packageName, databaseName)
+                                .setStatusCode(statusCode);
+                AppSearchLoggerHelper.copyStats(documentStats, pStatsBuilder);
+                pStatsBuilder.setTotalLatencyMillis(
+                        (int) (SystemClock.elapsedRealtime() - totalStartTimeMillis));
+                logger.logStats(pStatsBuilder.build());
+            }
+        }
+        return resultBuilder.build();
+    }
+
+    @GuardedBy("mReadWriteLock")
+    private void putDocumentLocked(@NonNull String packageName, @NonNull String prefix,
+            @NonNull GenericDocument document, @Nullable PutDocumentStats.Builder pStatsBuilder)
+            throws AppSearchException {
+        // Generate Document Proto, with the document types rewritten in the same pass
+        long generateDocumentProtoStartTimeMillis = SystemClock.elapsedRealtime();
+        DocumentProto finalDocument =
+                GenericDocumentToProtoConverter.toDocumentProto(document, prefix);
+        long generateDocumentProtoEndTimeMillis = SystemClock.elapsedRealtime();
+
+        // Check limits
+        int newDocumentCount = enforceLimitConfigLocked(
+                packageName, finalDocument.getUri(), finalDocument.getSerializedSize());
+
+        // Insert document
+        mLogUtil.piiTrace("putDocument, request", finalDocument.getUri(), finalDocument);
+        PutResultProto putResultProto = mIcingSearchEngineLocked.put(finalDocument);
+        mLogUtil.piiTrace("putDocument, response", putResultProto.getStatus(), putResultProto);
+
+        // Update caches
+        addToMap(mNamespaceMapLocked, prefix, finalDocument.getNamespace());
+        mDocumentCountMapLocked.put(packageName, newDocumentCount);
+
+        // Logging stats
+        if (pStatsBuilder != null) {
+            pStatsBuilder
+                    .setStatusCode(statusProtoToResultCode(putResultProto.getStatus()))
+                    .setGenerateDocumentProtoLatencyMillis(
+                            (int) (generateDocumentProtoEndTimeMillis
+                                    - generateDocumentProtoStartTimeMillis));
+            AppSearchLoggerHelper.copyNativeStats(putResultProto.getPutDocumentStats(),
+                    pStatsBuilder);
+        }
+
+        checkSuccess(putResultProto.getStatus());
+    }
+
     /**
      * Checks that a new document can be added to the given packageName with the given serialized
      * size without violating our {@link LimitConfig}.
@@ -792,10 +863,8 @@ public final class AppSearchImpl implements Closeable {
             // schema had ever been set for that prefix. Given we have retrieved a document from
             // the index, we know a schema had to have been set.
             Map<String, SchemaTypeConfigProto> schemaTypeMap = mSchemaMapLocked.get(prefix);
-            DocumentProto.Builder documentBuilder = getResultProto.getDocument().toBuilder();
-            removePrefixesFromDocument(documentBuilder);
-            return GenericDocumentToProtoConverter.toGenericDocument(documentBuilder.build(),
-                    prefix, schemaTypeMap);
+            return GenericDocumentToProtoConverter.toGenericDocumentFromPrefixedProto(
+                    getResultProto.getDocument(), prefix, schemaTypeMap);
         } finally {
             mReadWriteLock.readLock().unlock();
         }
@@ -848,7 +917,7 @@ public final class AppSearchImpl implements Closeable {
             Set<String> allowedPrefixedSchemas = getAllowedPrefixSchemasLocked(prefix, searchSpec);
 
             SearchResultPage searchResultPage =
-                    doQueryLocked(Collections.singleton(createPrefix(packageName, databaseName)),
+                    doQueryLocked(Collections.singleton(prefix),
                             allowedPrefixedSchemas,
                             queryExpression,
                             searchSpec,
@@ -1249,13 +1318,7 @@ public final class AppSearchImpl implements Closeable {
             throwIfClosedLocked();
 
             String prefixedNamespace = createPrefix(packageName, databaseName) + namespace;
-            if (mLogUtil.isPiiTraceEnabled()) {
-                mLogUtil.piiTrace("removeById, request", prefixedNamespace + ", " + id);
-            }
-            DeleteResultProto deleteResultProto =
-                    mIcingSearchEngineLocked.delete(prefixedNamespace, id);
-            mLogUtil.piiTrace(
-                    "removeById, response", deleteResultProto.getStatus(), deleteResultProto);
+            DeleteResultProto deleteResultProto = removeLocked(prefixedNamespace, id);
 
             if (removeStatsBuilder != null) {
                 removeStatsBuilder.setStatusCode(statusProtoToResultCode(
@@ -1276,6 +1339,97 @@ public final class AppSearchImpl implements Closeable {
         }
     }
 
+    /**
+     * Removes the given documents by id, and persists the removal to disk with
+     * {@link PersistType.Code#LITE}.
+     *
+     * <p>Unlike calling {@link #remove} for each document, the lock is only acquired once for the
+     * whole batch.
+     *
+     * <p>This method belongs to mutate group.
+     *
+     * @param packageName        The package name that owns the documents.
+     * @param databaseName       The databaseName the documents are in.
+     * @param namespace          Namespace of the documents to remove.
+     * @param ids                IDs of the documents to remove.
+     * @param removeStatsBuilder builder for {@link RemoveStats} to hold the stats of the whole
+     *                           batch
+     * @return The result of removing each document, keyed by document ID.
+     * @throws AppSearchException on IcingSearchEngine error while persisting the removal.
+     */
+    @NonNull
+    public AppSearchBatchResult<String, Void> removeDocuments(
+            @NonNull String packageName,
+            @NonNull String databaseName,
+            @NonNull String namespace,
+            @NonNull Collection<String> ids,
+            @Nullable RemoveStats.Builder removeStatsBuilder) throws AppSearchException {
+        long totalLatencyStartTimeMillis = SystemClock.elapsedRealtime();
+        AppSearchBatchResult.Builder<String, Void> resultBuilder =
+                new AppSearchBatchResult.Builder<>();
+        @AppSearchResult.ResultCode int statusCode = AppSearchResult.RESULT_OK;
+        int nativeLatencyMillis = 0;
+        int numDocumentsDeleted = 0;
+
+        mReadWriteLock.writeLock().lock();
+        try {
+            String prefixedNamespace = createPrefix(packageName, databaseName) + namespace;
+            for (String id : ids) {
+                try {
+                    throwIfClosedLocked();
+                    DeleteResultProto deleteResultProto = removeLocked(prefixedNamespace, id);
+
+                    if (removeStatsBuilder != null) {
+                        AppSearchLoggerHelper.copyNativeStats(deleteResultProto.getDeleteStats(),
+                                removeStatsBuilder);
+                        nativeLatencyMillis +=
+                                deleteResultProto.getDeleteStats().getLatencyMs();
+                    }
+                    checkSuccess(deleteResultProto.getStatus());
+                    numDocumentsDeleted++;
+                    resultBuilder.setSuccess(id, /*value=*/ null);
+                } catch (Throwable t) {
+                    AppSearchResult<Void> result = AppSearchResult.throwableToFailedResult(t);
+                    resultBuilder.setResult(id, result);
+                    if (statusCode == AppSearchResult.RESULT_OK) {
+                        statusCode = result.getResultCode();
+                    }
+                }
+            }
+
+            // Update derived maps
+            updateDocumentCountAfterRemovalLocked(packageName, numDocumentsDeleted);
+
+            // Now that the batch has been written. Persist the newly written data.
+            persistToDiskLocked(PersistType.Code.LITE);
+        } finally {
+            mReadWriteLock.writeLock().unlock();
+            if (removeStatsBuilder != null) {
+                removeStatsBuilder
+                        .setStatusCode(statusCode)
+                        .setNativeLatencyMillis(nativeLatencyMillis)
+                        .setDeletedDocumentCount(numDocumentsDeleted)
+                        .setTotalLatencyMillis(
+                                (int) (SystemClock.elapsedRealtime()
+                                        - totalLatencyStartTimeMillis));
+            }
+        }
+        return resultBuilder.build();
+    }
+
+    @GuardedBy("mReadWriteLock")
+    @NonNull
+    private DeleteResultProto removeLocked(@NonNull String prefixedNamespace, @NonNull String id) {
+        if (mLogUtil.isPiiTraceEnabled()) {
+            mLogUtil.piiTrace("removeById, request", prefixedNamespace + ", " + id);
+        }
+        DeleteResultProto deleteResultProto =
+                mIcingSearchEngineLocked.delete(prefixedNamespace, id);
+        mLogUtil.piiTrace(
+                "removeById, response", deleteResultProto.getStatus(), deleteResultProto);
+        return deleteResultProto;
+    }
+
     /**
      * Removes documents by given query.
      *
@@ -1536,21 +1690,27 @@ public final class AppSearchImpl implements Closeable {
     public void persistToDisk(@NonNull PersistType.Code persistType) throws AppSearchException {
         mReadWriteLock.writeLock().lock();
         try {
-            throwIfClosedLocked();
-
-            mLogUtil.piiTrace("persistToDisk, request", persistType);
-            PersistToDiskResultProto persistToDiskResultProto =
-                    mIcingSearchEngineLocked.persistToDisk(persistType);
-            mLogUtil.piiTrace(
-                    "persistToDisk, response",
-                    persistToDiskResultProto.getStatus(),
-                    persistToDiskResultProto);
-            checkSuccess(persistToDiskResultProto.getStatus());
+            persistToDiskLocked(persistType);
         } finally {
             mReadWriteLock.writeLock().unlock();
         }
     }
 
+    @GuardedBy("mReadWriteLock")
+    private void persistToDiskLocked(@NonNull PersistType.Code persistType)
+            throws AppSearchException {
+        throwIfClosedLocked();
+
+        mLogUtil.piiTrace("persistToDisk, request", persistType);
+        PersistToDiskResultProto persistToDiskResultProto =
+                mIcingSearchEngineLocked.persistToDisk(persistType);
+        mLogUtil.piiTrace(
+                "persistToDisk, response",
+                persistToDiskResultProto.getStatus(),
+                persistToDiskResultProto);
+        checkSuccess(persistToDiskResultProto.getStatus());
+    }
+
     /**
      * Remove all {@link AppSearchSchema}s and {@link GenericDocument}s under the given package.
      *
@@ -1789,9 +1949,7 @@ public final class AppSearchImpl implements Closeable {
             @NonNull SearchSpecProto.Builder searchSpecBuilder,
             @NonNull Set<String> prefixes,
             @NonNull Set<String> allowedPrefixedSchemas) {
-        // Create a copy since retainAll() modifies the original set.
-        Set<String> existingPrefixes = new ArraySet<>(mNamespaceMapLocked.keySet());
-        existingPrefixes.retainAll(prefixes);
+        Set<String> existingPrefixes = getExistingPrefixesLocked(prefixes);
 
         if (existingPrefixes.isEmpty()) {
             // None of the prefixes exist, empty query.
@@ -1840,31 +1998,53 @@ public final class AppSearchImpl implements Closeable {
         return true;
     }
 
+    /**
+     * Returns the prefixes of {@code prefixes} that have namespaces, i.e. that have documents.
+     *
+     * <p>Only {@code prefixes} is iterated over, which is usually much smaller than the set of
+     * all the prefixes of the device.
+     */
+    @GuardedBy("mReadWriteLock")
+    @NonNull
+    private Set<String> getExistingPrefixesLocked(@NonNull Set<String> prefixes) {
+        Set<String> existingPrefixes = new ArraySet<>(prefixes.size());
+        for (String prefix : prefixes) {
+            if (mNamespaceMapLocked.containsKey(prefix)) {
+                existingPrefixes.add(prefix);
+            }
+        }
+        return existingPrefixes;
+    }
+
     /**
      * Returns the set of allowed prefixed schemas that the {@code prefix} can query while taking
      * into account the {@code searchSpec} schema filters.
      *
      * <p>This only checks intersection of schema filters on the search spec with those that the
      * prefix owns itself. This does not check global query permissions.
+     *
+     * <p>The returned set must not be modified, and is only valid while the lock is held.
      */
     @GuardedBy("mReadWriteLock")
     private Set<String> getAllowedPrefixSchemasLocked(@NonNull String prefix,
             @NonNull SearchSpec searchSpec) {
-        Set<String> allowedPrefixedSchemas = new ArraySet<>();
+        List<String> schemaFilters = searchSpec.getFilterSchemas();
+        if (schemaFilters.isEmpty()) {
+            // If the client didn't specify any schema filters, search over all of their schemas.
+            // The key set of the schema map is used as is, it is only modified under the write
+            // lock.
+            Map<String, SchemaTypeConfigProto> prefixedSchemaMap = mSchemaMapLocked.get(prefix);
+            if (prefixedSchemaMap == null) {
+                return Collections.emptySet();
+            }
+            return Collections.unmodifiableSet(prefixedSchemaMap.keySet());
+        }
 
         // Add all the schema filters the client specified.
-        List<String> schemaFilters = searchSpec.getFilterSchemas();
+        Set<String> allowedPrefixedSchemas = new ArraySet<>(schemaFilters.size());
         for (int i = 0; i < schemaFilters.size(); i++) {
             allowedPrefixedSchemas.add(prefix + schemaFilters.get(i));
         }
-
-        if (allowedPrefixedSchemas.isEmpty()) {
-            // If the client didn't specify any schema filters, search over all of their schemas
-            Map<String, SchemaTypeConfigProto> prefixedSchemaMap = mSchemaMapLocked.get(prefix);
-            if (prefixedSchemaMap != null) {
-                allowedPrefixedSchemas.addAll(prefixedSchemaMap.keySet());
-            }
-        }
         return allowedPrefixedSchemas;
     }
 
@@ -1883,9 +2063,7 @@ public final class AppSearchImpl implements Closeable {
     void rewriteResultSpecForPrefixesLocked(
             @NonNull ResultSpecProto.Builder resultSpecBuilder,
             @NonNull Set<String> prefixes, @NonNull Set<String> allowedPrefixedSchemas) {
-        // Create a copy since retainAll() modifies the original set.
-        Set<String> existingPrefixes = new ArraySet<>(mNamespaceMapLocked.keySet());
-        existingPrefixes.retainAll(prefixes);
+        Set<String> existingPrefixes = getExistingPrefixesLocked(prefixes);
 
         List<TypePropertyMask> prefixedTypePropertyMasks = new ArrayList<>();
         // Rewrite filters to include a database prefix.
@@ -1921,8 +2099,7 @@ public final class AppSearchImpl implements Closeable {
     private void addPerPackagePerNamespaceResultGroupingsLocked(
             @NonNull ResultSpecProto.Builder resultSpecBuilder,
             @NonNull Set<String> prefixes, int maxNumResults) {
-        Set<String> existingPrefixes = new ArraySet<>(mNamespaceMapLocked.keySet());
-        existingPrefixes.retainAll(prefixes);
+        Set<String> existingPrefixes = getExistingPrefixesLocked(prefixes);
 
         // Create a map for package+namespace to prefixedNamespaces. This is NOT necessarily the
         // same as the list of namespaces. If one package has multiple databases, each with the same
@@ -1979,8 +2156,7 @@ public final class AppSearchImpl implements Closeable {
     private void addPerPackageResultGroupingsLocked(
             @NonNull ResultSpecProto.Builder resultSpecBuilder,
             @NonNull Set<String> prefixes, int maxNumResults) {
-        Set<String> existingPrefixes = new ArraySet<>(mNamespaceMapLocked.keySet());
-        existingPrefixes.retainAll(prefixes);
+        Set<String> existingPrefixes = getExistingPrefixesLocked(prefixes);
 
         // Build up a map of package to namespaces.
         Map<String, List<String>> packageToNamespacesMap = new ArrayMap<>();
@@ -2019,8 +2195,7 @@ public final class AppSearchImpl implements Closeable {
     private void addPerNamespaceResultGroupingsLocked(
             @NonNull ResultSpecProto.Builder resultSpecBuilder,
             @NonNull Set<String> prefixes, int maxNumResults) {
-        Set<String> existingPrefixes = new ArraySet<>(mNamespaceMapLocked.keySet());
-        existingPrefixes.retainAll(prefixes);
+        Set<String> existingPrefixes = getExistingPrefixesLocked(prefixes);
 
         // Create a map of namespace to prefixedNamespaces. This is NOT necessarily the
         // same as the list of namespaces. If a namespace exists under different packages and/or
@@ -2255,19 +2430,24 @@ public final class AppSearchImpl implements Closeable {
         // Parallel array of database names for each document search result.
         List<String> databaseNames = new ArrayList<>(searchResultProto.getResultsCount());
 
-        SearchResultProto.Builder resultsBuilder = searchResultProto.toBuilder();
+        // The prefixes are removed while converting the documents, so the protos returned by
+        // Icing don't need to be copied. Results usually come from a few databases, so the
+        // names of the previous result are reused as long as the prefix stays the same.
+        String prefix = null;
+        String packageName = null;
+        String databaseName = null;
         for (int i = 0; i < searchResultProto.getResultsCount(); i++) {
-            SearchResultProto.ResultProto.Builder resultBuilder =
-                    searchResultProto.getResults(i).toBuilder();
-            DocumentProto.Builder documentBuilder = resultBuilder.getDocument().toBuilder();
-            String prefix = removePrefixesFromDocument(documentBuilder);
-            packageNames.add(getPackageName(prefix));
-            databaseNames.add(getDatabaseName(prefix));
-            resultBuilder.setDocument(documentBuilder);
-            resultsBuilder.setResults(i, resultBuilder);
-        }
-        return SearchResultToProtoConverter.toSearchResultPage(resultsBuilder, packageNames,
-                databaseNames, schemaMap);
+            String prefixedSchema = searchResultProto.getResults(i).getDocument().getSchema();
+            if (prefix == null || !prefixedSchema.startsWith(prefix)) {
+                prefix = getPrefix(prefixedSchema);
+                packageName = getPackageName(prefix);
+                databaseName = getDatabaseName(prefix);
+            }
+            packageNames.add(packageName);
+            databaseNames.add(databaseName);
+        }
+        return SearchResultToProtoConverter.toSearchResultPageFromPrefixedProto(
+                searchResultProto, packageNames, databaseNames, schemaMap);
     }
 
     @GuardedBy("mReadWriteLock")
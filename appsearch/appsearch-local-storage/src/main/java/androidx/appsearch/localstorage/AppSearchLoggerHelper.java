@@ -34,6 +34,8 @@ import com.google.android.icing.proto.PutDocumentStatsProto;
 import com.google.android.icing.proto.QueryStatsProto;
 import com.google.android.icing.proto.SetSchemaResultProto;
 
+import java.util.List;
+
 /**
  * Class contains helper functions for logging.
  *
@@ -69,6 +71,49 @@ public final class AppSearchLoggerHelper {
                         fromNativeStats.getTokenizationStats().getExceededMaxTokenNum());
     }
 
+    /**
+     * Copies the sum of the stats of each document of a batch put to builder.
+     *
+     * @param fromDocumentStats stats of each document copied from
+     * @param toStatsBuilder    stats copied to
+     */
+    static void copyStats(@NonNull List<PutDocumentStats> fromDocumentStats,
+            @NonNull PutDocumentStats.Builder toStatsBuilder) {
+        Preconditions.checkNotNull(fromDocumentStats);
+        Preconditions.checkNotNull(toStatsBuilder);
+        int generateDocumentProtoLatencyMillis = 0;
+        int rewriteDocumentTypesLatencyMillis = 0;
+        int nativeLatencyMillis = 0;
+        int nativeDocumentStoreLatencyMillis = 0;
+        int nativeIndexLatencyMillis = 0;
+        int nativeIndexMergeLatencyMillis = 0;
+        int nativeDocumentSizeBytes = 0;
+        int nativeNumTokensIndexed = 0;
+        boolean nativeExceededMaxNumTokens = false;
+        for (int i = 0; i < fromDocumentStats.size(); i++) {
+            PutDocumentStats stats = fromDocumentStats.get(i);
+            generateDocumentProtoLatencyMillis += stats.getGenerateDocumentProtoLatencyMillis();
+            rewriteDocumentTypesLatencyMillis += stats.getRewriteDocumentTypesLatencyMillis();
+            nativeLatencyMillis += stats.getNativeLatencyMillis();
+            nativeDocumentStoreLatencyMillis += stats.getNativeDocumentStoreLatencyMillis();
+            nativeIndexLatencyMillis += stats.getNativeIndexLatencyMillis();
+            nativeIndexMergeLatencyMillis += stats.getNativeIndexMergeLatencyMillis();
+            nativeDocumentSizeBytes += stats.getNativeDocumentSizeBytes();
+            nativeNumTokensIndexed += stats.getNativeNumTokensIndexed();
+            nativeExceededMaxNumTokens |= stats.getNativeExceededMaxNumTokens();
+        }
+        toStatsBuilder
+                .setGenerateDocumentProtoLatencyMillis(generateDocumentProtoLatencyMillis)
+                .setRewriteDocumentTypesLatencyMillis(rewriteDocumentTypesLatencyMillis)
+                .setNativeLatencyMillis(nativeLatencyMillis)
+                .setNativeDocumentStoreLatencyMillis(nativeDocumentStoreLatencyMillis)
+                .setNativeIndexLatencyMillis(nativeIndexLatencyMillis)
+                .setNativeIndexMergeLatencyMillis(nativeIndexMergeLatencyMillis)
+                .setNativeDocumentSizeBytes(nativeDocumentSizeBytes)
+                .setNativeNumTokensIndexed(nativeNumTokensIndexed)
+                .setNativeExceededMaxNumTokens(nativeExceededMaxNumTokens);
+    }
+
     /**
      * Copies native Initialize stats to builder.
      *
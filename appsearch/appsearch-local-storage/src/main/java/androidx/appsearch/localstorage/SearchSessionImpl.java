@@ -268,21 +268,11 @@ class SearchSessionImpl implements AppSearchSession {
         Preconditions.checkNotNull(request);
         Preconditions.checkState(!mIsClosed, "AppSearchSession has already been closed");
         ListenableFuture<AppSearchBatchResult<String, Void>> future = execute(() -> {
-            AppSearchBatchResult.Builder<String, Void> resultBuilder =
-                    new AppSearchBatchResult.Builder<>();
-            for (int i = 0; i < request.getGenericDocuments().size(); i++) {
-                GenericDocument document = request.getGenericDocuments().get(i);
-                try {
-                    mAppSearchImpl.putDocument(mPackageName, mDatabaseName, document, mLogger);
-                    resultBuilder.setSuccess(document.getId(), /*value=*/ null);
-                } catch (Throwable t) {
-                    resultBuilder.setResult(document.getId(), throwableToFailedResult(t));
-                }
-            }
-            // Now that the batch has been written. Persist the newly written data.
-            mAppSearchImpl.persistToDisk(PersistType.Code.LITE);
+            // The batch is persisted with PersistType.Code.LITE once it has been written.
+            AppSearchBatchResult<String, Void> result = mAppSearchImpl.putDocuments(
+                    mPackageName, mDatabaseName, request.getGenericDocuments(), mLogger);
             mIsMutated = true;
-            return resultBuilder.build();
+            return result;
         });
 
         // The existing documents with same ID will be deleted, so there may be some resources that
@@ -359,30 +349,23 @@ class SearchSessionImpl implements AppSearchSession {
         Preconditions.checkNotNull(request);
         Preconditions.checkState(!mIsClosed, "AppSearchSession has already been closed");
         ListenableFuture<AppSearchBatchResult<String, Void>> future = execute(() -> {
-            AppSearchBatchResult.Builder<String, Void> resultBuilder =
-                    new AppSearchBatchResult.Builder<>();
-            for (String id : request.getIds()) {
-                RemoveStats.Builder removeStatsBuilder = null;
-                if (mLogger != null) {
-                    removeStatsBuilder = new RemoveStats.Builder(mPackageName, mDatabaseName);
-                }
+            RemoveStats.Builder removeStatsBuilder = null;
+            if (mLogger != null) {
+                removeStatsBuilder = new RemoveStats.Builder(mPackageName, mDatabaseName);
+            }
 
-                try {
-                    mAppSearchImpl.remove(mPackageName, mDatabaseName, request.getNamespace(), id,
-                            removeStatsBuilder);
-                    resultBuilder.setSuccess(id, /*value=*/null);
-                } catch (Throwable t) {
-                    resultBuilder.setResult(id, throwableToFailedResult(t));
-                } finally {
-                    if (mLogger != null) {
-                        mLogger.logStats(removeStatsBuilder.build());
-                    }
+            try {
+                // The batch is persisted with PersistType.Code.LITE once it has been written.
+                AppSearchBatchResult<String, Void> result = mAppSearchImpl.removeDocuments(
+                        mPackageName, mDatabaseName, request.getNamespace(), request.getIds(),
+                        removeStatsBuilder);
+                mIsMutated = true;
+                return result;
+            } finally {
+                if (mLogger != null) {
+                    mLogger.logStats(removeStatsBuilder.build());
                 }
             }
-            // Now that the batch has been written. Persist the newly written data.
-            mAppSearchImpl.persistToDisk(PersistType.Code.LITE);
-            mIsMutated = true;
-            return resultBuilder.build();
         });
         checkForOptimize(/*mutateBatchSize=*/ request.getIds().size());
         return future;
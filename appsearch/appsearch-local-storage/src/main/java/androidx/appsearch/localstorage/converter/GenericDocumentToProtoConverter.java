@@ -18,8 +18,11 @@ package androidx.appsearch.localstorage.converter;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
+import androidx.appsearch.app.AppSearchResult;
 import androidx.appsearch.app.AppSearchSchema;
 import androidx.appsearch.app.GenericDocument;
+import androidx.appsearch.exceptions.AppSearchException;
+import androidx.appsearch.localstorage.util.PrefixUtil;
 import androidx.core.util.Preconditions;
 
 import com.google.android.icing.proto.DocumentProto;
@@ -52,13 +55,29 @@ public final class GenericDocumentToProtoConverter {
      * Converts a {@link GenericDocument} into a {@link DocumentProto}.
      */
     @NonNull
-    @SuppressWarnings("unchecked")
     public static DocumentProto toDocumentProto(@NonNull GenericDocument document) {
+        return toDocumentProto(document, /*prefix=*/ "");
+    }
+
+    /**
+     * Converts a {@link GenericDocument} into a {@link DocumentProto} whose schema types and
+     * namespaces, including the ones of nested documents, start with the given prefix.
+     *
+     * <p>This gives the same result as calling {@link PrefixUtil#addPrefixToDocument} on the
+     * output of {@link #toDocumentProto(GenericDocument)}, without copying the proto again.
+     *
+     * @param document the document to convert.
+     * @param prefix   the package + database prefix to add to the schema types and namespaces.
+     */
+    @NonNull
+    public static DocumentProto toDocumentProto(@NonNull GenericDocument document,
+            @NonNull String prefix) {
         Preconditions.checkNotNull(document);
+        Preconditions.checkNotNull(prefix);
         DocumentProto.Builder mProtoBuilder = DocumentProto.newBuilder();
         mProtoBuilder.setUri(document.getId())
-                .setSchema(document.getSchemaType())
-                .setNamespace(document.getNamespace())
+                .setSchema(addPrefix(prefix, document.getSchemaType()))
+                .setNamespace(addPrefix(prefix, document.getNamespace()))
                 .setScore(document.getScore())
                 .setTtlMs(document.getTtlMillis())
                 .setCreationTimestampMs(document.getCreationTimestampMillis());
@@ -96,7 +115,7 @@ public final class GenericDocumentToProtoConverter {
             } else if (property instanceof GenericDocument[]) {
                 GenericDocument[] documentValues = (GenericDocument[]) property;
                 for (int j = 0; j < documentValues.length; j++) {
-                    DocumentProto proto = toDocumentProto(documentValues[j]);
+                    DocumentProto proto = toDocumentProto(documentValues[j], prefix);
                     propertyProto.addDocumentValues(proto);
                 }
             } else {
@@ -129,14 +148,68 @@ public final class GenericDocumentToProtoConverter {
     public static GenericDocument toGenericDocument(@NonNull DocumentProto proto,
             @NonNull String prefix,
             @NonNull Map<String, SchemaTypeConfigProto> schemaTypeMap) {
+        try {
+            return toGenericDocument(proto, prefix, schemaTypeMap, /*isPrefixed=*/ false);
+        } catch (AppSearchException e) {
+            // Only thrown for prefixed documents.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Converts a {@link DocumentProto} as stored in Icing, whose schema types and namespaces
+     * start with the package + database prefix, into a {@link GenericDocument} without the
+     * prefix.
+     *
+     * <p>This gives the same result as calling {@link #toGenericDocument} on the output of
+     * {@link PrefixUtil#removePrefixesFromDocument}, without copying the proto first.
+     *
+     * @param proto         the document to convert to a {@link GenericDocument} instance.
+     * @param prefix        the package + database prefix of the document and its nested
+     *                      documents.
+     * @param schemaTypeMap map of prefixed schema type to {@link SchemaTypeConfigProto}, used
+     *                      for looking up the default empty value to set for a document property
+     *                      that has all empty values.
+     * @throws AppSearchException if the schema type or namespace of the document or one of its
+     *                            nested documents does not start with {@code prefix}.
+     */
+    @NonNull
+    public static GenericDocument toGenericDocumentFromPrefixedProto(
+            @NonNull DocumentProto proto,
+            @NonNull String prefix,
+            @NonNull Map<String, SchemaTypeConfigProto> schemaTypeMap)
+            throws AppSearchException {
+        return toGenericDocument(proto, prefix, schemaTypeMap, /*isPrefixed=*/ true);
+    }
+
+    @NonNull
+    private static GenericDocument toGenericDocument(@NonNull DocumentProto proto,
+            @NonNull String prefix,
+            @NonNull Map<String, SchemaTypeConfigProto> schemaTypeMap,
+            boolean isPrefixed) throws AppSearchException {
         Preconditions.checkNotNull(proto);
+        String schemaType = proto.getSchema();
+        String namespace = proto.getNamespace();
+        String prefixedSchemaType;
+        if (isPrefixed) {
+            // Checked without extracting the prefixes of the schema type and namespace, so that
+            // no string is allocated for it.
+            if (!schemaType.startsWith(prefix) || !namespace.startsWith(prefix)) {
+                throw new AppSearchException(AppSearchResult.RESULT_INTERNAL_ERROR, "Found"
+                        + " unexpected multiple prefix names in document: " + prefix + ", "
+                        + schemaType + ", " + namespace);
+            }
+            prefixedSchemaType = schemaType;
+            schemaType = schemaType.substring(prefix.length());
+            namespace = namespace.substring(prefix.length());
+        } else {
+            prefixedSchemaType = prefix + schemaType;
+        }
         GenericDocument.Builder<?> documentBuilder =
-                new GenericDocument.Builder<>(proto.getNamespace(), proto.getUri(),
-                        proto.getSchema())
+                new GenericDocument.Builder<>(namespace, proto.getUri(), schemaType)
                         .setScore(proto.getScore())
                         .setTtlMillis(proto.getTtlMs())
                         .setCreationTimestampMillis(proto.getCreationTimestampMs());
-        String prefixedSchemaType = prefix + proto.getSchema();
 
         for (int i = 0; i < proto.getPropertiesCount(); i++) {
             PropertyProto property = proto.getProperties(i);
@@ -175,7 +248,7 @@ public final class GenericDocumentToProtoConverter {
                 GenericDocument[] values = new GenericDocument[property.getDocumentValuesCount()];
                 for (int j = 0; j < values.length; j++) {
                     values[j] = toGenericDocument(property.getDocumentValues(j), prefix,
-                            schemaTypeMap);
+                            schemaTypeMap, isPrefixed);
                 }
                 documentBuilder.setPropertyDocument(name, values);
             } else {
@@ -187,6 +260,11 @@ public final class GenericDocumentToProtoConverter {
         return documentBuilder.build();
     }
 
+    @NonNull
+    private static String addPrefix(@NonNull String prefix, @NonNull String name) {
+        return prefix.isEmpty() ? name : prefix + name;
+    }
+
     private static void setEmptyProperty(@NonNull String propertyName,
             @NonNull GenericDocument.Builder<?> documentBuilder,
             @NonNull SchemaTypeConfigProto schema) {
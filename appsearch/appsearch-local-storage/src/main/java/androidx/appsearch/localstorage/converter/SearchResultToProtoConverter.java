@@ -25,6 +25,7 @@ import androidx.annotation.RestrictTo;
 import androidx.appsearch.app.GenericDocument;
 import androidx.appsearch.app.SearchResult;
 import androidx.appsearch.app.SearchResultPage;
+import androidx.appsearch.exceptions.AppSearchException;
 import androidx.core.util.Preconditions;
 
 import com.google.android.icing.proto.SchemaTypeConfigProto;
@@ -66,17 +67,69 @@ public class SearchResultToProtoConverter {
     public static SearchResultPage toSearchResultPage(@NonNull SearchResultProtoOrBuilder proto,
             @NonNull List<String> packageNames, @NonNull List<String> databaseNames,
             @NonNull Map<String, Map<String, SchemaTypeConfigProto>> schemaMap) {
+        try {
+            return toSearchResultPage(proto, packageNames, databaseNames, schemaMap,
+                    /*isPrefixed=*/ false);
+        } catch (AppSearchException e) {
+            // Only thrown for prefixed documents.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Translate a {@link SearchResultProto} as returned by Icing, whose documents still have
+     * their package + database prefixes, into {@link SearchResultPage}.
+     *
+     * <p>The prefixes are removed while converting the documents, without copying the protos.
+     *
+     * @param proto         The {@link SearchResultProto} containing results.
+     * @param packageNames  A parallel array of package names. The package name at index 'i' of
+     *                      this list should be the package that indexed the document at index 'i'
+     *                      of proto.getResults(i).
+     * @param databaseNames A parallel array of database names. The database name at index 'i' of
+     *                      this list should be the database that indexed the document at index
+     *                      'i' of proto.getResults(i).
+     * @param schemaMap     A map of prefixes to an inner-map of prefixed schema type to
+     *                      SchemaTypeConfigProtos, used for setting a default value for results
+     *                      with DocumentProtos that have empty values.
+     * @return {@link SearchResultPage} of results.
+     * @throws AppSearchException if a document does not have the prefix of its package and
+     *                            database.
+     */
+    @NonNull
+    public static SearchResultPage toSearchResultPageFromPrefixedProto(
+            @NonNull SearchResultProtoOrBuilder proto,
+            @NonNull List<String> packageNames, @NonNull List<String> databaseNames,
+            @NonNull Map<String, Map<String, SchemaTypeConfigProto>> schemaMap)
+            throws AppSearchException {
+        return toSearchResultPage(proto, packageNames, databaseNames, schemaMap,
+                /*isPrefixed=*/ true);
+    }
+
+    @NonNull
+    private static SearchResultPage toSearchResultPage(@NonNull SearchResultProtoOrBuilder proto,
+            @NonNull List<String> packageNames, @NonNull List<String> databaseNames,
+            @NonNull Map<String, Map<String, SchemaTypeConfigProto>> schemaMap,
+            boolean isPrefixed) throws AppSearchException {
         Preconditions.checkArgument(
                 proto.getResultsCount() == packageNames.size(),
                 "Size of results does not match the number of package names.");
         Bundle bundle = new Bundle();
         bundle.putLong(SearchResultPage.NEXT_PAGE_TOKEN_FIELD, proto.getNextPageToken());
         ArrayList<Bundle> resultBundles = new ArrayList<>(proto.getResultsCount());
+        String prefix = null;
+        Map<String, SchemaTypeConfigProto> schemaTypeMap = null;
         for (int i = 0; i < proto.getResultsCount(); i++) {
-            String prefix = createPrefix(packageNames.get(i), databaseNames.get(i));
-            Map<String, SchemaTypeConfigProto> schemaTypeMap = schemaMap.get(prefix);
-            SearchResult result = toSearchResult(
-                    proto.getResults(i), packageNames.get(i), databaseNames.get(i), schemaTypeMap);
+            String packageName = packageNames.get(i);
+            String databaseName = databaseNames.get(i);
+            // Consecutive results usually come from the same database, reuse its prefix.
+            if (i == 0 || !packageName.equals(packageNames.get(i - 1))
+                    || !databaseName.equals(databaseNames.get(i - 1))) {
+                prefix = createPrefix(packageName, databaseName);
+                schemaTypeMap = schemaMap.get(prefix);
+            }
+            SearchResult result = toSearchResult(proto.getResults(i), packageName,
+                    databaseName, prefix, schemaTypeMap, isPrefixed);
             resultBundles.add(result.getBundle());
         }
         bundle.putParcelableArrayList(SearchResultPage.RESULTS_FIELD, resultBundles);
@@ -89,9 +142,11 @@ public class SearchResultToProtoConverter {
      * @param proto                The proto to be converted.
      * @param packageName          The package name associated with the document in {@code proto}.
      * @param databaseName         The database name associated with the document in {@code proto}.
+     * @param prefix               The package + database prefix of the document.
      * @param schemaTypeToProtoMap A map of prefixed schema types to their corresponding
      *                             SchemaTypeConfigProto, used for setting a default value for
      *                             results with DocumentProtos that have empty values.
+     * @param isPrefixed           Whether the document in {@code proto} still has its prefix.
      * @return A {@link SearchResult} bundle.
      */
     @NonNull
@@ -99,10 +154,13 @@ public class SearchResultToProtoConverter {
             @NonNull SearchResultProto.ResultProtoOrBuilder proto,
             @NonNull String packageName,
             @NonNull String databaseName,
-            @NonNull Map<String, SchemaTypeConfigProto> schemaTypeToProtoMap) {
-        String prefix = createPrefix(packageName, databaseName);
-        GenericDocument document =
-                GenericDocumentToProtoConverter.toGenericDocument(proto.getDocument(), prefix,
+            @NonNull String prefix,
+            @NonNull Map<String, SchemaTypeConfigProto> schemaTypeToProtoMap,
+            boolean isPrefixed) throws AppSearchException {
+        GenericDocument document = isPrefixed
+                ? GenericDocumentToProtoConverter.toGenericDocumentFromPrefixedProto(
+                        proto.getDocument(), prefix, schemaTypeToProtoMap)
+                : GenericDocumentToProtoConverter.toGenericDocument(proto.getDocument(), prefix,
                         schemaTypeToProtoMap);
         SearchResult.Builder builder =
                 new SearchResult.Builder(packageName, databaseName)
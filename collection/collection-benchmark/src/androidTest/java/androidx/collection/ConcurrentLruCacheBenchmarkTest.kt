@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Compares the throughput of [LruCache] and [ConcurrentLruCache] when shared by multiple threads.
+ * Each thread performs [OPERATIONS_PER_THREAD] gets over a key space twice the size of the cache,
+ * with every tenth operation being a put.
+ */
+@RunWith(Parameterized::class)
+class ConcurrentLruCacheBenchmarkTest(val threadCount: Int, val concurrent: Boolean) {
+
+    @get:Rule
+    val benchmark = BenchmarkRule()
+
+    private val executor = Executors.newFixedThreadPool(threadCount)
+
+    @After
+    fun tearDown() {
+        executor.shutdownNow()
+    }
+
+    @Test
+    fun getAndPut() {
+        val cache = if (concurrent) {
+            val cache = object : ConcurrentLruCache<Int, String>(CACHE_SIZE) {
+                override fun create(key: Int): String? = "value of $key"
+            }
+            CacheOperations(cache::get, cache::put)
+        } else {
+            val cache = object : LruCache<Int, String>(CACHE_SIZE) {
+                override fun create(key: Int): String? = "value of $key"
+            }
+            CacheOperations(cache::get, cache::put)
+        }
+        val barrier = CyclicBarrier(threadCount)
+        val tasks = List(threadCount) { thread ->
+            Runnable {
+                barrier.await()
+                var key = thread * 7919
+                for (i in 0 until OPERATIONS_PER_THREAD) {
+                    key = (key + 31) % (CACHE_SIZE * 2)
+                    if (i % 10 == 0) {
+                        cache.put(key, "put $key")
+                    } else {
+                        cache.get(key)
+                    }
+                }
+            }
+        }
+
+        benchmark.measureRepeated {
+            val futures = ArrayList<Future<*>>(threadCount)
+            for (task in tasks) {
+                futures.add(executor.submit(task))
+            }
+            futures.forEach { it.get() }
+        }
+    }
+
+    private class CacheOperations(
+        val get: (Int) -> String?,
+        val put: (Int, String) -> String?
+    )
+
+    companion object {
+        private const val CACHE_SIZE = 1000
+        private const val OPERATIONS_PER_THREAD = 10000
+
+        @JvmStatic
+        @Parameters(name = "threadCount={0}, concurrent={1}")
+        fun parameters() = buildParameters(
+            listOf<Any>(1, 4, 16),
+            listOf<Any>(false, true),
+        )
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+
+/**
+ * Measures a put/remove cycle on [SimpleArrayMap] and [ArraySet] with and without a
+ * [ThreadLocalArrayPool]. Keys are boxed up front, so the allocation count reported by the
+ * benchmark only covers the backing arrays of the containers.
+ */
+@RunWith(Parameterized::class)
+class ContainerArrayPoolBenchmarkTest(size: Int, private val pooled: Boolean) {
+    @get:Rule
+    val benchmark = BenchmarkRule()
+
+    private val keys = Array(size) { it }
+    private val pool = ThreadLocalArrayPool()
+
+    @Before
+    fun installPool() {
+        if (pooled) {
+            ContainerArrayPool.setGlobalPool(pool)
+        }
+    }
+
+    @After
+    fun uninstallPool() {
+        ContainerArrayPool.setGlobalPool(null)
+        if (pooled) {
+            // Every cycle after the first one should only use pooled arrays.
+            assertTrue(pool.hitCount() > pool.missCount())
+        }
+    }
+
+    @Test
+    fun simpleArrayMapPutRemove() {
+        benchmark.measureRepeated {
+            val map = SimpleArrayMap<Int, Int>()
+            for (key in keys) {
+                map.put(key, key)
+            }
+            for (key in keys) {
+                map.remove(key)
+            }
+        }
+    }
+
+    @Test
+    fun arraySetAddRemove() {
+        benchmark.measureRepeated {
+            val set = ArraySet<Int>()
+            for (key in keys) {
+                set.add(key)
+            }
+            for (key in keys) {
+                set.remove(key)
+            }
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameters(name = "size={0},pooled={1}")
+        fun parameters() = buildParameters(
+            listOf<Any>(10, 100, 1_000),
+            listOf<Any>(false, true)
+        )
+    }
+}
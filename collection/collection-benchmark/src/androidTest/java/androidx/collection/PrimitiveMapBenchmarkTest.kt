@@ -0,0 +1,221 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+import kotlin.random.Random
+
+/**
+ * Compares the primitive keyed hash maps with the sorted array based containers and
+ * [SimpleArrayMap] for the same workloads. Keys are distinct random values, so the sorted
+ * containers pay for shifting entries on every insertion and removal.
+ */
+@RunWith(Parameterized::class)
+class PrimitiveMapBenchmarkTest(private val size: Int, private val type: MapType) {
+    @get:Rule
+    val benchmark = BenchmarkRule()
+
+    private val keys: LongArray = Random(0).let { random ->
+        val seen = IntSet(size)
+        LongArray(size) {
+            var key: Int
+            do {
+                key = random.nextInt()
+            } while (!seen.add(key))
+            // Make the long keyed maps use keys that don't fit in an int.
+            if (type.longKeys) key.toLong() shl 16 else key.toLong()
+        }
+    }
+
+    @Test
+    fun fill() {
+        benchmark.measureRepeated {
+            val map = type.create()
+            for (key in keys) {
+                map.put(key)
+            }
+        }
+    }
+
+    @Test
+    fun get() {
+        val map = filled()
+        benchmark.measureRepeated {
+            for (key in keys) {
+                map.get(key)
+            }
+        }
+    }
+
+    @Test
+    fun removeAndPut() {
+        val map = filled()
+        benchmark.measureRepeated {
+            for (key in keys) {
+                map.remove(key)
+                map.put(key)
+            }
+        }
+    }
+
+    @Test
+    fun iterate() {
+        val map = filled()
+        benchmark.measureRepeated {
+            map.iterate()
+        }
+    }
+
+    private fun filled(): BenchmarkMap = type.create().apply {
+        for (key in keys) {
+            put(key)
+        }
+    }
+
+    interface BenchmarkMap {
+        fun put(key: Long)
+        fun get(key: Long): Any?
+        fun remove(key: Long)
+        fun iterate(): Long
+    }
+
+    enum class MapType(val longKeys: Boolean) {
+        INT_INT_MAP(false) {
+            override fun create() = object : BenchmarkMap {
+                val map = IntIntMap()
+                override fun put(key: Long) = map.put(key.toInt(), key.toInt())
+                override fun get(key: Long) = map.get(key.toInt(), 0)
+                override fun remove(key: Long) {
+                    map.remove(key.toInt())
+                }
+                override fun iterate(): Long {
+                    var sum = 0L
+                    for (i in 0 until map.size()) {
+                        sum += map.keyAt(i) + map.valueAt(i)
+                    }
+                    return sum
+                }
+            }
+        },
+        INT_OBJECT_MAP(false) {
+            override fun create() = object : BenchmarkMap {
+                val map = IntObjectMap<String>()
+                override fun put(key: Long) {
+                    map.put(key.toInt(), VALUE)
+                }
+                override fun get(key: Long) = map.get(key.toInt())
+                override fun remove(key: Long) {
+                    map.remove(key.toInt())
+                }
+                override fun iterate(): Long {
+                    var sum = 0L
+                    for (i in 0 until map.size()) {
+                        sum += map.keyAt(i) + map.valueAt(i).length
+                    }
+                    return sum
+                }
+            }
+        },
+        SPARSE_ARRAY_COMPAT(false) {
+            override fun create() = object : BenchmarkMap {
+                val map = SparseArrayCompat<String>()
+                override fun put(key: Long) = map.put(key.toInt(), VALUE)
+                override fun get(key: Long) = map.get(key.toInt())
+                override fun remove(key: Long) = map.remove(key.toInt())
+                override fun iterate(): Long {
+                    var sum = 0L
+                    for (i in 0 until map.size()) {
+                        sum += map.keyAt(i) + map.valueAt(i).length
+                    }
+                    return sum
+                }
+            }
+        },
+        SIMPLE_ARRAY_MAP(false) {
+            override fun create() = object : BenchmarkMap {
+                val map = SimpleArrayMap<Int, String>()
+                override fun put(key: Long) {
+                    map.put(key.toInt(), VALUE)
+                }
+                override fun get(key: Long) = map.get(key.toInt())
+                override fun remove(key: Long) {
+                    map.remove(key.toInt())
+                }
+                override fun iterate(): Long {
+                    var sum = 0L
+                    for (i in 0 until map.size()) {
+                        sum += map.keyAt(i) + map.valueAt(i).length
+                    }
+                    return sum
+                }
+            }
+        },
+        LONG_OBJECT_MAP(true) {
+            override fun create() = object : BenchmarkMap {
+                val map = LongObjectMap<String>()
+                override fun put(key: Long) {
+                    map.put(key, VALUE)
+                }
+                override fun get(key: Long) = map.get(key)
+                override fun remove(key: Long) {
+                    map.remove(key)
+                }
+                override fun iterate(): Long {
+                    var sum = 0L
+                    for (i in 0 until map.size()) {
+                        sum += map.keyAt(i) + map.valueAt(i).length
+                    }
+                    return sum
+                }
+            }
+        },
+        LONG_SPARSE_ARRAY(true) {
+            override fun create() = object : BenchmarkMap {
+                val map = LongSparseArray<String>()
+                override fun put(key: Long) = map.put(key, VALUE)
+                override fun get(key: Long) = map.get(key)
+                override fun remove(key: Long) = map.remove(key)
+                override fun iterate(): Long {
+                    var sum = 0L
+                    for (i in 0 until map.size()) {
+                        sum += map.keyAt(i) + map.valueAt(i).length
+                    }
+                    return sum
+                }
+            }
+        };
+
+        abstract fun create(): BenchmarkMap
+    }
+
+    companion object {
+        private const val VALUE = "value"
+
+        @JvmStatic
+        @Parameters(name = "size={0},type={1}")
+        fun parameters() = buildParameters(
+            listOf<Any>(10, 100, 1_000, 10_000, 100_000, 1_000_000),
+            listOf<Any>(*MapType.values())
+        )
+    }
+}
@@ -20,6 +20,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
@@ -170,6 +171,13 @@ public final class ArraySet<E> implements Collection<E>, Set<E> {
 
     @SuppressWarnings("ArrayToString")
     private void allocArrays(final int size) {
+        final ContainerArrayPool pool = ContainerArrayPool.sGlobalPool;
+        if (pool != null) {
+            final int capacity = pool.getCapacity(size);
+            mHashes = pool.acquireIntArray(capacity);
+            mArray = pool.acquireObjectArray(capacity);
+            return;
+        }
         if (size == (BASE_SIZE * 2)) {
             synchronized (sTwiceBaseCacheLock) {
                 if (sTwiceBaseCache != null) {
@@ -236,6 +244,15 @@ public final class ArraySet<E> implements Collection<E>, Set<E> {
      */
     @SuppressWarnings("ArrayToString")
     private static void freeArrays(final int[] hashes, final Object[] array, final int size) {
+        final ContainerArrayPool pool = ContainerArrayPool.sGlobalPool;
+        if (pool != null) {
+            if (hashes.length > 0) {
+                Arrays.fill(array, 0, size, null);
+                pool.releaseIntArray(hashes);
+                pool.releaseObjectArray(array);
+            }
+            return;
+        }
         if (hashes.length == (BASE_SIZE * 2)) {
             synchronized (sTwiceBaseCacheLock) {
                 if (sTwiceBaseCacheSize < CACHE_SIZE) {
@@ -549,6 +566,8 @@ public final class ArraySet<E> implements Collection<E>, Set<E> {
                     System.arraycopy(ohashes, index + 1, mHashes, index, nSize - index);
                     System.arraycopy(oarray, index + 1, mArray, index, nSize - index);
                 }
+
+                freeArrays(ohashes, oarray, oSize);
             } else {
                 if (index < nSize) {
                     if (DEBUG) {
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A source of the {@code int[]} and {@code Object[]} arrays backing {@link SimpleArrayMap},
+ * {@link ArrayMap} and {@link ArraySet}.
+ *
+ * <p>By default these containers only recycle their smallest arrays, of capacity 4 and 8, in
+ * small process wide caches guarded by a class level lock. Once a pool is installed with
+ * {@link #setGlobalPool}, every array they allocate is acquired from the pool and every array
+ * they drop when growing, shrinking or being cleared is released back to it.
+ * {@link ThreadLocalArrayPool} is the default implementation.</p>
+ *
+ * <p>Implementations must be thread safe: containers used on different threads call into the
+ * same pool, and an array may be released on a different thread than the one it was acquired
+ * on.</p>
+ */
+public abstract class ContainerArrayPool {
+    static volatile @Nullable ContainerArrayPool sGlobalPool;
+
+    /**
+     * Installs the pool used by all {@link SimpleArrayMap}, {@link ArrayMap} and
+     * {@link ArraySet} instances, or restores the default small array caches when {@code pool}
+     * is null. Containers that already hold arrays keep them and release them to whichever pool
+     * is installed at the time.
+     */
+    public static void setGlobalPool(@Nullable ContainerArrayPool pool) {
+        sGlobalPool = pool;
+    }
+
+    /**
+     * Returns the pool installed with {@link #setGlobalPool}, or null if none is.
+     */
+    @Nullable
+    public static ContainerArrayPool getGlobalPool() {
+        return sGlobalPool;
+    }
+
+    /**
+     * Returns the capacity a container should allocate to hold at least {@code minCapacity}
+     * entries. Pools that bucket arrays by size may round the capacity up so that containers of
+     * slightly different sizes can share arrays.
+     *
+     * <p>The default implementation returns {@code minCapacity}.</p>
+     */
+    public int getCapacity(int minCapacity) {
+        return minCapacity;
+    }
+
+    /**
+     * Returns an {@code int[]} of exactly {@code length} elements. Its contents are undefined.
+     */
+    @NonNull
+    public abstract int[] acquireIntArray(int length);
+
+    /**
+     * Returns an {@code Object[]} of exactly {@code length} elements, all of them null.
+     */
+    @NonNull
+    public abstract Object[] acquireObjectArray(int length);
+
+    /**
+     * Gives back an array previously handed out by this or another pool. The caller must not
+     * use the array anymore.
+     */
+    public abstract void releaseIntArray(@NonNull int[] array);
+
+    /**
+     * Gives back an array previously handed out by this or another pool. The caller must not
+     * use the array anymore and must have cleared all of its elements to null.
+     */
+    public abstract void releaseObjectArray(@NonNull Object[] array);
+}
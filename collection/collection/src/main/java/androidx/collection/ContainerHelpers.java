@@ -37,6 +37,40 @@ class ContainerHelpers {
         return need;
     }
 
+    /** The largest power of two an array can hold, which bounds the size of a hash table. */
+    static final int MAX_HASH_TABLE_SIZE = 1 << 30;
+
+    /**
+     * Returns the size of an open addressing hash table that holds {@code capacity} entries while
+     * staying at most half full: a power of two, at least 8.
+     *
+     * @throws IllegalArgumentException if such a table would be larger than
+     * {@link #MAX_HASH_TABLE_SIZE}
+     */
+    static int hashTableSize(int capacity) {
+        if (capacity > MAX_HASH_TABLE_SIZE / 2) {
+            throw new IllegalArgumentException("capacity too large: " + capacity);
+        }
+        int size = 8;
+        while (size < capacity * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Scrambles the bits of the key so that keys following a pattern, e.g. consecutive or
+     * aligned values, are spread over the whole hash table.
+     */
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int hash(long key) {
+        return hash((int) (key ^ (key >>> 32)));
+    }
+
     public static boolean equal(Object a, Object b) {
         return a == b || (a != null && a.equals(b));
     }
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import java.util.Arrays;
+
+/**
+ * IntSet is a set of ints.
+ *
+ * <p>Unlike {@link SparseArrayCompat} and {@link LongSparseArray}, this container is backed by an
+ * open addressing hash table, so lookups, insertions and removals take constant time on average
+ * instead of requiring a binary search and shifting array entries. Unlike {@link SimpleArrayMap}
+ * and the {@code java.util} collections, elements are never boxed and no object is allocated per
+ * entry: the data lives in a few primitive arrays which are only reallocated when the container
+ * grows.</p>
+ *
+ * <p>It is possible to iterate over the elements in this container without allocating an iterator
+ * using indices in the range <code>0...size()-1</code> with {@link #valueAt(int)}. Unlike
+ * {@link SparseArrayCompat}, the entries are not kept in any particular order.</p>
+ */
+public class IntSet implements Cloneable {
+    // Entries are stored densely in mElements, in no particular order. mTable is an open
+    // addressing hash table with linear probing that stores, for each entry, its index in the
+    // dense arrays plus one; 0 marks an empty slot. Removing an entry moves the last entry into
+    // its place, which keeps the dense arrays free of holes.
+    private int[] mTable;
+    private int[] mElements;
+    private int mSize;
+
+    /**
+     * Creates a new IntSet containing no elements.
+     */
+    public IntSet() {
+        this(10);
+    }
+
+    /**
+     * Creates a new IntSet containing no elements that will not
+     * require any additional memory allocation to store the specified
+     * number of elements.  If you supply an initial capacity of 0, the
+     * set will be initialized with a light-weight representation
+     * not requiring any additional array allocations.
+     */
+    public IntSet(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity < 0");
+        }
+        if (initialCapacity == 0) {
+            mTable = ContainerHelpers.EMPTY_INTS;
+            mElements = ContainerHelpers.EMPTY_INTS;
+        } else {
+            mTable = new int[ContainerHelpers.hashTableSize(initialCapacity)];
+            mElements = new int[initialCapacity];
+        }
+    }
+
+    @Override
+    public IntSet clone() {
+        IntSet clone;
+        try {
+            clone = (IntSet) super.clone();
+            clone.mTable = mTable.clone();
+            clone.mElements = mElements.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e); // Cannot happen as we implement Cloneable.
+        }
+        return clone;
+    }
+
+    /**
+     * Returns true if the set contains the given element.
+     */
+    public boolean contains(int element) {
+        return indexOf(element) >= 0;
+    }
+
+    /**
+     * Adds the specified element to the set.
+     *
+     * @return true if the element was added, false if it was already present.
+     */
+    public boolean add(int element) {
+        if (indexOf(element) >= 0) {
+            return false;
+        }
+        append(element);
+        return true;
+    }
+
+    /**
+     * Removes the specified element from the set.
+     *
+     * @return true if the element was removed, false if it was not present.
+     */
+    public boolean remove(int element) {
+        int index = indexOf(element);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes the element at the given index.
+     *
+     * <p>The last element is moved to {@code index} to fill the gap, so when removing while
+     * iterating with ascending indices, the element at {@code index} must be visited again.</p>
+     */
+    public void removeAt(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        removeFromTable(mElements[index], index);
+        int last = mSize - 1;
+        if (index != last) {
+            int lastKey = mElements[last];
+            // point the table slot of the last entry at its new position
+            mTable[slotOf(lastKey, last)] = index + 1;
+            mElements[index] = lastKey;
+        }
+        mSize = last;
+    }
+
+    /**
+     * Returns the number of elements that this IntSet currently stores.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Return true if size() is 0.
+     * @return true if size() is 0.
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Given an index in the range <code>0...size()-1</code>, returns
+     * the element at that index. Elements are not kept in any particular
+     * order, but indices are stable as long as the set is not modified.
+     */
+    public int valueAt(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return mElements[index];
+    }
+
+    /**
+     * Returns the index of the specified element, or a negative number if
+     * the element is not in the set.
+     */
+    public int indexOf(int element) {
+        if (mSize == 0) {
+            return -1;
+        }
+        int mask = mTable.length - 1;
+        int slot = ContainerHelpers.hash(element) & mask;
+        while (true) {
+            int entry = mTable[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (mElements[entry - 1] == element) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes all elements from this IntSet.
+     */
+    public void clear() {
+        Arrays.fill(mTable, 0);
+        mSize = 0;
+    }
+
+    /**
+     * Increases the capacity of this IntSet so that it can hold at least
+     * {@code minCapacity} elements without further allocations.
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > mElements.length) {
+            mElements = Arrays.copyOf(mElements, minCapacity);
+        }
+        int tableSize = ContainerHelpers.hashTableSize(minCapacity);
+        if (tableSize > mTable.length) {
+            rehash(tableSize);
+        }
+    }
+
+    private void append(int element) {
+        if (mSize == mElements.length) {
+            ensureCapacity(mSize < 4 ? 8 : mSize + (mSize >> 1));
+        }
+        int index = mSize++;
+        mElements[index] = element;
+        insertIntoTable(element, index);
+    }
+
+    private void insertIntoTable(int key, int index) {
+        int mask = mTable.length - 1;
+        int slot = ContainerHelpers.hash(key) & mask;
+        while (mTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        mTable[slot] = index + 1;
+    }
+
+    /**
+     * Returns the table slot pointing at the entry at {@code index}, which must be the position
+     * of {@code key} in the dense arrays.
+     */
+    private int slotOf(int key, int index) {
+        int mask = mTable.length - 1;
+        int slot = ContainerHelpers.hash(key) & mask;
+        while (mTable[slot] != index + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties the table slot of the entry at {@code index} and shifts back the entries that
+     * follow it in the same probe sequence so that lookups don't need tombstones.
+     */
+    private void removeFromTable(int key, int index) {
+        int[] table = mTable;
+        int mask = table.length - 1;
+        int gap = slotOf(key, index);
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int entry = table[slot];
+            if (entry == 0) {
+                break;
+            }
+            int home = ContainerHelpers.hash(mElements[entry - 1]) & mask;
+            // The entry can fill the gap unless its home slot lies cyclically in (gap, slot].
+            boolean canMove = gap <= slot
+                    ? (home <= gap || home > slot)
+                    : (home <= gap && home > slot);
+            if (canMove) {
+                table[gap] = entry;
+                gap = slot;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    private void rehash(int tableSize) {
+        mTable = new int[tableSize];
+        for (int i = 0; i < mSize; i++) {
+            insertIntoTable(mElements[i], i);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation composes a string by iterating over its elements.
+     */
+    @Override
+    public String toString() {
+        if (mSize == 0) {
+            return "{}";
+        }
+
+        StringBuilder buffer = new StringBuilder(mSize * 14);
+        buffer.append('{');
+        for (int i = 0; i < mSize; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(mElements[i]);
+        }
+        buffer.append('}');
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import java.util.Arrays;
+
+/**
+ * LongLongMap maps longs to longs.
+ *
+ * <p>Unlike {@link SparseArrayCompat} and {@link LongSparseArray}, this container is backed by an
+ * open addressing hash table, so lookups, insertions and removals take constant time on average
+ * instead of requiring a binary search and shifting array entries. Unlike {@link SimpleArrayMap}
+ * and the {@code java.util} collections, keys and values are never boxed and no object is
+ * allocated per entry: the data lives in a few primitive arrays which are only reallocated when
+ * the container grows.</p>
+ *
+ * <p>It is possible to iterate over the mappings in this container without allocating an iterator
+ * using indices in the range <code>0...size()-1</code> with {@link #keyAt(int)} and
+ * {@link #valueAt(int)}. Unlike {@link SparseArrayCompat}, the entries are not kept in any
+ * particular order.</p>
+ */
+public class LongLongMap implements Cloneable {
+    // Entries are stored densely in mKeys and mValues, in no particular order. mTable is an open
+    // addressing hash table with linear probing that stores, for each entry, its index in the
+    // dense arrays plus one; 0 marks an empty slot. Removing an entry moves the last entry into
+    // its place, which keeps the dense arrays free of holes.
+    private int[] mTable;
+    private long[] mKeys;
+    private long[] mValues;
+    private int mSize;
+
+    /**
+     * Creates a new LongLongMap containing no mappings.
+     */
+    public LongLongMap() {
+        this(10);
+    }
+
+    /**
+     * Creates a new LongLongMap containing no mappings that will not
+     * require any additional memory allocation to store the specified
+     * number of mappings.  If you supply an initial capacity of 0, the
+     * map will be initialized with a light-weight representation
+     * not requiring any additional array allocations.
+     */
+    public LongLongMap(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity < 0");
+        }
+        if (initialCapacity == 0) {
+            mTable = ContainerHelpers.EMPTY_INTS;
+            mKeys = ContainerHelpers.EMPTY_LONGS;
+            mValues = ContainerHelpers.EMPTY_LONGS;
+        } else {
+            mTable = new int[ContainerHelpers.hashTableSize(initialCapacity)];
+            mKeys = new long[initialCapacity];
+            mValues = new long[initialCapacity];
+        }
+    }
+
+    @Override
+    public LongLongMap clone() {
+        LongLongMap clone;
+        try {
+            clone = (LongLongMap) super.clone();
+            clone.mTable = mTable.clone();
+            clone.mKeys = mKeys.clone();
+            clone.mValues = mValues.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e); // Cannot happen as we implement Cloneable.
+        }
+        return clone;
+    }
+
+    /**
+     * Gets the value mapped from the specified key, or the specified value
+     * if no such mapping has been made.
+     */
+    public long get(long key, long valueIfKeyNotFound) {
+        int index = indexOfKey(key);
+        return index < 0 ? valueIfKeyNotFound : mValues[index];
+    }
+
+    /**
+     * Returns true if the specified key is mapped.
+     */
+    public boolean containsKey(long key) {
+        return indexOfKey(key) >= 0;
+    }
+
+    /**
+     * Adds a mapping from the specified key to the specified value,
+     * replacing the previous mapping from the specified key if there
+     * was one.
+     */
+    public void put(long key, long value) {
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            mValues[index] = value;
+        } else {
+            append(key, value);
+        }
+    }
+
+    /**
+     * Removes the mapping from the specified key, if there was any.
+     *
+     * @return true if a mapping was removed.
+     */
+    public boolean remove(long key) {
+        int index = indexOfKey(key);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes the mapping at the given index.
+     *
+     * <p>The last mapping is moved to {@code index} to fill the gap, so when removing while
+     * iterating with ascending indices, the mapping at {@code index} must be visited again.</p>
+     */
+    public void removeAt(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        removeFromTable(mKeys[index], index);
+        int last = mSize - 1;
+        if (index != last) {
+            long lastKey = mKeys[last];
+            // point the table slot of the last entry at its new position
+            mTable[slotOf(lastKey, last)] = index + 1;
+            mKeys[index] = lastKey;
+            mValues[index] = mValues[last];
+        }
+        mSize = last;
+    }
+
+    /**
+     * Returns the number of mappings that this LongLongMap currently stores.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Return true if size() is 0.
+     * @return true if size() is 0.
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Given an index in the range <code>0...size()-1</code>, returns
+     * the key from the <code>index</code>th key-value mapping that this
+     * LongLongMap stores. Mappings are not kept in any particular order, but
+     * indices are stable as long as the map is not modified.
+     */
+    public long keyAt(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return mKeys[index];
+    }
+
+    /**
+     * Given an index in the range <code>0...size()-1</code>, returns
+     * the value from the <code>index</code>th key-value mapping that this
+     * LongLongMap stores.
+     */
+    public long valueAt(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return mValues[index];
+    }
+
+    /**
+     * Given an index in the range <code>0...size()-1</code>, sets a new
+     * value for the <code>index</code>th key-value mapping that this
+     * LongLongMap stores.
+     */
+    public void setValueAt(int index, long value) {
+        if (index < 0 || index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        mValues[index] = value;
+    }
+
+    /**
+     * Returns the index for which {@link #keyAt} would return the
+     * specified key, or a negative number if the specified
+     * key is not mapped.
+     */
+    public int indexOfKey(long key) {
+        if (mSize == 0) {
+            return -1;
+        }
+        int mask = mTable.length - 1;
+        int slot = ContainerHelpers.hash(key) & mask;
+        while (true) {
+            int entry = mTable[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (mKeys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes all mappings from this LongLongMap.
+     */
+    public void clear() {
+        Arrays.fill(mTable, 0);
+        mSize = 0;
+    }
+
+    /**
+     * Increases the capacity of this LongLongMap so that it can hold at least
+     * {@code minCapacity} mappings without further allocations.
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, minCapacity);
+            mValues = Arrays.copyOf(mValues, minCapacity);
+        }
+        int tableSize = ContainerHelpers.hashTableSize(minCapacity);
+        if (tableSize > mTable.length) {
+            rehash(tableSize);
+        }
+    }
+
+    private void append(long key, long value) {
+        if (mSize == mKeys.length) {
+            ensureCapacity(mSize < 4 ? 8 : mSize + (mSize >> 1));
+        }
+        int index = mSize++;
+        mKeys[index] = key;
+        mValues[index] = value;
+        insertIntoTable(key, index);
+    }
+
+    private void insertIntoTable(long key, int index) {
+        int mask = mTable.length - 1;
+        int slot = ContainerHelpers.hash(key) & mask;
+        while (mTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        mTable[slot] = index + 1;
+    }
+
+    /**
+     * Returns the table slot pointing at the entry at {@code index}, which must be the position
+     * of {@code key} in the dense arrays.
+     */
+    private int slotOf(long key, int index) {
+        int mask = mTable.length - 1;
+        int slot = ContainerHelpers.hash(key) & mask;
+        while (mTable[slot] != index + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties the table slot of the entry at {@code index} and shifts back the entries that
+     * follow it in the same probe sequence so that lookups don't need tombstones.
+     */
+    private void removeFromTable(long key, int index) {
+        int[] table = mTable;
+        int mask = table.length - 1;
+        int gap = slotOf(key, index);
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int entry = table[slot];
+            if (entry == 0) {
+                break;
+            }
+            int home = ContainerHelpers.hash(mKeys[entry - 1]) & mask;
+            // The entry can fill the gap unless its home slot lies cyclically in (gap, slot].
+            boolean canMove = gap <= slot
+                    ? (home <= gap || home > slot)
+                    : (home <= gap && home > slot);
+            if (canMove) {
+                table[gap] = entry;
+                gap = slot;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    private void rehash(int tableSize) {
+        mTable = new int[tableSize];
+        for (int i = 0; i < mSize; i++) {
+            insertIntoTable(mKeys[i], i);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation composes a string by iterating over its mappings.
+     */
+    @Override
+    public String toString() {
+        if (mSize == 0) {
+            return "{}";
+        }
+
+        StringBuilder buffer = new StringBuilder(mSize * 28);
+        buffer.append('{');
+        for (int i = 0; i < mSize; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(mKeys[i]);
+            buffer.append('=');
+            buffer.append(mValues[i]);
+        }
+        buffer.append('}');
+        return buffer.toString();
+    }
+}
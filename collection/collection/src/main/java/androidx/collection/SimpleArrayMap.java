@@ -19,6 +19,7 @@ package androidx.collection;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Map;
 
@@ -162,6 +163,13 @@ public class SimpleArrayMap<K, V> {
 
     @SuppressWarnings("ArrayToString")
     private void allocArrays(final int size) {
+        final ContainerArrayPool pool = ContainerArrayPool.sGlobalPool;
+        if (pool != null) {
+            final int capacity = pool.getCapacity(size);
+            mHashes = pool.acquireIntArray(capacity);
+            mArray = pool.acquireObjectArray(capacity << 1);
+            return;
+        }
         if (size == (BASE_SIZE*2)) {
             synchronized (SimpleArrayMap.class) {
                 if (mTwiceBaseCache != null) {
@@ -198,6 +206,15 @@ public class SimpleArrayMap<K, V> {
 
     @SuppressWarnings("ArrayToString")
     private static void freeArrays(final int[] hashes, final Object[] array, final int size) {
+        final ContainerArrayPool pool = ContainerArrayPool.sGlobalPool;
+        if (pool != null) {
+            if (hashes.length > 0) {
+                Arrays.fill(array, 0, size << 1, null);
+                pool.releaseIntArray(hashes);
+                pool.releaseObjectArray(array);
+            }
+            return;
+        }
         if (hashes.length == (BASE_SIZE*2)) {
             synchronized (SimpleArrayMap.class) {
                 if (mTwiceBaseCacheSize < CACHE_SIZE) {
@@ -609,6 +626,8 @@ public class SimpleArrayMap<K, V> {
                     System.arraycopy(oarray, (index + 1) << 1, mArray, index << 1,
                             (nsize - index) << 1);
                 }
+
+                freeArrays(ohashes, oarray, osize);
             } else {
                 if (index < nsize) {
                     if (DEBUG) System.out.println(TAG + " remove: move " + (index+1) + "-" + nsize
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A {@link ContainerArrayPool} that keeps a separate set of pooled arrays for each thread, so
+ * acquiring and releasing arrays never contends on a lock.
+ *
+ * <p>Arrays are bucketed by size class: capacities are rounded up to the next power of two or
+ * one and a half times a power of two (4, 6, 8, 12, 16, 24, ...), which keeps the memory
+ * overhead of rounding under a third while letting containers of similar sizes share arrays.
+ * Each thread retains at most {@code maxBytesPerThread} bytes of arrays, counting 4 bytes per
+ * element, and never retains a single array larger than a quarter of that budget.</p>
+ *
+ * <p>Reuse statistics are aggregated over all threads. They are updated without
+ * synchronization and are only meant to be approximate.</p>
+ */
+public class ThreadLocalArrayPool extends ContainerArrayPool {
+    private static final int DEFAULT_MAX_BYTES_PER_THREAD = 64 * 1024;
+    private static final int MIN_LENGTH = 4;
+    private static final int BYTES_PER_ELEMENT = 4;
+
+    private final int mMaxBytesPerThread;
+    private final int mMaxLength;
+    private final int mBucketCount;
+    // Counters of the threads that may still be alive, and of those that died. Both are
+    // guarded by mStats.
+    private final ArrayList<Stats> mStats = new ArrayList<>();
+    private final Stats mDeadThreadStats = new Stats(null);
+
+    private final ThreadLocal<Buckets> mBuckets = new ThreadLocal<Buckets>() {
+        @Override
+        protected Buckets initialValue() {
+            Buckets buckets = new Buckets(mBucketCount);
+            synchronized (mStats) {
+                removeDeadThreadStats();
+                mStats.add(buckets.mStats);
+            }
+            return buckets;
+        }
+    };
+
+    /**
+     * Creates a pool retaining up to 64 KiB of arrays per thread.
+     */
+    public ThreadLocalArrayPool() {
+        this(DEFAULT_MAX_BYTES_PER_THREAD);
+    }
+
+    /**
+     * @param maxBytesPerThread the maximum size of the arrays retained for each thread.
+     */
+    public ThreadLocalArrayPool(int maxBytesPerThread) {
+        if (maxBytesPerThread <= 0) {
+            throw new IllegalArgumentException("maxBytesPerThread <= 0");
+        }
+        mMaxBytesPerThread = maxBytesPerThread;
+        int maxLength = maxBytesPerThread / 4 / BYTES_PER_ELEMENT;
+        if (maxLength < MIN_LENGTH) {
+            mMaxLength = 0;
+            mBucketCount = 0;
+        } else {
+            int length = sizeClassLength(maxLength);
+            if (length > maxLength) {
+                // step down to the previous size class
+                length = Integer.bitCount(length) == 1 ? length / 4 * 3 : length / 3 * 2;
+            }
+            mMaxLength = length;
+            mBucketCount = sizeClassIndex(length) + 1;
+        }
+    }
+
+    /**
+     * Returns the maximum size of the arrays retained for each thread, in bytes.
+     */
+    public final int maxBytesPerThread() {
+        return mMaxBytesPerThread;
+    }
+
+    @Override
+    public int getCapacity(int minCapacity) {
+        int capacity = sizeClassLength(minCapacity);
+        // Don't round up arrays that would not be pooled anyway.
+        return capacity <= mMaxLength ? capacity : minCapacity;
+    }
+
+    @NonNull
+    @Override
+    public int[] acquireIntArray(int length) {
+        Buckets buckets = mBuckets.get();
+        int index = bucketIndex(length);
+        if (index >= 0) {
+            int count = buckets.mIntCounts[index];
+            if (count > 0) {
+                int[][] stack = buckets.mInts[index];
+                int[] array = stack[--count];
+                stack[count] = null;
+                buckets.mIntCounts[index] = count;
+                buckets.mBytes -= length * BYTES_PER_ELEMENT;
+                buckets.mStats.mHitCount++;
+                return array;
+            }
+        }
+        buckets.mStats.mMissCount++;
+        return new int[length];
+    }
+
+    @NonNull
+    @Override
+    public Object[] acquireObjectArray(int length) {
+        Buckets buckets = mBuckets.get();
+        int index = bucketIndex(length);
+        if (index >= 0) {
+            int count = buckets.mObjectCounts[index];
+            if (count > 0) {
+                Object[][] stack = buckets.mObjects[index];
+                Object[] array = stack[--count];
+                stack[count] = null;
+                buckets.mObjectCounts[index] = count;
+                buckets.mBytes -= length * BYTES_PER_ELEMENT;
+                buckets.mStats.mHitCount++;
+                return array;
+            }
+        }
+        buckets.mStats.mMissCount++;
+        return new Object[length];
+    }
+
+    @Override
+    public void releaseIntArray(@NonNull int[] array) {
+        Buckets buckets = mBuckets.get();
+        buckets.mStats.mReleaseCount++;
+        int index = bucketIndex(array.length);
+        int bytes = array.length * BYTES_PER_ELEMENT;
+        if (index < 0 || buckets.mBytes + bytes > mMaxBytesPerThread) {
+            buckets.mStats.mDropCount++;
+            return;
+        }
+        int count = buckets.mIntCounts[index];
+        int[][] stack = buckets.mInts[index];
+        if (count == stack.length) {
+            stack = Arrays.copyOf(stack, count < 2 ? 4 : count * 2);
+            buckets.mInts[index] = stack;
+        }
+        stack[count] = array;
+        buckets.mIntCounts[index] = count + 1;
+        buckets.mBytes += bytes;
+    }
+
+    @Override
+    public void releaseObjectArray(@NonNull Object[] array) {
+        Buckets buckets = mBuckets.get();
+        buckets.mStats.mReleaseCount++;
+        int index = bucketIndex(array.length);
+        int bytes = array.length * BYTES_PER_ELEMENT;
+        if (index < 0 || buckets.mBytes + bytes > mMaxBytesPerThread) {
+            buckets.mStats.mDropCount++;
+            return;
+        }
+        int count = buckets.mObjectCounts[index];
+        Object[][] stack = buckets.mObjects[index];
+        if (count == stack.length) {
+            stack = Arrays.copyOf(stack, count < 2 ? 4 : count * 2);
+            buckets.mObjects[index] = stack;
+        }
+        stack[count] = array;
+        buckets.mObjectCounts[index] = count + 1;
+        buckets.mBytes += bytes;
+    }
+
+    /**
+     * Drops all the arrays retained for the calling thread.
+     */
+    public void clearCurrentThread() {
+        Buckets buckets = mBuckets.get();
+        for (int i = 0; i < mBucketCount; i++) {
+            Arrays.fill(buckets.mInts[i], null);
+            Arrays.fill(buckets.mObjects[i], null);
+        }
+        Arrays.fill(buckets.mIntCounts, 0);
+        Arrays.fill(buckets.mObjectCounts, 0);
+        buckets.mBytes = 0;
+    }
+
+    /**
+     * Returns the number of times an array was acquired from the pool instead of being
+     * allocated.
+     */
+    public final long hitCount() {
+        return sumStats().mHitCount;
+    }
+
+    /**
+     * Returns the number of times an array had to be allocated because the pool had none of the
+     * requested size.
+     */
+    public final long missCount() {
+        return sumStats().mMissCount;
+    }
+
+    /**
+     * Returns the number of arrays released to the pool, whether they were retained or not.
+     */
+    public final long releaseCount() {
+        return sumStats().mReleaseCount;
+    }
+
+    /**
+     * Returns the number of released arrays that were not retained, either because their size
+     * is not pooled or because the thread's budget was exhausted.
+     */
+    public final long dropCount() {
+        return sumStats().mDropCount;
+    }
+
+    /**
+     * Returns the number of threads whose counters are kept apart.
+     */
+    int threadStatsCount() {
+        synchronized (mStats) {
+            return mStats.size();
+        }
+    }
+
+    private Stats sumStats() {
+        Stats total = new Stats(null);
+        synchronized (mStats) {
+            removeDeadThreadStats();
+            total.add(mDeadThreadStats);
+            for (int i = 0; i < mStats.size(); i++) {
+                total.add(mStats.get(i));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Adds the counters of the threads that died to {@link #mDeadThreadStats}, so that the
+     * counters of short-lived threads don't accumulate. Must be called with {@link #mStats} held.
+     */
+    private void removeDeadThreadStats() {
+        for (int i = mStats.size() - 1; i >= 0; i--) {
+            Stats stats = mStats.get(i);
+            Thread thread = stats.mThread.get();
+            if (thread == null || !thread.isAlive()) {
+                // The thread can't update its counters anymore.
+                mDeadThreadStats.add(stats);
+                int last = mStats.size() - 1;
+                mStats.set(i, mStats.get(last));
+                mStats.remove(last);
+            }
+        }
+    }
+
+    private int bucketIndex(int length) {
+        if (length > mMaxLength) {
+            return -1;
+        }
+        return sizeClassIndex(length);
+    }
+
+    /**
+     * Returns the smallest size class length that is at least {@code minLength}.
+     */
+    static int sizeClassLength(int minLength) {
+        if (minLength <= MIN_LENGTH) {
+            return MIN_LENGTH;
+        }
+        int high = Integer.highestOneBit(minLength - 1);
+        int mid = high + (high >> 1);
+        return minLength <= mid ? mid : high << 1;
+    }
+
+    /**
+     * Returns the index of the size class of exactly {@code length} elements, or -1 if
+     * {@code length} is not a size class length.
+     */
+    static int sizeClassIndex(int length) {
+        if (length < MIN_LENGTH) {
+            return -1;
+        }
+        int shift = Integer.numberOfTrailingZeros(length);
+        int odd = length >>> shift;
+        if (odd == 1) {
+            // 4, 8, 16... have even indices.
+            return 2 * (shift - 2);
+        } else if (odd == 3) {
+            // 6, 12, 24... have odd indices.
+            return 2 * shift - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Counters of a single thread. They are kept apart from the thread's {@link Buckets} so that
+     * the arrays pooled for a thread can be collected once it dies.
+     */
+    private static final class Stats {
+        // The thread updating the counters, null for sums of counters.
+        final WeakReference<Thread> mThread;
+        long mHitCount;
+        long mMissCount;
+        long mReleaseCount;
+        long mDropCount;
+
+        Stats(@Nullable Thread thread) {
+            mThread = thread == null ? null : new WeakReference<>(thread);
+        }
+
+        void add(Stats other) {
+            mHitCount += other.mHitCount;
+            mMissCount += other.mMissCount;
+            mReleaseCount += other.mReleaseCount;
+            mDropCount += other.mDropCount;
+        }
+    }
+
+    private static final class Buckets {
+        final int[][][] mInts;
+        final int[] mIntCounts;
+        final Object[][][] mObjects;
+        final int[] mObjectCounts;
+        final Stats mStats = new Stats(Thread.currentThread());
+        int mBytes;
+
+        Buckets(int bucketCount) {
+            mInts = new int[bucketCount][][];
+            mIntCounts = new int[bucketCount];
+            mObjects = new Object[bucketCount][][];
+            mObjectCounts = new int[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                mInts[i] = new int[0][];
+                mObjects[i] = new Object[0][];
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(JUnit4.class)
+public class ConcurrentLruCacheTest {
+
+    @Test
+    public void testSingleSegmentBehavesAsLruCache() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(3, 1);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals("A", cache.get("a"));
+        cache.put("d", "D");
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(Arrays.asList("c", "a", "d"), new ArrayList<>(cache.snapshot().keySet()));
+    }
+
+    @Test
+    public void testStatistics() {
+        ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<Integer, String>(8, 4) {
+            @Override protected String create(Integer key) {
+                return key % 2 == 0 ? "v" + key : null;
+            }
+        };
+        cache.put(1, "one");
+        assertEquals("one", cache.get(1));
+        assertEquals("v2", cache.get(2));
+        assertNull(cache.get(3));
+        assertEquals(1, cache.putCount());
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(1, cache.createCount());
+        assertEquals(2, cache.size());
+        assertEquals(
+                "ConcurrentLruCache[maxSize=8,segments=4,hits=1,misses=2,hitRate=33%]",
+                cache.toString());
+    }
+
+    @Test
+    public void testSegmentCountBoundedByMaxSize() {
+        ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(3, 16);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        assertTrue(cache.size() <= 3);
+        assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    public void testMaxSizeSplitBetweenSegments() {
+        ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(10, 4);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        // keys are spread over all segments so every segment is full
+        assertEquals(10, cache.size());
+        assertEquals(990, cache.evictionCount());
+    }
+
+    @Test
+    public void testCustomSizes() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(20, 2) {
+            @Override protected int sizeOf(String key, String value) {
+                return value.length();
+            }
+        };
+        cache.put("a", "1234");
+        cache.put("b", "12");
+        assertEquals(6, cache.size());
+        cache.remove("a");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testResize() {
+        ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(16, 4);
+        for (int i = 0; i < 16; i++) {
+            cache.put(i, i);
+        }
+        cache.resize(4);
+        assertEquals(4, cache.maxSize());
+        assertTrue(cache.size() <= 4);
+    }
+
+    @Test
+    public void testEvictAll() {
+        final List<String> log = new ArrayList<String>();
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10) {
+            @Override protected void entryRemoved(
+                    boolean evicted, String key, String oldValue, String newValue) {
+                log.add(key + "=" + oldValue + ">" + newValue);
+            }
+        };
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.evictAll();
+        assertEquals(0, cache.size());
+        Collections.sort(log);
+        assertEquals(Arrays.asList("a=A>null", "b=B>null"), log);
+    }
+
+    @Test
+    public void testCannotPutNullKey() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(3);
+        try {
+            cache.put(null, "A");
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void testConstructorDoesNotAllowZeroCacheSize() {
+        try {
+            new ConcurrentLruCache<String, String>(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testCreateWithConcurrentPut() {
+        final List<String> log = new ArrayList<String>();
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(3) {
+            @Override protected String create(String key) {
+                put(key, "B");
+                return "A";
+            }
+            @Override protected void entryRemoved(
+                    boolean evicted, String key, String oldValue, String newValue) {
+                log.add(key + "=" + oldValue + ">" + newValue);
+            }
+        };
+        assertEquals("B", cache.get("a"));
+        assertEquals(Arrays.asList("a=A>B"), log);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        final ConcurrentLruCache<Integer, String> cache =
+                new ConcurrentLruCache<Integer, String>(100, 8) {
+                    @Override protected String create(Integer key) {
+                        return "value of " + key;
+                    }
+                };
+        final int threadCount = 8;
+        final int iterations = 10000;
+        final CountDownLatch latch = new CountDownLatch(threadCount);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threadCount; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < iterations; i++) {
+                            assertEquals("value of " + (i % 200), cache.get(i % 200));
+                        }
+                    } catch (Throwable throwable) {
+                        failure.set(throwable);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+        assertNull(failure.get());
+        assertEquals(threadCount * iterations, cache.hitCount() + cache.missCount());
+        assertTrue(cache.size() <= 100);
+    }
+}
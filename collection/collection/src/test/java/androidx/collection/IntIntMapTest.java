@@ -0,0 +1,179 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class IntIntMapTest {
+    @Test
+    public void putAndGet() {
+        IntIntMap map = new IntIntMap();
+        map.put(1, 11);
+        map.put(-1, 12);
+        map.put(Integer.MIN_VALUE, 13);
+        assertEquals(3, map.size());
+        assertEquals(11, map.get(1, 0));
+        assertEquals(12, map.get(-1, 0));
+        assertEquals(13, map.get(Integer.MIN_VALUE, 0));
+        assertEquals(-5, map.get(2, -5));
+    }
+
+    @Test
+    public void putReplacesValue() {
+        IntIntMap map = new IntIntMap();
+        map.put(1, 11);
+        map.put(1, 12);
+        assertEquals(1, map.size());
+        assertEquals(12, map.get(1, 0));
+    }
+
+    @Test
+    public void zeroCapacityGrows() {
+        IntIntMap map = new IntIntMap(0);
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0));
+        for (int i = 0; i < 100; i++) {
+            map.put(i, -i);
+        }
+        assertEquals(100, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(-i, map.get(i, 1));
+        }
+    }
+
+    @Test
+    public void removeMovesLastEntry() {
+        IntIntMap map = new IntIntMap();
+        map.put(1, 11);
+        map.put(2, 12);
+        map.put(3, 13);
+        assertTrue(map.remove(1));
+        assertFalse(map.remove(1));
+        assertEquals(2, map.size());
+        assertEquals(3, map.keyAt(0));
+        assertEquals(13, map.valueAt(0));
+        assertEquals(0, map.indexOfKey(3));
+        assertEquals(12, map.get(2, 0));
+    }
+
+    @Test
+    public void removeAtWhileIterating() {
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < 50; i++) {
+            map.put(i, i);
+        }
+        for (int i = 0; i < map.size(); ) {
+            if (map.valueAt(i) % 2 == 0) {
+                map.removeAt(i);
+            } else {
+                i++;
+            }
+        }
+        assertEquals(25, map.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i % 2 != 0, map.containsKey(i));
+        }
+    }
+
+    @Test
+    public void indexOutOfBounds() {
+        IntIntMap map = new IntIntMap();
+        map.put(1, 1);
+        try {
+            map.keyAt(1);
+            fail();
+        } catch (ArrayIndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void collidingKeys() {
+        // Multiples of a large power of two tend to collide with naive hashing.
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i << 16, i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(map.remove(i << 16));
+        }
+        assertEquals(500, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0 ? -1 : i, map.get(i << 16, -1));
+        }
+    }
+
+    @Test
+    public void matchesHashMap() {
+        Random random = new Random(42);
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            int op = random.nextInt(3);
+            if (op == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals((int) expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), map.get(entry.getKey(), -1));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(expected.keySet().iterator().next()));
+    }
+
+    @Test
+    public void cloning() {
+        IntIntMap source = new IntIntMap();
+        source.put(10, 11);
+        IntIntMap dest = source.clone();
+        assertNotSame(source, dest);
+        source.put(12, 13);
+        assertEquals(1, dest.size());
+        assertEquals(11, dest.get(10, 0));
+        assertFalse(dest.containsKey(12));
+    }
+
+    @Test
+    public void toStringFormat() {
+        IntIntMap map = new IntIntMap();
+        assertEquals("{}", map.toString());
+        map.put(1, 2);
+        map.put(3, 4);
+        assertEquals("{1=2, 3=4}", map.toString());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class IntObjectMapTest {
+    @Test
+    public void putReturnsPreviousValue() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        assertNull(map.put(1, "1"));
+        assertEquals("1", map.put(1, "2"));
+        assertEquals("2", map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void zeroCapacityGrows() {
+        IntObjectMap<String> map = new IntObjectMap<>(0);
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+        for (int i = 0; i < 100; i++) {
+            map.put(i, Integer.toString(i));
+        }
+        assertEquals(100, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.toString(i), map.get(i));
+        }
+    }
+
+    @Test
+    public void removeShiftsBackCollidingKeys() {
+        // A table of 8 slots, where the keys hashing to the last slot wrap around to the start.
+        IntObjectMap<String> map = new IntObjectMap<>(4);
+        int[] lastSlotKeys = keysHashingTo(7, 3);
+        int firstSlotKey = keysHashingTo(0, 1)[0];
+        for (int key : lastSlotKeys) {
+            map.put(key, Integer.toString(key));
+        }
+        map.put(firstSlotKey, "first");
+
+        assertEquals(Integer.toString(lastSlotKeys[0]), map.remove(lastSlotKeys[0]));
+        assertNull(map.remove(lastSlotKeys[0]));
+        assertEquals(3, map.size());
+        assertEquals(Integer.toString(lastSlotKeys[1]), map.get(lastSlotKeys[1]));
+        assertEquals(Integer.toString(lastSlotKeys[2]), map.get(lastSlotKeys[2]));
+        assertEquals("first", map.get(firstSlotKey));
+
+        assertEquals(Integer.toString(lastSlotKeys[1]), map.remove(lastSlotKeys[1]));
+        assertEquals(Integer.toString(lastSlotKeys[2]), map.get(lastSlotKeys[2]));
+        assertEquals("first", map.get(firstSlotKey));
+        assertFalse(map.containsKey(lastSlotKeys[0]));
+        assertFalse(map.containsKey(lastSlotKeys[1]));
+    }
+
+    @Test
+    public void removeAtWhileIterating() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        for (int i = 0; i < 50; i++) {
+            map.put(i, Integer.toString(i));
+        }
+        for (int i = 0; i < map.size(); ) {
+            if (Integer.parseInt(map.valueAt(i)) % 2 == 0) {
+                map.removeAt(i);
+            } else {
+                i++;
+            }
+        }
+        assertEquals(25, map.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i % 2 != 0, map.containsKey(i));
+        }
+    }
+
+    @Test
+    public void removeReleasesValue() {
+        IntObjectMap<Object> map = new IntObjectMap<>();
+        Object value = new Object();
+        map.put(5, value);
+        map.put(6, "6");
+        assertSame(value, map.remove(5));
+        assertEquals(1, map.size());
+        assertEquals("6", map.valueAt(0));
+    }
+
+    @Test
+    public void matchesHashMap() {
+        Random random = new Random(42);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = (random.nextInt(2000) - 1000) << 16;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = Integer.toString(i);
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void capacityTooLarge() {
+        try {
+            new IntObjectMap<String>(Integer.MAX_VALUE);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void toStringWithSelf() {
+        IntObjectMap<Object> map = new IntObjectMap<>();
+        map.put(1, map);
+        assertEquals("{1=(this Map)}", map.toString());
+    }
+
+    /** Returns {@code count} keys whose home slot in a table of 8 slots is {@code slot}. */
+    private static int[] keysHashingTo(int slot, int count) {
+        int[] keys = new int[count];
+        for (int key = 1, found = 0; found < count; key++) {
+            if ((ContainerHelpers.hash(key) & 7) == slot) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+}
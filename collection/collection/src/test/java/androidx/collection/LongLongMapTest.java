@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class LongLongMapTest {
+    @Test
+    public void putAndGet() {
+        LongLongMap map = new LongLongMap();
+        map.put(1L, 11L);
+        map.put(1L << 32, 12L);
+        map.put(Long.MIN_VALUE, 13L);
+        map.put(1L, 14L);
+        assertEquals(3, map.size());
+        assertEquals(14L, map.get(1L, 0L));
+        assertEquals(12L, map.get(1L << 32, 0L));
+        assertEquals(13L, map.get(Long.MIN_VALUE, 0L));
+        assertEquals(-5L, map.get(2L, -5L));
+    }
+
+    @Test
+    public void zeroCapacityGrows() {
+        LongLongMap map = new LongLongMap(0);
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0L));
+        for (long i = 0; i < 100; i++) {
+            map.put(i << 32, -i);
+        }
+        assertEquals(100, map.size());
+        for (long i = 0; i < 100; i++) {
+            assertEquals(-i, map.get(i << 32, 1L));
+        }
+    }
+
+    @Test
+    public void removeShiftsBackCollidingKeys() {
+        // A table of 8 slots, where the keys hashing to the last slot wrap around to the start.
+        LongLongMap map = new LongLongMap(4);
+        long[] lastSlotKeys = keysHashingTo(7, 3);
+        long firstSlotKey = keysHashingTo(0, 1)[0];
+        for (long key : lastSlotKeys) {
+            map.put(key, -key);
+        }
+        map.put(firstSlotKey, 1L);
+
+        assertTrue(map.remove(lastSlotKeys[0]));
+        assertFalse(map.remove(lastSlotKeys[0]));
+        assertEquals(3, map.size());
+        assertEquals(-lastSlotKeys[1], map.get(lastSlotKeys[1], 0L));
+        assertEquals(-lastSlotKeys[2], map.get(lastSlotKeys[2], 0L));
+        assertEquals(1L, map.get(firstSlotKey, 0L));
+
+        assertTrue(map.remove(lastSlotKeys[1]));
+        assertEquals(-lastSlotKeys[2], map.get(lastSlotKeys[2], 0L));
+        assertEquals(1L, map.get(firstSlotKey, 0L));
+        assertFalse(map.containsKey(lastSlotKeys[0]));
+        assertFalse(map.containsKey(lastSlotKeys[1]));
+    }
+
+    @Test
+    public void removeMovesLastEntry() {
+        LongLongMap map = new LongLongMap();
+        map.put(1L, 11L);
+        map.put(2L, 12L);
+        map.put(3L, 13L);
+        map.removeAt(0);
+        assertEquals(2, map.size());
+        assertEquals(3L, map.keyAt(0));
+        assertEquals(13L, map.valueAt(0));
+        assertEquals(0, map.indexOfKey(3L));
+        assertEquals(12L, map.get(2L, 0L));
+    }
+
+    @Test
+    public void matchesHashMap() {
+        Random random = new Random(7);
+        LongLongMap map = new LongLongMap();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(3000) * 0x100000001L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                map.put(key, i);
+                expected.put(key, (long) i);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals((long) expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals((long) entry.getValue(), map.get(entry.getKey(), -1L));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void capacityTooLarge() {
+        try {
+            new LongLongMap(Integer.MAX_VALUE);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void cloning() {
+        LongLongMap source = new LongLongMap();
+        source.put(10L, 11L);
+        LongLongMap dest = source.clone();
+        assertNotSame(source, dest);
+        source.put(12L, 13L);
+        assertEquals(1, dest.size());
+        assertEquals(11L, dest.get(10L, 0L));
+        assertFalse(dest.containsKey(12L));
+    }
+
+    /** Returns {@code count} keys whose home slot in a table of 8 slots is {@code slot}. */
+    private static long[] keysHashingTo(int slot, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1L << 32; found < count; key += 1L << 32) {
+            if ((ContainerHelpers.hash(key) & 7) == slot) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+}
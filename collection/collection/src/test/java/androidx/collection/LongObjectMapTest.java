@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class LongObjectMapTest {
+    @Test
+    public void putReturnsPreviousValue() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertNull(map.put(1L, "1"));
+        assertEquals("1", map.put(1L, "2"));
+        assertEquals("2", map.get(1L));
+    }
+
+    @Test
+    public void getOrDefault() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1L, null);
+        assertNull(map.get(1L, "1"));
+        assertEquals("2", map.get(2L, "2"));
+        assertFalse(map.containsKey(2L));
+    }
+
+    @Test
+    public void keysDifferingInHighBits() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1L, "low");
+        map.put(1L << 32, "high");
+        map.put((1L << 32) | 1L, "both");
+        assertEquals(3, map.size());
+        assertEquals("low", map.get(1L));
+        assertEquals("high", map.get(1L << 32));
+        assertEquals("both", map.get((1L << 32) | 1L));
+    }
+
+    @Test
+    public void removeReturnsValueAndReleasesIt() {
+        LongObjectMap<Object> map = new LongObjectMap<>();
+        Object value = new Object();
+        map.put(5L, value);
+        map.put(6L, "6");
+        assertSame(value, map.remove(5L));
+        assertNull(map.remove(5L));
+        assertEquals(1, map.size());
+        assertEquals("6", map.valueAt(0));
+    }
+
+    @Test
+    public void clearReleasesValues() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1L, "1");
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1L));
+        map.put(2L, "2");
+        assertEquals("2", map.get(2L));
+    }
+
+    @Test
+    public void matchesHashMap() {
+        Random random = new Random(7);
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(3000) * 0x100000001L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = Integer.toString(i);
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+    }
+
+    @Test
+    public void toStringWithSelf() {
+        LongObjectMap<Object> map = new LongObjectMap<>();
+        map.put(1L, map);
+        assertEquals("{1=(this Map)}", map.toString());
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(JUnit4.class)
+public class ThreadLocalArrayPoolTest {
+    @After
+    public void uninstallPool() {
+        ContainerArrayPool.setGlobalPool(null);
+    }
+
+    @Test
+    public void sizeClasses() {
+        int[] expected = {4, 4, 4, 4, 4, 6, 6, 8, 8, 12, 12, 12, 12, 16, 16, 16, 16, 24};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("length " + i, expected[i], ThreadLocalArrayPool.sizeClassLength(i));
+        }
+        assertEquals(0, ThreadLocalArrayPool.sizeClassIndex(4));
+        assertEquals(1, ThreadLocalArrayPool.sizeClassIndex(6));
+        assertEquals(2, ThreadLocalArrayPool.sizeClassIndex(8));
+        assertEquals(3, ThreadLocalArrayPool.sizeClassIndex(12));
+        assertEquals(4, ThreadLocalArrayPool.sizeClassIndex(16));
+        assertEquals(-1, ThreadLocalArrayPool.sizeClassIndex(10));
+        assertEquals(-1, ThreadLocalArrayPool.sizeClassIndex(2));
+    }
+
+    @Test
+    public void releasedArrayIsReused() {
+        ThreadLocalArrayPool pool = new ThreadLocalArrayPool();
+        int[] ints = pool.acquireIntArray(12);
+        Object[] objects = pool.acquireObjectArray(24);
+        assertEquals(2, pool.missCount());
+        pool.releaseIntArray(ints);
+        pool.releaseObjectArray(objects);
+        assertSame(ints, pool.acquireIntArray(12));
+        assertSame(objects, pool.acquireObjectArray(24));
+        assertEquals(2, pool.hitCount());
+        assertEquals(2, pool.releaseCount());
+        assertEquals(0, pool.dropCount());
+    }
+
+    @Test
+    public void arraysOutsideSizeClassesAreDropped() {
+        ThreadLocalArrayPool pool = new ThreadLocalArrayPool();
+        int[] ints = new int[10];
+        pool.releaseIntArray(ints);
+        assertEquals(1, pool.dropCount());
+        assertNotSame(ints, pool.acquireIntArray(10));
+        assertEquals(12, pool.getCapacity(9));
+    }
+
+    @Test
+    public void memoryCapIsEnforced() {
+        // 256 bytes: at most 64 elements in total, 16 per array.
+        ThreadLocalArrayPool pool = new ThreadLocalArrayPool(256);
+        assertEquals(16, pool.getCapacity(13));
+        // Capacities that are too large to be pooled are not rounded up.
+        assertEquals(20, pool.getCapacity(20));
+        pool.releaseIntArray(new int[24]);
+        assertEquals(1, pool.dropCount());
+        for (int i = 0; i < 5; i++) {
+            pool.releaseIntArray(new int[16]);
+        }
+        // The fifth array would take the pool over 256 bytes.
+        assertEquals(2, pool.dropCount());
+        pool.clearCurrentThread();
+        pool.releaseIntArray(new int[16]);
+        assertEquals(2, pool.dropCount());
+    }
+
+    @Test
+    public void threadsHaveSeparatePools() throws InterruptedException {
+        final ThreadLocalArrayPool pool = new ThreadLocalArrayPool();
+        final int[] ints = pool.acquireIntArray(8);
+        pool.releaseIntArray(ints);
+        final AtomicReference<int[]> other = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                other.set(pool.acquireIntArray(8));
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(ints, other.get());
+        assertSame(ints, pool.acquireIntArray(8));
+        assertEquals(1, pool.hitCount());
+        assertEquals(2, pool.missCount());
+    }
+
+    @Test
+    public void deadThreadStatsAreFolded() throws InterruptedException {
+        final ThreadLocalArrayPool pool = new ThreadLocalArrayPool();
+        for (int i = 0; i < 20; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    pool.releaseIntArray(pool.acquireIntArray(8));
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        pool.acquireIntArray(8);
+
+        // Only the counters of the current thread are kept apart.
+        assertEquals(1, pool.threadStatsCount());
+        assertEquals(21, pool.missCount());
+        assertEquals(20, pool.releaseCount());
+    }
+
+    @Test
+    public void simpleArrayMapWithPool() {
+        ThreadLocalArrayPool pool = new ThreadLocalArrayPool();
+        ContainerArrayPool.setGlobalPool(pool);
+        Random random = new Random(0);
+        SimpleArrayMap<Integer, String> map = new SimpleArrayMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 2000; i++) {
+                int key = random.nextInt(500);
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(key), map.remove(key));
+                } else {
+                    String value = Integer.toString(i);
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                }
+            }
+            assertEquals(expected.size(), map.size());
+            for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), map.get(entry.getKey()));
+            }
+            map.clear();
+            expected.clear();
+        }
+        assertTrue(pool.hitCount() > 0);
+    }
+
+    @Test
+    public void arraySetWithPool() {
+        ThreadLocalArrayPool pool = new ThreadLocalArrayPool();
+        ContainerArrayPool.setGlobalPool(pool);
+        Random random = new Random(1);
+        ArraySet<Integer> set = new ArraySet<>();
+        Set<Integer> expected = new HashSet<>();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 2000; i++) {
+                int element = random.nextInt(500);
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(element), set.remove(element));
+                } else {
+                    assertEquals(expected.add(element), set.add(element));
+                }
+            }
+            assertEquals(expected, set);
+            set.clear();
+            expected.clear();
+        }
+        assertTrue(pool.hitCount() > 0);
+    }
+
+    @Test
+    public void releasedObjectArraysAreCleared() {
+        ThreadLocalArrayPool pool = new ThreadLocalArrayPool();
+        ContainerArrayPool.setGlobalPool(pool);
+        SimpleArrayMap<String, String> map = new SimpleArrayMap<>();
+        for (int i = 0; i < 6; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        map.clear();
+        Object[] array = pool.acquireObjectArray(16);
+        for (Object element : array) {
+            assertNull(element);
+        }
+    }
+}
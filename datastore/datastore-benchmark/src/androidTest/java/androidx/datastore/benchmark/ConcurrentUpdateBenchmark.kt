@@ -0,0 +1,144 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.benchmark
+
+import android.content.Context
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.datastore.core.DataStore
+import androidx.datastore.core.DataStoreFactory
+import androidx.datastore.core.Serializer
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Measures [count] concurrent calls to updateData, which DataStore writes in as few batches as it
+ * can. Logs the p50 and p99 latency of a single update, and the number of fsyncs per second.
+ */
+@RunWith(Parameterized::class)
+@LargeTest
+class ConcurrentUpdateBenchmark(private val count: Int) {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var directory: File
+    private lateinit var scope: CoroutineScope
+    private lateinit var serializer: CountingSerializer
+    private lateinit var store: DataStore<Long>
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        directory = File(context.cacheDir, "datastore_benchmark")
+        directory.deleteRecursively()
+        scope = CoroutineScope(Dispatchers.IO + Job())
+        serializer = CountingSerializer()
+        store = DataStoreFactory.create(serializer, scope = scope) {
+            File(directory, "concurrent_update")
+        }
+        runBlocking { store.data.first() }
+    }
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+        directory.deleteRecursively()
+    }
+
+    @Test
+    fun concurrentUpdates() {
+        val latencies = mutableListOf<Long>()
+        var elapsedNanos = 0L
+        benchmarkRule.measureRepeated {
+            val start = System.nanoTime()
+            val roundLatencies = runBlocking {
+                List(count) {
+                    async(Dispatchers.Default) {
+                        val updateStart = System.nanoTime()
+                        store.updateData { it + 1 }
+                        System.nanoTime() - updateStart
+                    }
+                }.awaitAll()
+            }
+            elapsedNanos += System.nanoTime() - start
+            runWithTimingDisabled {
+                latencies += roundLatencies
+            }
+        }
+
+        latencies.sort()
+        val fsyncsPerSecond = serializer.writes.get() * TimeUnit.SECONDS.toNanos(1) / elapsedNanos
+        Log.i(
+            TAG,
+            "concurrentUpdates(count=$count): " +
+                "p50=${TimeUnit.NANOSECONDS.toMicros(percentile(latencies, 50))}us, " +
+                "p99=${TimeUnit.NANOSECONDS.toMicros(percentile(latencies, 99))}us, " +
+                "$fsyncsPerSecond fsyncs/s, " +
+                "${latencies.size / serializer.writes.get()} updates per fsync"
+        )
+    }
+
+    private fun percentile(sortedValues: List<Long>, percentile: Int): Long {
+        return sortedValues[(sortedValues.size - 1) * percentile / 100]
+    }
+
+    /** Stores a long, and counts how many times it was written, each of which is an fsync. */
+    private class CountingSerializer : Serializer<Long> {
+        val writes = AtomicInteger(0)
+
+        override val defaultValue: Long = 0
+
+        override suspend fun readFrom(input: InputStream): Long {
+            return DataInputStream(input).readLong()
+        }
+
+        override suspend fun writeTo(t: Long, output: OutputStream) {
+            writes.incrementAndGet()
+            DataOutputStream(output).writeLong(t)
+        }
+    }
+
+    companion object {
+        private const val TAG = "ConcurrentUpdate"
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "count={0}")
+        fun parameters(): List<Int> = listOf(1, 10, 100)
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.benchmark
+
+import android.content.Context
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.datastore.core.DataStore
+import androidx.datastore.preferences.core.PreferenceDataStoreFactory
+import androidx.datastore.preferences.core.Preferences
+import androidx.datastore.preferences.core.edit
+import androidx.datastore.preferences.core.stringPreferencesKey
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.File
+
+/**
+ * Compares a Preferences DataStore that rewrites its file on every update with one that appends
+ * the changed preferences to a log, for a file with [count] preferences of which each update
+ * changes one.
+ */
+@RunWith(Parameterized::class)
+@LargeTest
+class PreferencesDeltaLogBenchmark(private val useDeltaLog: Boolean, private val count: Int) {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var directory: File
+    private lateinit var scope: CoroutineScope
+    private var fileIndex = 0
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        directory = File(context.cacheDir, "datastore_benchmark")
+        directory.deleteRecursively()
+        scope = CoroutineScope(Dispatchers.IO + Job())
+    }
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+        directory.deleteRecursively()
+    }
+
+    @Test
+    fun update() {
+        val store = newDataStore(scope)
+        runBlocking { populate(store) }
+        val key = stringPreferencesKey("key0")
+        var updates = 0
+        var bytesWritten = 0L
+        var lastLength = storedLength()
+        benchmarkRule.measureRepeated {
+            runBlocking {
+                store.edit { it[key] = "value${updates++}" }
+            }
+            runWithTimingDisabled {
+                // The log only shrinks when the whole file was rewritten.
+                val length = storedLength()
+                bytesWritten += if (useDeltaLog && length > lastLength) {
+                    length - lastLength
+                } else {
+                    file().length()
+                }
+                lastLength = length
+            }
+        }
+        Log.i(TAG, "update(useDeltaLog=$useDeltaLog, count=$count): " +
+            "${bytesWritten / updates} bytes written per update")
+    }
+
+    @Test
+    fun coldRead() {
+        val store = newDataStore(scope)
+        runBlocking {
+            populate(store)
+            // Leave some updates in the log, to apply on every read.
+            repeat(count / 2) { i ->
+                store.edit { it[stringPreferencesKey("key$i")] = "updated$i" }
+            }
+        }
+        benchmarkRule.measureRepeated {
+            // Only a single DataStore may be active for a file, so read a fresh copy every time.
+            val readScope = runWithTimingDisabled {
+                val source = file()
+                fileIndex++
+                source.copyTo(file(), overwrite = true)
+                File(source.path + ".log").let {
+                    if (it.exists()) it.copyTo(File(file().path + ".log"), overwrite = true)
+                }
+                CoroutineScope(Dispatchers.IO + Job())
+            }
+            runBlocking {
+                newDataStore(readScope).data.first()
+            }
+            runWithTimingDisabled {
+                readScope.cancel()
+            }
+        }
+    }
+
+    private suspend fun populate(store: DataStore<Preferences>) {
+        store.edit { preferences ->
+            for (i in 0 until count) {
+                preferences[stringPreferencesKey("key$i")] = "value$i"
+            }
+        }
+    }
+
+    private fun newDataStore(scope: CoroutineScope): DataStore<Preferences> {
+        val file = file()
+        return if (useDeltaLog) {
+            PreferenceDataStoreFactory.createWithDeltaLog(scope = scope) { file }
+        } else {
+            PreferenceDataStoreFactory.create(scope = scope) { file }
+        }
+    }
+
+    private fun file(): File = File(directory, "test$fileIndex.preferences_pb")
+
+    private fun storedLength(): Long = file().length() + File(file().path + ".log").length()
+
+    companion object {
+        private const val TAG = "DeltaLogBenchmark"
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "useDeltaLog={0}, count={1}")
+        fun parameters(): List<Array<Any>> {
+            return listOf(false, true).flatMap { useDeltaLog ->
+                listOf(10, 1000).map { count -> arrayOf<Any>(useDeltaLog, count) }
+            }
+        }
+    }
+}
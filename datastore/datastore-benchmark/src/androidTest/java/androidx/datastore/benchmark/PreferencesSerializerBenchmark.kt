@@ -0,0 +1,135 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.benchmark
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.datastore.core.DataStore
+import androidx.datastore.preferences.core.PreferenceDataStoreFactory
+import androidx.datastore.preferences.core.Preferences
+import androidx.datastore.preferences.core.edit
+import androidx.datastore.preferences.core.stringPreferencesKey
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.File
+
+/**
+ * Measures reading a Preferences DataStore file with [count] preferences and updating one of
+ * them. Run against the previous version of PreferencesSerializer to compare the costs.
+ */
+@RunWith(Parameterized::class)
+@LargeTest
+class PreferencesSerializerBenchmark(private val count: Int) {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var directory: File
+    private lateinit var scope: CoroutineScope
+    private var fileIndex = 0
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        directory = File(context.cacheDir, "datastore_benchmark")
+        directory.deleteRecursively()
+        scope = CoroutineScope(Dispatchers.IO + Job())
+        val store = newDataStore(scope)
+        runBlocking {
+            store.edit { preferences ->
+                for (i in 0 until count) {
+                    preferences[stringPreferencesKey("key$i")] = "value$i"
+                }
+            }
+        }
+        scope.cancel()
+    }
+
+    @After
+    fun tearDown() {
+        directory.deleteRecursively()
+    }
+
+    @Test
+    fun coldReadOneKey() {
+        val key = stringPreferencesKey("key${count / 2}")
+        coldRead { preferences -> preferences[key] }
+    }
+
+    @Test
+    fun coldReadAllKeys() {
+        coldRead { preferences -> preferences.asMap().values.forEach { it.hashCode() } }
+    }
+
+    @Test
+    fun updateOneKey() {
+        val readScope = CoroutineScope(Dispatchers.IO + Job())
+        val store = newDataStore(readScope)
+        val key = stringPreferencesKey("key${count / 2}")
+        var updates = 0
+        runBlocking { store.data.first() }
+        benchmarkRule.measureRepeated {
+            runBlocking {
+                store.edit { it[key] = "value${updates++}" }
+            }
+        }
+        readScope.cancel()
+    }
+
+    private fun coldRead(access: (Preferences) -> Unit) {
+        benchmarkRule.measureRepeated {
+            // Only a single DataStore may be active for a file, so read a fresh copy every time.
+            val readScope = runWithTimingDisabled {
+                val source = file()
+                fileIndex++
+                source.copyTo(file(), overwrite = true)
+                CoroutineScope(Dispatchers.IO + Job())
+            }
+            runBlocking {
+                access(newDataStore(readScope).data.first())
+            }
+            runWithTimingDisabled {
+                readScope.cancel()
+            }
+        }
+    }
+
+    private fun newDataStore(scope: CoroutineScope): DataStore<Preferences> {
+        val file = file()
+        return PreferenceDataStoreFactory.create(scope = scope) { file }
+    }
+
+    private fun file(): File = File(directory, "test$fileIndex.preferences_pb")
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "count={0}")
+        fun parameters(): List<Int> = listOf(10, 1000, 5000)
+    }
+}
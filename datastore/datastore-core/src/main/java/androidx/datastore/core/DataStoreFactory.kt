@@ -16,6 +16,7 @@
 
 package androidx.datastore.core
 
+import androidx.annotation.RestrictTo
 import androidx.datastore.core.handlers.NoOpCorruptionHandler
 import androidx.datastore.core.handlers.ReplaceFileCorruptionHandler
 import kotlinx.coroutines.CoroutineScope
@@ -68,4 +69,31 @@ public object DataStoreFactory {
             initTasksList = listOf(DataMigrationInitializer.getInitializer(migrations)),
             scope = scope
         )
+
+    /**
+     * Create an instance of SingleProcessDataStore that applies the changes in a log written by a
+     * DataStore created with [serializer] when reading the data, but doesn't append to the log.
+     * The next write compacts the log into the file instead.
+     *
+     * This allows a file that was written with a [DeltaSerializer] to be opened without
+     * appending to a log again, without losing the changes that were not compacted yet.
+     *
+     * @hide for datastore-preferences-core only
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public fun <T> createCompactingDeltaLog(
+        serializer: DeltaSerializer<T>,
+        corruptionHandler: ReplaceFileCorruptionHandler<T>?,
+        migrations: List<DataMigration<T>>,
+        scope: CoroutineScope,
+        produceFile: () -> File
+    ): DataStore<T> =
+        SingleProcessDataStore(
+            produceFile = produceFile,
+            serializer = serializer,
+            corruptionHandler = corruptionHandler ?: NoOpCorruptionHandler(),
+            initTasksList = listOf(DataMigrationInitializer.getInitializer(migrations)),
+            scope = scope,
+            appendDeltas = false
+        )
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileNotFoundException
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.util.zip.CRC32
+
+/**
+ * The log of changes written by a [DeltaSerializer], which applies to the snapshot of the data
+ * stored in another file.
+ *
+ * The log starts with a header that identifies the snapshot by its length and checksum, so that a
+ * log left over from before the snapshot was last rewritten is never applied to it. Each record
+ * then holds the length and checksum of its changes. A record that was only partially written,
+ * because the process died while appending it, is dropped on the next read.
+ *
+ * This is not thread safe, it must only be used from the DataStore actor.
+ */
+internal class DeltaLog<T>(
+    private val file: File,
+    private val serializer: DeltaSerializer<T>
+) {
+    /** The length of the log file, or 0 if there is no log. */
+    internal var size: Long = 0
+        private set
+
+    private var snapshotLength: Long = NO_SNAPSHOT
+    private var snapshotChecksum: Long = 0
+
+    // Set if the log may end with a partial record that couldn't be removed.
+    private var isBroken = false
+
+    /**
+     * Whether the snapshot should be rewritten, instead of appending more changes to the log.
+     * This bounds the size of the log to the size of the snapshot, so that reading the data at
+     * most reads twice as much as without the log.
+     */
+    internal val needsCompaction: Boolean
+        get() = isBroken || size > maxOf(snapshotLength, MIN_COMPACTION_SIZE)
+
+    /**
+     * Applies the changes in the log to the data read from the snapshot.
+     *
+     * @param base the data read from the snapshot
+     * @param snapshotLength the length of the snapshot, or [NO_SNAPSHOT] if there is none
+     * @param snapshotChecksum the CRC32 of the snapshot
+     */
+    internal suspend fun replay(base: T, snapshotLength: Long, snapshotChecksum: Long): T {
+        this.snapshotLength = snapshotLength
+        this.snapshotChecksum = snapshotChecksum
+        isBroken = false
+        size = 0
+
+        val bytes = try {
+            file.readBytes()
+        } catch (ex: FileNotFoundException) {
+            if (file.exists()) {
+                throw ex
+            }
+            return base
+        }
+
+        val buffer = ByteBuffer.wrap(bytes)
+        if (bytes.size < HEADER_SIZE ||
+            buffer.int != MAGIC ||
+            buffer.long != snapshotLength ||
+            buffer.long != snapshotChecksum
+        ) {
+            // Either the header was never fully written, in which case neither was any record, or
+            // the log applies to a snapshot that was since rewritten.
+            delete()
+            return base
+        }
+
+        val deltas = mutableListOf<InputStream>()
+        val crc = CRC32()
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            val length = buffer.int
+            val checksum = buffer.int
+            if (length < 0 || length > buffer.remaining()) {
+                break
+            }
+            crc.reset()
+            crc.update(bytes, buffer.position(), length)
+            if (crc.value.toInt() != checksum) {
+                break
+            }
+            deltas.add(ByteArrayInputStream(bytes, buffer.position(), length))
+            buffer.position(buffer.position() + length)
+            size = buffer.position().toLong()
+        }
+        if (deltas.isEmpty()) {
+            delete()
+            return base
+        }
+        if (size < bytes.size) {
+            // Drop the partial record so that the next records are appended after the last
+            // complete one.
+            truncate()
+        }
+
+        return serializer.readDeltas(base, deltas)
+    }
+
+    /**
+     * Appends the changes from [old] to [new] to the log, and syncs it.
+     */
+    internal suspend fun append(old: T, new: T) {
+        val record = ByteArrayOutputStream()
+        DataOutputStream(record).use { output ->
+            if (size == 0L) {
+                output.writeInt(MAGIC)
+                output.writeLong(snapshotLength)
+                output.writeLong(snapshotChecksum)
+            }
+            // Reserve the record header, and fill it once the length is known.
+            output.writeLong(0)
+            serializer.writeDelta(old, new, output)
+        }
+        val bytes = record.toByteArray()
+        val start = if (size == 0L) HEADER_SIZE else 0
+        val length = bytes.size - start - RECORD_HEADER_SIZE
+        val crc = CRC32()
+        crc.update(bytes, start + RECORD_HEADER_SIZE, length)
+        ByteBuffer.wrap(bytes, start, RECORD_HEADER_SIZE)
+            .putInt(length)
+            .putInt(crc.value.toInt())
+
+        try {
+            FileOutputStream(file, /* append= */ size != 0L).use { stream ->
+                stream.write(bytes)
+                stream.fd.sync()
+            }
+        } catch (ex: IOException) {
+            // Remove what was written of the record, or the next records would be appended after
+            // it and dropped on the next read. A new log is overwritten by the next append anyway.
+            if (size != 0L) {
+                truncate()
+            }
+            throw ex
+        }
+        size += bytes.size
+    }
+
+    /**
+     * Deletes the log, after the snapshot was rewritten.
+     *
+     * @param snapshotLength the length of the new snapshot
+     * @param snapshotChecksum the CRC32 of the new snapshot
+     */
+    internal fun reset(snapshotLength: Long, snapshotChecksum: Long) {
+        this.snapshotLength = snapshotLength
+        this.snapshotChecksum = snapshotChecksum
+        delete()
+        isBroken = false
+    }
+
+    private fun delete() {
+        // If the log can't be deleted, it doesn't match the snapshot, so it is ignored on the next
+        // read and overwritten by the next append.
+        file.delete()
+        size = 0
+    }
+
+    private fun truncate() {
+        try {
+            RandomAccessFile(file, "rw").use { it.setLength(size) }
+        } catch (ex: IOException) {
+            // Rewrite the snapshot on the next update, which deletes the log.
+            isBroken = true
+        }
+    }
+
+    internal companion object {
+        /** The snapshot length used when there is no snapshot. */
+        internal const val NO_SNAPSHOT = -1L
+
+        /** The size the log can always grow to, however small the snapshot is. */
+        internal const val MIN_COMPACTION_SIZE = 4096L
+
+        private const val MAGIC = 0x44534C47 // "DSLG"
+        private const val HEADER_SIZE = 4 + 8 + 8
+        private const val RECORD_HEADER_SIZE = 4 + 4
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import java.io.InputStream
+import java.io.OutputStream
+
+/**
+ * A [Serializer] that can also write the changes between two values.
+ *
+ * A DataStore created with a DeltaSerializer doesn't rewrite the whole file on every update.
+ * Instead, it appends the changes to a log next to the file, and only rewrites the file once the
+ * log has grown as large as the file. When the data is read, the changes in the log are applied
+ * to the value read from the file.
+ *
+ * This is useful when updates only change a small part of a large value, in which case writing
+ * the changes is much cheaper than writing the whole value.
+ *
+ * The type T MUST be immutable. Mutable types will result in broken DataStore functionality.
+ */
+public interface DeltaSerializer<T> : Serializer<T> {
+
+    /**
+     * Marshal the changes from [old] to [new] to a stream. Closing the provided OutputStream is a
+     * no-op.
+     *
+     * @param old the data before the update
+     * @param new the data after the update, which is different from [old]
+     * @param output the OutputStream to serialize the changes to
+     */
+    public suspend fun writeDelta(old: T, new: T, output: OutputStream)
+
+    /**
+     * Apply changes written by [writeDelta] to a value.
+     *
+     * @param base the data to apply the changes to
+     * @param deltas the InputStreams with the changes to deserialize, in the order they were
+     * written. Each stream contains the output of a single call to [writeDelta].
+     * @return the data after all the changes are applied
+     */
+    public suspend fun readDeltas(base: T, deltas: List<InputStream>): T
+}
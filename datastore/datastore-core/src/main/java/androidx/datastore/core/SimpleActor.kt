@@ -55,6 +55,12 @@ internal class SimpleActor<T>(
      */
     private val remainingMessages = AtomicInteger(0)
 
+    /**
+     * Count of the messages taken by [poll] during the current call to consumeMessage. Only
+     * accessed by the consumer.
+     */
+    private var polledMessages = 0
+
     init {
         // If the scope doesn't have a job, it won't be cancelled, so we don't need to register a
         // callback.
@@ -120,8 +126,24 @@ internal class SimpleActor<T>(
                     scope.ensureActive()
 
                     consumeMessage(messageQueue.receive())
-                } while (remainingMessages.decrementAndGet() != 0)
+                    val consumedMessages = 1 + polledMessages
+                    polledMessages = 0
+                } while (remainingMessages.addAndGet(-consumedMessages) != 0)
             }
         }
     }
+
+    /**
+     * Takes the next message from the message queue, if there is one, so that it can be consumed
+     * together with the message passed to consumeMessage. This must only be called from
+     * consumeMessage, which is then responsible for consuming the returned message.
+     */
+    fun poll(): T? {
+        // Only take messages that were already counted by offer, or the consumer could stop while
+        // a message it didn't take is still in the queue, without a new consumer being started.
+        if (remainingMessages.get() - 1 - polledMessages <= 0) {
+            return null
+        }
+        return messageQueue.tryReceive().getOrNull()?.also { polledMessages++ }
+    }
 }
\ No newline at end of file
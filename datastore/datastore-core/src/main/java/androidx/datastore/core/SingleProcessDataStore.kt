@@ -36,9 +36,14 @@ import java.io.File
 import java.io.FileInputStream
 import java.io.FileNotFoundException
 import java.io.FileOutputStream
+import java.io.FilterInputStream
 import java.io.IOException
+import java.io.InputStream
 import java.io.OutputStream
 import java.lang.IllegalStateException
+import java.util.zip.CRC32
+import java.util.zip.CheckedInputStream
+import java.util.zip.CheckedOutputStream
 import kotlin.coroutines.CoroutineContext
 import kotlin.coroutines.coroutineContext
 
@@ -72,6 +77,15 @@ private class Final<T>(val finalException: Throwable) : State<T>()
 
 /**
  * Single process implementation of DataStore. This is NOT multi-process safe.
+ *
+ * Updates that are queued while another update runs are applied in order and written together,
+ * so concurrent updates share a single write. If that write fails, they are written one at a time,
+ * so an update only fails if its own write fails.
+ *
+ * If [serializer] is a [DeltaSerializer], updates are appended to a [DeltaLog] next to the file,
+ * and the file is only rewritten when the log needs to be compacted. Without [appendDeltas], an
+ * existing log is still applied when the data is read, but the next write compacts it into the
+ * file instead of appending to it.
  */
 internal class SingleProcessDataStore<T>(
     private val produceFile: () -> File,
@@ -85,7 +99,8 @@ internal class SingleProcessDataStore<T>(
      */
     initTasksList: List<suspend (api: InitializerApi<T>) -> Unit> = emptyList(),
     private val corruptionHandler: CorruptionHandler<T> = NoOpCorruptionHandler<T>(),
-    private val scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+    private val scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
+    private val appendDeltas: Boolean = true
 ) : DataStore<T> {
 
     override val data: Flow<T> = flow {
@@ -159,6 +174,7 @@ internal class SingleProcessDataStore<T>(
     }
 
     private val SCRATCH_SUFFIX = ".tmp"
+    private val LOG_SUFFIX = ".log"
 
     private val file: File by lazy {
         val file = produceFile()
@@ -178,6 +194,12 @@ internal class SingleProcessDataStore<T>(
         file
     }
 
+    private val deltaLog: DeltaLog<T>? by lazy {
+        (serializer as? DeltaSerializer<T>)?.let {
+            DeltaLog(File(file.absolutePath + LOG_SUFFIX), it)
+        }
+    }
+
     @Suppress("UNCHECKED_CAST")
     private val downstreamFlow = MutableStateFlow(UnInitialized as State<T>)
 
@@ -267,34 +289,51 @@ internal class SingleProcessDataStore<T>(
     private suspend fun handleUpdate(update: Message.Update<T>) {
         // All branches of this *must* complete ack either successfully or exceptionally.
         // We must *not* throw an exception, just propagate it to the ack.
-        update.ack.completeWith(
-            runCatching {
+        val initResult = runCatching {
 
-                when (val currentState = downstreamFlow.value) {
-                    is Data -> {
-                        // We are already initialized, we just need to perform the update
-                        transformAndWrite(update.transform, update.callerContext)
-                    }
-                    is ReadException, is UnInitialized -> {
-                        if (currentState === update.lastState) {
-                            // we need to try to read again
-                            readAndInitOrPropagateAndThrowFailure()
-
-                            // We've successfully read, now we need to perform the update
-                            transformAndWrite(update.transform, update.callerContext)
-                        } else {
-                            // Someone else beat us to read but also failed. We just need to
-                            // signal the writer that is waiting on ack.
-                            // This cast is safe because we can't be in the UnInitialized
-                            // state if the state has changed.
-                            throw (currentState as ReadException).readException
-                        }
+            when (val currentState = downstreamFlow.value) {
+                is Data -> {
+                    // We are already initialized, we just need to perform the update
+                }
+                is ReadException, is UnInitialized -> {
+                    if (currentState === update.lastState) {
+                        // we need to try to read again
+                        readAndInitOrPropagateAndThrowFailure()
+
+                        // We've successfully read, now we need to perform the update
+                    } else {
+                        // Someone else beat us to read but also failed. We just need to
+                        // signal the writer that is waiting on ack.
+                        // This cast is safe because we can't be in the UnInitialized
+                        // state if the state has changed.
+                        throw (currentState as ReadException).readException
                     }
-
-                    is Final -> throw currentState.finalException // won't happen
                 }
+
+                is Final -> throw currentState.finalException // won't happen
             }
-        )
+        }
+
+        initResult.exceptionOrNull()?.let {
+            update.ack.completeExceptionally(it)
+            return
+        }
+
+        transformAndWriteBatch(update)
+    }
+
+    /**
+     * Returns the next update waiting in the actor, if any. Reads are handled right away, they are
+     * no-ops since the data is already initialized.
+     */
+    private suspend fun pollUpdate(): Message.Update<T>? {
+        while (true) {
+            when (val msg = actor.poll()) {
+                null -> return null
+                is Message.Read -> handleRead(msg)
+                is Message.Update -> return msg
+            }
+        }
     }
 
     private suspend fun readAndInitOrPropagateAndThrowFailure() {
@@ -376,6 +415,25 @@ internal class SingleProcessDataStore<T>(
     }
 
     private suspend fun readData(): T {
+        val deltaLog = deltaLog ?: return readSnapshot()
+        val checksum = CRC32()
+        val snapshot = try {
+            CheckedInputStream(FileInputStream(file), checksum).use { stream ->
+                val snapshot = serializer.readFrom(UncloseableInputStream(stream))
+                // The checksum covers the whole file, even if the serializer didn't read all of it.
+                stream.skip(Long.MAX_VALUE)
+                snapshot
+            }
+        } catch (ex: FileNotFoundException) {
+            if (file.exists()) {
+                throw ex
+            }
+            return deltaLog.replay(serializer.defaultValue, DeltaLog.NO_SNAPSHOT, 0)
+        }
+        return deltaLog.replay(snapshot, file.length(), checksum.value)
+    }
+
+    private suspend fun readSnapshot(): T {
         try {
             FileInputStream(file).use { stream ->
                 return serializer.readFrom(stream)
@@ -388,14 +446,109 @@ internal class SingleProcessDataStore<T>(
         }
     }
 
-    // downstreamFlow.value must be successfully set to data before calling this
-    private suspend fun transformAndWrite(
+    /**
+     * Applies [firstUpdate], and then the updates that are queued behind it, in order, and writes
+     * the result once for all of them. Each update is only acknowledged once the write is
+     * durable. If the combined write fails, the updates are written one at a time instead, so
+     * that only the updates whose own write fails see the exception.
+     *
+     * The batch ends after [MAX_BATCH_UPDATES] updates or [MAX_BATCH_NANOS], so that a steady
+     * stream of updates still gets written and acknowledged. The updates still queued then form
+     * the next batch.
+     *
+     * downstreamFlow.value must be successfully set to data before calling this.
+     */
+    private suspend fun transformAndWriteBatch(firstUpdate: Message.Update<T>) {
+        // value is not null or an exception because we must have the value set by now so this cast
+        // is safe.
+        val committedDataAndHash = downstreamFlow.value as Data<T>
+        var curDataAndHash = committedDataAndHash
+        val transformed = mutableListOf<Pair<Message.Update<T>, T>>()
+
+        val batchStart = System.nanoTime()
+        var nextUpdate: Message.Update<T>? = firstUpdate
+        var batchSize = 0
+        while (nextUpdate != null) {
+            val update = nextUpdate
+            runCatching {
+                applyTransform(curDataAndHash, update.transform, update.callerContext)
+            }.onSuccess { newData ->
+                if (newData !== curDataAndHash.value) {
+                    curDataAndHash = Data(newData, newData.hashCode())
+                }
+                transformed += update to newData
+            }.onFailure {
+                // A failing transform only fails its own update, the others still apply.
+                update.ack.completeExceptionally(it)
+            }
+            batchSize++
+            nextUpdate = if (batchSize < MAX_BATCH_UPDATES &&
+                System.nanoTime() - batchStart < MAX_BATCH_NANOS
+            ) {
+                pollUpdate()
+            } else {
+                null
+            }
+        }
+
+        val writeResult = runCatching {
+            if (curDataAndHash.value != committedDataAndHash.value) {
+                write(committedDataAndHash.value, curDataAndHash.value)
+                downstreamFlow.value = curDataAndHash
+            }
+        }
+        if (writeResult.isSuccess || transformed.size == 1) {
+            for ((transformedUpdate, newData) in transformed) {
+                transformedUpdate.ack.completeWith(writeResult.map { newData })
+            }
+        } else {
+            writeSeparately(committedDataAndHash, transformed)
+        }
+    }
+
+    /**
+     * Writes the [transformed] updates of a batch whose combined write failed one at a time, the
+     * same way they would have been written without batching.
+     *
+     * The data of each update builds on the previous one, so it is written as is until one of the
+     * writes fails. The transforms of the updates after that are applied again to the data that
+     * was written last.
+     */
+    private suspend fun writeSeparately(
+        committedDataAndHash: Data<T>,
+        transformed: List<Pair<Message.Update<T>, T>>
+    ) {
+        var curDataAndHash = committedDataAndHash
+        var writeFailed = false
+        for ((update, batchData) in transformed) {
+            update.ack.completeWith(
+                runCatching {
+                    val newData = if (writeFailed) {
+                        applyTransform(curDataAndHash, update.transform, update.callerContext)
+                    } else {
+                        batchData
+                    }
+                    if (newData != curDataAndHash.value) {
+                        try {
+                            write(curDataAndHash.value, newData)
+                        } catch (ex: Throwable) {
+                            writeFailed = true
+                            throw ex
+                        }
+                        curDataAndHash = Data(newData, newData.hashCode())
+                        downstreamFlow.value = curDataAndHash
+                    }
+                    newData
+                }
+            )
+        }
+    }
+
+    private suspend fun applyTransform(
+        curDataAndHash: Data<T>,
         transform: suspend (t: T) -> T,
         callerContext: CoroutineContext
     ): T {
-        // value is not null or an exception because we must have the value set by now so this cast
-        // is safe.
-        val curDataAndHash = downstreamFlow.value as Data<T>
         curDataAndHash.checkHashCode()
 
         val curData = curDataAndHash.value
@@ -404,12 +557,16 @@ internal class SingleProcessDataStore<T>(
         // Check that curData has not changed...
         curDataAndHash.checkHashCode()
 
-        return if (curData == newData) {
-            curData
-        } else {
+        return if (curData == newData) curData else newData
+    }
+
+    private suspend fun write(curData: T, newData: T) {
+        val deltaLog = deltaLog
+        if (deltaLog == null || !appendDeltas || deltaLog.needsCompaction) {
             writeData(newData)
-            downstreamFlow.value = Data(newData, newData.hashCode())
-            newData
+        } else {
+            file.createParentDirectories()
+            deltaLog.append(curData, newData)
         }
     }
 
@@ -421,13 +578,18 @@ internal class SingleProcessDataStore<T>(
         file.createParentDirectories()
 
         val scratchFile = File(file.absolutePath + SCRATCH_SUFFIX)
+        val checksum = CRC32()
         try {
             FileOutputStream(scratchFile).use { stream ->
-                serializer.writeTo(newData, UncloseableOutputStream(stream))
+                serializer.writeTo(
+                    newData,
+                    CheckedOutputStream(UncloseableOutputStream(stream), checksum)
+                )
                 stream.fd.sync()
                 // TODO(b/151635324): fsync the directory, otherwise a badly timed crash could
                 //  result in reverting to a previous state.
             }
+            val snapshotLength = scratchFile.length()
 
             if (!scratchFile.renameTo(file)) {
                 throw IOException(
@@ -437,6 +599,10 @@ internal class SingleProcessDataStore<T>(
                         "datastore for this file."
                 )
             }
+
+            // The log applies to the previous snapshot. If the process dies before it is deleted,
+            // it is ignored on the next read since the snapshot checksum no longer matches.
+            deltaLog?.reset(snapshotLength, checksum.value)
         } catch (ex: IOException) {
             if (scratchFile.exists()) {
                 scratchFile.delete() // Swallow failure to delete
@@ -481,6 +647,13 @@ internal class SingleProcessDataStore<T>(
         }
     }
 
+    // Wrapper on InputStream to keep reading the snapshot after the serializer is done with it.
+    private class UncloseableInputStream(input: InputStream) : FilterInputStream(input) {
+        override fun close() {
+            // The underlying stream is closed once the snapshot was fully read.
+        }
+    }
+
     internal companion object {
         /**
          * Active files should contain the absolute path for which there are currently active
@@ -492,5 +665,11 @@ internal class SingleProcessDataStore<T>(
         internal val activeFiles = mutableSetOf<String>()
 
         internal val activeFilesLock = Any()
+
+        /** The maximum number of updates written together. */
+        internal const val MAX_BATCH_UPDATES = 64
+
+        /** The time after which no more queued updates are added to a batch. */
+        internal const val MAX_BATCH_NANOS = 100_000_000L // 100ms
     }
 }
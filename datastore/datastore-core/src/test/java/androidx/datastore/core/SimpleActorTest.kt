@@ -273,6 +273,67 @@ class SimpleActorTest {
         waiters.await()
     }
 
+    @Test
+    fun testPollTakesQueuedMessages() = runBlockingTest {
+        val msgs = mutableListOf<Int>()
+        val polled = mutableListOf<Int?>()
+        val latch = CompletableDeferred<Unit>()
+
+        lateinit var actor: SimpleActor<Int>
+        actor = SimpleActor(
+            this,
+            onComplete = {},
+            onUndeliveredElement = { _, _ -> }
+        ) {
+            msgs.add(it)
+            latch.await()
+            polled.add(actor.poll())
+            polled.add(actor.poll())
+            polled.add(actor.poll())
+        }
+
+        actor.offer(1)
+        actor.offer(2)
+        actor.offer(3)
+        latch.complete(Unit)
+
+        assertThat(msgs).isEqualTo(listOf(1))
+        assertThat(polled).isEqualTo(listOf(2, 3, null))
+    }
+
+    @Test
+    fun testManyConcurrentCallsWithPoll() = runBlocking<Unit> {
+        val scope = CoroutineScope(Job() + Executors.newFixedThreadPool(4).asCoroutineDispatcher())
+        val numCalls = 100000
+        val volatileIntHolder = VolatileIntHolder()
+
+        val latch = CountDownLatch(numCalls)
+        lateinit var actor: SimpleActor<Int>
+        actor = SimpleActor(
+            scope,
+            onComplete = {},
+            onUndeliveredElement = { _, _ -> }
+        ) {
+            var consumed = 1
+            while (actor.poll() != null) {
+                consumed++
+            }
+            // This should be safe because there shouldn't be any concurrent calls
+            volatileIntHolder.int = volatileIntHolder.int + consumed
+            repeat(consumed) { latch.countDown() }
+        }
+
+        repeat(numCalls) {
+            scope.launch {
+                actor.offer(it)
+            }
+        }
+
+        latch.await(5, TimeUnit.SECONDS)
+
+        assertThat(volatileIntHolder.int).isEqualTo(numCalls)
+    }
+
     class TestElement(val name: String) : AbstractCoroutineContextElement(Key) {
         companion object Key : CoroutineContext.Key<TestElement>
     }
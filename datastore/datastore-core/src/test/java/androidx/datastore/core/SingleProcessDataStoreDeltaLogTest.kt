@@ -0,0 +1,240 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import androidx.datastore.core.handlers.ReplaceFileCorruptionHandler
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.rules.Timeout
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.TimeUnit
+
+@ExperimentalCoroutinesApi
+@RunWith(JUnit4::class)
+class SingleProcessDataStoreDeltaLogTest {
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    @get:Rule
+    val timeout = Timeout(10, TimeUnit.SECONDS)
+
+    private lateinit var testFile: File
+    private lateinit var logFile: File
+    private lateinit var serializer: CountingDeltaSerializer
+
+    @Before
+    fun setUp() {
+        testFile = File(tempFolder.root, "test_file")
+        logFile = File(tempFolder.root, "test_file.log")
+        serializer = CountingDeltaSerializer()
+    }
+
+    @Test
+    fun testUpdateAppendsToLog() = runBlockingTest {
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            store.updateData { 1 }
+            store.updateData { 2 }
+            assertThat(store.data.first()).isEqualTo(2)
+        }
+
+        assertThat(testFile.exists()).isFalse()
+        assertThat(logFile.exists()).isTrue()
+        assertThat(serializer.snapshotWrites).isEqualTo(0)
+        assertThat(serializer.deltaWrites).isEqualTo(2)
+    }
+
+    @Test
+    fun testReadWithNewInstance_replaysLog() = runBlockingTest {
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            store.updateData { 1 }
+            store.updateData { it + 1 }
+        }
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            assertThat(store.data.first()).isEqualTo(2)
+            store.updateData { it + 1 }
+        }
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            assertThat(store.data.first()).isEqualTo(3)
+        }
+    }
+
+    @Test
+    fun testReadWithNewInstance_dropsTornRecord() = runBlockingTest {
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            store.updateData { 1 }
+            store.updateData { 2 }
+        }
+        val length = logFile.length()
+        // A record whose payload was only partially written.
+        logFile.appendBytes(byteArrayOf(0, 0, 0, 4, 1, 2, 3, 4, 0, 0))
+
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            assertThat(store.data.first()).isEqualTo(2)
+            assertThat(logFile.length()).isEqualTo(length)
+            store.updateData { 3 }
+        }
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            assertThat(store.data.first()).isEqualTo(3)
+        }
+    }
+
+    @Test
+    fun testReadWithNewInstance_dropsCorruptRecord() = runBlockingTest {
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            store.updateData { 1 }
+            store.updateData { 2 }
+        }
+        // Flip a bit in the payload of the last record, so its checksum no longer matches.
+        val bytes = logFile.readBytes()
+        bytes[bytes.size - 1] = (bytes[bytes.size - 1].toInt() xor 1).toByte()
+        logFile.writeBytes(bytes)
+
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            assertThat(store.data.first()).isEqualTo(1)
+        }
+    }
+
+    @Test
+    fun testCompaction_rewritesSnapshotAndDeletesLog() = runBlockingTest {
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            while (serializer.snapshotWrites == 0) {
+                store.updateData { it + 1 }
+            }
+            assertThat(logFile.exists()).isFalse()
+            assertThat(testFile.exists()).isTrue()
+        }
+        val count = serializer.deltaWrites + serializer.snapshotWrites
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            assertThat(store.data.first()).isEqualTo(count)
+        }
+    }
+
+    @Test
+    fun testReadWithNewInstance_ignoresStaleLog() = runBlockingTest {
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            store.updateData { 1 }
+        }
+        val staleLog = logFile.readBytes()
+
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            while (serializer.snapshotWrites == 0) {
+                store.updateData { it + 1 }
+            }
+        }
+        val count = serializer.deltaWrites + serializer.snapshotWrites
+        // The process died before the log that was compacted into the snapshot was deleted.
+        logFile.writeBytes(staleLog)
+
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            assertThat(store.data.first()).isEqualTo(count)
+            store.updateData { it + 1 }
+        }
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            assertThat(store.data.first()).isEqualTo(count + 1)
+        }
+    }
+
+    @Test
+    fun testCorruptionHandler_resetsLog() = runBlockingTest {
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            store.updateData { 1 }
+            store.updateData { 2 }
+        }
+        // Not a valid snapshot, since it is shorter than an int.
+        testFile.writeBytes(byteArrayOf(1))
+
+        coroutineScope {
+            val store = SingleProcessDataStore(
+                { testFile },
+                serializer = serializer,
+                scope = this,
+                corruptionHandler = ReplaceFileCorruptionHandler { 5 }
+            )
+            assertThat(store.data.first()).isEqualTo(5)
+            assertThat(logFile.exists()).isFalse()
+        }
+        coroutineScope {
+            val store = newDataStore(scope = this)
+            assertThat(store.data.first()).isEqualTo(5)
+        }
+    }
+
+    private fun newDataStore(scope: CoroutineScope): DataStore<Int> {
+        return SingleProcessDataStore({ testFile }, serializer = serializer, scope = scope)
+    }
+
+    /** Stores an int, and writes each new value as the delta. */
+    private class CountingDeltaSerializer : DeltaSerializer<Int> {
+        var snapshotWrites = 0
+        var deltaWrites = 0
+
+        override val defaultValue: Int = 0
+
+        override suspend fun readFrom(input: InputStream): Int {
+            return try {
+                DataInputStream(input).readInt()
+            } catch (ex: EOFException) {
+                throw CorruptionException("Snapshot is too short.", ex)
+            }
+        }
+
+        override suspend fun writeTo(t: Int, output: OutputStream) {
+            snapshotWrites++
+            DataOutputStream(output).writeInt(t)
+        }
+
+        override suspend fun writeDelta(old: Int, new: Int, output: OutputStream) {
+            deltaWrites++
+            DataOutputStream(output).writeInt(new)
+        }
+
+        override suspend fun readDeltas(base: Int, deltas: List<InputStream>): Int {
+            return DataInputStream(deltas.last()).readInt()
+        }
+    }
+}
@@ -27,6 +27,7 @@ import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.asCoroutineDispatcher
 import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
 import kotlinx.coroutines.awaitCancellation
 import kotlinx.coroutines.cancel
 import kotlinx.coroutines.cancelAndJoin
@@ -282,6 +283,134 @@ class SingleProcessDataStoreTest {
         assertThat(store.updateData { it.inc().inc() }).isEqualTo(2)
     }
 
+    @Test
+    fun testQueuedUpdatesAreWrittenOnce() = runBlockingTest {
+        val continueFirstUpdate = CompletableDeferred<Unit>()
+
+        val firstUpdate = async {
+            store.updateData {
+                continueFirstUpdate.await()
+                it.inc()
+            }
+        }
+        val queuedUpdates = List(10) {
+            async { store.updateData { it.inc() } }
+        }
+
+        continueFirstUpdate.complete(Unit)
+
+        assertThat(firstUpdate.await()).isEqualTo(1)
+        assertThat(queuedUpdates.awaitAll()).isEqualTo((2..11).map { it.toByte() })
+        assertThat(testingSerializer.writeCount).isEqualTo(1)
+        assertThat(store.data.first()).isEqualTo(11)
+    }
+
+    @Test
+    fun testQueuedUpdatesAreWrittenInBoundedBatches() = runBlockingTest {
+        val continueFirstUpdate = CompletableDeferred<Unit>()
+        val updateCount = SingleProcessDataStore.MAX_BATCH_UPDATES + 10
+
+        val firstUpdate = async {
+            store.updateData {
+                continueFirstUpdate.await()
+                it.inc()
+            }
+        }
+        val queuedUpdates = List(updateCount - 1) {
+            async { store.updateData { it.inc() } }
+        }
+
+        continueFirstUpdate.complete(Unit)
+
+        assertThat(firstUpdate.await()).isEqualTo(1)
+        assertThat(queuedUpdates.awaitAll()).isEqualTo((2..updateCount).map { it.toByte() })
+        // The updates past the first batch are written in another one.
+        assertThat(testingSerializer.writeCount).isAtLeast(2)
+        assertThat(store.data.first()).isEqualTo(updateCount.toByte())
+    }
+
+    @Test
+    fun testFailingTransformDoesntFailQueuedUpdates() = runBlockingTest {
+        val continueFirstUpdate = CompletableDeferred<Unit>()
+
+        val firstUpdate = async {
+            store.updateData {
+                continueFirstUpdate.await()
+                it.inc()
+            }
+        }
+        val failingUpdate = async {
+            assertThrows<IOException> {
+                store.updateData { throw IOException("Transform failed") }
+            }
+        }
+        val lastUpdate = async {
+            store.updateData { it.inc() }
+        }
+
+        continueFirstUpdate.complete(Unit)
+
+        assertThat(firstUpdate.await()).isEqualTo(1)
+        failingUpdate.await()
+        assertThat(lastUpdate.await()).isEqualTo(2)
+        assertThat(testingSerializer.writeCount).isEqualTo(1)
+    }
+
+    @Test
+    fun testFailingWriteFailsQueuedUpdates() = runBlockingTest {
+        val continueFirstUpdate = CompletableDeferred<Unit>()
+        testingSerializer.failingWrite = true
+
+        val updates = List(3) {
+            async {
+                assertThrows<IOException> {
+                    store.updateData {
+                        continueFirstUpdate.await()
+                        it.inc()
+                    }
+                }
+            }
+        }
+
+        continueFirstUpdate.complete(Unit)
+        updates.awaitAll()
+
+        assertThat(store.data.first()).isEqualTo(0)
+
+        testingSerializer.failingWrite = false
+        assertThat(store.updateData { it.inc() }).isEqualTo(1)
+    }
+
+    @Test
+    fun testFailingWriteInBatchOnlyFailsItsUpdate() = runBlockingTest {
+        val continueFirstUpdate = CompletableDeferred<Unit>()
+        // Fails the combined write of the batch, and the separate write of the second update.
+        testingSerializer.failingWriteValues = setOf<Byte>(11, 12)
+
+        val firstUpdate = async {
+            store.updateData {
+                continueFirstUpdate.await()
+                it.inc()
+            }
+        }
+        val failingUpdate = async {
+            assertThrows<IOException> {
+                store.updateData { it.plus(10).toByte() }
+            }
+        }
+        val lastUpdate = async {
+            store.updateData { it.inc() }
+        }
+
+        continueFirstUpdate.complete(Unit)
+
+        assertThat(firstUpdate.await()).isEqualTo(1)
+        failingUpdate.await()
+        // The last update is applied again to the data without the failed update.
+        assertThat(lastUpdate.await()).isEqualTo(2)
+        assertThat(store.data.first()).isEqualTo(2)
+    }
+
     @Test
     fun testWriteAfterTransientBadRead() = runBlockingTest {
         testingSerializer.failingRead = true
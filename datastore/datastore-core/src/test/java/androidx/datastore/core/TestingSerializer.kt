@@ -26,6 +26,9 @@ internal class TestingSerializer(
     @Volatile var failingWrite: Boolean = false,
     override val defaultValue: Byte = 0
 ) : Serializer<Byte> {
+    @Volatile var writeCount = 0
+    @Volatile var failingWriteValues: Set<Byte> = emptySet()
+
     override suspend fun readFrom(input: InputStream): Byte {
         if (failReadWithCorruptionException) {
             throw CorruptionException(
@@ -46,9 +49,10 @@ internal class TestingSerializer(
     }
 
     override suspend fun writeTo(t: Byte, output: OutputStream) {
-        if (failingWrite) {
+        if (failingWrite || t in failingWriteValues) {
             throw IOException("I was asked to fail on writes")
         }
+        writeCount++
         output.write(t.toInt())
     }
 }
\ No newline at end of file
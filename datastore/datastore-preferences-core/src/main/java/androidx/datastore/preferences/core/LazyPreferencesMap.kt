@@ -0,0 +1,199 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.preferences.core
+
+import java.io.ByteArrayOutputStream
+import java.util.AbstractMap
+
+/**
+ * The map of a [MutablePreferences] read by [PreferencesSerializer]. Preferences are read from
+ * a [PreferencesIndex] when they are accessed, and the changes made since they were read are kept
+ * apart, so that copying the map and writing it doesn't decode the preferences that didn't
+ * change.
+ */
+internal class LazyPreferencesMap private constructor(
+    private var index: PreferencesIndex,
+    // The preferences that changed since they were read, by name. Removed preferences are null.
+    private val changes: HashMap<String, Any?>,
+    private var count: Int
+) : AbstractMutableMap<Preferences.Key<*>, Any>() {
+
+    constructor(index: PreferencesIndex) : this(index, HashMap(), index.size)
+
+    override val size: Int
+        get() = count
+
+    override fun containsKey(key: Preferences.Key<*>): Boolean = get(key.name) != null
+
+    override fun get(key: Preferences.Key<*>): Any? = get(key.name)
+
+    private fun get(name: String): Any? {
+        if (changes.containsKey(name)) {
+            return changes[name]
+        }
+        val position = index.find(name)
+        return if (position >= 0) index.value(position) else null
+    }
+
+    override fun put(key: Preferences.Key<*>, value: Any): Any? {
+        val previous = get(key.name)
+        changes[key.name] = value
+        if (previous == null) {
+            count++
+        }
+        return previous
+    }
+
+    override fun remove(key: Preferences.Key<*>): Any? {
+        val previous = get(key.name) ?: return null
+        if (index.find(key.name) >= 0) {
+            changes[key.name] = null
+        } else {
+            changes.remove(key.name)
+        }
+        count--
+        return previous
+    }
+
+    override fun clear() {
+        index = PreferencesIndex.EMPTY
+        changes.clear()
+        count = 0
+    }
+
+    override val entries: MutableSet<MutableMap.MutableEntry<Preferences.Key<*>, Any>>
+        get() = object : AbstractMutableSet<MutableMap.MutableEntry<Preferences.Key<*>, Any>>() {
+            override val size: Int
+                get() = count
+
+            override fun add(element: MutableMap.MutableEntry<Preferences.Key<*>, Any>): Boolean {
+                throw UnsupportedOperationException()
+            }
+
+            override fun iterator():
+                MutableIterator<MutableMap.MutableEntry<Preferences.Key<*>, Any>> =
+                    EntryIterator()
+        }
+
+    /** Returns a copy of this map, which shares the preferences that didn't change. */
+    fun copy(): LazyPreferencesMap = LazyPreferencesMap(index, HashMap(changes), count)
+
+    /**
+     * Returns the names of the preferences that may differ between this map and [other], or null
+     * if the maps weren't read from the same file, in which case any preference may differ.
+     */
+    fun namesChangedFrom(other: LazyPreferencesMap): Set<String>? {
+        if (other.index !== index) {
+            return null
+        }
+        return changes.keys + other.changes.keys
+    }
+
+    /**
+     * Writes the preferences as a PreferenceMap, with the entries in the order of their names.
+     * The entries of the preferences that didn't change are copied as they were read.
+     */
+    fun writeTo(output: ByteArrayOutputStream) {
+        val sortedChanges = changes.entries
+            .map { (name, value) -> name.toByteArray(Charsets.UTF_8) to value }
+            .sortedWith(compareBy(PreferencesIndex.NAME_COMPARATOR) { it.first })
+
+        // Merge the changes with the entries of the index, which are also sorted by name.
+        var position = 0
+        for ((name, value) in sortedChanges) {
+            val found = index.find(name)
+            val next = if (found >= 0) found else -(found + 1)
+            index.writeEntries(position, next, output)
+            position = maxOf(position, if (found >= 0) next + 1 else next)
+            if (value != null) {
+                PreferencesIndex.writeEntry(name, value, output)
+            }
+        }
+        index.writeEntries(position, index.size, output)
+    }
+
+    override fun hashCode(): Int {
+        var hash = index.mapHashCode()
+        for ((name, value) in changes) {
+            val position = index.find(name)
+            if (position >= 0) {
+                hash -= index.entryHashCode(position)
+            }
+            if (value != null) {
+                hash += name.hashCode() xor value.hashCode()
+            }
+        }
+        return hash
+    }
+
+    override fun equals(other: Any?): Boolean {
+        if (other is LazyPreferencesMap) {
+            val names = namesChangedFrom(other)
+            if (names != null) {
+                return count == other.count && names.all { get(it) == other.get(it) }
+            }
+        }
+        return super.equals(other)
+    }
+
+    private inner class EntryIterator :
+        MutableIterator<MutableMap.MutableEntry<Preferences.Key<*>, Any>> {
+        private val index = this@LazyPreferencesMap.index
+        // The preferences that were set, after those read from the index.
+        private val changes = this@LazyPreferencesMap.changes.mapNotNull { (name, value) ->
+            value?.let { name to it }
+        }
+        private var position = 0
+        private var changePosition = 0
+        private var last: Preferences.Key<*>? = null
+
+        override fun hasNext(): Boolean {
+            while (position < index.size && this@LazyPreferencesMap.changes.containsKey(
+                    index.name(position)
+                )
+            ) {
+                position++
+            }
+            return position < index.size || changePosition < changes.size
+        }
+
+        override fun next(): MutableMap.MutableEntry<Preferences.Key<*>, Any> {
+            if (!hasNext()) {
+                throw NoSuchElementException()
+            }
+            val entry = if (position < index.size) {
+                AbstractMap.SimpleImmutableEntry<Preferences.Key<*>, Any>(
+                    Preferences.Key<Any>(index.name(position)),
+                    index.value(position)
+                ).also { position++ }
+            } else {
+                val (name, value) = changes[changePosition++]
+                AbstractMap.SimpleImmutableEntry<Preferences.Key<*>, Any>(
+                    Preferences.Key<Any>(name),
+                    value
+                )
+            }
+            last = entry.key
+            return entry
+        }
+
+        override fun remove() {
+            this@LazyPreferencesMap.remove(checkNotNull(last))
+            last = null
+        }
+    }
+}
@@ -51,6 +51,9 @@ public object PreferenceDataStoreFactory {
      * should act on the same file at the same time. The file must have the extension
      * preferences_pb.
      *
+     * If the file was previously written by a DataStore created with [createWithDeltaLog], the
+     * changes in its log are still read, and compacted into the file on the next update.
+     *
      * @return a new DataStore instance with the provided configuration
      */
     @JvmOverloads
@@ -59,21 +62,65 @@ public object PreferenceDataStoreFactory {
         migrations: List<DataMigration<Preferences>> = listOf(),
         scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
         produceFile: () -> File
-    ): DataStore<Preferences> {
-        val delegate = DataStoreFactory.create(
-            serializer = PreferencesSerializer,
+    ): DataStore<Preferences> = PreferenceDataStore(
+        DataStoreFactory.createCompactingDeltaLog(
+            serializer = PreferencesDeltaSerializer,
             corruptionHandler = corruptionHandler,
             migrations = migrations,
-            scope = scope
-        ) {
-            val file = produceFile()
-            check(file.extension == PreferencesSerializer.fileExtension) {
-                "File extension for file: $file does not match required extension for" +
-                    " Preferences file: ${PreferencesSerializer.fileExtension}"
-            }
-            file
+            scope = scope,
+            produceFile = checkExtension(produceFile)
+        )
+    )
+
+    /**
+     * Create an instance of SingleProcessDataStore that appends the preferences changed by each
+     * update to a log next to the file, instead of rewriting the whole file. The file is only
+     * rewritten once the log has grown as large as the file. This makes updates cheaper when
+     * there are many preferences, at the cost of reading both the file and the log when the data
+     * is first read. The file can later be opened with [create] again, which reads the changes
+     * in the log and compacts them into the file on the next update.
+     *
+     * Never create more than one instance of DataStore for a given file; doing so can break all
+     * DataStore functionality. You should consider managing your DataStore instance as a
+     * singleton.
+     *
+     * @param corruptionHandler The corruptionHandler is invoked if DataStore encounters a
+     * [CorruptionException] when attempting to read data. CorruptionExceptions are thrown by
+     * serializers when data cannot be de-serialized.
+     * @param migrations are run before any access to data can occur. Each producer and migration
+     * may be run more than once whether or not it already succeeded (potentially because another
+     * migration failed or a write to disk failed.)
+     * @param scope The scope in which IO operations and transform functions will execute.
+     * @param produceFile Function which returns the file that the new DataStore will act on.
+     * The function must return the same path every time. No two instances of PreferenceDataStore
+     * should act on the same file at the same time. The file must have the extension
+     * preferences_pb.
+     *
+     * @return a new DataStore instance with the provided configuration
+     */
+    @JvmOverloads
+    public fun createWithDeltaLog(
+        corruptionHandler: ReplaceFileCorruptionHandler<Preferences>? = null,
+        migrations: List<DataMigration<Preferences>> = listOf(),
+        scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
+        produceFile: () -> File
+    ): DataStore<Preferences> = PreferenceDataStore(
+        DataStoreFactory.create(
+            serializer = PreferencesDeltaSerializer,
+            corruptionHandler = corruptionHandler,
+            migrations = migrations,
+            scope = scope,
+            produceFile = checkExtension(produceFile)
+        )
+    )
+
+    private fun checkExtension(produceFile: () -> File): () -> File = {
+        val file = produceFile()
+        check(file.extension == PreferencesSerializer.fileExtension) {
+            "File extension for file: $file does not match required extension for" +
+                " Preferences file: ${PreferencesSerializer.fileExtension}"
         }
-        return PreferenceDataStore(delegate)
+        file
     }
 }
 
@@ -105,7 +105,7 @@ public abstract class Preferences internal constructor() {
      * @return a MutablePreferences with all the preferences from this Preferences
      */
     public fun toMutablePreferences(): MutablePreferences {
-        return MutablePreferences(asMap().toMutableMap(), startFrozen = false)
+        return MutablePreferences(copyOfMap(), startFrozen = false)
     }
 
     /**
@@ -116,8 +116,10 @@ public abstract class Preferences internal constructor() {
      * @return a copy of this Preferences
      */
     public fun toPreferences(): Preferences {
-        return MutablePreferences(asMap().toMutableMap(), startFrozen = true)
+        return MutablePreferences(copyOfMap(), startFrozen = true)
     }
+
+    internal open fun copyOfMap(): MutableMap<Key<*>, Any> = asMap().toMutableMap()
 }
 
 /**
@@ -157,6 +159,11 @@ public class MutablePreferences internal constructor(
         return Collections.unmodifiableMap(preferencesMap)
     }
 
+    override fun copyOfMap(): MutableMap<Key<*>, Any> {
+        // Copying a map that was read lazily keeps the preferences that weren't accessed encoded.
+        return (preferencesMap as? LazyPreferencesMap)?.copy() ?: super.copyOfMap()
+    }
+
     // Mutating methods below:
 
     /**
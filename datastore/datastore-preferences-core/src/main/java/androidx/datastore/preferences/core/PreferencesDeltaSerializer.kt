@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.preferences.core
+
+import androidx.datastore.core.CorruptionException
+import androidx.datastore.core.DeltaSerializer
+import androidx.datastore.preferences.PreferencesMapCompat
+import androidx.datastore.preferences.PreferencesProto.PreferenceMap
+import androidx.datastore.preferences.PreferencesProto.Value
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import kotlin.jvm.Throws
+
+/**
+ * Serializer for Preferences that writes the preferences that changed in an update, in the same
+ * format as [PreferencesSerializer]. A removed preference is written without a value.
+ */
+internal object PreferencesDeltaSerializer : DeltaSerializer<Preferences> {
+    override val defaultValue: Preferences
+        get() = PreferencesSerializer.defaultValue
+
+    @Throws(IOException::class, CorruptionException::class)
+    override suspend fun readFrom(input: InputStream): Preferences =
+        PreferencesSerializer.readFrom(input)
+
+    @Throws(IOException::class, CorruptionException::class)
+    override suspend fun writeTo(t: Preferences, output: OutputStream) =
+        PreferencesSerializer.writeTo(t, output)
+
+    @Throws(IOException::class, CorruptionException::class)
+    override suspend fun writeDelta(old: Preferences, new: Preferences, output: OutputStream) {
+        val oldPreferences = old.asMap()
+        val newPreferences = new.asMap()
+        val protoBuilder = PreferenceMap.newBuilder()
+
+        // Preferences copied from the same file only differ in the preferences that were changed
+        // since, so only those need to be compared.
+        val oldMap = (old as MutablePreferences).preferencesMap
+        val newMap = (new as MutablePreferences).preferencesMap
+        if (oldMap is LazyPreferencesMap && newMap is LazyPreferencesMap) {
+            val changedNames = newMap.namesChangedFrom(oldMap)
+            if (changedNames != null) {
+                for (name in changedNames) {
+                    // Keys only compare their names, so the type of the key doesn't matter.
+                    val key = stringPreferencesKey(name)
+                    val value = newPreferences[key]
+                    if (value == null) {
+                        if (oldPreferences.containsKey(key)) {
+                            protoBuilder.putPreferences(name, Value.getDefaultInstance())
+                        }
+                    } else if (oldPreferences[key] != value) {
+                        protoBuilder.putPreferences(
+                            name,
+                            PreferencesSerializer.getValueProto(value)
+                        )
+                    }
+                }
+                protoBuilder.build().writeTo(output)
+                return
+            }
+        }
+
+        for ((key, value) in newPreferences) {
+            if (oldPreferences[key] != value) {
+                protoBuilder.putPreferences(key.name, PreferencesSerializer.getValueProto(value))
+            }
+        }
+        for (key in oldPreferences.keys) {
+            if (!newPreferences.containsKey(key)) {
+                protoBuilder.putPreferences(key.name, Value.getDefaultInstance())
+            }
+        }
+
+        protoBuilder.build().writeTo(output)
+    }
+
+    @Throws(IOException::class, CorruptionException::class)
+    override suspend fun readDeltas(base: Preferences, deltas: List<InputStream>): Preferences {
+        val mutablePreferences = base.toMutablePreferences()
+
+        for (delta in deltas) {
+            PreferencesMapCompat.readFrom(delta).preferencesMap.forEach { (name, value) ->
+                if (value.valueCase == Value.ValueCase.VALUE_NOT_SET) {
+                    // Keys only compare their names, so the type of the key doesn't matter.
+                    mutablePreferences.remove(stringPreferencesKey(name))
+                } else {
+                    PreferencesSerializer.addProtoEntryToPreferences(
+                        name,
+                        value,
+                        mutablePreferences
+                    )
+                }
+            }
+        }
+
+        return mutablePreferences.toPreferences()
+    }
+}
@@ -0,0 +1,541 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.preferences.core
+
+import androidx.datastore.core.CorruptionException
+import java.io.ByteArrayOutputStream
+import java.util.Collections
+
+/**
+ * An index over a serialized PreferenceMap proto, sorted by the names of the preferences. The
+ * names and values of the preferences are only decoded when they are accessed.
+ *
+ * [PreferencesSerializer] writes the entries of the PreferenceMap in the order of their names, so
+ * that the index is built without sorting, and unchanged entries are copied as is when the
+ * preferences are written again. Entries in any other order, as written by previous versions, are
+ * sorted when the index is built.
+ *
+ * The whole PreferenceMap is checked when the index is built, so that a corrupt file is reported
+ * when it is read and not when a preference is accessed.
+ *
+ * Decoded names and values are cached. This is thread safe, since decoding always returns the
+ * same immutable values.
+ */
+internal class PreferencesIndex private constructor(
+    private val bytes: ByteArray,
+    // For each entry, in the order of their names, the STRIDE ints starting at the offsets below.
+    private val entries: IntArray,
+    val size: Int
+) {
+    private val names = arrayOfNulls<String>(size)
+    private val values = arrayOfNulls<Any>(size)
+
+    // The hash code of the preferences, as computed by Map.hashCode(), or 0 if not computed yet.
+    private var mapHashCode = 0
+
+    /**
+     * Returns the position of the preference with the given name, or a negative value if there is
+     * none.
+     */
+    fun find(name: String): Int = find(name.toByteArray(Charsets.UTF_8))
+
+    /**
+     * Returns the position of the preference with the given name, encoded in UTF-8, or a negative
+     * value if there is none.
+     */
+    fun find(name: ByteArray): Int {
+        var low = 0
+        var high = size - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val cmp = compareName(mid, name)
+            when {
+                cmp < 0 -> low = mid + 1
+                cmp > 0 -> high = mid - 1
+                else -> return mid
+            }
+        }
+        return -(low + 1)
+    }
+
+    fun name(position: Int): String {
+        return names[position] ?: decodeString(
+            entries[position * STRIDE + NAME_START],
+            entries[position * STRIDE + NAME_END]
+        ).also { names[position] = it }
+    }
+
+    fun value(position: Int): Any {
+        return values[position] ?: decodeValue(position).also { values[position] = it }
+    }
+
+    /** Returns the hash code of the entry, as computed by Map.Entry.hashCode(). */
+    fun entryHashCode(position: Int): Int {
+        val offset = position * STRIDE
+        val nameHashCode = asciiHashCode(entries[offset + NAME_START], entries[offset + NAME_END])
+            ?: name(position).hashCode()
+        return nameHashCode xor valueHashCode(position)
+    }
+
+    /** Returns the hash code of all the preferences, as computed by Map.hashCode(). */
+    fun mapHashCode(): Int {
+        if (mapHashCode == 0) {
+            var hash = 0
+            for (position in 0 until size) {
+                hash += entryHashCode(position)
+            }
+            mapHashCode = hash
+        }
+        return mapHashCode
+    }
+
+    /**
+     * Compares the name of the preference at [position] with [name], encoded in UTF-8. Names are
+     * ordered by their unsigned bytes, which is also the order of their code points.
+     */
+    fun compareName(position: Int, name: ByteArray): Int {
+        val start = entries[position * STRIDE + NAME_START]
+        val end = entries[position * STRIDE + NAME_END]
+        return compareBytes(bytes, start, end, name, 0, name.size)
+    }
+
+    /**
+     * Writes the serialized entries from [from] to [to], exclusive, as they were read. Entries
+     * that are next to each other in the serialized PreferenceMap are written together.
+     */
+    fun writeEntries(from: Int, to: Int, output: ByteArrayOutputStream) {
+        var position = from
+        while (position < to) {
+            val start = entries[position * STRIDE + ENTRY_START]
+            var end = entries[position * STRIDE + ENTRY_END]
+            position++
+            while (position < to && entries[position * STRIDE + ENTRY_START] == end) {
+                end = entries[position * STRIDE + ENTRY_END]
+                position++
+            }
+            output.write(bytes, start, end - start)
+        }
+    }
+
+    private fun decodeString(start: Int, end: Int): String =
+        String(bytes, start, end - start, Charsets.UTF_8)
+
+    private fun decodeValue(position: Int): Any {
+        val offset = position * STRIDE
+        val start = entries[offset + VALUE_START]
+        val end = entries[offset + VALUE_END]
+        val reader = WireReader(bytes, start, end)
+        return when (entries[offset + VALUE_FIELD]) {
+            BOOLEAN_FIELD -> reader.readVarint() != 0L
+            FLOAT_FIELD -> Float.fromBits(reader.readFixed32())
+            INTEGER_FIELD -> reader.readVarint().toInt()
+            LONG_FIELD -> reader.readVarint()
+            STRING_FIELD -> decodeString(start, end)
+            STRING_SET_FIELD -> {
+                val strings = mutableSetOf<String>()
+                while (reader.hasMore()) {
+                    val tag = reader.readTag()
+                    if (tag == STRINGS_TAG) {
+                        val stringEnd = reader.readLengthDelimitedEnd()
+                        strings.add(decodeString(reader.position, stringEnd))
+                        reader.position = stringEnd
+                    } else {
+                        reader.skipField(tag)
+                    }
+                }
+                Collections.unmodifiableSet(strings)
+            }
+            DOUBLE_FIELD -> Double.fromBits(reader.readFixed64())
+            else -> throw IllegalStateException("Unknown value field.") // won't happen
+        }
+    }
+
+    private fun valueHashCode(position: Int): Int {
+        val offset = position * STRIDE
+        val start = entries[offset + VALUE_START]
+        val end = entries[offset + VALUE_END]
+        // Avoid decoding primitives and ASCII strings to compute their hash code.
+        val reader = WireReader(bytes, start, end)
+        return when (entries[offset + VALUE_FIELD]) {
+            BOOLEAN_FIELD -> (reader.readVarint() != 0L).hashCode()
+            FLOAT_FIELD -> Float.fromBits(reader.readFixed32()).hashCode()
+            INTEGER_FIELD -> reader.readVarint().toInt().hashCode()
+            LONG_FIELD -> reader.readVarint().hashCode()
+            STRING_FIELD -> asciiHashCode(start, end) ?: value(position).hashCode()
+            DOUBLE_FIELD -> Double.fromBits(reader.readFixed64()).hashCode()
+            else -> value(position).hashCode()
+        }
+    }
+
+    /**
+     * Returns the hash code of the string between [start] and [end], as computed by
+     * String.hashCode(), or null if it isn't ASCII.
+     */
+    private fun asciiHashCode(start: Int, end: Int): Int? {
+        var hash = 0
+        for (i in start until end) {
+            val b = bytes[i].toInt()
+            if (b < 0) {
+                return null
+            }
+            hash = 31 * hash + b
+        }
+        return hash
+    }
+
+    internal companion object {
+        private const val ENTRY_START = 0
+        private const val ENTRY_END = 1
+        private const val NAME_START = 2
+        private const val NAME_END = 3
+        private const val VALUE_FIELD = 4
+        private const val VALUE_START = 5
+        private const val VALUE_END = 6
+        private const val STRIDE = 7
+
+        private const val WIRE_TYPE_VARINT = 0
+        private const val WIRE_TYPE_FIXED64 = 1
+        private const val WIRE_TYPE_LENGTH_DELIMITED = 2
+        private const val WIRE_TYPE_FIXED32 = 5
+
+        // PreferenceMap.preferences, and the key and value of its entries.
+        internal const val PREFERENCES_TAG = 1 shl 3 or WIRE_TYPE_LENGTH_DELIMITED
+        internal const val NAME_TAG = 1 shl 3 or WIRE_TYPE_LENGTH_DELIMITED
+        internal const val VALUE_TAG = 2 shl 3 or WIRE_TYPE_LENGTH_DELIMITED
+
+        // The fields of Value.
+        private const val BOOLEAN_FIELD = 1
+        private const val FLOAT_FIELD = 2
+        private const val INTEGER_FIELD = 3
+        private const val LONG_FIELD = 4
+        private const val STRING_FIELD = 5
+        private const val STRING_SET_FIELD = 6
+        private const val DOUBLE_FIELD = 7
+        private val VALUE_WIRE_TYPES = intArrayOf(
+            -1,
+            WIRE_TYPE_VARINT,
+            WIRE_TYPE_FIXED32,
+            WIRE_TYPE_VARINT,
+            WIRE_TYPE_VARINT,
+            WIRE_TYPE_LENGTH_DELIMITED,
+            WIRE_TYPE_LENGTH_DELIMITED,
+            WIRE_TYPE_FIXED64
+        )
+
+        // StringSet.strings
+        private const val STRINGS_TAG = 1 shl 3 or WIRE_TYPE_LENGTH_DELIMITED
+
+        internal val EMPTY = PreferencesIndex(ByteArray(0), IntArray(0), 0)
+
+        /** Orders names encoded in UTF-8 the same way as the index. */
+        internal val NAME_COMPARATOR = Comparator<ByteArray> { a, b ->
+            compareBytes(a, 0, a.size, b, 0, b.size)
+        }
+
+        /**
+         * Builds the index of a serialized PreferenceMap.
+         *
+         * @throws CorruptionException if [bytes] is not a valid PreferenceMap
+         */
+        fun parse(bytes: ByteArray): PreferencesIndex {
+            var entries = IntArray(16 * STRIDE)
+            var size = 0
+            var isSorted = true
+
+            val reader = WireReader(bytes, 0, bytes.size)
+            while (reader.hasMore()) {
+                val entryStart = reader.position
+                val tag = reader.readTag()
+                if (tag != PREFERENCES_TAG) {
+                    reader.skipField(tag)
+                    continue
+                }
+                val entryEnd = reader.readLengthDelimitedEnd()
+
+                if ((size + 1) * STRIDE > entries.size) {
+                    entries = entries.copyOf(entries.size * 2)
+                }
+                val offset = size * STRIDE
+                entries[offset + ENTRY_START] = entryStart
+                entries[offset + ENTRY_END] = entryEnd
+                parseEntry(bytes, reader.position, entryEnd, entries, offset)
+                reader.position = entryEnd
+
+                // Names must be strictly increasing, equal names are overwritten by the last one.
+                if (isSorted && size > 0 &&
+                    compareNames(bytes, entries, offset - STRIDE, offset) >= 0
+                ) {
+                    isSorted = false
+                }
+                size++
+            }
+
+            if (!isSorted) {
+                return sort(bytes, entries, size)
+            }
+            return PreferencesIndex(bytes, entries, size)
+        }
+
+        private fun parseEntry(
+            bytes: ByteArray,
+            start: Int,
+            end: Int,
+            entries: IntArray,
+            offset: Int
+        ) {
+            // A missing name is the empty string.
+            entries[offset + NAME_START] = start
+            entries[offset + NAME_END] = start
+            entries[offset + VALUE_FIELD] = 0
+
+            val reader = WireReader(bytes, start, end)
+            while (reader.hasMore()) {
+                val tag = reader.readTag()
+                when (tag) {
+                    NAME_TAG -> {
+                        val nameEnd = reader.readLengthDelimitedEnd()
+                        entries[offset + NAME_START] = reader.position
+                        entries[offset + NAME_END] = nameEnd
+                        reader.position = nameEnd
+                    }
+                    VALUE_TAG -> {
+                        val valueEnd = reader.readLengthDelimitedEnd()
+                        parseValue(bytes, reader.position, valueEnd, entries, offset)
+                        reader.position = valueEnd
+                    }
+                    else -> reader.skipField(tag)
+                }
+            }
+
+            if (entries[offset + VALUE_FIELD] == 0) {
+                throw CorruptionException("Value not set.")
+            }
+        }
+
+        private fun parseValue(
+            bytes: ByteArray,
+            start: Int,
+            end: Int,
+            entries: IntArray,
+            offset: Int
+        ) {
+            val reader = WireReader(bytes, start, end)
+            while (reader.hasMore()) {
+                val tag = reader.readTag()
+                val field = tag ushr 3
+                val wireType = tag and 7
+                if (field >= VALUE_WIRE_TYPES.size || VALUE_WIRE_TYPES[field] != wireType) {
+                    // Unknown fields are ignored, like the proto parser does.
+                    reader.skipField(tag)
+                    continue
+                }
+
+                // The value is a oneof, so the last field that is set wins.
+                entries[offset + VALUE_FIELD] = field
+                if (wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                    val valueEnd = reader.readLengthDelimitedEnd()
+                    entries[offset + VALUE_START] = reader.position
+                    entries[offset + VALUE_END] = valueEnd
+                    if (field == STRING_SET_FIELD) {
+                        checkStringSet(bytes, reader.position, valueEnd)
+                    }
+                    reader.position = valueEnd
+                } else {
+                    entries[offset + VALUE_START] = reader.position
+                    reader.skipField(tag)
+                    entries[offset + VALUE_END] = reader.position
+                }
+            }
+        }
+
+        private fun checkStringSet(bytes: ByteArray, start: Int, end: Int) {
+            val reader = WireReader(bytes, start, end)
+            while (reader.hasMore()) {
+                reader.skipField(reader.readTag())
+            }
+        }
+
+        /**
+         * Sorts the entries by name. Of the entries with the same name, only the last one is kept,
+         * like the proto parser does.
+         */
+        private fun sort(bytes: ByteArray, entries: IntArray, size: Int): PreferencesIndex {
+            // sortedWith is stable, so entries with the same name stay in the order they were read.
+            val order = (0 until size).sortedWith(
+                Comparator { a, b -> compareNames(bytes, entries, a * STRIDE, b * STRIDE) }
+            )
+
+            val sortedEntries = IntArray(size * STRIDE)
+            var sortedSize = 0
+            for (i in order.indices) {
+                val offset = order[i] * STRIDE
+                if (i + 1 < order.size &&
+                    compareNames(bytes, entries, offset, order[i + 1] * STRIDE) == 0
+                ) {
+                    continue
+                }
+                entries.copyInto(sortedEntries, sortedSize * STRIDE, offset, offset + STRIDE)
+                sortedSize++
+            }
+            return PreferencesIndex(bytes, sortedEntries, sortedSize)
+        }
+
+        private fun compareNames(bytes: ByteArray, entries: IntArray, a: Int, b: Int): Int {
+            return compareBytes(
+                bytes, entries[a + NAME_START], entries[a + NAME_END],
+                bytes, entries[b + NAME_START], entries[b + NAME_END]
+            )
+        }
+
+        /** Compares two byte ranges by their unsigned bytes. */
+        internal fun compareBytes(
+            a: ByteArray,
+            aStart: Int,
+            aEnd: Int,
+            b: ByteArray,
+            bStart: Int,
+            bEnd: Int
+        ): Int {
+            val length = minOf(aEnd - aStart, bEnd - bStart)
+            for (i in 0 until length) {
+                val cmp = (a[aStart + i].toInt() and 0xFF) - (b[bStart + i].toInt() and 0xFF)
+                if (cmp != 0) {
+                    return cmp
+                }
+            }
+            return (aEnd - aStart) - (bEnd - bStart)
+        }
+
+        /**
+         * Writes a PreferenceMap entry, the same way the proto serializer does.
+         *
+         * @param name the name of the preference, encoded in UTF-8
+         */
+        fun writeEntry(name: ByteArray, value: Any, output: ByteArrayOutputStream) {
+            val valueBytes = PreferencesSerializer.getValueProto(value).toByteArray()
+            val entryLength = 1 + varintSize(name.size) + name.size +
+                1 + varintSize(valueBytes.size) + valueBytes.size
+            output.write(PREFERENCES_TAG)
+            writeVarint(entryLength, output)
+            output.write(NAME_TAG)
+            writeVarint(name.size, output)
+            output.write(name)
+            output.write(VALUE_TAG)
+            writeVarint(valueBytes.size, output)
+            output.write(valueBytes)
+        }
+
+        private fun varintSize(value: Int): Int {
+            var size = 1
+            var remaining = value ushr 7
+            while (remaining != 0) {
+                size++
+                remaining = remaining ushr 7
+            }
+            return size
+        }
+
+        private fun writeVarint(value: Int, output: ByteArrayOutputStream) {
+            var remaining = value
+            while (remaining and 0x7F.inv() != 0) {
+                output.write(remaining and 0x7F or 0x80)
+                remaining = remaining ushr 7
+            }
+            output.write(remaining)
+        }
+    }
+
+    /** Reads the proto wire format between [position] and [limit]. */
+    private class WireReader(
+        private val bytes: ByteArray,
+        var position: Int,
+        private val limit: Int
+    ) {
+        fun hasMore(): Boolean = position < limit
+
+        fun readTag(): Int {
+            val tag = readVarint()
+            if (tag ushr 3 == 0L || tag > Int.MAX_VALUE) {
+                throw CorruptionException("Invalid tag.")
+            }
+            return tag.toInt()
+        }
+
+        fun readVarint(): Long {
+            var result = 0L
+            var shift = 0
+            while (shift < 64) {
+                val b = readByte()
+                result = result or ((b and 0x7F).toLong() shl shift)
+                if (b and 0x80 == 0) {
+                    return result
+                }
+                shift += 7
+            }
+            throw CorruptionException("Malformed varint.")
+        }
+
+        fun readFixed32(): Int {
+            var result = 0
+            for (i in 0 until 4) {
+                result = result or (readByte() shl (i * 8))
+            }
+            return result
+        }
+
+        fun readFixed64(): Long {
+            var result = 0L
+            for (i in 0 until 8) {
+                result = result or (readByte().toLong() shl (i * 8))
+            }
+            return result
+        }
+
+        /** Reads the length of a length delimited field, and returns where the field ends. */
+        fun readLengthDelimitedEnd(): Int {
+            val length = readVarint()
+            if (length < 0 || length > limit - position) {
+                throw CorruptionException("Truncated field.")
+            }
+            return position + length.toInt()
+        }
+
+        fun skipField(tag: Int) {
+            when (tag and 7) {
+                WIRE_TYPE_VARINT -> readVarint()
+                WIRE_TYPE_FIXED64 -> skipBytes(8)
+                WIRE_TYPE_LENGTH_DELIMITED -> position = readLengthDelimitedEnd()
+                WIRE_TYPE_FIXED32 -> skipBytes(4)
+                else -> throw CorruptionException("Unsupported wire type.")
+            }
+        }
+
+        private fun skipBytes(count: Int) {
+            if (count > limit - position) {
+                throw CorruptionException("Truncated field.")
+            }
+            position += count
+        }
+
+        private fun readByte(): Int {
+            if (position >= limit) {
+                throw CorruptionException("Truncated field.")
+            }
+            return bytes[position++].toInt() and 0xFF
+        }
+    }
+}
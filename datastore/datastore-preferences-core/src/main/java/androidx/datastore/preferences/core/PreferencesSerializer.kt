@@ -17,11 +17,10 @@
 package androidx.datastore.preferences.core
 
 import androidx.datastore.core.CorruptionException
-import androidx.datastore.preferences.PreferencesProto.PreferenceMap
 import androidx.datastore.preferences.PreferencesProto.Value
 import androidx.datastore.preferences.PreferencesProto.StringSet
 import androidx.datastore.core.Serializer
-import androidx.datastore.preferences.PreferencesMapCompat
+import java.io.ByteArrayOutputStream
 import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
@@ -30,6 +29,11 @@ import kotlin.jvm.Throws
 /**
  * Proto based serializer for Preferences.
  *
+ * Preferences are read lazily: reading only builds a [PreferencesIndex] over the serialized
+ * PreferenceMap, and each preference is decoded the first time it is accessed. The entries are
+ * written in the order of their names, and the entries of preferences that didn't change since
+ * they were read are copied without being decoded and encoded again.
+ *
  * TODO(b/156533452): this is a temporary implementation to allow for development. This will be
  * replaced before launching.
  */
@@ -43,30 +47,29 @@ internal object PreferencesSerializer : Serializer<Preferences> {
 
     @Throws(IOException::class, CorruptionException::class)
     override suspend fun readFrom(input: InputStream): Preferences {
-        val preferencesProto = PreferencesMapCompat.readFrom(input)
-
-        val mutablePreferences = mutablePreferencesOf()
-
-        preferencesProto.preferencesMap.forEach { (name, value) ->
-            addProtoEntryToPreferences(name, value, mutablePreferences)
-        }
+        val index = PreferencesIndex.parse(input.readBytes())
 
-        return mutablePreferences.toPreferences()
+        return MutablePreferences(LazyPreferencesMap(index), startFrozen = true)
     }
 
     @Throws(IOException::class, CorruptionException::class)
     override suspend fun writeTo(t: Preferences, output: OutputStream) {
-        val preferences = t.asMap()
-        val protoBuilder = PreferenceMap.newBuilder()
+        val preferencesMap = (t as MutablePreferences).preferencesMap
+        val buffer = ByteArrayOutputStream()
 
-        for ((key, value) in preferences) {
-            protoBuilder.putPreferences(key.name, getValueProto(value))
+        if (preferencesMap is LazyPreferencesMap) {
+            preferencesMap.writeTo(buffer)
+        } else {
+            preferencesMap.entries
+                .map { (key, value) -> key.name.toByteArray(Charsets.UTF_8) to value }
+                .sortedWith(compareBy(PreferencesIndex.NAME_COMPARATOR) { it.first })
+                .forEach { (name, value) -> PreferencesIndex.writeEntry(name, value, buffer) }
         }
 
-        protoBuilder.build().writeTo(output)
+        buffer.writeTo(output)
     }
 
-    private fun getValueProto(value: Any): Value {
+    internal fun getValueProto(value: Any): Value {
         return when (value) {
             is Boolean -> Value.newBuilder().setBoolean(value).build()
             is Float -> Value.newBuilder().setFloat(value).build()
@@ -85,7 +88,7 @@ internal object PreferencesSerializer : Serializer<Preferences> {
         }
     }
 
-    private fun addProtoEntryToPreferences(
+    internal fun addProtoEntryToPreferences(
         name: String,
         value: Value,
         mutablePreferences: MutablePreferences
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.preferences.core
+
+import androidx.datastore.core.CorruptionException
+import androidx.datastore.preferences.PreferencesMapCompat
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+@kotlinx.coroutines.ExperimentalCoroutinesApi
+@kotlinx.coroutines.ObsoleteCoroutinesApi
+@kotlinx.coroutines.FlowPreview
+class LazyPreferencesMapTest {
+    private val stringKey = stringPreferencesKey("string_key")
+    private val intKey = intPreferencesKey("int_key")
+    private val longKey = longPreferencesKey("long_key")
+    private val booleanKey = booleanPreferencesKey("boolean_key")
+    private val floatKey = floatPreferencesKey("float_key")
+    private val doubleKey = doublePreferencesKey("double_key")
+    private val stringSetKey = stringSetPreferencesKey("string_set_key")
+    private val unicodeKey = stringPreferencesKey("ключ")
+
+    private val prefs = preferencesOf(
+        stringKey to "string1",
+        intKey to 1,
+        longKey to Long.MAX_VALUE,
+        booleanKey to true,
+        floatKey to 1.5f,
+        doubleKey to Double.MIN_VALUE,
+        stringSetKey to setOf("a", "b", "ü"),
+        unicodeKey to "значение"
+    )
+
+    @Test
+    fun testReadsAllTypes() = runBlockingTest {
+        val readPrefs = read(write(prefs))
+
+        assertEquals(prefs, readPrefs)
+        assertEquals(prefs.hashCode(), readPrefs.hashCode())
+        assertEquals(prefs.asMap().entries, readPrefs.asMap().entries)
+        for ((key, value) in prefs.asMap()) {
+            assertEquals(value, readPrefs[key])
+        }
+        assertNull(readPrefs[stringPreferencesKey("missing")])
+    }
+
+    @Test
+    fun testWritesPreferenceMap() = runBlockingTest {
+        val proto = PreferencesMapCompat.readFrom(ByteArrayInputStream(write(prefs)))
+
+        assertEquals(prefs.asMap().keys.map { it.name }.toSet(), proto.preferencesMap.keys)
+        assertEquals("string1", proto.preferencesMap[stringKey.name]!!.string)
+        assertEquals(1, proto.preferencesMap[intKey.name]!!.integer)
+        assertEquals("значение", proto.preferencesMap[unicodeKey.name]!!.string)
+        assertEquals(
+            setOf("a", "b", "ü"),
+            proto.preferencesMap[stringSetKey.name]!!.stringSet.stringsList.toSet()
+        )
+    }
+
+    @Test
+    fun testWritesUnchangedPreferencesAsRead() = runBlockingTest {
+        val bytes = write(prefs)
+
+        assertTrue(bytes.contentEquals(write(read(bytes))))
+        assertTrue(bytes.contentEquals(write(read(bytes).toMutablePreferences())))
+    }
+
+    @Test
+    fun testUpdateReadPreferences() = runBlockingTest {
+        val mutablePrefs = read(write(prefs)).toMutablePreferences()
+        val newKey = stringPreferencesKey("new_key")
+
+        mutablePrefs[stringKey] = "string2"
+        mutablePrefs[newKey] = "new"
+        mutablePrefs.remove(intKey)
+        mutablePrefs.remove(newKey)
+        mutablePrefs[newKey] = "newer"
+
+        val expected = prefs.toMutablePreferences().apply {
+            this[stringKey] = "string2"
+            this[newKey] = "newer"
+            remove(intKey)
+        }
+        assertEquals(expected, mutablePrefs)
+        assertEquals(mutablePrefs, expected)
+        assertEquals(expected.hashCode(), mutablePrefs.hashCode())
+        assertEquals(expected.asMap().size, mutablePrefs.asMap().size)
+        assertFalse(mutablePrefs.contains(intKey))
+        assertEquals(expected, read(write(mutablePrefs)))
+    }
+
+    @Test
+    fun testChangesDontAffectCopies() = runBlockingTest {
+        val readPrefs = read(write(prefs))
+
+        val mutablePrefs = readPrefs.toMutablePreferences()
+        mutablePrefs[stringKey] = "string2"
+        val copy = mutablePrefs.toPreferences()
+        mutablePrefs.remove(longKey)
+
+        assertEquals(prefs, readPrefs)
+        assertEquals("string2", copy[stringKey])
+        assertEquals(Long.MAX_VALUE, copy[longKey])
+        assertNull(mutablePrefs[longKey])
+    }
+
+    @Test
+    fun testClearReadPreferences() = runBlockingTest {
+        val mutablePrefs = read(write(prefs)).toMutablePreferences()
+
+        mutablePrefs.clear()
+        mutablePrefs[intKey] = 2
+
+        assertEquals(preferencesOf(intKey to 2), mutablePrefs)
+        assertEquals(preferencesOf(intKey to 2), read(write(mutablePrefs)))
+    }
+
+    @Test
+    fun testRemoveWhileIterating() = runBlockingTest {
+        val mutablePrefs = read(write(prefs)).toMutablePreferences()
+        mutablePrefs[stringKey] = "string2"
+
+        val iterator = mutablePrefs.preferencesMap.entries.iterator()
+        while (iterator.hasNext()) {
+            if (iterator.next().key != booleanKey) {
+                iterator.remove()
+            }
+        }
+
+        assertEquals(preferencesOf(booleanKey to true), mutablePrefs)
+    }
+
+    @Test
+    fun testReadsUnsortedEntries() = runBlockingTest {
+        val output = ByteArrayOutputStream()
+        PreferencesIndex.writeEntry("b".toByteArray(), 1, output)
+        PreferencesIndex.writeEntry("a".toByteArray(), 2, output)
+        PreferencesIndex.writeEntry("c".toByteArray(), 3, output)
+        // The last entry with the same name wins.
+        PreferencesIndex.writeEntry("b".toByteArray(), 4, output)
+
+        val readPrefs = read(output.toByteArray())
+
+        val expected = preferencesOf(
+            intPreferencesKey("a") to 2,
+            intPreferencesKey("b") to 4,
+            intPreferencesKey("c") to 3
+        )
+        assertEquals(expected, readPrefs)
+        assertEquals(expected, read(write(readPrefs)))
+    }
+
+    @Test
+    fun testThrowsCorruptionExceptionForMissingValue() = runBlockingTest {
+        // A PreferenceMap entry with only a name.
+        val bytes = byteArrayOf(
+            PreferencesIndex.PREFERENCES_TAG.toByte(), 3,
+            PreferencesIndex.NAME_TAG.toByte(), 1, 'a'.toByte()
+        )
+
+        assertFailsWith<CorruptionException> {
+            read(bytes)
+        }
+    }
+
+    @Test
+    fun testThrowsCorruptionExceptionForTruncatedFile() = runBlockingTest {
+        val bytes = write(prefs)
+
+        assertFailsWith<CorruptionException> {
+            read(bytes.copyOf(bytes.size - 1))
+        }
+    }
+
+    private suspend fun write(prefs: Preferences): ByteArray {
+        val output = ByteArrayOutputStream()
+        PreferencesSerializer.writeTo(prefs, output)
+        return output.toByteArray()
+    }
+
+    private suspend fun read(bytes: ByteArray): Preferences {
+        return PreferencesSerializer.readFrom(ByteArrayInputStream(bytes))
+    }
+}
@@ -20,6 +20,7 @@ import androidx.datastore.core.DataMigration
 import androidx.datastore.core.handlers.ReplaceFileCorruptionHandler
 import kotlinx.coroutines.FlowPreview
 import kotlinx.coroutines.ObsoleteCoroutinesApi
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.test.TestCoroutineScope
 import kotlinx.coroutines.test.runBlockingTest
@@ -31,6 +32,8 @@ import java.io.File
 import java.lang.IllegalStateException
 import kotlin.test.assertEquals
 import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
 
 @ObsoleteCoroutinesApi
 @kotlinx.coroutines.ExperimentalCoroutinesApi
@@ -44,6 +47,7 @@ class PreferenceDataStoreFactoryTest {
 
     val stringKey = stringPreferencesKey("key")
     val booleanKey = booleanPreferencesKey("key")
+    val booleanKey2 = booleanPreferencesKey("key2")
 
     @Before
     fun setUp() {
@@ -69,6 +73,61 @@ class PreferenceDataStoreFactoryTest {
         assertEquals(expectedPreferences, store.data.first())
     }
 
+    @Test
+    fun testCreateWithDeltaLog() = runBlockingTest {
+        val expectedPreferences = preferencesOf(stringKey to "value2")
+
+        coroutineScope {
+            val store = PreferenceDataStoreFactory.createWithDeltaLog(scope = this) { testFile }
+            store.edit { prefs ->
+                prefs[stringKey] = "value1"
+            }
+            store.edit { prefs ->
+                prefs[stringKey] = "value2"
+            }
+        }
+        assertTrue(File(testFile.absolutePath + ".log").exists())
+
+        coroutineScope {
+            val store = PreferenceDataStoreFactory.createWithDeltaLog(scope = this) { testFile }
+            assertEquals(expectedPreferences, store.data.first())
+        }
+    }
+
+    @Test
+    fun testCreateAfterCreateWithDeltaLog() = runBlockingTest {
+        val logFile = File(testFile.absolutePath + ".log")
+
+        coroutineScope {
+            val store = PreferenceDataStoreFactory.createWithDeltaLog(scope = this) { testFile }
+            store.edit { prefs ->
+                prefs[stringKey] = "value1"
+            }
+            store.edit { prefs ->
+                prefs[stringKey] = "value2"
+            }
+        }
+        assertTrue(logFile.exists())
+
+        coroutineScope {
+            val store = PreferenceDataStoreFactory.create(scope = this) { testFile }
+            assertEquals(preferencesOf(stringKey to "value2"), store.data.first())
+            store.edit { prefs ->
+                prefs[booleanKey2] = true
+            }
+        }
+        // The update compacted the log into the file.
+        assertFalse(logFile.exists())
+
+        coroutineScope {
+            val store = PreferenceDataStoreFactory.create(scope = this) { testFile }
+            assertEquals(
+                preferencesOf(stringKey to "value2", booleanKey2 to true),
+                store.data.first()
+            )
+        }
+    }
+
     @Test
     fun testCorruptionHandlerInstalled() = runBlockingTest {
         testFile.writeBytes(byteArrayOf(0x00, 0x00, 0x00, 0x03)) // Protos can not start with 0x00.
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.preferences.core
+
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+@kotlinx.coroutines.ExperimentalCoroutinesApi
+class PreferencesDeltaSerializerTest {
+
+    private val serializer = PreferencesDeltaSerializer
+
+    private val stringKey = stringPreferencesKey("string_key")
+    private val intKey = intPreferencesKey("int_key")
+    private val stringSetKey = stringSetPreferencesKey("string_set_key")
+
+    @Test
+    fun testReadDeltas_appliesChangedAndAddedPreferences() = runBlockingTest {
+        val base = preferencesOf(stringKey to "string1", intKey to 1)
+        val updated = preferencesOf(
+            stringKey to "string1",
+            intKey to 2,
+            stringSetKey to setOf("string1", "string2")
+        )
+
+        val read = serializer.readDeltas(base, listOf(delta(base, updated)))
+
+        assertEquals(updated, read)
+    }
+
+    @Test
+    fun testReadDeltas_appliesRemovedPreferences() = runBlockingTest {
+        val base = preferencesOf(stringKey to "string1", intKey to 1)
+        val updated = preferencesOf(intKey to 1)
+
+        val read = serializer.readDeltas(base, listOf(delta(base, updated)))
+
+        assertEquals(updated, read)
+    }
+
+    @Test
+    fun testReadDeltas_appliesDeltasInOrder() = runBlockingTest {
+        val base = emptyPreferences()
+        val first = preferencesOf(stringKey to "string1")
+        val second = preferencesOf(stringKey to "string2", intKey to 1)
+        val third = preferencesOf(intKey to 2)
+
+        val read = serializer.readDeltas(
+            base,
+            listOf(delta(base, first), delta(first, second), delta(second, third))
+        )
+
+        assertEquals(third, read)
+    }
+
+    @Test
+    fun testWriteDelta_onlyWritesChangedPreferences() = runBlockingTest {
+        val base = mutablePreferencesOf()
+        for (i in 0 until 100) {
+            base[stringPreferencesKey("key$i")] = "value$i"
+        }
+        val updated = base.toMutablePreferences()
+        updated[stringPreferencesKey("key0")] = "value"
+
+        val fullSize = ByteArrayOutputStream().also { serializer.writeTo(updated, it) }.size()
+        val deltaSize = delta(base, updated).available()
+
+        assertTrue(deltaSize * 50 < fullSize)
+    }
+
+    private suspend fun delta(old: Preferences, new: Preferences): ByteArrayInputStream {
+        val output = ByteArrayOutputStream()
+        serializer.writeDelta(old, new, output)
+        return ByteArrayInputStream(output.toByteArray())
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.emoji2.benchmark.text
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.emoji2.text.EmojiCompat
+import androidx.emoji2.text.MetadataRepo
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+@SdkSuppress(minSdkVersion = 19)
+class EmojiProcessorBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    /**
+     * Covers reading the bundled metadata and building the trie, the allocation count reported
+     * for this benchmark is dominated by the trie construction.
+     */
+    @Test
+    fun createMetadataRepo() {
+        benchmarkRule.measureRepeated {
+            MetadataRepo.create(context.assets, FONT_NAME)
+        }
+    }
+
+    @Test
+    fun process_chatTranscript() {
+        val emojiCompat = initEmojiCompat()
+        val transcript = buildTranscript(emojiLineRatio = 3)
+        benchmarkRule.measureRepeated {
+            emojiCompat.process(
+                transcript, 0, transcript.length, Int.MAX_VALUE, EmojiCompat.REPLACE_STRATEGY_ALL
+            )
+        }
+    }
+
+    @Test
+    fun process_textOnlyTranscript() {
+        val emojiCompat = initEmojiCompat()
+        val transcript = buildTranscript(emojiLineRatio = 0)
+        benchmarkRule.measureRepeated {
+            emojiCompat.process(
+                transcript, 0, transcript.length, Int.MAX_VALUE, EmojiCompat.REPLACE_STRATEGY_ALL
+            )
+        }
+    }
+
+    private fun initEmojiCompat(): EmojiCompat {
+        val metadataRepo = MetadataRepo.create(context.assets, FONT_NAME)
+        val config = NoFontTestEmojiConfig.fromLoader { callback ->
+            callback.onLoaded(metadataRepo)
+        }
+        val emojiCompat = EmojiCompat.reset(config)
+        assertEquals(EmojiCompat.LOAD_STATE_SUCCEEDED, emojiCompat.loadState)
+        return emojiCompat
+    }
+
+    /**
+     * Builds a transcript of [LINE_COUNT] chat lines, one out of every [emojiLineRatio] lines
+     * containing a mix of single codepoint, variation selector, keycap, flag and ZWJ emojis.
+     */
+    private fun buildTranscript(emojiLineRatio: Int): String {
+        val builder = StringBuilder()
+        for (i in 0 until LINE_COUNT) {
+            builder.append(TEXT_LINES[i % TEXT_LINES.size])
+            if (emojiLineRatio > 0 && i % emojiLineRatio == 0) {
+                builder.append(' ')
+                for (j in 0..i % 3) {
+                    builder.append(EMOJIS[(i + j) % EMOJIS.size])
+                }
+            }
+            builder.append('\n')
+        }
+        return builder.toString()
+    }
+
+    companion object {
+        private const val FONT_NAME = "NotoColorEmojiCompat.ttf"
+        private const val LINE_COUNT = 1000
+
+        private val TEXT_LINES = listOf(
+            "Are we still on for lunch tomorrow?",
+            "Running 10 minutes late, sorry",
+            "Did you see the game last night #1 team",
+            "ok",
+            "Happy birthday!! Hope you have a great one",
+            "Can you send me the notes from Tuesday's meeting (v2)?"
+        )
+
+        private val EMOJIS = listOf(
+            "😀", // grinning face
+            "❤️", // red heart
+            "👍🏽", // thumbs up, medium skin tone
+            "1️⃣", // keycap 1
+            "🇺🇸", // flag US
+            "👨‍👩‍👧", // family: man, woman, girl
+            "🎉", // party popper
+            "😂" // face with tears of joy
+        )
+    }
+}
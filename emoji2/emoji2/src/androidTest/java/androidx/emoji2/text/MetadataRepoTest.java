@@ -15,6 +15,7 @@
  */
 package androidx.emoji2.text;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
@@ -95,16 +96,37 @@ public class MetadataRepoTest {
         assertNull(getNode(new int[]{1, 2, 3, 4, 5}));
     }
 
-    final EmojiMetadata getNode(final int[] codepoints) {
-        return getNode(mMetadataRepo.getRootNode(), codepoints, 0);
+    @Test
+    public void testPut_replacesSameCodePoints() {
+        final int[] codePoint = new int[]{1, 2};
+        final EmojiMetadata metadata1 = new TestEmojiMetadata(codePoint);
+        final EmojiMetadata metadata2 = new TestEmojiMetadata(codePoint);
+
+        mMetadataRepo.put(metadata1);
+        mMetadataRepo.put(metadata2);
+
+        assertSame(metadata2, getNode(codePoint));
+        assertEquals(1, mMetadataRepo.getTrie().getEmojiCount());
     }
 
-    final EmojiMetadata getNode(MetadataRepo.Node node, final int[] codepoints, int start) {
-        if (codepoints.length < start) return null;
-        if (codepoints.length == start) return node.getData();
+    @Test
+    public void testPut_manySiblings() {
+        final EmojiMetadata[] metadata = new EmojiMetadata[100];
+        // insert out of order so that children have to be sorted
+        for (int i = metadata.length - 1; i >= 0; i--) {
+            metadata[i] = new TestEmojiMetadata(new int[]{0x1F600 + i * 3, 0xFE0F});
+            mMetadataRepo.put(metadata[i]);
+        }
+
+        for (int i = 0; i < metadata.length; i++) {
+            assertSame(metadata[i], getNode(new int[]{0x1F600 + i * 3, 0xFE0F}));
+            assertNull(getNode(new int[]{0x1F600 + i * 3 + 1, 0xFE0F}));
+            assertNull(getNode(new int[]{0x1F600 + i * 3}));
+        }
+        assertEquals(metadata.length * 2 + 1, mMetadataRepo.getTrie().getNodeCount());
+    }
 
-        final MetadataRepo.Node childNode = node.get(codepoints[start]);
-        if (childNode == null) return null;
-        return getNode(childNode, codepoints, start + 1);
+    final EmojiMetadata getNode(final int[] codepoints) {
+        return mMetadataRepo.getTrie().get(codepoints);
     }
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.emoji2.text;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable trie that maps emoji codepoint sequences to {@link EmojiMetadata}, stored in a few
+ * flat arrays instead of one object per node.
+ *
+ * <p>Nodes are identified by ints, the root being {@link #ROOT}. The children of a node are kept
+ * contiguously, sorted by codepoint, in {@code mEdgeCodepoints} and {@code mEdgeTargets}, starting
+ * at {@code mEdgeStarts[node]} and ending at {@code mEdgeStarts[node + 1]}. Walking the trie
+ * therefore only reads primitive arrays and never allocates.</p>
+ */
+@AnyThread
+final class EmojiTrie {
+    /**
+     * Node id of the root of the trie.
+     */
+    static final int ROOT = 0;
+
+    /**
+     * Returned by {@link #getChild(int, int)} when the node has no child for the codepoint.
+     */
+    static final int NO_NODE = -1;
+
+    /**
+     * Below this many children a node is searched linearly rather than with a binary search.
+     */
+    private static final int LINEAR_SEARCH_THRESHOLD = 8;
+
+    private final @NonNull int[] mEdgeStarts;
+    private final @NonNull int[] mEdgeCodepoints;
+    private final @NonNull int[] mEdgeTargets;
+    private final @NonNull EmojiMetadata[] mNodeData;
+    private final int mEmojiCount;
+
+    private EmojiTrie(@NonNull int[] edgeStarts, @NonNull int[] edgeCodepoints,
+            @NonNull int[] edgeTargets, @NonNull EmojiMetadata[] nodeData, int emojiCount) {
+        mEdgeStarts = edgeStarts;
+        mEdgeCodepoints = edgeCodepoints;
+        mEdgeTargets = edgeTargets;
+        mNodeData = nodeData;
+        mEmojiCount = emojiCount;
+    }
+
+    /**
+     * Builds a trie containing every given emoji. When several emojis have the same codepoint
+     * sequence, the last one wins.
+     *
+     * @param emojis emojis to index, each with at least one codepoint
+     */
+    @NonNull
+    static EmojiTrie build(@NonNull EmojiMetadata[] emojis) {
+        // Copy the codepoints out once, reading them from the metadata is comparatively slow.
+        final int count = emojis.length;
+        final int[][] sequences = new int[count][];
+        final Integer[] order = new Integer[count];
+        int nodeCapacity = 1;
+        for (int i = 0; i < count; i++) {
+            final EmojiMetadata emoji = emojis[i];
+            final int length = emoji.getCodepointsLength();
+            final int[] sequence = new int[length];
+            for (int j = 0; j < length; j++) {
+                sequence[j] = emoji.getCodepointAt(j);
+            }
+            sequences[i] = sequence;
+            order[i] = i;
+            nodeCapacity += length;
+        }
+        // Sorting is stable, so equal sequences keep their relative order and the last one wins.
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareSequences(sequences[a], sequences[b]);
+            }
+        });
+
+        // Nodes are numbered in breadth first order, which allocates the edges of each node right
+        // after the edges of the previous one. Each queued node covers the range of sorted
+        // sequences that share its prefix.
+        final int[] edgeStarts = new int[nodeCapacity + 1];
+        final int[] edgeCodepoints = new int[nodeCapacity];
+        final int[] edgeTargets = new int[nodeCapacity];
+        final EmojiMetadata[] nodeData = new EmojiMetadata[nodeCapacity];
+        final int[] rangeStarts = new int[nodeCapacity];
+        final int[] rangeEnds = new int[nodeCapacity];
+        final int[] depths = new int[nodeCapacity];
+        rangeEnds[ROOT] = count;
+        int nodeCount = 1;
+        int edgeCount = 0;
+        int emojiCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            final int depth = depths[node];
+            final int end = rangeEnds[node];
+            int start = rangeStarts[node];
+            // Sequences ending at this node sort before the longer ones sharing the prefix.
+            while (start < end && sequences[order[start]].length == depth) {
+                nodeData[node] = emojis[order[start]];
+                start++;
+            }
+            if (nodeData[node] != null) {
+                emojiCount++;
+            }
+            edgeStarts[node] = edgeCount;
+            while (start < end) {
+                final int codepoint = sequences[order[start]][depth];
+                int groupEnd = start + 1;
+                while (groupEnd < end && sequences[order[groupEnd]][depth] == codepoint) {
+                    groupEnd++;
+                }
+                edgeCodepoints[edgeCount] = codepoint;
+                edgeTargets[edgeCount] = nodeCount;
+                edgeCount++;
+                rangeStarts[nodeCount] = start;
+                rangeEnds[nodeCount] = groupEnd;
+                depths[nodeCount] = depth + 1;
+                nodeCount++;
+                start = groupEnd;
+            }
+        }
+        edgeStarts[nodeCount] = edgeCount;
+
+        return new EmojiTrie(Arrays.copyOf(edgeStarts, nodeCount + 1),
+                Arrays.copyOf(edgeCodepoints, edgeCount),
+                Arrays.copyOf(edgeTargets, edgeCount),
+                Arrays.copyOf(nodeData, nodeCount),
+                emojiCount);
+    }
+
+    /**
+     * Returns a trie containing the emojis of this trie and {@code added}, which replace any
+     * emoji with the same codepoint sequence. Later emojis in {@code added} win.
+     */
+    @NonNull
+    EmojiTrie plus(@NonNull List<EmojiMetadata> added) {
+        final EmojiMetadata[] emojis = new EmojiMetadata[mEmojiCount + added.size()];
+        int index = 0;
+        for (EmojiMetadata data : mNodeData) {
+            if (data != null) {
+                emojis[index++] = data;
+            }
+        }
+        for (EmojiMetadata data : added) {
+            emojis[index++] = data;
+        }
+        return build(emojis);
+    }
+
+    /**
+     * Returns the child of {@code node} reached with {@code codepoint}, or {@link #NO_NODE}.
+     */
+    int getChild(int node, int codepoint) {
+        final int[] codepoints = mEdgeCodepoints;
+        int low = mEdgeStarts[node];
+        int high = mEdgeStarts[node + 1] - 1;
+        if (high - low < LINEAR_SEARCH_THRESHOLD) {
+            for (int i = low; i <= high; i++) {
+                if (codepoints[i] == codepoint) {
+                    return mEdgeTargets[i];
+                }
+            }
+            return NO_NODE;
+        }
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midCodepoint = codepoints[mid];
+            if (midCodepoint < codepoint) {
+                low = mid + 1;
+            } else if (midCodepoint > codepoint) {
+                high = mid - 1;
+            } else {
+                return mEdgeTargets[mid];
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Returns the emoji whose codepoint sequence ends at {@code node}, if any.
+     */
+    @Nullable
+    EmojiMetadata getData(int node) {
+        return mNodeData[node];
+    }
+
+    /**
+     * Returns the emoji mapped to exactly {@code codepoints}, if any.
+     */
+    @Nullable
+    EmojiMetadata get(@NonNull int[] codepoints) {
+        int node = ROOT;
+        for (int codepoint : codepoints) {
+            node = getChild(node, codepoint);
+            if (node == NO_NODE) {
+                return null;
+            }
+        }
+        return mNodeData[node];
+    }
+
+    /**
+     * Returns the number of nodes in the trie, including the root.
+     */
+    int getNodeCount() {
+        return mNodeData.length;
+    }
+
+    /**
+     * Returns the number of distinct emoji sequences in the trie.
+     */
+    int getEmojiCount() {
+        return mEmojiCount;
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    static int compareSequences(int[] a, int[] b) {
+        final int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return a[i] < b[i] ? -1 : 1;
+            }
+        }
+        return a.length - b.length;
+    }
+}
@@ -17,10 +17,10 @@ package androidx.emoji2.text;
 
 import android.content.res.AssetManager;
 import android.graphics.Typeface;
-import android.util.SparseArray;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
@@ -31,6 +31,7 @@ import androidx.emoji2.text.flatbuffer.MetadataList;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 
 /**
  * Class to hold the emoji metadata required to process and draw emojis.
@@ -38,10 +39,6 @@ import java.nio.ByteBuffer;
 @AnyThread
 @RequiresApi(19)
 public final class MetadataRepo {
-    /**
-     * The default children size of the root node.
-     */
-    private static final int DEFAULT_ROOT_SIZE = 1024;
     private static final String S_TRACE_CREATE_REPO = "EmojiCompat.MetadataRepo.create";
 
     /**
@@ -56,9 +53,17 @@ public final class MetadataRepo {
     private final @NonNull char[] mEmojiCharArray;
 
     /**
-     * Empty root node of the trie.
+     * Trie mapping codepoint sequences to the emoji metadata. Only replaced to add the emojis put
+     * from tests.
      */
-    private final @NonNull Node mRootNode;
+    private volatile @NonNull EmojiTrie mTrie;
+
+    /**
+     * Emojis put from tests that are not in {@link #mTrie} yet. Tests put emojis one at a time,
+     * so they are collected and the trie is rebuilt once, the next time it is read. Only modified
+     * while holding the lock on this repo.
+     */
+    private volatile @Nullable ArrayList<EmojiMetadata> mPendingEmojis;
 
     /**
      * Typeface to be used to render emojis.
@@ -75,9 +80,8 @@ public final class MetadataRepo {
             @NonNull final MetadataList metadataList) {
         mTypeface = typeface;
         mMetadataList = metadataList;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
         mEmojiCharArray = new char[mMetadataList.listLength() * 2];
-        constructIndex(mMetadataList);
+        mTrie = constructIndex(mMetadataList);
     }
 
     /**
@@ -156,16 +160,20 @@ public final class MetadataRepo {
     /**
      * Read emoji metadata list and construct the trie.
      */
-    private void constructIndex(final MetadataList metadataList) {
+    private EmojiTrie constructIndex(final MetadataList metadataList) {
         int length = metadataList.listLength();
+        final EmojiMetadata[] emojis = new EmojiMetadata[length];
         for (int i = 0; i < length; i++) {
             final EmojiMetadata metadata = new EmojiMetadata(this, i);
             //since all emojis are mapped to a single codepoint in Private Use Area A they are 2
             //chars wide
             //noinspection ResultOfMethodCallIgnored
             Character.toChars(metadata.getId(), mEmojiCharArray, i * 2);
-            put(metadata);
+            Preconditions.checkArgument(metadata.getCodepointsLength() > 0,
+                    "invalid metadata codepoint length");
+            emojis[i] = metadata;
         }
+        return EmojiTrie.build(emojis);
     }
 
     /**
@@ -190,8 +198,18 @@ public final class MetadataRepo {
      */
     @NonNull
     @RestrictTo(RestrictTo.Scope.LIBRARY)
-    Node getRootNode() {
-        return mRootNode;
+    EmojiTrie getTrie() {
+        if (mPendingEmojis != null) {
+            addPendingEmojis();
+        }
+        return mTrie;
+    }
+
+    private synchronized void addPendingEmojis() {
+        if (mPendingEmojis != null) {
+            mTrie = mTrie.plus(mPendingEmojis);
+            mPendingEmojis = null;
+        }
     }
 
     /**
@@ -213,61 +231,23 @@ public final class MetadataRepo {
     }
 
     /**
-     * Add an EmojiMetadata to the index.
+     * Add an EmojiMetadata to the index. The index is immutable once built, so this should only
+     * be used from tests. It is rebuilt with all the added emojis the next time it is read.
      *
      * @hide
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY)
     @VisibleForTesting
-    void put(@NonNull final EmojiMetadata data) {
+    synchronized void put(@NonNull final EmojiMetadata data) {
         Preconditions.checkNotNull(data, "emoji metadata cannot be null");
         Preconditions.checkArgument(data.getCodepointsLength() > 0,
                 "invalid metadata codepoint length");
 
-        mRootNode.put(data, 0, data.getCodepointsLength() - 1);
-    }
-
-    /**
-     * Trie node that holds mapping from emoji codepoint(s) to EmojiMetadata. A single codepoint
-     * emoji is represented by a child of the root node.
-     *
-     * @hide
-     */
-    @RestrictTo(RestrictTo.Scope.LIBRARY)
-    static class Node {
-        private final SparseArray<Node> mChildren;
-        private EmojiMetadata mData;
-
-        private Node() {
-            this(1);
-        }
-
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        Node(final int defaultChildrenSize) {
-            mChildren = new SparseArray<>(defaultChildrenSize);
-        }
-
-        Node get(final int key) {
-            return mChildren == null ? null : mChildren.get(key);
-        }
-
-        final EmojiMetadata getData() {
-            return mData;
-        }
-
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        void put(@NonNull final EmojiMetadata data, final int start, final int end) {
-            Node node = get(data.getCodepointAt(start));
-            if (node == null) {
-                node = new Node();
-                mChildren.put(data.getCodepointAt(start), node);
-            }
-
-            if (end > start) {
-                node.put(data, start + 1, end);
-            } else {
-                node.mData = data;
-            }
+        ArrayList<EmojiMetadata> pendingEmojis = mPendingEmojis;
+        if (pendingEmojis == null) {
+            pendingEmojis = new ArrayList<>();
+            mPendingEmojis = pendingEmojis;
         }
+        pendingEmojis.add(data);
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.benchmark
+
+import android.content.Context
+import android.os.Build
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.exifinterface.benchmark.test.R
+import androidx.exifinterface.media.ExifInterface
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.File
+
+/**
+ * Reads the metadata of sample images, like a gallery indexer does, either fully or only the
+ * orientation and date.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class ExifInterfaceBenchmark(private val sample: String, private val resourceId: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private lateinit var file: File
+
+    @Before
+    fun setup() {
+        // Reading Exif from HEIF files relies on MediaMetadataRetriever, added in API 28.
+        assumeTrue(sample != "heif" || Build.VERSION.SDK_INT >= 28)
+        file = File(context.cacheDir, "exif_benchmark_$sample")
+        context.resources.openRawResource(resourceId).use { input ->
+            file.outputStream().use { output -> input.copyTo(output) }
+        }
+    }
+
+    @After
+    fun teardown() {
+        if (::file.isInitialized) {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun readAll() {
+        benchmarkRule.measureRepeated {
+            ExifInterface(file).getAttribute(ExifInterface.TAG_ORIENTATION)
+        }
+    }
+
+    @Test
+    fun readAllMapped() {
+        benchmarkRule.measureRepeated {
+            ExifInterface(file, null).getAttribute(ExifInterface.TAG_ORIENTATION)
+        }
+    }
+
+    @Test
+    fun readSelectedTags() {
+        benchmarkRule.measureRepeated {
+            val exif = ExifInterface(file, SELECTED_TAGS)
+            exif.getAttribute(ExifInterface.TAG_ORIENTATION)
+            exif.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL)
+        }
+    }
+
+    companion object {
+        private val SELECTED_TAGS = setOf(
+            ExifInterface.TAG_ORIENTATION,
+            ExifInterface.TAG_DATETIME_ORIGINAL
+        )
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "{0}")
+        fun parameters() = listOf(
+            arrayOf("jpeg", R.raw.jpeg_with_exif_with_xmp),
+            arrayOf("heif", R.raw.heif_with_exif),
+            arrayOf("png", R.raw.png_with_exif_byte_order_ii),
+            arrayOf("webp", R.raw.webp_with_exif)
+        )
+    }
+}
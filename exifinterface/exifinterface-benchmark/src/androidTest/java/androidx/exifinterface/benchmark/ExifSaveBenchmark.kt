@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.benchmark
+
+import android.content.Context
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.exifinterface.benchmark.test.R
+import androidx.exifinterface.media.ExifInterface
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.File
+
+/**
+ * Edits a few tags of large images, like a gallery does when rotating a photo, either with
+ * values that fit in the original EXIF data, or with a description that makes it grow.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class ExifSaveBenchmark(
+    private val sample: String,
+    private val resourceId: Int,
+    private val grow: Boolean
+) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private lateinit var original: File
+    private lateinit var file: File
+
+    @Before
+    fun setup() {
+        original = File(context.cacheDir, "exif_save_benchmark_original_$sample")
+        file = File(context.cacheDir, "exif_save_benchmark_$sample")
+        context.resources.openRawResource(resourceId).use { input ->
+            original.outputStream().use { output ->
+                input.copyTo(output)
+                // Trailing data, standing for the image data of a photo taken by a camera, that
+                // is copied along when the file is rewritten.
+                output.write(ByteArray(IMAGE_DATA_SIZE))
+            }
+        }
+    }
+
+    @After
+    fun teardown() {
+        if (::file.isInitialized) {
+            Log.i(TAG, "$sample grow=$grow: ${original.length()} -> ${file.length()} bytes")
+            original.delete()
+            file.delete()
+        }
+    }
+
+    @Test
+    fun saveAttributes() {
+        var rotation = 0
+        benchmarkRule.measureRepeated {
+            val exif = runWithTimingDisabled {
+                original.copyTo(file, overwrite = true)
+                ExifInterface(file)
+            }
+            rotation = (rotation + 1) % 4
+            exif.setAttribute(ExifInterface.TAG_ORIENTATION, ORIENTATIONS[rotation].toString())
+            if (grow) {
+                exif.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, DESCRIPTION)
+            }
+            exif.saveAttributes()
+        }
+    }
+
+    companion object {
+        private const val TAG = "ExifSaveBenchmark"
+        private const val IMAGE_DATA_SIZE = 8 * 1024 * 1024
+        private val DESCRIPTION = "a".repeat(4096)
+        private val ORIENTATIONS = intArrayOf(
+            ExifInterface.ORIENTATION_NORMAL,
+            ExifInterface.ORIENTATION_ROTATE_90,
+            ExifInterface.ORIENTATION_ROTATE_180,
+            ExifInterface.ORIENTATION_ROTATE_270
+        )
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "{0}_grow={2}")
+        fun parameters() = listOf(
+            arrayOf("jpeg", R.raw.jpeg_with_exif_with_xmp, false),
+            arrayOf("jpeg", R.raw.jpeg_with_exif_with_xmp, true),
+            arrayOf("dng", R.raw.dng_with_exif_with_xmp, false)
+        )
+    }
+}
@@ -18,6 +18,7 @@ package androidx.exifinterface.media;
 
 import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -63,8 +64,11 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -926,6 +930,141 @@ public class ExifInterfaceTest {
 
     }
 
+    @Test
+    @LargeTest
+    public void testReadSelectedTags() throws IOException {
+        Set<String> tags = new HashSet<>(Arrays.asList(ExifInterface.TAG_DATETIME_ORIGINAL,
+                ExifInterface.TAG_EXPOSURE_TIME));
+        for (String fileName : new String[] {JPEG_WITH_EXIF_BYTE_ORDER_II,
+                JPEG_WITH_EXIF_WITH_XMP, PNG_WITH_EXIF_BYTE_ORDER_II, WEBP_WITH_EXIF}) {
+            File imageFile = getFileFromExternalDir(fileName);
+            ExifInterface full = new ExifInterface(imageFile);
+            ExifInterface selected = new ExifInterface(imageFile, tags);
+
+            assertEquals(full.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL),
+                    selected.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL));
+            assertEquals(full.getAttribute(ExifInterface.TAG_EXPOSURE_TIME),
+                    selected.getAttribute(ExifInterface.TAG_EXPOSURE_TIME));
+            // Always read, since it is needed to handle images.
+            assertEquals(full.getAttributeInt(ExifInterface.TAG_ORIENTATION, -1),
+                    selected.getAttributeInt(ExifInterface.TAG_ORIENTATION, -1));
+            assertEquals(full.hasThumbnail(), selected.hasThumbnail());
+            // Not requested.
+            assertNull(selected.getAttribute(ExifInterface.TAG_F_NUMBER));
+            assertNull(selected.getAttribute(ExifInterface.TAG_XMP));
+        }
+
+        ExifInterface selected = new ExifInterface(
+                getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II), tags);
+        selected.setAttribute(ExifInterface.TAG_DATETIME_ORIGINAL, "2021:01:01 00:00:00");
+        try {
+            selected.saveAttributes();
+            fail();
+        } catch (IOException e) {
+            // Expected, attributes read from a memory-mapped file cannot be saved.
+        }
+    }
+
+    @Test
+    @LargeTest
+    public void testReadSelectedTagsPastFirstMappedWindow() throws IOException {
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        byte[] image = new byte[(int) imageFile.length()];
+        FileInputStream in = new FileInputStream(imageFile);
+        try {
+            assertEquals(image.length, in.read(image));
+        } finally {
+            in.close();
+        }
+
+        // Move the EXIF segment more than 1 MB into the file, behind APP2 segments.
+        File paddedFile = getFileFromExternalDir("padded_" + JPEG_WITH_EXIF_BYTE_ORDER_II);
+        FileOutputStream out = new FileOutputStream(paddedFile);
+        try {
+            out.write(image, 0, 2);
+            byte[] padding = new byte[0xffff - 2];
+            for (int i = 0; i < 20; i++) {
+                out.write(new byte[] {(byte) 0xff, (byte) 0xe2, (byte) 0xff, (byte) 0xff});
+                out.write(padding);
+            }
+            out.write(image, 2, image.length - 2);
+        } finally {
+            out.close();
+        }
+
+        Set<String> tags = new HashSet<>(Arrays.asList(ExifInterface.TAG_DATETIME_ORIGINAL,
+                ExifInterface.TAG_MAKE));
+        ExifInterface full = new ExifInterface(imageFile);
+        ExifInterface selected = new ExifInterface(paddedFile, tags);
+        assertEquals(full.getAttribute(ExifInterface.TAG_MAKE),
+                selected.getAttribute(ExifInterface.TAG_MAKE));
+        assertEquals(full.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL),
+                selected.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL));
+        assertArrayEquals(full.getThumbnailBytes(), selected.getThumbnailBytes());
+        paddedFile.delete();
+    }
+
+    @Test
+    @LargeTest
+    public void testSaveAttributesInPlace() throws IOException {
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        final long length = imageFile.length();
+        ExifInterface exif = new ExifInterface(imageFile.getAbsolutePath());
+        final byte[] thumbnail = exif.getThumbnail();
+
+        // Fits in the original EXIF segment, so the file is not rewritten.
+        exif.setAttribute(ExifInterface.TAG_MAKE, "abc");
+        exif.saveAttributes();
+        assertEquals(length, imageFile.length());
+        exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertEquals("abc", exif.getAttribute(ExifInterface.TAG_MAKE));
+        assertArrayEquals(thumbnail, exif.getThumbnail());
+
+        // Does not fit, so the file grows.
+        char[] description = new char[10000];
+        Arrays.fill(description, 'a');
+        exif.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, new String(description));
+        exif.saveAttributes();
+        assertTrue(imageFile.length() > length);
+        exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertEquals("abc", exif.getAttribute(ExifInterface.TAG_MAKE));
+        assertEquals(new String(description),
+                exif.getAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION));
+        assertArrayEquals(thumbnail, exif.getThumbnail());
+    }
+
+    @Test
+    @LargeTest
+    public void testSaveAttributesInPlaceWithFileDescriptor() throws Exception {
+        if (Build.VERSION.SDK_INT < 21) {
+            return;
+        }
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        final long length = imageFile.length();
+        FileDescriptor fd = null;
+        try {
+            fd = Os.open(imageFile.getAbsolutePath(), OsConstants.O_RDWR, OsConstants.S_IRWXU);
+            ExifInterface exif = new ExifInterface(fd);
+            exif.setAttribute(ExifInterface.TAG_MAKE, "abc");
+            exif.saveAttributes();
+            assertEquals(length, imageFile.length());
+            // The file descriptor of the caller is left open.
+            assertTrue(fd.valid());
+            assertEquals(length, Os.fstat(fd).st_size);
+
+            // It can be saved again through the same file descriptor.
+            exif.setAttribute(ExifInterface.TAG_MODEL, "def");
+            exif.saveAttributes();
+            assertEquals(length, imageFile.length());
+        } finally {
+            closeQuietly(fd);
+        }
+
+        ExifInterface exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertEquals("abc", exif.getAttribute(ExifInterface.TAG_MAKE));
+        assertEquals("def", exif.getAttribute(ExifInterface.TAG_MODEL));
+    }
+
     @SuppressWarnings("deprecation")
     @Test
     @SmallTest
@@ -1157,6 +1296,10 @@ public class ExifInterfaceTest {
         assertNotNull(exifInterface);
         compareWithExpectedValue(exifInterface, expectedValue, verboseTag, true);
 
+        // Creates via memory-mapped file, reading every tag.
+        exifInterface = new ExifInterface(imageFile, null);
+        compareWithExpectedValue(exifInterface, expectedValue, verboseTag, true);
+
         InputStream in = null;
         // Creates via InputStream.
         try {
@@ -23,6 +23,7 @@ import static androidx.exifinterface.media.ExifInterfaceUtils.convertToLongArray
 import static androidx.exifinterface.media.ExifInterfaceUtils.copy;
 import static androidx.exifinterface.media.ExifInterfaceUtils.parseSubSeconds;
 import static androidx.exifinterface.media.ExifInterfaceUtils.startsWith;
+import static androidx.exifinterface.media.ExifInterfaceUtils.transferFully;
 
 import android.annotation.SuppressLint;
 import android.content.res.AssetManager;
@@ -59,10 +60,13 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -3882,11 +3886,53 @@ public class ExifInterface {
         sExifPointerTagMap.put(EXIF_POINTER_TAGS[5].number, IFD_TYPE_ORF_IMAGE_PROCESSING); // 8256
     }
 
+    // Tags that are always read, even when only some tags are requested, because they are needed
+    // to locate the images and thumbnails, to tell apart RAW formats or to fill default values.
+    private static final Set<String> TAGS_REQUIRED_FOR_PARSING = new HashSet<>(Arrays.asList(
+            TAG_BITS_PER_SAMPLE,
+            TAG_COMPRESSION,
+            TAG_DATETIME,
+            TAG_DATETIME_ORIGINAL,
+            TAG_DEFAULT_CROP_SIZE,
+            TAG_DNG_VERSION,
+            TAG_IMAGE_LENGTH,
+            TAG_IMAGE_WIDTH,
+            TAG_JPEG_INTERCHANGE_FORMAT,
+            TAG_JPEG_INTERCHANGE_FORMAT_LENGTH,
+            TAG_LIGHT_SOURCE,
+            TAG_MAKE,
+            TAG_MODEL,
+            TAG_NEW_SUBFILE_TYPE,
+            TAG_ORF_ASPECT_FRAME,
+            TAG_ORF_PREVIEW_IMAGE_LENGTH,
+            TAG_ORF_PREVIEW_IMAGE_START,
+            TAG_ORF_THUMBNAIL_IMAGE,
+            TAG_ORIENTATION,
+            TAG_PHOTOMETRIC_INTERPRETATION,
+            TAG_PIXEL_X_DIMENSION,
+            TAG_PIXEL_Y_DIMENSION,
+            TAG_RW2_ISO,
+            TAG_RW2_JPG_FROM_RAW,
+            TAG_RW2_SENSOR_BOTTOM_BORDER,
+            TAG_RW2_SENSOR_LEFT_BORDER,
+            TAG_RW2_SENSOR_RIGHT_BORDER,
+            TAG_RW2_SENSOR_TOP_BORDER,
+            TAG_STRIP_BYTE_COUNTS,
+            TAG_STRIP_OFFSETS,
+            TAG_SUBFILE_TYPE,
+            TAG_THUMBNAIL_IMAGE_LENGTH,
+            TAG_THUMBNAIL_IMAGE_WIDTH,
+            TAG_THUMBNAIL_ORIENTATION));
+
     private String mFilename;
     private FileDescriptor mSeekableFileDescriptor;
     private AssetManager.AssetInputStream mAssetInputStream;
     private int mMimeType;
     private boolean mIsExifDataOnly;
+    // Tags to read, or null to read every tag.
+    @Nullable
+    private Set<String> mTagsToRead;
+    private boolean mIsReadOnly;
     @SuppressWarnings("unchecked")
     private final HashMap<String, ExifAttribute>[] mAttributes = new HashMap[EXIF_TAGS.length];
     private Set<Integer> mAttributesOffsets = new HashSet<>(EXIF_TAGS.length);
@@ -3952,6 +3998,52 @@ public class ExifInterface {
         initForFilename(filename);
     }
 
+    /**
+     * Reads only the given Exif tags from the specified image file, for callers that scan the
+     * metadata of many files and only need a few tags of each, such as the orientation and the
+     * date.
+     * <p>
+     * The file is read through bounded memory-mapped windows instead of being copied through
+     * buffered streams, and only the requested tags are copied out of it. Tags that are not
+     * requested are skipped without being decoded, and {@link #getAttribute(String)} returns
+     * {@code null} for them. Some tags that are needed to parse the file, such as the image size
+     * and the thumbnail location, are always read. Note that the date and location getters
+     * combine several tags, for example {@link #getDateTime()} also needs
+     * {@link #TAG_SUBSEC_TIME} and {@link #TAG_OFFSET_TIME}.
+     * <p>
+     * Attributes read this way cannot be saved: {@link #saveAttributes()} throws an
+     * {@link IOException}. The file must not be truncated while it is being read.
+     *
+     * @param file the file of the image data
+     * @param tags the names of the tags to read, or {@code null} to read every tag
+     * @throws NullPointerException if file is null
+     * @throws IOException if an I/O error occurs while opening the file
+     */
+    public ExifInterface(@NonNull File file, @Nullable Set<String> tags) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file cannot be null");
+        }
+        if (tags != null) {
+            mTagsToRead = new HashSet<>(tags);
+            // Maintain compatibility, see getExifAttribute(String).
+            if (mTagsToRead.contains(TAG_ISO_SPEED_RATINGS)) {
+                mTagsToRead.add(TAG_PHOTOGRAPHIC_SENSITIVITY);
+            }
+        }
+        mIsReadOnly = true;
+        mAssetInputStream = null;
+        mSeekableFileDescriptor = null;
+        // Keep the file name so that the thumbnail can be read later on.
+        mFilename = file.getAbsolutePath();
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            loadAttributes(new MappedFileInputStream(in.getChannel()));
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
     /**
      * Reads Exif tags from the specified image file descriptor. Attribute mutation is supported
      * for writable and seekable file descriptors only. This constructor will not rewind the offset
@@ -4578,8 +4670,10 @@ public class ExifInterface {
 
             // Check file type
             if (!mIsExifDataOnly) {
-                in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
-                mMimeType = getMimeType((BufferedInputStream) in);
+                if (!(in instanceof MappedFileInputStream)) {
+                    in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
+                }
+                mMimeType = getMimeType(in);
             }
 
             if (shouldSupportSeek(mMimeType)) {
@@ -4680,7 +4774,7 @@ public class ExifInterface {
             throw new IOException("ExifInterface only supports saving attributes for JPEG, PNG, "
                     + "WebP, and DNG formats.");
         }
-        if (mSeekableFileDescriptor == null && mFilename == null) {
+        if ((mSeekableFileDescriptor == null && mFilename == null) || mIsReadOnly) {
             throw new IOException(
                     "ExifInterface does not support saving attributes for the current input.");
         }
@@ -4696,6 +4790,13 @@ public class ExifInterface {
         // Keep the thumbnail in memory
         mThumbnailBytes = getThumbnail();
 
+        // Rewriting the whole file is not needed if the new Exif data fits in the old segment.
+        if (mMimeType == IMAGE_TYPE_JPEG && saveJpegAttributesInPlace()) {
+            // Discard the thumbnail in memory
+            mThumbnailBytes = null;
+            return;
+        }
+
         FileInputStream in = null;
         FileOutputStream out = null;
         File tempFile = null;
@@ -4713,7 +4814,9 @@ public class ExifInterface {
                 }
             }
             out = new FileOutputStream(tempFile);
-            copy(in, out);
+            // Let the kernel copy the file, without going through Java buffers.
+            FileChannel inChannel = in.getChannel();
+            transferFully(inChannel, 0, inChannel.size(), out.getChannel());
         } catch (Exception e) {
             throw new IOException("Failed to copy original file to temp file", e);
         } finally {
@@ -4742,7 +4845,14 @@ public class ExifInterface {
             bufferedIn = new BufferedInputStream(in);
             bufferedOut = new BufferedOutputStream(out);
             if (mMimeType == IMAGE_TYPE_JPEG) {
-                saveJpegAttributes(bufferedIn, bufferedOut);
+                long imageDataOffset = saveJpegAttributes(bufferedIn, bufferedOut);
+                // Copy the image data, which is most of the file, from channel to channel.
+                bufferedOut.flush();
+                FileChannel inChannel = in.getChannel();
+                transferFully(inChannel, imageDataOffset, inChannel.size() - imageDataOffset,
+                        out.getChannel());
+                // The EXIF APP1 segment now follows the SOI marker.
+                mOffsetToExifData = 2 + 4 + IDENTIFIER_EXIF_APP1.length;
             } else if (mMimeType == IMAGE_TYPE_PNG) {
                 savePngAttributes(bufferedIn, bufferedOut);
             } else if (mMimeType == IMAGE_TYPE_WEBP) {
@@ -4766,7 +4876,8 @@ public class ExifInterface {
                         out = new FileOutputStream(mSeekableFileDescriptor);
                     }
                 }
-                copy(in, out);
+                FileChannel inChannel = in.getChannel();
+                transferFully(inChannel, 0, inChannel.size(), out.getChannel());
             } catch (Exception exception) {
                 shouldKeepTempFile = true;
                 throw new IOException("Failed to save new file. Original file is stored in "
@@ -5338,7 +5449,7 @@ public class ExifInterface {
     }
 
     // Checks the type of image file
-    private int getMimeType(BufferedInputStream in) throws IOException {
+    private int getMimeType(InputStream in) throws IOException {
         in.mark(SIGNATURE_CHECK_SIZE);
         byte[] signatureCheckBytes = new byte[SIGNATURE_CHECK_SIZE];
         in.read(signatureCheckBytes);
@@ -5625,8 +5736,23 @@ public class ExifInterface {
             switch (marker) {
                 case MARKER_APP1: {
                     final int start = bytesRead;
-                    final byte[] bytes = new byte[length];
-                    in.readFully(bytes);
+                    final byte[] bytes;
+                    if (!shouldReadTag(TAG_XMP) && length >= IDENTIFIER_XMP_APP1.length) {
+                        // Check the identifier first, to skip XMP data without copying it.
+                        final byte[] identifier = new byte[IDENTIFIER_XMP_APP1.length];
+                        in.readFully(identifier);
+                        if (startsWith(identifier, IDENTIFIER_XMP_APP1)) {
+                            bytesRead += identifier.length;
+                            length -= identifier.length;
+                            break;
+                        }
+                        bytes = new byte[length];
+                        System.arraycopy(identifier, 0, bytes, 0, identifier.length);
+                        in.readFully(bytes, identifier.length, length - identifier.length);
+                    } else {
+                        bytes = new byte[length];
+                        in.readFully(bytes);
+                    }
                     bytesRead += length;
                     length = 0;
 
@@ -5657,6 +5783,9 @@ public class ExifInterface {
                 }
 
                 case MARKER_COM: {
+                    if (!shouldReadTag(TAG_USER_COMMENT)) {
+                        break;
+                    }
                     byte[] bytes = new byte[length];
                     if (in.read(bytes) != length) {
                         throw new IOException("Invalid exif");
@@ -6274,8 +6403,122 @@ public class ExifInterface {
         }
     }
 
-    // Stores a new JPEG image with EXIF attributes into a given output stream.
-    private void saveJpegAttributes(InputStream inputStream, OutputStream outputStream)
+    /**
+     * Overwrites the EXIF APP1 segment of the JPEG file with the current attributes, if they fit
+     * in it, so that the rest of the file is left untouched. The unused end of the segment is
+     * filled with zeros.
+     *
+     * @return true if the attributes were saved, false if the file has to be rewritten.
+     */
+    private boolean saveJpegAttributesInPlace() throws IOException {
+        // The offset of the APP1 marker, followed by the segment length and the EXIF identifier.
+        final long segmentOffset = mOffsetToExifData - IDENTIFIER_EXIF_APP1.length - 4;
+        if (mOffsetToExifData <= 0 || segmentOffset < 2) {
+            return false;
+        }
+        if (mFilename == null && Build.VERSION.SDK_INT < 21) {
+            return false;
+        }
+
+        // Write the new EXIF APP1 segment the same way saveJpegAttributes() does.
+        ExifAttribute xmpAttribute = null;
+        if (getAttribute(TAG_XMP) != null && mXmpIsFromSeparateMarker) {
+            xmpAttribute = mAttributes[IFD_TYPE_PRIMARY].remove(TAG_XMP);
+        }
+        ByteArrayOutputStream segmentStream = new ByteArrayOutputStream();
+        ByteOrderedDataOutputStream dataOutputStream =
+                new ByteOrderedDataOutputStream(segmentStream, ByteOrder.BIG_ENDIAN);
+        dataOutputStream.writeByte(MARKER);
+        dataOutputStream.writeByte(MARKER_APP1);
+        writeExifSegment(dataOutputStream);
+        if (xmpAttribute != null) {
+            mAttributes[IFD_TYPE_PRIMARY].put(TAG_XMP, xmpAttribute);
+        }
+        final byte[] segment = segmentStream.toByteArray();
+
+        // A channel of a stream opened on a file descriptor is either readable or writable, so the
+        // file descriptor is read and written through separate channels. Those channels are not
+        // closed, since closing them would close the file descriptor of the caller.
+        RandomAccessFile file = null;
+        final FileChannel readChannel;
+        final FileChannel writeChannel;
+        if (mFilename != null) {
+            file = new RandomAccessFile(mFilename, "rw");
+            readChannel = file.getChannel();
+            writeChannel = readChannel;
+        } else {
+            readChannel = new FileInputStream(mSeekableFileDescriptor).getChannel();
+            writeChannel = new FileOutputStream(mSeekableFileDescriptor).getChannel();
+        }
+        try {
+            // Check that the file still has the EXIF APP1 segment that was parsed.
+            ByteBuffer header = ByteBuffer.allocate(4 + IDENTIFIER_EXIF_APP1.length);
+            if (!readFully(readChannel, header, segmentOffset)
+                    || header.get(0) != MARKER || header.get(1) != MARKER_APP1) {
+                return false;
+            }
+            for (int i = 0; i < IDENTIFIER_EXIF_APP1.length; i++) {
+                if (header.get(4 + i) != IDENTIFIER_EXIF_APP1[i]) {
+                    return false;
+                }
+            }
+            final int length = header.getShort(2) & 0xffff;
+            if (segment.length - 2 > length) {
+                return false;
+            }
+
+            // Keep the original segment, to restore it if writing the new one fails.
+            ByteBuffer originalSegment = ByteBuffer.allocate(length + 2);
+            if (!readFully(readChannel, originalSegment, segmentOffset)) {
+                return false;
+            }
+            ByteBuffer newSegment = ByteBuffer.allocate(length + 2);
+            newSegment.put(segment);
+            // Keep the original length, the new data is followed by padding.
+            newSegment.putShort(2, (short) length);
+            newSegment.rewind();
+            try {
+                writeFully(writeChannel, newSegment, segmentOffset);
+            } catch (IOException e) {
+                originalSegment.rewind();
+                writeFully(writeChannel, originalSegment, segmentOffset);
+                throw e;
+            }
+            if (DEBUG) {
+                Log.d(TAG, "saveJpegAttributesInPlace: wrote " + (segment.length - 2)
+                        + " bytes in a segment of " + length + " bytes");
+            }
+            return true;
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Stores the headers of a new JPEG image with EXIF attributes into a given output stream.
+     * The image data following the headers is not copied, so that the caller can copy it without
+     * going through Java buffers.
+     *
+     * @return the offset of the image data in the input stream.
+     */
+    private long saveJpegAttributes(InputStream inputStream, OutputStream outputStream)
             throws IOException {
         // See JPEG File Interchange Format Specification, "JFIF Specification"
         if (DEBUG) {
@@ -6357,9 +6600,8 @@ public class ExifInterface {
                 case MARKER_SOS: {
                     dataOutputStream.writeByte(MARKER);
                     dataOutputStream.writeByte(marker);
-                    // Copy all the remaining data
-                    copy(dataInputStream, dataOutputStream);
-                    return;
+                    // The remaining data is copied by the caller
+                    return dataInputStream.position();
                 }
                 default: {
                     // Copy JPEG segment
@@ -6791,6 +7033,18 @@ public class ExifInterface {
         }
     }
 
+    // Returns whether the value of the given tag should be read, see ExifInterface(File, Set).
+    private boolean shouldReadTag(String tagName) {
+        if (mTagsToRead == null || mTagsToRead.contains(tagName)
+                || TAGS_REQUIRED_FOR_PARSING.contains(tagName)) {
+            return true;
+        }
+        // The maker notes of some RAW formats contain their preview image.
+        return TAG_MAKER_NOTE.equals(tagName) && mMimeType != IMAGE_TYPE_JPEG
+                && mMimeType != IMAGE_TYPE_PNG && mMimeType != IMAGE_TYPE_WEBP
+                && mMimeType != IMAGE_TYPE_HEIF;
+    }
+
     // Reads image file directory, which is a tag group in EXIF.
     private void readImageFileDirectory(SeekableByteOrderedDataInputStream dataInputStream,
             @IfdType int ifdType) throws IOException {
@@ -6952,6 +7206,11 @@ public class ExifInterface {
                 continue;
             }
 
+            if (!shouldReadTag(tag.name)) {
+                dataInputStream.seek(nextEntryOffset);
+                continue;
+            }
+
             final int bytesOffset = dataInputStream.position() + mOffsetToExifData;
             final byte[] bytes = new byte[(int) byteCount];
             dataInputStream.readFully(bytes);
@@ -7672,6 +7931,99 @@ public class ExifInterface {
         return new Pair<>(IFD_FORMAT_STRING, -1);
     }
 
+    // An input stream reading a file through memory-mapped windows. Only the windows that are
+    // read are mapped, and each of them is bounded, since a mapping is only released once it is
+    // garbage collected. Skipping and resetting to a mark are constant-time, and the whole file
+    // can be marked without copying it like BufferedInputStream does.
+    private static class MappedFileInputStream extends InputStream {
+        // Metadata is usually located within the first window of the file.
+        private static final int WINDOW_SIZE = 1024 * 1024;
+
+        private final FileChannel mChannel;
+        private final long mSize;
+        private MappedByteBuffer mWindow;
+        private long mWindowOffset;
+        private long mPosition;
+        private long mMark;
+
+        MappedFileInputStream(FileChannel channel) throws IOException {
+            mChannel = channel;
+            mSize = channel.size();
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(mSize - mPosition, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!mapPosition()) {
+                return -1;
+            }
+            return mWindow.get((int) (mPosition++ - mWindowOffset)) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!mapPosition()) {
+                return -1;
+            }
+            final int start = (int) (mPosition - mWindowOffset);
+            len = Math.min(len, mWindow.limit() - start);
+            mWindow.position(start);
+            mWindow.get(b, off, len);
+            mPosition += len;
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            if (n <= 0) {
+                return 0;
+            }
+            long skipped = Math.min(n, mSize - mPosition);
+            mPosition += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readLimit) {
+            mMark = mPosition;
+        }
+
+        @Override
+        public void reset() {
+            mPosition = mMark;
+        }
+
+        /**
+         * Maps the window containing the current position if it isn't mapped yet.
+         *
+         * @return false if the current position is at the end of the file.
+         */
+        private boolean mapPosition() throws IOException {
+            if (mPosition >= mSize) {
+                return false;
+            }
+            if (mWindow == null || mPosition < mWindowOffset
+                    || mPosition >= mWindowOffset + mWindow.limit()) {
+                mWindowOffset = mPosition - mPosition % WINDOW_SIZE;
+                mWindow = mChannel.map(FileChannel.MapMode.READ_ONLY, mWindowOffset,
+                        Math.min(WINDOW_SIZE, mSize - mWindowOffset));
+            }
+            return true;
+        }
+    }
+
     // An input stream class that can parse both little and big endian order data and also
     // supports seeking to any position in the stream via mark/reset.
     private static class SeekableByteOrderedDataInputStream extends ByteOrderedDataInputStream {
@@ -31,6 +31,7 @@ import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 class ExifInterfaceUtils {
     private static final String TAG = "ExifInterfaceUtils";
@@ -72,6 +73,24 @@ class ExifInterfaceUtils {
         }
     }
 
+    /**
+     * Transfers {@code count} bytes of {@code in}, starting at {@code position}, to the current
+     * position of {@code out}. Neither channel is closed, and the position of {@code in} is not
+     * changed.
+     */
+    static void transferFully(FileChannel in, long position, long count, FileChannel out)
+            throws IOException {
+        while (count > 0) {
+            long transferred = in.transferTo(position, count, out);
+            if (transferred <= 0) {
+                throw new IOException("Failed to transfer the given amount of bytes from the input"
+                        + " channel to the output channel.");
+            }
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
     /**
      * Convert given int[] to long[]. If long[] is given, just return it.
      * Return null for other types of input.
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.paging
+
+/**
+ * Measures the items loaded from a [PagingSource], so that pages are dropped once the loaded
+ * items weigh more than [PagingConfig.maxWeight], the same way `LruCache.sizeOf` bounds the size
+ * of a cache.
+ *
+ * This is useful when items vary a lot in size, in which case [PagingConfig.maxSize] either drops
+ * pages too eagerly or keeps too much in memory.
+ *
+ * @see PagingConfig.maxWeight
+ */
+public abstract class ItemWeigher {
+    /**
+     * Returns the weight of [item], in the same unit as [PagingConfig.maxWeight], e.g. its
+     * approximate size in bytes.
+     *
+     * The weight must not be negative, and must not change while the item is loaded. This is
+     * called once per item, when its page is loaded.
+     */
+    public abstract fun weigh(item: Any): Int
+
+    /**
+     * Called after pages of loaded items were dropped, either to respect [PagingConfig.maxWeight]
+     * or [PagingConfig.maxSize]. This can be used to monitor the memory held by [PagingData].
+     *
+     * This is called while pages are being loaded, so it should return quickly. The default
+     * implementation does nothing.
+     *
+     * @param droppedItemCount Number of items that were dropped.
+     * @param droppedWeight Total weight of the items that were dropped.
+     * @param retainedWeight Total weight of the items that are still loaded.
+     */
+    public open fun onPagesDropped(
+        droppedItemCount: Int,
+        droppedWeight: Long,
+        retainedWeight: Long
+    ) {
+    }
+}
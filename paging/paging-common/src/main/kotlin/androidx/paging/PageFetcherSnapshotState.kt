@@ -25,6 +25,7 @@ import androidx.paging.PageEvent.Insert.Companion.Append
 import androidx.paging.PageEvent.Insert.Companion.Prepend
 import androidx.paging.PageEvent.Insert.Companion.Refresh
 import androidx.paging.PagingConfig.Companion.MAX_SIZE_UNBOUNDED
+import androidx.paging.PagingConfig.Companion.MAX_WEIGHT_UNBOUNDED
 import androidx.paging.PagingSource.LoadResult.Page
 import androidx.paging.PagingSource.LoadResult.Page.Companion.COUNT_UNDEFINED
 import kotlinx.coroutines.channels.Channel
@@ -50,6 +51,16 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
     internal val storageCount
         get() = pages.sumOf { it.data.size }
 
+    // Weight of each page of pages, only tracked if PagingConfig.itemWeigher is set.
+    private val pageWeights = mutableListOf<Long>()
+
+    /**
+     * Total weight of the loaded items, as measured by [PagingConfig.itemWeigher], or 0 if it is
+     * not set.
+     */
+    internal var retainedWeight = 0L
+        private set
+
     private var _placeholdersBefore = 0
 
     /**
@@ -169,6 +180,7 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
                 check(loadId == 0) { "init loadId must be the initial value, 0" }
 
                 _pages.add(page)
+                addPageWeight(0, page)
                 initialPageIndex = 0
                 placeholdersAfter = page.itemsAfter
                 placeholdersBefore = page.itemsBefore
@@ -180,6 +192,7 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
                 if (loadId != prependGenerationId) return false
 
                 _pages.add(0, page)
+                addPageWeight(0, page)
                 initialPageIndex++
                 placeholdersBefore = if (page.itemsBefore == COUNT_UNDEFINED) {
                     (placeholdersBefore - page.data.size).coerceAtLeast(0)
@@ -197,6 +210,7 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
                 if (loadId != appendGenerationId) return false
 
                 _pages.add(page)
+                addPageWeight(pages.lastIndex, page)
                 placeholdersAfter = if (page.itemsAfter == COUNT_UNDEFINED) {
                     (placeholdersAfter - page.data.size).coerceAtLeast(0)
                 } else {
@@ -211,6 +225,23 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
         return true
     }
 
+    private fun addPageWeight(index: Int, page: Page<Key, Value>) {
+        val weigher = config.itemWeigher ?: return
+        var weight = 0L
+        page.data.forEach { item ->
+            val itemWeight = weigher.weigh(item)
+            check(itemWeight >= 0) { "Negative weight $itemWeight for item $item" }
+            weight += itemWeight
+        }
+        pageWeights.add(index, weight)
+        retainedWeight += weight
+    }
+
+    /**
+     * Weight of the page at [index] of [pages], or 0 if weights are not tracked.
+     */
+    private fun pageWeight(index: Int) = if (config.itemWeigher == null) 0L else pageWeights[index]
+
     fun drop(event: PageEvent.Drop<Value>) {
         check(event.pageCount <= pages.size) {
             "invalid drop count. have ${pages.size} but wanted to drop ${event.pageCount}"
@@ -220,9 +251,14 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
         failedHintsByLoadType.remove(event.loadType)
         sourceLoadStates.set(event.loadType, NotLoading.Incomplete)
 
+        var droppedItemCount = 0
+        var droppedWeight = 0L
         when (event.loadType) {
             PREPEND -> {
-                repeat(event.pageCount) { _pages.removeAt(0) }
+                repeat(event.pageCount) {
+                    droppedItemCount += _pages.removeAt(0).data.size
+                    droppedWeight += removePageWeight(0)
+                }
                 initialPageIndex -= event.pageCount
 
                 placeholdersBefore = event.placeholdersRemaining
@@ -231,7 +267,10 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
                 prependGenerationIdCh.trySend(prependGenerationId)
             }
             APPEND -> {
-                repeat(event.pageCount) { _pages.removeAt(pages.size - 1) }
+                repeat(event.pageCount) {
+                    droppedItemCount += _pages.removeAt(pages.size - 1).data.size
+                    droppedWeight += removePageWeight(pageWeights.size - 1)
+                }
 
                 placeholdersAfter = event.placeholdersRemaining
 
@@ -240,21 +279,33 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
             }
             else -> throw IllegalArgumentException("cannot drop ${event.loadType}")
         }
+
+        config.itemWeigher?.onPagesDropped(droppedItemCount, droppedWeight, retainedWeight)
+    }
+
+    private fun removePageWeight(index: Int): Long {
+        if (config.itemWeigher == null) return 0L
+        val weight = pageWeights.removeAt(index)
+        retainedWeight -= weight
+        return weight
     }
 
     /**
      * @return [PageEvent.Drop] for [loadType] that would allow this [PageFetcherSnapshotState] to
-     * respect [PagingConfig.maxSize], `null` if no pages should be dropped for the provided
-     * [loadType].
+     * respect [PagingConfig.maxSize] and [PagingConfig.maxWeight], `null` if no pages should be
+     * dropped for the provided [loadType].
      */
     fun dropEventOrNull(loadType: LoadType, hint: ViewportHint): PageEvent.Drop<Value>? {
-        if (config.maxSize == MAX_SIZE_UNBOUNDED) return null
+        if (config.maxSize == MAX_SIZE_UNBOUNDED && config.maxWeight == MAX_WEIGHT_UNBOUNDED) {
+            return null
+        }
         // Never drop below 2 pages as this can cause UI flickering with certain configs and it's
         // much more important to protect against this behaviour over respecting a config where
         // maxSize is set unusually (probably incorrectly) strict.
         if (pages.size <= 2) return null
 
-        if (storageCount <= config.maxSize) return null
+        val storageCount = storageCount
+        if (!exceedsLimits(storageCount, retainedWeight)) return null
 
         require(loadType != REFRESH) {
             "Drop LoadType must be PREPEND or APPEND, but got $loadType"
@@ -263,11 +314,15 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
         // Compute pageCount and itemsToDrop
         var pagesToDrop = 0
         var itemsToDrop = 0
-        while (pagesToDrop < pages.size && storageCount - itemsToDrop > config.maxSize) {
-            val pageSize = when (loadType) {
-                PREPEND -> pages[pagesToDrop].data.size
-                else -> pages[pages.lastIndex - pagesToDrop].data.size
+        var weightToDrop = 0L
+        while (pagesToDrop < pages.size &&
+            exceedsLimits(storageCount - itemsToDrop, retainedWeight - weightToDrop)
+        ) {
+            val pageIndex = when (loadType) {
+                PREPEND -> pagesToDrop
+                else -> pages.lastIndex - pagesToDrop
             }
+            val pageSize = pages[pageIndex].data.size
             val itemsAfterDrop = when (loadType) {
                 PREPEND -> hint.presentedItemsBefore - itemsToDrop - pageSize
                 else -> hint.presentedItemsAfter - itemsToDrop - pageSize
@@ -276,6 +331,7 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
             if (itemsAfterDrop < config.prefetchDistance) break
 
             itemsToDrop += pageSize
+            weightToDrop += pageWeight(pageIndex)
             pagesToDrop++
         }
 
@@ -306,6 +362,9 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
         }
     }
 
+    private fun exceedsLimits(itemCount: Int, weight: Long) =
+        itemCount > config.maxSize || weight > config.maxWeight
+
     internal fun currentPagingState(viewportHint: ViewportHint.Access?) = PagingState<Key, Value>(
         pages = pages.toList(),
         anchorPosition = viewportHint?.let { hint ->
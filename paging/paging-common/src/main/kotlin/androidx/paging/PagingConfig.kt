@@ -18,6 +18,7 @@ package androidx.paging
 
 import androidx.annotation.IntRange
 import androidx.paging.PagingConfig.Companion.MAX_SIZE_UNBOUNDED
+import androidx.paging.PagingConfig.Companion.MAX_WEIGHT_UNBOUNDED
 import androidx.paging.PagingSource.LoadResult.Page.Companion.COUNT_UNDEFINED
 
 /**
@@ -131,7 +132,33 @@ public class PagingConfig @JvmOverloads public constructor(
      * @see PagingSource.jumpingSupported
      */
     @JvmField
-    public val jumpThreshold: Int = COUNT_UNDEFINED
+    public val jumpThreshold: Int = COUNT_UNDEFINED,
+
+    /**
+     * Defines the maximum total weight of the items that may be loaded into [PagingData] before
+     * pages should be dropped, as measured by [itemWeigher].
+     *
+     * If set to [MAX_WEIGHT_UNBOUNDED], pages will never be dropped because of their weight.
+     *
+     * This can be used instead of, or along with, [maxSize] to cap the memory used by loaded items
+     * when their sizes vary a lot, e.g. by weighing each item with its approximate size in bytes.
+     *
+     * [maxWeight] is best effort, not a guarantee, with the same exceptions as [maxSize]: pages are
+     * never dropped until there are more than two pages loaded, nor if they are within a prefetch
+     * window of the most recent load.
+     *
+     * @see PagingConfig.MAX_WEIGHT_UNBOUNDED
+     */
+    @JvmField
+    public val maxWeight: Long = MAX_WEIGHT_UNBOUNDED,
+
+    /**
+     * Measures the weight of each loaded item for [maxWeight], and is notified of dropped pages.
+     *
+     * Must be set if [maxWeight] is set.
+     */
+    @JvmField
+    public val itemWeigher: ItemWeigher? = null
 ) {
     init {
         if (!enablePlaceholders && prefetchDistance == 0) {
@@ -152,6 +179,11 @@ public class PagingConfig @JvmOverloads public constructor(
         require(jumpThreshold == COUNT_UNDEFINED || jumpThreshold > 0) {
             "jumpThreshold must be positive to enable jumps or COUNT_UNDEFINED to disable jumping."
         }
+
+        require(maxWeight > 0) { "maxWeight must be positive, but was $maxWeight" }
+        require(maxWeight == MAX_WEIGHT_UNBOUNDED || itemWeigher != null) {
+            "itemWeigher must be set to weigh items against maxWeight"
+        }
     }
 
     public companion object {
@@ -161,6 +193,13 @@ public class PagingConfig @JvmOverloads public constructor(
          */
         @Suppress("MinMaxConstant")
         public const val MAX_SIZE_UNBOUNDED: Int = Int.MAX_VALUE
+
+        /**
+         * When [maxWeight] is set to [MAX_WEIGHT_UNBOUNDED], the total weight of loaded items is
+         * unbounded, and pages will never be dropped because of it.
+         */
+        @Suppress("MinMaxConstant")
+        public const val MAX_WEIGHT_UNBOUNDED: Long = Long.MAX_VALUE
         internal const val DEFAULT_INITIAL_PAGE_MULTIPLIER = 3
     }
 }
\ No newline at end of file
@@ -486,6 +486,151 @@ class PageFetcherSnapshotStateTest {
         assertThat(state.sourceLoadStates.get(APPEND)).isEqualTo(NotLoading.Complete)
     }
 
+    @Test
+    fun dropEventOrNull_maxWeight() = testScope.runBlockingTest {
+        val weigher = RecordingItemWeigher { item -> item as Int }
+        val config = PagingConfig(
+            pageSize = 2,
+            prefetchDistance = 1,
+            enablePlaceholders = true,
+            maxWeight = 100,
+            itemWeigher = weigher
+        )
+        val state = PageFetcherSnapshotState.Holder<Int, Int>(config = config).withLock { it }
+
+        state.insert(
+            loadId = 0,
+            loadType = REFRESH,
+            page = Page(data = listOf(10, 10), prevKey = -1, nextKey = 1, itemsBefore = 0)
+        )
+        state.insert(
+            loadId = 0,
+            loadType = APPEND,
+            page = Page(data = listOf(40, 40), prevKey = 0, nextKey = 2)
+        )
+        state.insert(
+            loadId = 0,
+            loadType = APPEND,
+            page = Page(data = listOf(5, 5), prevKey = 1, nextKey = 3)
+        )
+        assertThat(state.retainedWeight).isEqualTo(110)
+
+        // Only 6 items are loaded, far from any maxSize, but their weight exceeds maxWeight.
+        val hint = ViewportHint.Access(
+            pageOffset = 2,
+            indexInPage = 1,
+            presentedItemsBefore = 5,
+            presentedItemsAfter = 0,
+            originalPageOffsetFirst = 0,
+            originalPageOffsetLast = 2
+        )
+        assertThat(state.dropEventOrNull(APPEND, hint)).isNull()
+        val event = state.dropEventOrNull(PREPEND, hint)
+        assertThat(event).isEqualTo(
+            PageEvent.Drop<Int>(
+                loadType = PREPEND,
+                minPageOffset = 0,
+                maxPageOffset = 0,
+                placeholdersRemaining = 2
+            )
+        )
+
+        state.drop(event!!)
+        assertThat(state.retainedWeight).isEqualTo(90)
+        assertThat(state.placeholdersBefore).isEqualTo(2)
+        assertThat(weigher.droppedItemCount).isEqualTo(2)
+        assertThat(weigher.droppedWeight).isEqualTo(20)
+        assertThat(weigher.lastRetainedWeight).isEqualTo(90)
+    }
+
+    @Test
+    fun maxWeight_scrollThroughMillionItems() = testScope.runBlockingTest {
+        val totalCount = 1_000_000
+        val pageSize = 10
+        val maxPageWeight = pageSize * 50_000L
+        // Items weigh between 200 and 50_000, like payloads of very different sizes.
+        val weigher = RecordingItemWeigher { item ->
+            200 + ((item as Int).toLong() * 7919 % 49_801).toInt()
+        }
+        val config = PagingConfig(
+            pageSize = pageSize,
+            prefetchDistance = pageSize,
+            enablePlaceholders = true,
+            maxWeight = 1_000_000,
+            itemWeigher = weigher
+        )
+        val state = PageFetcherSnapshotState.Holder<Int, Int>(config = config).withLock { it }
+
+        fun page(start: Int) = Page(
+            data = List(pageSize) { start + it },
+            prevKey = start - pageSize,
+            nextKey = start + pageSize,
+            itemsBefore = start,
+            itemsAfter = totalCount - start - pageSize
+        )
+
+        val refresh = page(0)
+        assertThat(state.insert(loadId = 0, loadType = REFRESH, page = refresh)).isTrue()
+        val presenter = PagePresenter(
+            with(state) { refresh.toPageEvent(REFRESH) } as PageEvent.Insert<Int>
+        )
+        val callback = ProcessPageEventCallbackCapture()
+
+        for (start in pageSize until totalCount step pageSize) {
+            // Only the initial page counts the items before it.
+            val append = page(start).copy(itemsBefore = COUNT_UNDEFINED)
+            assertThat(state.insert(state.generationId(APPEND), APPEND, append)).isTrue()
+            presenter.processEvent(with(state) { append.toPageEvent(APPEND) }, callback)
+
+            // Access the last loaded item, which drops pages from the start of the list.
+            val hint = ViewportHint.Access(
+                pageOffset = state.pages.lastIndex - state.initialPageIndex,
+                indexInPage = pageSize - 1,
+                presentedItemsBefore = state.storageCount - 1,
+                presentedItemsAfter = 0,
+                originalPageOffsetFirst = -state.initialPageIndex,
+                originalPageOffsetLast = state.pages.lastIndex - state.initialPageIndex
+            )
+            state.dropEventOrNull(PREPEND, hint)?.let { event ->
+                state.drop(event)
+                presenter.processEvent(event, callback)
+            }
+            callback.getAllAndClear()
+
+            // Placeholders replace every dropped item, so the list keeps its size and positions.
+            assertThat(presenter.size).isEqualTo(totalCount)
+            assertThat(presenter.placeholdersBefore).isEqualTo(state.placeholdersBefore)
+            assertThat(presenter.placeholdersBefore).isEqualTo(state.pages.first().data.first())
+            assertThat(state.retainedWeight).isAtMost(config.maxWeight + 2 * maxPageWeight)
+        }
+
+        assertThat(state.retainedWeight).isEqualTo(
+            state.pages.sumOf { page -> page.data.sumOf { weigher.weigh(it).toLong() } }
+        )
+        assertThat(weigher.droppedItemCount + state.storageCount).isEqualTo(totalCount)
+        assertThat(weigher.lastRetainedWeight).isEqualTo(state.retainedWeight)
+    }
+
+    private class RecordingItemWeigher(
+        private val weight: (Any) -> Int
+    ) : ItemWeigher() {
+        var droppedItemCount = 0
+        var droppedWeight = 0L
+        var lastRetainedWeight = 0L
+
+        override fun weigh(item: Any) = weight(item)
+
+        override fun onPagesDropped(
+            droppedItemCount: Int,
+            droppedWeight: Long,
+            retainedWeight: Long
+        ) {
+            this.droppedItemCount += droppedItemCount
+            this.droppedWeight += droppedWeight
+            lastRetainedWeight = retainedWeight
+        }
+    }
+
     private fun List<Page<Int, Int>>.toPresenter(initialPageIndex: Int): PagePresenter<Int> {
         val pageSize = 2
         val initialPage = get(initialPageIndex)
@@ -25,6 +25,8 @@ import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.junit.runners.Parameterized
+import java.util.Collections
+import kotlin.random.Random
 
 @LargeTest
 @RunWith(Parameterized::class)
@@ -102,6 +104,37 @@ class DiffBenchmark(
                 name = "move_from_end_to_beginning",
                 before = (0..1000).toList(),
                 after = (900..1000).toList() + (0..899).toList()
+            ),
+            Input(
+                name = "insert_every_10th",
+                before = (0..10_000).toList(),
+                after = (0..10_000).flatMap {
+                    if (it % 10 == 0) listOf(-it - 1, it) else listOf(it)
+                }
+            ),
+            Input(
+                name = "shuffle",
+                before = (0..2000).toList(),
+                after = (0..2000).shuffled(Random(SEED))
+            ),
+            Input(
+                name = "shuffle_10_percent",
+                before = (0..10_000).toList(),
+                after = (0..10_000).toMutableList().also { list ->
+                    val random = Random(SEED)
+                    repeat(list.size / 20) {
+                        Collections.swap(
+                            list,
+                            random.nextInt(list.size),
+                            random.nextInt(list.size)
+                        )
+                    }
+                }
+            ),
+            Input(
+                name = "delete_every_other",
+                before = (0..10_000).toList(),
+                after = (0..10_000).filter { it % 2 == 0 }
             )
         ).flatMap {
             listOf(
@@ -113,7 +146,14 @@ class DiffBenchmark(
                 it,
                 it.copy(dispatchUpdates = false)
             )
+        }.flatMap {
+            listOf(
+                it,
+                it.copy(keyed = true)
+            )
         }
+
+        private const val SEED = 42L
     }
 
     data class Input(
@@ -121,23 +161,40 @@ class DiffBenchmark(
         val before: List<Int>,
         val after: List<Int>,
         val dispatchUpdates: Boolean = true,
-        val detectMoves: Boolean = true
+        val detectMoves: Boolean = true,
+        val keyed: Boolean = false
     ) {
-        val callback = object : DiffUtil.Callback() {
-            override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
-                before[oldItemPosition] == after[newItemPosition]
+        val callback = if (keyed) {
+            object : DiffUtil.KeyedCallback() {
+                override fun getOldItemKey(oldItemPosition: Int): Any = before[oldItemPosition]
 
-            override fun getOldListSize() = before.size
+                override fun getNewItemKey(newItemPosition: Int): Any = after[newItemPosition]
 
-            override fun getNewListSize() = after.size
+                override fun getOldListSize() = before.size
 
-            override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
-                before[oldItemPosition] == after[newItemPosition]
+                override fun getNewListSize() = after.size
+
+                override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                    before[oldItemPosition] == after[newItemPosition]
+            }
+        } else {
+            object : DiffUtil.Callback() {
+                override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                    before[oldItemPosition] == after[newItemPosition]
+
+                override fun getOldListSize() = before.size
+
+                override fun getNewListSize() = after.size
+
+                override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                    before[oldItemPosition] == after[newItemPosition]
+            }
         }
 
         override fun toString() = name +
             "_dispatchUpdates_$dispatchUpdates" +
             "_detectMoves_$detectMoves" +
+            "_keyed_$keyed" +
             "_size_[${before.size}_${after.size}]"
     }
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.benchmark
+
+import android.graphics.Color
+import android.util.Log
+import android.view.LayoutInflater
+import android.view.ViewGroup
+import android.widget.FrameLayout
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.recyclerview.benchmark.test.R
+import androidx.recyclerview.widget.AdaptiveRecycledViewPool
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.annotation.UiThreadTest
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Scrolls through sections of items sharing a view type, jumping a full screen per frame like a
+ * fling does, and compares the inflations of the default pool to the adaptive one.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class PoolBenchmark(private val adaptive: Boolean) {
+
+    private lateinit var adapter: SectionAdapter
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Suppress("DEPRECATION")
+    @get:Rule
+    val activityRule = androidx.test.rule.ActivityTestRule(RecyclerViewActivity::class.java)
+
+    @Before
+    fun setup() {
+        activityRule.runOnUiThread {
+            val rv = activityRule.activity.recyclerView
+            // tall enough for a whole section to be visible at once
+            rv.layoutParams = FrameLayout.LayoutParams(100, ITEM_HEIGHT * SECTION_SIZE)
+            if (adaptive) {
+                rv.setRecycledViewPool(AdaptiveRecycledViewPool())
+            }
+            adapter = SectionAdapter()
+            rv.adapter = adapter
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+    }
+
+    @After
+    fun teardown() {
+        Log.i(TAG, "adaptive=$adaptive: ${adapter.createCount} ViewHolders created")
+    }
+
+    @UiThreadTest
+    @Test
+    fun fling() {
+        val rv = activityRule.activity.recyclerView
+        var direction = 1
+        var flings = 0
+        benchmarkRule.measureRepeated {
+            // each scroll replaces every visible item, going back and forth over a few sections
+            rv.scrollBy(0, direction * ITEM_HEIGHT * SECTION_SIZE)
+            if (++flings == FLINGS_PER_DIRECTION) {
+                flings = 0
+                direction *= -1
+            }
+        }
+    }
+
+    companion object {
+        private const val TAG = "PoolBenchmark"
+        private const val ITEM_HEIGHT = 100
+        private const val SECTION_SIZE = 15
+        private const val VIEW_TYPE_COUNT = 4
+        private const val FLINGS_PER_DIRECTION = 8
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "adaptive={0}")
+        fun parameters() = listOf(false, true)
+    }
+
+    private class SectionViewHolder(parent: ViewGroup) : RecyclerView.ViewHolder(
+        LayoutInflater.from(parent.context).inflate(R.layout.item_view, parent, false)
+    )
+
+    /**
+     * Displays *many* items, each 100px tall, in sections of [SECTION_SIZE] items sharing a view
+     * type.
+     */
+    private class SectionAdapter : RecyclerView.Adapter<SectionViewHolder>() {
+        var createCount = 0
+
+        override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): SectionViewHolder {
+            createCount++
+            return SectionViewHolder(parent)
+        }
+
+        override fun onBindViewHolder(holder: SectionViewHolder, position: Int) {
+            val color = position % 256
+            holder.itemView.setBackgroundColor(Color.rgb(color, color, color))
+        }
+
+        override fun getItemViewType(position: Int): Int {
+            return position / SECTION_SIZE % VIEW_TYPE_COUNT
+        }
+
+        override fun getItemCount() = Integer.MAX_VALUE
+    }
+}
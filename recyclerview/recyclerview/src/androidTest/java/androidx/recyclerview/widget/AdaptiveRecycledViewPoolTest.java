@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.WeakReference;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class AdaptiveRecycledViewPoolTest {
+
+    private RecyclerView.ViewHolder makeHolder(int viewType) {
+        RecyclerView.ViewHolder holder = new MockViewHolder(
+                ApplicationProvider.getApplicationContext());
+        holder.mItemViewType = viewType;
+        return holder;
+    }
+
+    @Test
+    public void construct() {
+        AdaptiveRecycledViewPool pool = new AdaptiveRecycledViewPool();
+        assertEquals(0, pool.getRecycledViewCount(0));
+        assertEquals(5, pool.getMaxRecycledViews(0));
+        assertEquals(0, pool.getBudget().getRecycledViewCount());
+    }
+
+    @Test
+    public void putAndGet_countsHitsAndMisses() {
+        AdaptiveRecycledViewPool pool = new AdaptiveRecycledViewPool();
+        pool.putRecycledView(makeHolder(0));
+
+        assertNotNull(pool.getRecycledView(0));
+        assertNull(pool.getRecycledView(0));
+        assertNull(pool.getRecycledView(1));
+
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(0, pool.getBudget().getRecycledViewCount());
+    }
+
+    @Test
+    public void missAfterDiscard_growsCapacity() {
+        AdaptiveRecycledViewPool pool = new AdaptiveRecycledViewPool();
+        for (int i = 0; i < 6; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        assertEquals(5, pool.getRecycledViewCount(0));
+        assertEquals(1, pool.getDiscardCount());
+
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(pool.getRecycledView(0));
+        }
+        assertNull(pool.getRecycledView(0));
+        assertEquals(6, pool.getMaxRecycledViews(0));
+
+        for (int i = 0; i < 6; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        assertEquals(6, pool.getRecycledViewCount(0));
+        assertEquals(1, pool.getDiscardCount());
+    }
+
+    @Test
+    public void setMaxRecycledViews_fixesCapacity() {
+        AdaptiveRecycledViewPool pool = new AdaptiveRecycledViewPool();
+        pool.setMaxRecycledViews(0, 2);
+        for (int i = 0; i < 3; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        pool.getRecycledView(0);
+        pool.getRecycledView(0);
+        pool.getRecycledView(0);
+
+        assertEquals(2, pool.getMaxRecycledViews(0));
+    }
+
+    @Test
+    public void unusedViewHolders_shrinkCapacity() {
+        AdaptiveRecycledViewPool pool = new AdaptiveRecycledViewPool();
+        for (int i = 0; i < 5; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        // keep cycling a single ViewHolder, the 4 others are never needed
+        for (int i = 0; i < 200; i++) {
+            pool.putRecycledView(pool.getRecycledView(0));
+        }
+
+        assertEquals(1, pool.getMaxRecycledViews(0));
+        assertEquals(1, pool.getRecycledViewCount(0));
+        assertEquals(1, pool.getBudget().getRecycledViewCount());
+    }
+
+    @Test
+    public void sharedBudget_evictsCheaperType() {
+        AdaptiveRecycledViewPool.Budget budget = new AdaptiveRecycledViewPool.Budget(2);
+        AdaptiveRecycledViewPool first = new AdaptiveRecycledViewPool(budget);
+        AdaptiveRecycledViewPool second = new AdaptiveRecycledViewPool(budget);
+        first.factorInCreateTime(0, 1000);
+        second.factorInCreateTime(1, 1_000_000);
+
+        first.putRecycledView(makeHolder(0));
+        first.putRecycledView(makeHolder(0));
+        second.putRecycledView(makeHolder(1));
+
+        assertEquals(2, budget.getRecycledViewCount());
+        assertEquals(1, first.getRecycledViewCount(0));
+        assertEquals(1, second.getRecycledViewCount(1));
+        assertEquals(1, first.getEvictionCount());
+        assertEquals(2, first.getCreateCount() + second.getCreateCount());
+
+        // nothing is cheaper than the expensive type, so it gets discarded
+        first.putRecycledView(makeHolder(0));
+        assertEquals(1, first.getDiscardCount());
+        assertEquals(2, budget.getRecycledViewCount());
+    }
+
+    @Test
+    public void clear_releasesBudget() {
+        AdaptiveRecycledViewPool.Budget budget = new AdaptiveRecycledViewPool.Budget(10);
+        AdaptiveRecycledViewPool pool = new AdaptiveRecycledViewPool(budget);
+        pool.putRecycledView(makeHolder(0));
+        pool.putRecycledView(makeHolder(1));
+        assertEquals(2, budget.getRecycledViewCount());
+
+        pool.clear();
+        assertEquals(0, budget.getRecycledViewCount());
+    }
+
+    @Test
+    public void collectedPool_releasesBudget() throws InterruptedException {
+        AdaptiveRecycledViewPool.Budget budget = new AdaptiveRecycledViewPool.Budget(2);
+        WeakReference<AdaptiveRecycledViewPool> collected = fillPool(budget);
+        assertEquals(2, budget.getRecycledViewCount());
+
+        for (int i = 0; i < 50 && collected.get() != null; i++) {
+            Runtime.getRuntime().gc();
+            Thread.sleep(10);
+        }
+        assertNull(collected.get());
+
+        // the ViewHolders of the collected pool no longer count against the budget
+        assertEquals(0, budget.getRecycledViewCount());
+        AdaptiveRecycledViewPool pool = new AdaptiveRecycledViewPool(budget);
+        pool.putRecycledView(makeHolder(0));
+        pool.putRecycledView(makeHolder(0));
+        assertEquals(2, pool.getRecycledViewCount(0));
+        assertEquals(0, pool.getDiscardCount());
+    }
+
+    private WeakReference<AdaptiveRecycledViewPool> fillPool(
+            AdaptiveRecycledViewPool.Budget budget) {
+        AdaptiveRecycledViewPool pool = new AdaptiveRecycledViewPool(budget);
+        pool.putRecycledView(makeHolder(0));
+        pool.putRecycledView(makeHolder(1));
+        return new WeakReference<>(pool);
+    }
+
+    private static class MockViewHolder extends RecyclerView.ViewHolder {
+        MockViewHolder(Context context) {
+            super(new View(context));
+        }
+    }
+}
@@ -20,11 +20,15 @@ import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.MediumTest
 import androidx.testutils.TestExecutor
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
 import org.junit.Assert.assertNotSame
 import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
 import org.junit.Assert.fail
 import org.junit.Test
 import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers.anyLong
+import org.mockito.ArgumentMatchers.eq
 import org.mockito.Mockito.mock
 import org.mockito.Mockito.reset
 import org.mockito.Mockito.verify
@@ -346,6 +350,93 @@ class AsyncListDifferTest {
         verifyNoMoreInteractions(listener)
     }
 
+    @Test
+    fun submitListCoalescesPendingDiffs() {
+        val callback = mock(ListUpdateCallback::class.java)
+        val differ = createDiffer(callback)
+        differ.submitList(listOf("a", "b"))
+        verify(callback).onInserted(0, 2)
+
+        val skipped = mock(Runnable::class.java)
+        val committed = mock(Runnable::class.java)
+        differ.submitList(listOf("a", "b", "c"), skipped)
+        differ.submitList(listOf("d", "a", "b", "c"), committed)
+
+        // the first diff is skipped when it gets to run, only the second one is dispatched
+        assertTrue(mBackgroundThread.executeAll())
+        assertTrue(mMainThread.executeAll())
+        assertFalse(mMainThread.executeAll())
+        assertEquals(listOf("d", "a", "b", "c"), differ.currentList)
+        verify(callback).onInserted(2, 1)
+        verify(callback).onInserted(0, 1)
+        verifyNoMoreInteractions(callback)
+        verifyZeroInteractions(skipped)
+        verify(committed).run()
+    }
+
+    @Test
+    fun submitListWithPatch() {
+        val callback = mock(ListUpdateCallback::class.java)
+        val differ = createDiffer(callback)
+        differ.submitList(listOf("a", "b"))
+        verify(callback).onInserted(0, 2)
+
+        // a pending diff is canceled by the patch
+        val skipped = mock(Runnable::class.java)
+        differ.submitList(listOf("a", "b", "c"), skipped)
+
+        val committed = mock(Runnable::class.java)
+        differ.submitList(
+            listOf("z", "a", "b"),
+            AsyncListDiffer.ListPatch { it.onInserted(0, 1) },
+            committed
+        )
+        assertEquals(listOf("z", "a", "b"), differ.currentList)
+        verify(callback).onInserted(0, 1)
+        verify(committed).run()
+
+        drain()
+        verifyNoMoreInteractions(callback)
+        verifyZeroInteractions(skipped)
+        assertEquals(listOf("z", "a", "b"), differ.currentList)
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun submitListWithPatch_sizeMismatch() {
+        val differ = createDiffer()
+        differ.submitList(listOf("a", "b"))
+        differ.submitList(
+            listOf("z", "y", "a", "b"),
+            AsyncListDiffer.ListPatch { it.onInserted(0, 1) },
+            null
+        )
+    }
+
+    @Test
+    fun diffMetrics() {
+        val differ = createDiffer()
+        val listener = mock(AsyncListDiffer.DiffMetricsListener::class.java)
+        differ.addDiffMetricsListener(listener)
+
+        // simple inserts and removals are not diffed
+        differ.submitList(listOf("a", "b"))
+        verifyZeroInteractions(listener)
+
+        differ.submitList(listOf("a", "b", "c"))
+        drain()
+        verify(listener).onDiffDispatched(eq(2), eq(3), anyLong(), anyLong())
+
+        differ.submitList(listOf("z", "a", "b", "c"), AsyncListDiffer.ListPatch {
+            it.onInserted(0, 1)
+        }, null)
+        verify(listener).onDiffDispatched(eq(3), eq(4), eq(0L), anyLong())
+
+        differ.removeDiffMetricsListener(listener)
+        differ.submitList(listOf("a"))
+        drain()
+        verifyNoMoreInteractions(listener)
+    }
+
     private fun drain() {
         var executed: Boolean
         do {
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ViewHolderPrewarmerTest {
+
+    RecyclerView mRecyclerView;
+    TestAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        mRecyclerView = new RecyclerView(getContext());
+        mAdapter = new TestAdapter();
+        mRecyclerView.setAdapter(mAdapter);
+    }
+
+    private Context getContext() {
+        return ApplicationProvider.getApplicationContext();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void prewarm_withoutAdapter_throws() {
+        RecyclerView recyclerView = new RecyclerView(getContext());
+        new ViewHolderPrewarmer(recyclerView).prewarm(0, 1, false);
+    }
+
+    @Test
+    public void prewarm_fillsPoolUpToTarget() {
+        ViewHolderPrewarmer prewarmer = new ViewHolderPrewarmer(mRecyclerView);
+        prewarmer.prewarm(0, 8, false);
+        prewarmer.createInIdleTime();
+
+        assertEquals(8, mRecyclerView.getRecycledViewPool().getRecycledViewCount(0));
+        assertEquals(8, prewarmer.getCreatedCount());
+        assertEquals(8, mAdapter.mCreateCount);
+
+        // already there, nothing to create
+        prewarmer.prewarm(0, 8, false);
+        prewarmer.createInIdleTime();
+        assertEquals(8, mAdapter.mCreateCount);
+    }
+
+    @Test
+    public void cancel_stopsCreating() {
+        ViewHolderPrewarmer prewarmer = new ViewHolderPrewarmer(mRecyclerView);
+        prewarmer.prewarm(0, 3, false);
+        prewarmer.cancel();
+        prewarmer.createInIdleTime();
+
+        assertEquals(0, mRecyclerView.getRecycledViewPool().getRecycledViewCount(0));
+        assertEquals(0, mAdapter.mCreateCount);
+    }
+
+    @Test
+    public void layout_usesPrewarmedViewHolders() {
+        ViewHolderPrewarmer prewarmer = new ViewHolderPrewarmer(mRecyclerView);
+        prewarmer.prewarm(0, 3, false);
+        prewarmer.createInIdleTime();
+
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        mRecyclerView.measure(View.MeasureSpec.EXACTLY | 100, View.MeasureSpec.EXACTLY | 400);
+        mRecyclerView.layout(0, 0, 100, 400);
+
+        assertEquals(4, mRecyclerView.getChildCount());
+        assertEquals(3, prewarmer.getServedCount());
+        assertEquals(4, mAdapter.mCreateCount);
+    }
+
+    @Test
+    public void prewarmInBackground_adapterThrows_retriesOnNextPrewarm() {
+        final List<Runnable> posted = new ArrayList<>();
+        RecyclerView recyclerView = new RecyclerView(getContext()) {
+            @Override
+            public boolean post(Runnable action) {
+                posted.add(action);
+                return true;
+            }
+        };
+        recyclerView.setAdapter(mAdapter);
+        final List<Runnable> tasks = new ArrayList<>();
+        ViewHolderPrewarmer prewarmer = new ViewHolderPrewarmer(recyclerView, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        RuntimeException failure = new RuntimeException("inflation failed");
+        mAdapter.mCreateFailure = failure;
+
+        prewarmer.prewarm(0, 1, true);
+        assertEquals(1, tasks.size());
+        try {
+            tasks.get(0).run();
+            fail("the exception of the adapter should be propagated to the executor");
+        } catch (RuntimeException e) {
+            assertSame(failure, e);
+        }
+        runAll(posted);
+
+        // the failed ViewHolder no longer counts as pending, so it is created again
+        mAdapter.mCreateFailure = null;
+        prewarmer.prewarm(0, 1, true);
+        assertEquals(2, tasks.size());
+        tasks.get(1).run();
+        runAll(posted);
+
+        assertEquals(1, recyclerView.getRecycledViewPool().getRecycledViewCount(0));
+        assertEquals(1, prewarmer.getCreatedCount());
+    }
+
+    private static void runAll(List<Runnable> runnables) {
+        while (!runnables.isEmpty()) {
+            runnables.remove(0).run();
+        }
+    }
+
+    private static class TestAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        int mCreateCount;
+        RuntimeException mCreateFailure;
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                int viewType) {
+            if (mCreateFailure != null) {
+                throw mCreateFailure;
+            }
+            mCreateCount++;
+            View view = new View(parent.getContext());
+            view.setLayoutParams(new RecyclerView.LayoutParams(100, 100));
+            return new RecyclerView.ViewHolder(view) {};
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 20;
+        }
+    }
+}
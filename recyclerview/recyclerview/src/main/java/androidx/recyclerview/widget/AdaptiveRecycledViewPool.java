@@ -0,0 +1,368 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * A {@link RecyclerView.RecycledViewPool} that sizes the capacity of each view type from the
+ * observed demand instead of keeping a fixed number of ViewHolders per type.
+ * <p>
+ * The pool starts with the default capacity for every view type. Whenever a ViewHolder of a type
+ * has to be created after one of that type was discarded because the pool was full, the capacity
+ * of the type grows by one. Types whose pooled ViewHolders are not used for a while shrink back.
+ * <p>
+ * The total number of ViewHolders held is bounded by a {@link Budget}, which can be shared by
+ * the pools of several RecyclerViews. When the budget is exhausted, a recycled ViewHolder
+ * replaces a pooled one of the type that is the cheapest to create across all the pools sharing
+ * the budget, based on the running average of create times, or is discarded if there is no
+ * cheaper type.
+ * <p>
+ * Calling {@link #setMaxRecycledViews(int, int)} fixes the capacity of a view type, which then
+ * stops adapting.
+ * <p>
+ * Like RecyclerView itself, this pool must only be used on the main thread.
+ */
+public class AdaptiveRecycledViewPool extends RecyclerView.RecycledViewPool {
+    private static final int DEFAULT_BUDGET = 64;
+    private static final int DEFAULT_MAX_SCRAP = 5;
+    private static final int MIN_SCRAP = 1;
+    /**
+     * Number of pool operations on a view type between two checks for unused ViewHolders.
+     */
+    private static final int TRIM_INTERVAL = 64;
+
+    /**
+     * Upper bound on the number of ViewHolders held by all the pools sharing it.
+     * <p>
+     * Like the pools, a budget must only be used on the main thread.
+     */
+    public static final class Budget {
+        private final int mMaxRecycledViews;
+        int mRecycledViewCount;
+        final ArrayList<PoolReference> mPools = new ArrayList<>();
+
+        /**
+         * @param maxRecycledViews The maximum number of ViewHolders held by all the pools sharing
+         *                         this budget.
+         */
+        public Budget(int maxRecycledViews) {
+            if (maxRecycledViews < 0) {
+                throw new IllegalArgumentException("maxRecycledViews must be non-negative");
+            }
+            mMaxRecycledViews = maxRecycledViews;
+        }
+
+        /**
+         * Returns the maximum number of ViewHolders held by all the pools sharing this budget.
+         */
+        public int getMaxRecycledViews() {
+            return mMaxRecycledViews;
+        }
+
+        /**
+         * Returns the number of ViewHolders currently held by all the pools sharing this budget.
+         */
+        public int getRecycledViewCount() {
+            releaseCollectedPools();
+            return mRecycledViewCount;
+        }
+
+        /**
+         * Returns whether a ViewHolder can be pooled without discarding another one.
+         */
+        boolean hasRoom() {
+            if (mRecycledViewCount >= mMaxRecycledViews) {
+                releaseCollectedPools();
+            }
+            return mRecycledViewCount < mMaxRecycledViews;
+        }
+
+        /**
+         * Releases the ViewHolders held by the pools that were garbage collected.
+         */
+        private void releaseCollectedPools() {
+            for (int i = mPools.size() - 1; i >= 0; i--) {
+                final PoolReference reference = mPools.get(i);
+                if (reference.get() == null) {
+                    mRecycledViewCount -= reference.mRecycledViewCount;
+                    mPools.remove(i);
+                }
+            }
+        }
+
+        /**
+         * Discards a pooled ViewHolder of the view type that is the cheapest to create, if it is
+         * cheaper than {@code createTimeNs}.
+         *
+         * @return true if a ViewHolder was discarded
+         */
+        boolean evictCheaperThan(long createTimeNs) {
+            AdaptiveRecycledViewPool victimPool = null;
+            ScrapData victim = null;
+            long victimCreateTimeNs = createTimeNs;
+            for (int i = mPools.size() - 1; i >= 0; i--) {
+                final PoolReference reference = mPools.get(i);
+                final AdaptiveRecycledViewPool pool = reference.get();
+                if (pool == null) {
+                    mRecycledViewCount -= reference.mRecycledViewCount;
+                    mPools.remove(i);
+                    continue;
+                }
+                final SparseArray<ScrapData> scrap = pool.mScrap;
+                for (int j = 0; j < scrap.size(); j++) {
+                    final ScrapData data = scrap.valueAt(j);
+                    if (!data.mScrapHeap.isEmpty()
+                            && data.mCreateRunningAverageNs < victimCreateTimeNs) {
+                        victimPool = pool;
+                        victim = data;
+                        victimCreateTimeNs = data.mCreateRunningAverageNs;
+                    }
+                }
+            }
+            if (victim == null) {
+                return false;
+            }
+            victim.mScrapHeap.remove(victim.mScrapHeap.size() - 1);
+            victimPool.mEvictionCount++;
+            victimPool.addToBudget(-1);
+            return true;
+        }
+    }
+
+    /**
+     * Reference from a budget to a pool sharing it, which keeps the number of ViewHolders the
+     * pool holds, so that they are released from the budget once the pool is garbage collected.
+     */
+    static final class PoolReference extends WeakReference<AdaptiveRecycledViewPool> {
+        int mRecycledViewCount;
+
+        PoolReference(AdaptiveRecycledViewPool pool) {
+            super(pool);
+        }
+    }
+
+    /**
+     * Demand observed for a single view type.
+     */
+    private static class Demand {
+        // the capacity was set by the app and must not change
+        boolean mFixed;
+        // ViewHolders discarded because the type was full since the last miss
+        int mDiscardedSinceMiss;
+        // smallest number of pooled ViewHolders since the last trim, these were never needed
+        int mLowWatermark;
+        int mOperationsSinceTrim;
+    }
+
+    private final Budget mBudget;
+    private final PoolReference mReference;
+    private final SparseArray<Demand> mDemand = new SparseArray<>();
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mCreateCount;
+    private int mDiscardCount;
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    int mEvictionCount;
+
+    /**
+     * Creates a pool with a budget of its own.
+     */
+    public AdaptiveRecycledViewPool() {
+        this(new Budget(DEFAULT_BUDGET));
+    }
+
+    /**
+     * Creates a pool that shares the given budget with the other pools using it.
+     *
+     * @param budget Budget bounding the ViewHolders held by this pool and the others sharing it.
+     */
+    public AdaptiveRecycledViewPool(@NonNull Budget budget) {
+        mBudget = budget;
+        mReference = new PoolReference(this);
+        budget.mPools.add(mReference);
+    }
+
+    /**
+     * Returns the budget this pool belongs to.
+     */
+    @NonNull
+    public Budget getBudget() {
+        return mBudget;
+    }
+
+    /**
+     * Returns the number of ViewHolders of the given type this pool currently holds at most.
+     */
+    public int getMaxRecycledViews(int viewType) {
+        final ScrapData data = mScrap.get(viewType);
+        return data == null ? DEFAULT_MAX_SCRAP : data.mMaxScrap;
+    }
+
+    /**
+     * Returns the number of times {@link #getRecycledView(int)} returned a ViewHolder.
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Returns the number of times {@link #getRecycledView(int)} had no ViewHolder to return.
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the number of ViewHolders created by the RecyclerViews using this pool.
+     */
+    public int getCreateCount() {
+        return mCreateCount;
+    }
+
+    /**
+     * Returns the number of recycled ViewHolders that were not pooled, either because their view
+     * type was full or because the budget was exhausted.
+     */
+    public int getDiscardCount() {
+        return mDiscardCount;
+    }
+
+    /**
+     * Returns the number of pooled ViewHolders of this pool that were discarded to make room for
+     * a ViewHolder that is more expensive to create, from this pool or another one sharing the
+     * budget.
+     */
+    public int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    @Override
+    public void clear() {
+        addToBudget(-size());
+        super.clear();
+    }
+
+    @Override
+    public void setMaxRecycledViews(int viewType, int max) {
+        getDemand(viewType).mFixed = true;
+        final int oldSize = getRecycledViewCount(viewType);
+        super.setMaxRecycledViews(viewType, max);
+        addToBudget(getRecycledViewCount(viewType) - oldSize);
+    }
+
+    @Nullable
+    @Override
+    public RecyclerView.ViewHolder getRecycledView(int viewType) {
+        final RecyclerView.ViewHolder holder = super.getRecycledView(viewType);
+        final Demand demand = getDemand(viewType);
+        if (holder != null) {
+            mHitCount++;
+            addToBudget(-1);
+            demand.mLowWatermark = Math.min(demand.mLowWatermark,
+                    getRecycledViewCount(viewType));
+        } else {
+            mMissCount++;
+            demand.mLowWatermark = 0;
+            if (demand.mDiscardedSinceMiss > 0 && !demand.mFixed) {
+                // a larger capacity would have saved this creation
+                final ScrapData data = mScrap.get(viewType);
+                if (data != null) {
+                    data.mMaxScrap++;
+                }
+            }
+            demand.mDiscardedSinceMiss = 0;
+        }
+        onOperation(viewType, demand);
+        return holder;
+    }
+
+    @Override
+    public void putRecycledView(@NonNull RecyclerView.ViewHolder scrap) {
+        final int viewType = scrap.getItemViewType();
+        final Demand demand = getDemand(viewType);
+        final int oldSize = getRecycledViewCount(viewType);
+        final ScrapData data = mScrap.get(viewType);
+        final boolean fits = oldSize < data.mMaxScrap
+                && (mBudget.hasRoom() || mBudget.evictCheaperThan(data.mCreateRunningAverageNs));
+        if (fits) {
+            super.putRecycledView(scrap);
+            addToBudget(getRecycledViewCount(viewType) - oldSize);
+        } else {
+            mDiscardCount++;
+            demand.mDiscardedSinceMiss++;
+        }
+        onOperation(viewType, demand);
+    }
+
+    @Override
+    void factorInCreateTime(int viewType, long createTimeNs) {
+        super.factorInCreateTime(viewType, createTimeNs);
+        mCreateCount++;
+    }
+
+    /**
+     * Periodically shrinks the capacity of the type by half the number of ViewHolders that were
+     * never taken out of the pool since the previous check.
+     */
+    private void onOperation(int viewType, Demand demand) {
+        if (++demand.mOperationsSinceTrim < TRIM_INTERVAL) {
+            return;
+        }
+        demand.mOperationsSinceTrim = 0;
+        final ScrapData data = mScrap.get(viewType);
+        if (data == null) {
+            // only misses so far
+            return;
+        }
+        if (!demand.mFixed && demand.mLowWatermark > 0 && data.mMaxScrap > MIN_SCRAP) {
+            data.mMaxScrap = Math.max(MIN_SCRAP,
+                    data.mMaxScrap - Math.max(1, demand.mLowWatermark / 2));
+            final ArrayList<RecyclerView.ViewHolder> scrapHeap = data.mScrapHeap;
+            while (scrapHeap.size() > data.mMaxScrap) {
+                scrapHeap.remove(scrapHeap.size() - 1);
+                addToBudget(-1);
+            }
+        }
+        demand.mLowWatermark = data.mScrapHeap.size();
+    }
+
+    /**
+     * Counts ViewHolders added to or removed from this pool against the budget.
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void addToBudget(int count) {
+        mReference.mRecycledViewCount += count;
+        mBudget.mRecycledViewCount += count;
+    }
+
+    private Demand getDemand(int viewType) {
+        Demand demand = mDemand.get(viewType);
+        if (demand == null) {
+            demand = new Demand();
+            mDemand.put(viewType, demand);
+        }
+        return demand;
+    }
+}
@@ -21,6 +21,8 @@ import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.os.CancellationSignal;
+import androidx.core.os.OperationCanceledException;
 
 import java.util.Collections;
 import java.util.List;
@@ -48,6 +50,10 @@ import java.util.concurrent.Executor;
  * updated. If you're dispatching list updates directly to an Adapter, this means the Adapter can
  * safely access list items and total size via {@link #getCurrentList()}.
  * <p>
+ * Submitting a new List cancels the diff of any previously submitted List that is not yet
+ * displayed: a diff that has not started is skipped, and a diff that is running stops at its next
+ * cancellation check. Rapid updates therefore only pay for the diff of the latest List.
+ * <p>
  * A complete usage pattern with Room would look like this:
  * <pre>
  * {@literal @}Dao
@@ -147,6 +153,45 @@ public class AsyncListDiffer<T> {
 
     private final List<ListListener<T>> mListeners = new CopyOnWriteArrayList<>();
 
+    /**
+     * Listener for the cost of the diffs computed by an AsyncListDiffer.
+     */
+    public interface DiffMetricsListener {
+        /**
+         * Called on the main thread after the updates between two lists were dispatched.
+         *
+         * @param oldListSize The size of the list that was displayed.
+         * @param newListSize The size of the list that is now displayed.
+         * @param calculationNanos The time spent calculating the diff on the background thread,
+         *                         or 0 if the updates were supplied with a {@link ListPatch}.
+         * @param latencyNanos The time between the submission of the new list and the dispatch
+         *                     of its updates, including the time waiting for the background and
+         *                     main threads.
+         */
+        void onDiffDispatched(int oldListSize, int newListSize, long calculationNanos,
+                long latencyNanos);
+    }
+
+    private final List<DiffMetricsListener> mMetricsListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Updates between the current List and a new List, supplied by callers that already know
+     * them.
+     *
+     * @see #submitList(List, ListPatch, Runnable)
+     */
+    public interface ListPatch {
+        /**
+         * Dispatches the update operations that convert the current list into the new one, in
+         * the same way as {@link DiffUtil.DiffResult#dispatchUpdatesTo(ListUpdateCallback)}.
+         * <p>
+         * This may be called more than once and must dispatch the same updates every time.
+         *
+         * @param updateCallback The callback to receive the update operations.
+         */
+        void dispatchUpdatesTo(@NonNull ListUpdateCallback updateCallback);
+    }
+
     /**
      * Convenience for
      * {@code AsyncListDiffer(new AdapterListUpdateCallback(adapter),
@@ -200,6 +245,11 @@ public class AsyncListDiffer<T> {
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     int mMaxScheduledGeneration;
 
+    // Cancels the diff of the latest submitted list, null if there is none in flight
+    @Nullable
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    CancellationSignal mDiffCancellationSignal;
+
     /**
      * Get the current List - any diffing to present this list has already been computed and
      * dispatched via the ListUpdateCallback.
@@ -252,6 +302,8 @@ public class AsyncListDiffer<T> {
             @Nullable final Runnable commitCallback) {
         // incrementing generation means any currently-running diffs are discarded when they finish
         final int runGeneration = ++mMaxScheduledGeneration;
+        // and canceling lets them stop early, or not start at all
+        cancelPendingDiff();
 
         if (newList == mList) {
             // nothing to do (Note - still had to inc generation, since may have ongoing work)
@@ -286,10 +338,94 @@ public class AsyncListDiffer<T> {
         }
 
         final List<T> oldList = mList;
+        final long submitTime = System.nanoTime();
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        mDiffCancellationSignal = cancellationSignal;
         mConfig.getBackgroundThreadExecutor().execute(new Runnable() {
             @Override
             public void run() {
-                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                if (cancellationSignal.isCanceled()) {
+                    // a newer list was submitted before this diff started
+                    return;
+                }
+                final long calculationStart = System.nanoTime();
+                final DiffUtil.DiffResult result;
+                try {
+                    result = calculateDiff(oldList, newList, cancellationSignal);
+                } catch (OperationCanceledException e) {
+                    return;
+                }
+                final long calculationNanos = System.nanoTime() - calculationStart;
+
+                mMainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mMaxScheduledGeneration == runGeneration) {
+                            mDiffCancellationSignal = null;
+                            latchList(newList, result, commitCallback);
+                            dispatchMetrics(oldList.size(), newList.size(), calculationNanos,
+                                    System.nanoTime() - submitTime);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Pass a new List to the AdapterHelper along with the updates that convert the current List
+     * into it, skipping the diff.
+     * <p>
+     * This is meant for small, known changes such as a single item inserted at the top of a feed:
+     * the new List is displayed synchronously, and any diff still in progress for a previously
+     * submitted List is canceled.
+     * <p>
+     * The patch is dispatched twice: once to check that it fits the current and new Lists, then
+     * to the ListUpdateCallback.
+     *
+     * @param newList The new List to display.
+     * @param patch The updates that convert {@link #getCurrentList()} into {@code newList}.
+     * @param commitCallback Optional runnable that is executed when the List is committed, if
+     *                       it is committed.
+     *
+     * @throws IllegalArgumentException if the patch does not convert a List the size of the
+     * current List into one the size of {@code newList}.
+     */
+    public void submitList(@NonNull final List<T> newList, @NonNull ListPatch patch,
+            @Nullable final Runnable commitCallback) {
+        final long submitTime = System.nanoTime();
+        final int oldSize = mReadOnlyList.size();
+        final PatchSizeChecker checker = new PatchSizeChecker(oldSize);
+        patch.dispatchUpdatesTo(checker);
+        if (checker.mSize != newList.size()) {
+            throw new IllegalArgumentException("The patch converts a list of " + oldSize
+                    + " items into " + checker.mSize + " items, but the new list has "
+                    + newList.size() + " items");
+        }
+
+        ++mMaxScheduledGeneration;
+        cancelPendingDiff();
+
+        final List<T> previousList = mReadOnlyList;
+        mList = newList;
+        // notify last, after list is updated
+        mReadOnlyList = Collections.unmodifiableList(newList);
+        patch.dispatchUpdatesTo(mUpdateCallback);
+        onCurrentListChanged(previousList, commitCallback);
+        dispatchMetrics(oldSize, newList.size(), 0, System.nanoTime() - submitTime);
+    }
+
+    private void cancelPendingDiff() {
+        if (mDiffCancellationSignal != null) {
+            mDiffCancellationSignal.cancel();
+            mDiffCancellationSignal = null;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    DiffUtil.DiffResult calculateDiff(final List<T> oldList, final List<T> newList,
+            CancellationSignal cancellationSignal) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
                     @Override
                     public int getOldListSize() {
                         return oldList.size();
@@ -342,18 +478,7 @@ public class AsyncListDiffer<T> {
                         // non-null which is the only case handled above.
                         throw new AssertionError();
                     }
-                });
-
-                mMainThreadExecutor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (mMaxScheduledGeneration == runGeneration) {
-                            latchList(newList, result, commitCallback);
-                        }
-                    }
-                });
-            }
-        });
+                }, true, cancellationSignal);
     }
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -380,6 +505,14 @@ public class AsyncListDiffer<T> {
         }
     }
 
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void dispatchMetrics(int oldListSize, int newListSize, long calculationNanos,
+            long latencyNanos) {
+        for (DiffMetricsListener listener : mMetricsListeners) {
+            listener.onDiffDispatched(oldListSize, newListSize, calculationNanos, latencyNanos);
+        }
+    }
+
     /**
      * Add a ListListener to receive updates when the current List changes.
      *
@@ -402,4 +535,68 @@ public class AsyncListDiffer<T> {
     public void removeListListener(@NonNull ListListener<T> listener) {
         mListeners.remove(listener);
     }
+
+    /**
+     * Add a DiffMetricsListener to be told how long each diff took.
+     *
+     * @param listener Listener to receive the metrics.
+     *
+     * @see #removeDiffMetricsListener(DiffMetricsListener)
+     */
+    public void addDiffMetricsListener(@NonNull DiffMetricsListener listener) {
+        mMetricsListeners.add(listener);
+    }
+
+    /**
+     * Remove a previously registered DiffMetricsListener.
+     *
+     * @param listener Previously registered listener.
+     * @see #addDiffMetricsListener(DiffMetricsListener)
+     */
+    public void removeDiffMetricsListener(@NonNull DiffMetricsListener listener) {
+        mMetricsListeners.remove(listener);
+    }
+
+    /**
+     * Tracks the size of the list while a {@link ListPatch} is dispatched, checking that every
+     * update is within bounds.
+     */
+    private static class PatchSizeChecker implements ListUpdateCallback {
+        int mSize;
+
+        PatchSizeChecker(int size) {
+            mSize = size;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            checkRange(position, 0, mSize);
+            mSize += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            checkRange(position, count, mSize);
+            mSize -= count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            checkRange(fromPosition, 1, mSize);
+            checkRange(toPosition, 1, mSize);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            checkRange(position, count, mSize);
+        }
+
+        private static void checkRange(int position, int count, int size) {
+            if (position < 0 || count < 0 || position + count > size) {
+                throw new IllegalArgumentException("The patch updates " + count
+                        + " items at position " + position + " of a list of " + size
+                        + " items");
+            }
+        }
+    }
 }
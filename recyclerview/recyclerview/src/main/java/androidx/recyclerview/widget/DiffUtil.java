@@ -19,6 +19,7 @@ package androidx.recyclerview.widget;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.os.CancellationSignal;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -26,6 +27,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 
@@ -61,6 +63,10 @@ import java.util.List;
  * the same constraint (e.g. a created timestamp for a list of posts), you can disable move
  * detection to improve performance.
  * <p>
+ * If the items of your lists have stable keys, such as database ids, you can extend
+ * {@link KeyedCallback} instead of {@link Callback}. DiffUtil then matches items by key and
+ * detects moves in O(N log N) time, however many items were added, removed or moved.
+ * <p>
  * The actual runtime of the algorithm significantly depends on the number of changes in the list
  * and the cost of your comparison methods. Below are some average run times for reference:
  * (The test list is composed of random UUID Strings and the tests are run on Nexus 5X with M)
@@ -121,6 +127,28 @@ public class DiffUtil {
      */
     @NonNull
     public static DiffResult calculateDiff(@NonNull Callback cb, boolean detectMoves) {
+        return calculateDiff(cb, detectMoves, null);
+    }
+
+    /**
+     * Calculates the list of update operations that can covert one list into the other one,
+     * periodically checking whether the calculation was canceled.
+     *
+     * @param cb The callback that acts as a gateway to the backing list data
+     * @param detectMoves True if DiffUtil should try to detect moved items, false otherwise.
+     * @param cancellationSignal Signal to check, or null if the calculation cannot be canceled
+     *
+     * @return A DiffResult that contains the information about the edit sequence to convert the
+     * old list into the new list.
+     * @throws androidx.core.os.OperationCanceledException if the signal was canceled before the
+     * calculation completed
+     */
+    @NonNull
+    static DiffResult calculateDiff(@NonNull Callback cb, boolean detectMoves,
+            @Nullable CancellationSignal cancellationSignal) {
+        if (cb instanceof KeyedCallback) {
+            return calculateKeyedDiff((KeyedCallback) cb, detectMoves, cancellationSignal);
+        }
         final int oldSize = cb.getOldListSize();
         final int newSize = cb.getNewListSize();
 
@@ -142,8 +170,9 @@ public class DiffUtil {
         // We pool the ranges to avoid allocations for each recursive call.
         final List<Range> rangePool = new ArrayList<>();
         while (!stack.isEmpty()) {
+            throwIfCanceled(cancellationSignal);
             final Range range = stack.remove(stack.size() - 1);
-            final Snake snake = midPoint(range, cb, forward, backward);
+            final Snake snake = midPoint(range, cb, forward, backward, cancellationSignal);
             if (snake != null) {
                 // if it has a diagonal, save it
                 if (snake.diagonalSize() > 0) {
@@ -176,7 +205,104 @@ public class DiffUtil {
 
         return new DiffResult(cb, diagonals,
                 forward.backingData(), backward.backingData(),
-                detectMoves);
+                detectMoves, null, cancellationSignal);
+    }
+
+    /**
+     * Calculates the diff by matching items on their keys instead of running Myers' algorithm.
+     * <p>
+     * The longest subsequence of matched items that kept their relative order becomes the
+     * diagonals, every other match is a move. This yields the fewest moves for the matching.
+     */
+    private static DiffResult calculateKeyedDiff(KeyedCallback cb, boolean detectMoves,
+            @Nullable CancellationSignal cancellationSignal) {
+        final int oldSize = cb.getOldListSize();
+        final int newSize = cb.getNewListSize();
+
+        // map each key to its first position in the old list, and chain the positions that share
+        // a key so that duplicates are matched in order
+        final HashMap<Object, Integer> oldPositions = new HashMap<>();
+        final int[] nextOldPositions = new int[oldSize];
+        for (int oldPos = oldSize - 1; oldPos >= 0; oldPos--) {
+            final Integer next = oldPositions.put(cb.getOldItemKey(oldPos), oldPos);
+            nextOldPositions[oldPos] = next == null ? DiffResult.NO_POSITION : next;
+        }
+        final int[] matches = new int[newSize];
+        for (int newPos = 0; newPos < newSize; newPos++) {
+            final Object key = cb.getNewItemKey(newPos);
+            final Integer oldPos = oldPositions.get(key);
+            if (oldPos == null) {
+                matches[newPos] = DiffResult.NO_POSITION;
+                continue;
+            }
+            final int next = nextOldPositions[oldPos];
+            if (next == DiffResult.NO_POSITION) {
+                oldPositions.remove(key);
+            } else {
+                oldPositions.put(key, next);
+            }
+            matches[newPos] = oldPos;
+        }
+        throwIfCanceled(cancellationSignal);
+
+        // longest increasing subsequence of the matched old positions, in new list order.
+        // tails[i] is the new position ending the smallest subsequence of length i + 1 found so
+        // far and previous links each new position to the one before it in its subsequence.
+        final int[] tails = new int[newSize];
+        final int[] previous = new int[newSize];
+        int length = 0;
+        for (int newPos = 0; newPos < newSize; newPos++) {
+            final int oldPos = matches[newPos];
+            if (oldPos == DiffResult.NO_POSITION) {
+                continue;
+            }
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (matches[tails[mid]] < oldPos) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[newPos] = low > 0 ? tails[low - 1] : DiffResult.NO_POSITION;
+            tails[low] = newPos;
+            if (low == length) {
+                length++;
+            }
+        }
+        final int[] anchors = new int[length];
+        int newPos = length > 0 ? tails[length - 1] : DiffResult.NO_POSITION;
+        for (int i = length - 1; i >= 0; i--) {
+            anchors[i] = newPos;
+            newPos = previous[newPos];
+        }
+
+        // merge consecutive anchors into diagonals, they are already sorted
+        final List<Diagonal> diagonals = new ArrayList<>();
+        int index = 0;
+        while (index < length) {
+            final int startY = anchors[index];
+            final int startX = matches[startY];
+            int size = 1;
+            while (index + size < length && anchors[index + size] == startY + size
+                    && matches[startY + size] == startX + size) {
+                size++;
+            }
+            diagonals.add(new Diagonal(startX, startY, size));
+            index += size;
+        }
+
+        return new DiffResult(cb, diagonals, new int[oldSize], new int[newSize], detectMoves,
+                matches, cancellationSignal);
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    static void throwIfCanceled(@Nullable CancellationSignal cancellationSignal) {
+        if (cancellationSignal != null) {
+            cancellationSignal.throwIfCanceled();
+        }
     }
 
     /**
@@ -187,7 +313,8 @@ public class DiffUtil {
             Range range,
             Callback cb,
             CenteredArray forward,
-            CenteredArray backward) {
+            CenteredArray backward,
+            @Nullable CancellationSignal cancellationSignal) {
         if (range.oldSize() < 1 || range.newSize() < 1) {
             return null;
         }
@@ -195,6 +322,7 @@ public class DiffUtil {
         forward.set(1, range.oldListStart);
         backward.set(1, range.oldListEnd);
         for (int d = 0; d < max; d++) {
+            throwIfCanceled(cancellationSignal);
             Snake snake = forward(range, cb, forward, backward, d);
             if (snake != null) {
                 return snake;
@@ -397,6 +525,48 @@ public class DiffUtil {
         }
     }
 
+    /**
+     * A {@link Callback} for lists whose items have stable keys, such as database ids.
+     * <p>
+     * When given a KeyedCallback, {@link DiffUtil#calculateDiff(Callback, boolean)} matches items
+     * whose keys are equal with a hash map instead of running Myers' algorithm, then keeps the
+     * longest run of matched items that did not change order in place and reports every other
+     * matched item as moved. This takes O(N log N) time where N is the size of the lists, no
+     * matter how many items changed. The update operations may differ from the ones Myers'
+     * algorithm would find, but they convert the old list into the new one all the same.
+     * <p>
+     * Keys are compared with {@link Object#equals(Object)} and {@link Object#hashCode()}. Items
+     * that share a key are matched in the order they appear in both lists.
+     */
+    public abstract static class KeyedCallback extends Callback {
+        /**
+         * Returns the key of an item in the old list.
+         *
+         * @param oldItemPosition The position of the item in the old list
+         * @return The key of the item, equal to the key of the same item in the new list.
+         */
+        @NonNull
+        public abstract Object getOldItemKey(int oldItemPosition);
+
+        /**
+         * Returns the key of an item in the new list.
+         *
+         * @param newItemPosition The position of the item in the new list
+         * @return The key of the item, equal to the key of the same item in the old list.
+         */
+        @NonNull
+        public abstract Object getNewItemKey(int newItemPosition);
+
+        /**
+         * Returns whether the keys of the two items are equal. Keyed diffs only compare keys and
+         * never call this method.
+         */
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return getOldItemKey(oldItemPosition).equals(getNewItemKey(newItemPosition));
+        }
+    }
+
     /**
      * Callback for calculating the diff between two non-null items in a list.
      * <p>
@@ -659,9 +829,14 @@ public class DiffUtil {
          * @param oldItemStatuses An int[] that can be re-purposed to keep metadata
          * @param newItemStatuses An int[] that can be re-purposed to keep metadata
          * @param detectMoves     True if this DiffResult will try to detect moved items
+         * @param keyedMatches    For keyed diffs, the old position matched with each new
+         *                        position or {@code NO_POSITION}. Moves are then taken from these
+         *                        matches instead of being searched for.
+         * @param cancellationSignal Signal checked while searching for moves, or null
          */
         DiffResult(Callback callback, List<Diagonal> diagonals, int[] oldItemStatuses,
-                int[] newItemStatuses, boolean detectMoves) {
+                int[] newItemStatuses, boolean detectMoves, @Nullable int[] keyedMatches,
+                @Nullable CancellationSignal cancellationSignal) {
             mDiagonals = diagonals;
             mOldItemStatuses = oldItemStatuses;
             mNewItemStatuses = newItemStatuses;
@@ -672,7 +847,7 @@ public class DiffUtil {
             mNewListSize = callback.getNewListSize();
             mDetectMoves = detectMoves;
             addEdgeDiagonals();
-            findMatchingItems();
+            findMatchingItems(keyedMatches, cancellationSignal);
         }
 
         /**
@@ -692,9 +867,10 @@ public class DiffUtil {
         /**
          * Find position mapping from old list to new list.
          * If moves are requested, we'll also try to do an n^2 search between additions and
-         * removals to find moves.
+         * removals to find moves, unless the moves are already known from the keys.
          */
-        private void findMatchingItems() {
+        private void findMatchingItems(@Nullable int[] keyedMatches,
+                @Nullable CancellationSignal cancellationSignal) {
             for (Diagonal diagonal : mDiagonals) {
                 for (int offset = 0; offset < diagonal.size; offset++) {
                     int posX = diagonal.x + offset;
@@ -707,18 +883,39 @@ public class DiffUtil {
             }
             // now all matches are marked, lets look for moves
             if (mDetectMoves) {
-                // traverse each addition / removal from the end of the list, find matching
-                // addition removal from before
-                findMoveMatches();
+                if (keyedMatches != null) {
+                    findKeyedMoveMatches(keyedMatches);
+                } else {
+                    // traverse each addition / removal from the end of the list, find matching
+                    // addition removal from before
+                    findMoveMatches(cancellationSignal);
+                }
+            }
+        }
+
+        /**
+         * Marks every keyed match that is not on a diagonal as a move.
+         */
+        private void findKeyedMoveMatches(int[] keyedMatches) {
+            for (int posY = 0; posY < mNewListSize; posY++) {
+                final int posX = keyedMatches[posY];
+                if (posX != NO_POSITION && mNewItemStatuses[posY] == 0) {
+                    boolean contentsMatching = mCallback.areContentsTheSame(posX, posY);
+                    final int changeFlag = contentsMatching ? FLAG_MOVED_NOT_CHANGED
+                            : FLAG_MOVED_CHANGED;
+                    mOldItemStatuses[posX] = (posY << FLAG_OFFSET) | changeFlag;
+                    mNewItemStatuses[posY] = (posX << FLAG_OFFSET) | changeFlag;
+                }
             }
         }
 
-        private void findMoveMatches() {
+        private void findMoveMatches(@Nullable CancellationSignal cancellationSignal) {
             // for each removal, find matching addition
             int posX = 0;
             for (Diagonal diagonal : mDiagonals) {
                 while (posX < diagonal.x) {
                     if (mOldItemStatuses[posX] == 0) {
+                        throwIfCanceled(cancellationSignal);
                         // there is a removal, find matching addition from the rest
                         findMatchingAddition(posX);
                     }
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.os.TraceCompat;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates ViewHolders ahead of time and puts them in the {@link RecyclerView.RecycledViewPool}
+ * of a RecyclerView, so that the first scroll through a screen does not have to create them.
+ * <p>
+ * Call {@link #prewarm(int, int, boolean)} with the number of ViewHolders of a view type the pool
+ * should hold. ViewHolders whose layouts can be inflated off the main thread are created by the
+ * background executor, if one was given. The others are created on the main thread, in the time
+ * left before the next frame, the same way RecyclerView prefetches items, so that pre-warming
+ * does not cause jank of its own.
+ * <p>
+ * The RecyclerView must have its adapter set before calling {@link #prewarm(int, int, boolean)}.
+ * ViewHolders created for an adapter that was replaced in the meantime are dropped.
+ * <p>
+ * The methods of this class must be called on the main thread.
+ */
+public final class ViewHolderPrewarmer {
+    private static final String TRACE_PREWARM_TAG = "RV Prewarm";
+    private static final long DEFAULT_FRAME_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final RecyclerView mRecyclerView;
+    @Nullable
+    private final Executor mBackgroundExecutor;
+
+    // view type -> number of ViewHolders the pool should hold
+    private final SparseIntArray mTargets = new SparseIntArray();
+    // view type -> number of ViewHolders being created in the background
+    private final SparseIntArray mPending = new SparseIntArray();
+    // view type -> whether ViewHolders of that type can be created in the background
+    private final SparseBooleanArray mInBackground = new SparseBooleanArray();
+    // pre-warmed ViewHolders that were not attached yet
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final Set<RecyclerView.ViewHolder> mPrewarmed =
+            Collections.newSetFromMap(new WeakHashMap<RecyclerView.ViewHolder, Boolean>());
+
+    // incremented on cancel, so that background work started before it is dropped
+    private int mGeneration;
+    private boolean mIdleWorkPosted;
+
+    private int mCreatedCount;
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    int mServedCount;
+
+    private final Runnable mIdleWork = new Runnable() {
+        @Override
+        public void run() {
+            mIdleWorkPosted = false;
+            createInIdleTime();
+        }
+    };
+
+    private final RecyclerView.OnChildAttachStateChangeListener mAttachListener =
+            new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(@NonNull View view) {
+                    final RecyclerView.ViewHolder holder = mRecyclerView.getChildViewHolder(view);
+                    if (holder != null && mPrewarmed.remove(holder)) {
+                        mServedCount++;
+                    }
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(@NonNull View view) {
+                }
+            };
+
+    /**
+     * Creates a pre-warmer that creates every ViewHolder on the main thread.
+     *
+     * @param recyclerView RecyclerView whose pool receives the ViewHolders.
+     */
+    public ViewHolderPrewarmer(@NonNull RecyclerView recyclerView) {
+        this(recyclerView, null);
+    }
+
+    /**
+     * Creates a pre-warmer.
+     *
+     * @param recyclerView       RecyclerView whose pool receives the ViewHolders.
+     * @param backgroundExecutor Executor creating the ViewHolders that can be created off the main
+     *                           thread, or null to create every ViewHolder on the main thread.
+     */
+    public ViewHolderPrewarmer(@NonNull RecyclerView recyclerView,
+            @Nullable Executor backgroundExecutor) {
+        mRecyclerView = recyclerView;
+        mBackgroundExecutor = backgroundExecutor;
+        recyclerView.addOnChildAttachStateChangeListener(mAttachListener);
+    }
+
+    /**
+     * Fills the pool of the RecyclerView with ViewHolders of the given type, until it holds
+     * {@code targetCount} of them. The capacity of the pool for that type is raised to
+     * {@code targetCount} if it is lower.
+     * <p>
+     * Calling this method again for the same type replaces its target count.
+     *
+     * @param viewType     The view type of the ViewHolders to create.
+     * @param targetCount  The number of ViewHolders of that type the pool should hold.
+     * @param inBackground True if the adapter can create ViewHolders of this type off the main
+     *                     thread, which requires their layouts not to touch the main thread while
+     *                     being inflated. Ignored if there is no background executor.
+     */
+    public void prewarm(int viewType, int targetCount, boolean inBackground) {
+        if (targetCount < 0) {
+            throw new IllegalArgumentException("targetCount must be non-negative");
+        }
+        final RecyclerView.Adapter<?> adapter = mRecyclerView.getAdapter();
+        if (adapter == null) {
+            throw new IllegalStateException("The RecyclerView must have an adapter to prewarm"
+                    + " ViewHolders");
+        }
+        final RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+        final int pooled = pool.getRecycledViewCount(viewType);
+        if (pool.mScrap.get(viewType).mMaxScrap < targetCount) {
+            pool.setMaxRecycledViews(viewType, targetCount);
+        }
+        mTargets.put(viewType, targetCount);
+        mInBackground.put(viewType, inBackground);
+
+        if (inBackground && mBackgroundExecutor != null) {
+            final int missing = targetCount - pooled - mPending.get(viewType);
+            for (int i = 0; i < missing; i++) {
+                createInBackground(adapter, viewType);
+            }
+        } else {
+            postIdleWork();
+        }
+    }
+
+    /**
+     * Stops creating ViewHolders. The ViewHolders already in the pool stay there, and the ones
+     * being created in the background are dropped.
+     */
+    public void cancel() {
+        mGeneration++;
+        mTargets.clear();
+        mPending.clear();
+        mInBackground.clear();
+        if (mIdleWorkPosted) {
+            mRecyclerView.removeCallbacks(mIdleWork);
+            mIdleWorkPosted = false;
+        }
+    }
+
+    /**
+     * Cancels the pending work and stops tracking the ViewHolders served by this pre-warmer.
+     */
+    public void release() {
+        cancel();
+        mRecyclerView.removeOnChildAttachStateChangeListener(mAttachListener);
+    }
+
+    /**
+     * Returns the number of ViewHolders this pre-warmer put in the pool.
+     */
+    public int getCreatedCount() {
+        return mCreatedCount;
+    }
+
+    /**
+     * Returns the number of pre-warmed ViewHolders the RecyclerView used instead of creating new
+     * ones.
+     */
+    public int getServedCount() {
+        return mServedCount;
+    }
+
+    private void createInBackground(final RecyclerView.Adapter<?> adapter, final int viewType) {
+        final int generation = mGeneration;
+        mPending.put(viewType, mPending.get(viewType) + 1);
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                RecyclerView.ViewHolder holder = null;
+                try {
+                    holder = adapter.createViewHolder(mRecyclerView, viewType);
+                } finally {
+                    // Even if the adapter throws, the ViewHolder must no longer count as pending,
+                    // otherwise later calls to prewarm would never create it.
+                    final RecyclerView.ViewHolder created = holder;
+                    mRecyclerView.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onCreatedInBackground(adapter, viewType, created, generation);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void onCreatedInBackground(RecyclerView.Adapter<?> adapter, int viewType,
+            @Nullable RecyclerView.ViewHolder holder, int generation) {
+        if (generation != mGeneration) {
+            return;
+        }
+        mPending.put(viewType, mPending.get(viewType) - 1);
+        if (holder != null && adapter == mRecyclerView.getAdapter()) {
+            putIfNeeded(holder);
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void createInIdleTime() {
+        final RecyclerView.Adapter<?> adapter = mRecyclerView.getAdapter();
+        if (adapter == null) {
+            return;
+        }
+        try {
+            TraceCompat.beginSection(TRACE_PREWARM_TAG);
+            final RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+            final long deadlineNs = getNextFrameNs();
+            // When the RecyclerView is idle, make progress even if a single ViewHolder takes
+            // longer than a frame to create.
+            boolean mustCreate = mRecyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE;
+            boolean done = true;
+            for (int i = 0; i < mTargets.size(); i++) {
+                final int viewType = mTargets.keyAt(i);
+                if (mInBackground.get(viewType) && mBackgroundExecutor != null) {
+                    continue;
+                }
+                int pooled = pool.getRecycledViewCount(viewType);
+                while (pooled < mTargets.valueAt(i)) {
+                    final long startNs = mRecyclerView.getNanoTime();
+                    if (!mustCreate && !pool.willCreateInTime(viewType, startNs, deadlineNs)) {
+                        done = false;
+                        break;
+                    }
+                    mustCreate = false;
+                    final RecyclerView.ViewHolder holder =
+                            adapter.createViewHolder(mRecyclerView, viewType);
+                    pool.factorInCreateTime(viewType, mRecyclerView.getNanoTime() - startNs);
+                    putIfNeeded(holder);
+                    final int newPooled = pool.getRecycledViewCount(viewType);
+                    if (newPooled <= pooled) {
+                        // the pool refused the ViewHolder, creating more would not help
+                        break;
+                    }
+                    pooled = newPooled;
+                }
+            }
+            if (!done) {
+                postIdleWork();
+            }
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    private void putIfNeeded(RecyclerView.ViewHolder holder) {
+        final int viewType = holder.getItemViewType();
+        final RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+        final int pooled = pool.getRecycledViewCount(viewType);
+        if (pooled < mTargets.get(viewType)) {
+            pool.putRecycledView(holder);
+            if (pool.getRecycledViewCount(viewType) > pooled) {
+                mPrewarmed.add(holder);
+                mCreatedCount++;
+            }
+        }
+    }
+
+    private void postIdleWork() {
+        if (!mIdleWorkPosted) {
+            mIdleWorkPosted = true;
+            mRecyclerView.post(mIdleWork);
+        }
+    }
+
+    /**
+     * Estimates when the next frame starts, like {@link GapWorker} does for prefetching.
+     */
+    private long getNextFrameNs() {
+        final long frameIntervalNs = mRecyclerView.mGapWorker != null
+                ? mRecyclerView.mGapWorker.mFrameIntervalNs : DEFAULT_FRAME_INTERVAL_NS;
+        final long nowNs = mRecyclerView.getNanoTime();
+        final long nextFrameNs =
+                TimeUnit.MILLISECONDS.toNanos(mRecyclerView.getDrawingTime()) + frameIntervalNs;
+        // no frame was drawn recently, the whole frame interval is available
+        return nextFrameNs < nowNs ? nowNs + frameIntervalNs : nextFrameNs;
+    }
+}
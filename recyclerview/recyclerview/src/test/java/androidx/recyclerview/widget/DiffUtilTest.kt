@@ -23,17 +23,18 @@ import org.hamcrest.MatcherAssert.assertThat
 import org.junit.Assert
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertFalse
+import org.junit.Assume.assumeTrue
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TestWatcher
 import org.junit.runner.Description
 import org.junit.runner.RunWith
-import org.junit.runners.JUnit4
+import org.junit.runners.Parameterized
 import java.util.Random
 import java.util.UUID
 
-@RunWith(JUnit4::class)
-class DiffUtilTest {
+@RunWith(Parameterized::class)
+class DiffUtilTest(private val keyed: Boolean) {
     private val before = mutableListOf<Item>()
     private val after = mutableListOf<Item>()
     private val log = StringBuilder()
@@ -41,7 +42,9 @@ class DiffUtilTest {
         oldList = before,
         newList = after,
         assertCalls = true
-    )
+    ).let {
+        if (keyed) KeyedItemListCallback(it, before, after) else it
+    }
 
     init {
         Item.idCounter = 0
@@ -363,6 +366,34 @@ class DiffUtilTest {
 
     private fun calculate() = DiffUtil.calculateDiff(callback, true)
 
+    @Test
+    fun keyedDiff_movesOnlyItemsOutOfOrder() {
+        assumeTrue(keyed)
+        initWithSize(100)
+        move(0, 99)
+        move(50, 10)
+        update(20)
+        var moves = 0
+        calculate().dispatchUpdatesTo(object : ListUpdateCallback {
+            override fun onInserted(position: Int, count: Int) {
+                Assert.fail("unexpected insertion")
+            }
+
+            override fun onRemoved(position: Int, count: Int) {
+                Assert.fail("unexpected removal")
+            }
+
+            override fun onMoved(fromPosition: Int, toPosition: Int) {
+                moves++
+            }
+
+            override fun onChanged(position: Int, count: Int, payload: Any?) {
+            }
+        })
+        assertEquals(2, moves)
+        check()
+    }
+
     @Test
     fun duplicate() {
         before.addAll(listOf(Item(false), Item(false)))
@@ -731,7 +762,34 @@ class DiffUtilTest {
         }
     }
 
+    /**
+     * Runs the keyed diff over the same lists, items being keyed by their ids.
+     */
+    private class KeyedItemListCallback(
+        private val delegate: ItemListCallback,
+        private val oldList: List<Item>,
+        private val newList: List<Item>
+    ) : DiffUtil.KeyedCallback() {
+        override fun getOldListSize() = delegate.oldListSize
+
+        override fun getNewListSize() = delegate.newListSize
+
+        override fun getOldItemKey(oldItemPosition: Int): Any = oldList[oldItemPosition].id
+
+        override fun getNewItemKey(newItemPosition: Int): Any = newList[newItemPosition].id
+
+        override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+            delegate.areContentsTheSame(oldItemPosition, newItemPosition)
+
+        override fun getChangePayload(oldItemPosition: Int, newItemPosition: Int) =
+            delegate.getChangePayload(oldItemPosition, newItemPosition)
+    }
+
     companion object {
         private val sRand = Random(System.nanoTime())
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "keyed_{0}")
+        fun params() = listOf(false, true)
     }
 }
\ No newline at end of file
@@ -22,8 +22,10 @@ import androidx.benchmark.junit4.measureRepeated
 import androidx.room.Dao
 import androidx.room.Database
 import androidx.room.Entity
+import androidx.room.ExperimentalRoomApi
 import androidx.room.Insert
 import androidx.room.InvalidationTracker
+import androidx.room.OnConflictStrategy
 import androidx.room.PrimaryKey
 import androidx.room.Query
 import androidx.room.Room
@@ -33,11 +35,15 @@ import androidx.test.filters.LargeTest
 import androidx.test.filters.SdkSuppress
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
 import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.junit.runners.Parameterized
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
 
 @LargeTest
 @RunWith(Parameterized::class)
@@ -61,6 +67,7 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
 
     @Test
     fun largeTransaction() {
+        assumeTrue(mode.largeTransaction)
         val db = Room.databaseBuilder(context, TestDatabase::class.java, DB_NAME)
             .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
             .build()
@@ -91,6 +98,62 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
         db.close()
     }
 
+    /**
+     * Runs [sampleSize] single row transactions and waits for the observer to be notified of the
+     * last one. Divide sampleSize by the reported time to get the number of invalidating
+     * transactions handled per second, the allocation count covers all refreshes of an iteration.
+     *
+     * The last transaction also updates the marker table, which is only written once per
+     * iteration, so a refresh that is still pending from earlier transactions can't be mistaken
+     * for the one of the last transaction.
+     */
+    @OptIn(ExperimentalRoomApi::class)
+    @Test
+    fun smallTransactions() {
+        assumeTrue(!mode.largeTransaction)
+        val db = Room.databaseBuilder(context, TestDatabase::class.java, DB_NAME)
+            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+            .apply {
+                if (mode == Mode.MEASURE_SMALL_TRANSACTIONS_COALESCED) {
+                    setInvalidationCoalescingWindow(COALESCING_WINDOW_MS, TimeUnit.MILLISECONDS)
+                }
+            }
+            .build()
+
+        val observer = object : InvalidationTracker.Observer("user") {
+            override fun onInvalidated(tables: MutableSet<String>) {}
+        }
+        db.invalidationTracker.addObserver(observer)
+        val latch = AtomicReference(CountDownLatch(1))
+        val markerObserver = object : InvalidationTracker.Observer("marker") {
+            override fun onInvalidated(tables: MutableSet<String>) {
+                latch.get().countDown()
+            }
+        }
+        db.invalidationTracker.addObserver(markerObserver)
+
+        val users = List(sampleSize) { User(it, "name$it") }
+        var iteration = 0
+
+        benchmarkRule.measureRepeated {
+            latch.set(CountDownLatch(1))
+            for (i in 0 until sampleSize - 1) {
+                db.getUserDao().insert(users[i])
+            }
+            db.runInTransaction {
+                db.getUserDao().insert(users[sampleSize - 1])
+                db.getUserDao().setMarker(Marker(0, iteration++))
+            }
+            assertTrue(latch.get().await(5, TimeUnit.SECONDS))
+
+            runWithTimingDisabled {
+                db.getUserDao().deleteAll()
+            }
+        }
+
+        db.close()
+    }
+
     private inline fun runWithTimingConditional(
         pauseTiming: Boolean = false,
         block: () -> Unit
@@ -105,11 +168,7 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
         @Parameterized.Parameters(name = "sampleSize={0}, mode={1}")
         fun data(): List<Array<Any>> {
             return mutableListOf<Array<Any>>().apply {
-                arrayOf(
-                    Mode.MEASURE_INSERT,
-                    Mode.MEASURE_DELETE,
-                    Mode.MEASURE_INSERT_AND_DELETE
-                ).forEach { mode ->
+                Mode.values().forEach { mode ->
                     arrayOf(100, 1000, 5000, 10000).forEach { sampleSize ->
                         add(arrayOf(sampleSize, mode))
                     }
@@ -118,9 +177,10 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
         }
 
         private const val DB_NAME = "invalidation-benchmark-test"
+        private const val COALESCING_WINDOW_MS = 5L
     }
 
-    @Database(entities = [User::class], version = 1, exportSchema = false)
+    @Database(entities = [User::class, Marker::class], version = 1, exportSchema = false)
     abstract class TestDatabase : RoomDatabase() {
         abstract fun getUserDao(): UserDao
     }
@@ -128,18 +188,26 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
     @Entity
     data class User(@PrimaryKey val id: Int, val name: String)
 
+    @Entity
+    data class Marker(@PrimaryKey val id: Int, val iteration: Int)
+
     @Dao
     interface UserDao {
         @Insert
         fun insert(user: User)
 
+        @Insert(onConflict = OnConflictStrategy.REPLACE)
+        fun setMarker(marker: Marker)
+
         @Query("DELETE FROM User")
         fun deleteAll(): Int
     }
 
-    enum class Mode {
-        MEASURE_INSERT,
-        MEASURE_DELETE,
-        MEASURE_INSERT_AND_DELETE
+    enum class Mode(val largeTransaction: Boolean) {
+        MEASURE_INSERT(true),
+        MEASURE_DELETE(true),
+        MEASURE_INSERT_AND_DELETE(true),
+        MEASURE_SMALL_TRANSACTIONS(false),
+        MEASURE_SMALL_TRANSACTIONS_COALESCED(false)
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.benchmark
+
+import android.database.Cursor
+import android.os.Build
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.room.Dao
+import androidx.room.Database
+import androidx.room.Entity
+import androidx.room.Insert
+import androidx.room.PrimaryKey
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.room.RoomSQLiteQuery
+import androidx.room.paging.KeysetDataSource
+import androidx.room.paging.LimitOffsetDataSource
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Compares the latency of loading a page deep into a large table using
+ * [LimitOffsetDataSource] against [KeysetDataSource].
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
+class PagingBenchmark(private val sampleSize: Int, private val mode: Mode) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    val context = ApplicationProvider.getApplicationContext() as android.content.Context
+
+    private lateinit var db: TestDatabase
+
+    @Before
+    fun setup() {
+        for (postfix in arrayOf("", "-wal", "-shm")) {
+            val dbFile = context.getDatabasePath(DB_NAME + postfix)
+            if (dbFile.exists()) {
+                assertTrue(dbFile.delete())
+            }
+        }
+        db = Room.databaseBuilder(context, TestDatabase::class.java, DB_NAME)
+            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+            .build()
+        db.runInTransaction {
+            db.getUserDao().insert(List(sampleSize) { User(it.toLong(), "name$it") })
+        }
+    }
+
+    @After
+    fun teardown() {
+        db.close()
+    }
+
+    @Test
+    fun loadLastPage() {
+        val query = RoomSQLiteQuery.acquire("SELECT * FROM User", 0)
+        val startPosition = sampleSize - PAGE_SIZE
+        when (mode) {
+            Mode.LIMIT_OFFSET -> {
+                val dataSource = LimitOffsetUserDataSource(db, query)
+                benchmarkRule.measureRepeated {
+                    val page = dataSource.loadRange(startPosition, PAGE_SIZE)
+                    assertEquals(PAGE_SIZE, page.size)
+                }
+            }
+            Mode.LIMIT_OFFSET_WITH_COUNT -> {
+                val dataSource = LimitOffsetUserDataSource(db, query)
+                benchmarkRule.measureRepeated {
+                    assertEquals(sampleSize, dataSource.countItems())
+                    val page = dataSource.loadRange(startPosition, PAGE_SIZE)
+                    assertEquals(PAGE_SIZE, page.size)
+                }
+            }
+            Mode.KEYSET -> {
+                val dataSource = KeysetUserDataSource(db, query)
+                // key of the row right before the last page
+                val key = (startPosition - 1).toLong()
+                benchmarkRule.measureRepeated {
+                    val page = dataSource.loadAfter(key, PAGE_SIZE)
+                    assertEquals(PAGE_SIZE, page.size)
+                }
+            }
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "sampleSize={0}, mode={1}")
+        fun data(): List<Array<Any>> {
+            return mutableListOf<Array<Any>>().apply {
+                Mode.values().forEach { mode ->
+                    arrayOf(1000, 10000, 100000).forEach { sampleSize ->
+                        add(arrayOf(sampleSize, mode))
+                    }
+                }
+            }
+        }
+
+        private const val DB_NAME = "paging-benchmark-test"
+        private const val PAGE_SIZE = 50
+    }
+
+    @Database(entities = [User::class], version = 1, exportSchema = false)
+    abstract class TestDatabase : RoomDatabase() {
+        abstract fun getUserDao(): UserDao
+    }
+
+    @Entity
+    data class User(@PrimaryKey val id: Long, val name: String)
+
+    @Dao
+    interface UserDao {
+        @Insert
+        fun insert(users: List<User>)
+    }
+
+    private class LimitOffsetUserDataSource(
+        db: RoomDatabase,
+        query: RoomSQLiteQuery
+    ) : LimitOffsetDataSource<User>(db, query, false, "User") {
+        override fun convertRows(cursor: Cursor) = cursor.toUsers()
+    }
+
+    private class KeysetUserDataSource(
+        db: RoomDatabase,
+        query: RoomSQLiteQuery
+    ) : KeysetDataSource<Long, User>(db, query, "id", false, false, "User") {
+        override fun convertRows(cursor: Cursor) = cursor.toUsers()
+
+        override fun getKey(item: User) = item.id
+    }
+
+    enum class Mode {
+        LIMIT_OFFSET,
+        LIMIT_OFFSET_WITH_COUNT,
+        KEYSET
+    }
+}
+
+private fun Cursor.toUsers(): List<PagingBenchmark.User> {
+    val idIndex = getColumnIndexOrThrow("id")
+    val nameIndex = getColumnIndexOrThrow("name")
+    val result = ArrayList<PagingBenchmark.User>(count)
+    while (moveToNext()) {
+        result.add(PagingBenchmark.User(getLong(idIndex), getString(nameIndex)))
+    }
+    return result
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.benchmark
+
+import android.os.Build
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.room.RoomSQLiteQuery
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Measures [RoomSQLiteQuery.acquire] / [RoomSQLiteQuery.release] throughput when multiple threads
+ * use the query pool concurrently, with a single global pool and with a striped pool.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
+class QueryPoolBenchmark(private val threadCount: Int, private val stripeCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var executor: ExecutorService
+
+    @Before
+    fun setup() {
+        RoomSQLiteQuery.configurePool(stripeCount, STRIPE_LIMIT)
+        executor = Executors.newFixedThreadPool(threadCount)
+    }
+
+    @After
+    fun teardown() {
+        executor.shutdownNow()
+        RoomSQLiteQuery.configurePool(1, STRIPE_LIMIT)
+    }
+
+    @Test
+    fun acquireRelease() {
+        val barrier = CyclicBarrier(threadCount)
+        val task = Runnable {
+            barrier.await()
+            repeat(ITERATIONS_PER_THREAD) { i ->
+                val query = RoomSQLiteQuery.acquire(SQL, i % MAX_ARG_COUNT)
+                query.release()
+            }
+        }
+        benchmarkRule.measureRepeated {
+            val futures = ArrayList<Future<*>>(threadCount)
+            repeat(threadCount) {
+                futures.add(executor.submit(task))
+            }
+            futures.forEach { it.get() }
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "threadCount={0}, stripeCount={1}")
+        fun data(): List<Array<Any>> {
+            return mutableListOf<Array<Any>>().apply {
+                arrayOf(1, 4, 16, 32).forEach { threadCount ->
+                    arrayOf(1, 8, 32).forEach { stripeCount ->
+                        add(arrayOf(threadCount, stripeCount))
+                    }
+                }
+            }
+        }
+
+        private const val SQL = "SELECT * FROM User WHERE id = ?"
+        private const val STRIPE_LIMIT = 15
+        private const val MAX_ARG_COUNT = 8
+        private const val ITERATIONS_PER_THREAD = 1000
+    }
+}
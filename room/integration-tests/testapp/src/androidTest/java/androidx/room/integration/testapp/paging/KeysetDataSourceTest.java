@@ -0,0 +1,219 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.integration.testapp.paging;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ItemKeyedDataSource;
+import androidx.room.RoomDatabase;
+import androidx.room.RoomSQLiteQuery;
+import androidx.room.integration.testapp.test.TestDatabaseTest;
+import androidx.room.integration.testapp.test.TestUtil;
+import androidx.room.paging.KeysetDataSource;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class KeysetDataSourceTest extends TestDatabaseTest {
+
+    @After
+    public void teardown() {
+        mUserDao.deleteEverything();
+    }
+
+    private UserIdDataSource loadUserIds() {
+        return loadUserIds(false);
+    }
+
+    private UserIdDataSource loadUserIds(boolean countItems) {
+        return new UserIdDataSource(mDatabase,
+                RoomSQLiteQuery.acquire("SELECT mId FROM user", 0), countItems);
+    }
+
+    @Test
+    public void emptyPage() {
+        UserIdDataSource dataSource = loadUserIds();
+        assertThat(dataSource.loadAfter(0, 10), is(Collections.<Integer>emptyList()));
+        assertThat(dataSource.loadBefore(0, 10), is(Collections.<Integer>emptyList()));
+    }
+
+    @Test
+    public void loadAfter() {
+        createUsers(10);
+        UserIdDataSource dataSource = loadUserIds();
+        assertThat(dataSource.loadAfter(3, 2), is(Arrays.asList(4, 5)));
+        assertThat(dataSource.loadAfter(8, 5), is(Collections.singletonList(9)));
+    }
+
+    @Test
+    public void loadBefore() {
+        createUsers(10);
+        UserIdDataSource dataSource = loadUserIds();
+        assertThat(dataSource.loadBefore(6, 2), is(Arrays.asList(4, 5)));
+        assertThat(dataSource.loadBefore(1, 5), is(Collections.singletonList(0)));
+    }
+
+    @Test
+    public void loadAll() {
+        List<Integer> ids = createUsers(10);
+        UserIdDataSource dataSource = loadUserIds();
+        assertThat(dataSource.loadAfter(-1, 10), is(ids));
+    }
+
+    @Test
+    public void loadInitial_firstPage() {
+        createUsers(10);
+        InitialResult result = loadInitial(loadUserIds(), null, 3, true);
+        assertThat(result.mData, is(Arrays.asList(0, 1, 2)));
+        assertThat(result.mPosition, nullValue());
+    }
+
+    @Test
+    public void loadInitial_requestedInitialKey() {
+        createUsers(10);
+        UserIdDataSource dataSource = loadUserIds();
+        assertThat(loadInitial(dataSource, 4, 3, true).mData, is(Arrays.asList(4, 5, 6)));
+        assertThat(loadInitial(dataSource, 8, 5, true).mData, is(Arrays.asList(8, 9)));
+        assertThat(loadInitial(dataSource, 10, 5, true).mData,
+                is(Collections.<Integer>emptyList()));
+    }
+
+    @Test
+    public void loadInitial_requestedInitialKeyNotInResult() {
+        createUsers(10);
+        mUserDao.deleteByUids(4);
+        InitialResult result = loadInitial(loadUserIds(true), 4, 2, true);
+        // the page starts at the first key after the missing one
+        assertThat(result.mData, is(Arrays.asList(5, 6)));
+        assertThat(result.mPosition, is(4));
+        assertThat(result.mTotalCount, is(9));
+    }
+
+    @Test
+    public void loadInitial_placeholders() {
+        createUsers(10);
+        UserIdDataSource dataSource = loadUserIds(true);
+
+        InitialResult first = loadInitial(dataSource, null, 3, true);
+        assertThat(first.mData, is(Arrays.asList(0, 1, 2)));
+        assertThat(first.mPosition, is(0));
+        assertThat(first.mTotalCount, is(10));
+
+        InitialResult middle = loadInitial(dataSource, 6, 3, true);
+        assertThat(middle.mData, is(Arrays.asList(6, 7, 8)));
+        assertThat(middle.mPosition, is(6));
+        assertThat(middle.mTotalCount, is(10));
+    }
+
+    @Test
+    public void loadInitial_placeholdersEmpty() {
+        InitialResult result = loadInitial(loadUserIds(true), 3, 5, true);
+        assertThat(result.mData, is(Collections.<Integer>emptyList()));
+        assertThat(result.mPosition, is(0));
+        assertThat(result.mTotalCount, is(0));
+    }
+
+    @Test
+    public void loadInitial_placeholdersDisabled_doesNotCount() {
+        createUsers(10);
+        InitialResult result = loadInitial(loadUserIds(true), 6, 3, false);
+        assertThat(result.mData, is(Arrays.asList(6, 7, 8)));
+        assertThat(result.mPosition, nullValue());
+    }
+
+    @SuppressWarnings("deprecation")
+    private static InitialResult loadInitial(UserIdDataSource dataSource,
+            @Nullable Integer initialKey, int loadSize, boolean placeholdersEnabled) {
+        InitialResult result = new InitialResult();
+        dataSource.loadInitial(new ItemKeyedDataSource.LoadInitialParams<>(initialKey,
+                loadSize, placeholdersEnabled), result);
+        assertThat(result.mData == null, is(false));
+        return result;
+    }
+
+    private List<Integer> createUsers(int count) {
+        List<Integer> ids = new ArrayList<>();
+        // insert in reverse to make sure ordering comes from the key, not insertion order
+        for (int i = count - 1; i >= 0; i--) {
+            mUserDao.insert(TestUtil.createUser(i));
+        }
+        for (int i = 0; i < count; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    private static class UserIdDataSource extends KeysetDataSource<Integer, Integer> {
+        UserIdDataSource(RoomDatabase db, RoomSQLiteQuery query, boolean countItems) {
+            super(db, query, "mId", false, countItems, "user");
+        }
+
+        @NonNull
+        @Override
+        protected List<Integer> convertRows(@NonNull Cursor cursor) {
+            List<Integer> result = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                result.add(cursor.getInt(0));
+            }
+            return result;
+        }
+
+        @NonNull
+        @Override
+        public Integer getKey(@NonNull Integer item) {
+            return item;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static class InitialResult
+            extends ItemKeyedDataSource.LoadInitialCallback<Integer> {
+        List<Integer> mData;
+        // only set when the data source computed the position and count
+        Integer mPosition;
+        Integer mTotalCount;
+
+        @Override
+        public void onResult(@NonNull List<? extends Integer> data, int position,
+                int totalCount) {
+            mData = new ArrayList<>(data);
+            mPosition = position;
+            mTotalCount = totalCount;
+        }
+
+        @Override
+        public void onResult(@NonNull List<? extends Integer> data) {
+            mData = new ArrayList<>(data);
+        }
+    }
+}
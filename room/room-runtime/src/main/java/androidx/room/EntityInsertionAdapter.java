@@ -20,8 +20,10 @@ import androidx.annotation.RestrictTo;
 import androidx.sqlite.db.SupportSQLiteStatement;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Implementations of this class knows how to insert a particular entity.
@@ -34,6 +36,17 @@ import java.util.List;
 @SuppressWarnings({"WeakerAccess", "unused"})
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
 public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
+    // SQLITE_MAX_VARIABLE_NUMBER of the SQLite versions shipped before 3.32
+    private static final int MAX_BIND_ARGUMENTS = 999;
+    // SQLITE_MAX_COMPOUND_SELECT, which also limits the rows of a VALUES clause before SQLite 3.8.8
+    private static final int MAX_VALUES_ROWS = 500;
+
+    private final RoomDatabase mDatabase;
+    private final AtomicBoolean mBatchLock = new AtomicBoolean(false);
+    private volatile SupportSQLiteStatement mBatchStmt;
+    private volatile int mBatchRowCount;
+    private int mBatchArgsPerRow;
+
     /**
      * Creates an InsertionAdapter that can insert the entity type T into the given database.
      *
@@ -41,6 +54,7 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      */
     public EntityInsertionAdapter(RoomDatabase database) {
         super(database);
+        mDatabase = database;
     }
 
     /**
@@ -73,6 +87,10 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      * @param entities Entities to insert
      */
     public final void insert(T[] entities) {
+        if (mDatabase.mMaxInsertBatchRows > 1) {
+            insertBatched(Arrays.asList(entities));
+            return;
+        }
         final SupportSQLiteStatement stmt = acquire();
         try {
             for (T entity : entities) {
@@ -90,6 +108,10 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      * @param entities Entities to insert
      */
     public final void insert(Iterable<? extends T> entities) {
+        if (mDatabase.mMaxInsertBatchRows > 1) {
+            insertBatched(entities);
+            return;
+        }
         final SupportSQLiteStatement stmt = acquire();
         try {
             for (T entity : entities) {
@@ -101,6 +123,125 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
         }
     }
 
+    /**
+     * Inserts the given entities using multi-row INSERT statements. Entities are bound in chunks
+     * of {@link #getBatchRowCount()} rows into a single statement, the rows that don't fill a
+     * whole chunk are inserted one by one using the single row statement.
+     */
+    private void insertBatched(Iterable<? extends T> entities) {
+        final int rowCount = getBatchRowCount();
+        if (rowCount <= 1) {
+            final SupportSQLiteStatement stmt = acquire();
+            try {
+                for (T entity : entities) {
+                    bind(stmt, entity);
+                    stmt.executeInsert();
+                }
+            } finally {
+                release(stmt);
+            }
+            return;
+        }
+        final SupportSQLiteStatement batchStmt = acquireBatch();
+        try {
+            final OffsetBindingStatement offsetStmt = new OffsetBindingStatement(batchStmt);
+            final int argsPerRow = mBatchArgsPerRow;
+            final List<T> pending = new ArrayList<>(rowCount);
+            for (T entity : entities) {
+                pending.add(entity);
+                if (pending.size() == rowCount) {
+                    for (int row = 0; row < rowCount; row++) {
+                        offsetStmt.mOffset = row * argsPerRow;
+                        bind(offsetStmt, pending.get(row));
+                    }
+                    batchStmt.executeInsert();
+                    pending.clear();
+                }
+            }
+            if (!pending.isEmpty()) {
+                final SupportSQLiteStatement stmt = acquire();
+                try {
+                    for (T entity : pending) {
+                        bind(stmt, entity);
+                        stmt.executeInsert();
+                    }
+                } finally {
+                    release(stmt);
+                }
+            }
+        } finally {
+            releaseBatch(batchStmt);
+        }
+    }
+
+    /**
+     * Returns the number of rows bound to a single multi-row statement, bounded by the database
+     * configuration and the SQLite bind argument and compound row limits.
+     */
+    private int getBatchRowCount() {
+        if (mBatchRowCount == 0) {
+            final int argsPerRow = countBindArguments(getValuesTuple(createQuery()));
+            mBatchArgsPerRow = argsPerRow;
+            mBatchRowCount = argsPerRow == 0 ? 1 : Math.max(1,
+                    Math.min(mDatabase.mMaxInsertBatchRows,
+                            Math.min(MAX_VALUES_ROWS, MAX_BIND_ARGUMENTS / argsPerRow)));
+        }
+        return mBatchRowCount;
+    }
+
+    private SupportSQLiteStatement acquireBatch() {
+        assertNotMainThread();
+        if (mBatchLock.compareAndSet(false, true)) {
+            if (mBatchStmt == null) {
+                mBatchStmt = createBatchStatement();
+            }
+            return mBatchStmt;
+        }
+        // it is in use, create a one off statement
+        return createBatchStatement();
+    }
+
+    private void releaseBatch(SupportSQLiteStatement statement) {
+        if (statement == mBatchStmt) {
+            mBatchLock.set(false);
+        }
+    }
+
+    private SupportSQLiteStatement createBatchStatement() {
+        final String query = createQuery();
+        final String tuple = getValuesTuple(query);
+        final int rowCount = getBatchRowCount();
+        final StringBuilder builder = new StringBuilder(
+                query.length() + (tuple.length() + 1) * (rowCount - 1));
+        builder.append(query);
+        for (int i = 1; i < rowCount; i++) {
+            builder.append(',').append(tuple);
+        }
+        return mDatabase.compileStatement(builder.toString());
+    }
+
+    /**
+     * Returns the {@code (?,?,...)} part of the single row INSERT query.
+     */
+    private static String getValuesTuple(String query) {
+        final int index = query.lastIndexOf(" VALUES (");
+        if (index < 0) {
+            throw new IllegalStateException("Cannot batch insert query without a VALUES clause: "
+                    + query);
+        }
+        return query.substring(index + " VALUES ".length());
+    }
+
+    private static int countBindArguments(String tuple) {
+        int count = 0;
+        for (int i = 0; i < tuple.length(); i++) {
+            if (tuple.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Inserts the given entity into the database and returns the row id.
      *
@@ -248,4 +389,78 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
             release(stmt);
         }
     }
+
+    /**
+     * A statement that shifts the binding indices by a fixed offset, which lets the generated
+     * {@link #bind(SupportSQLiteStatement, Object)} implementation bind a row into any position of
+     * a multi-row statement.
+     */
+    private static final class OffsetBindingStatement implements SupportSQLiteStatement {
+        private final SupportSQLiteStatement mDelegate;
+        int mOffset;
+
+        OffsetBindingStatement(SupportSQLiteStatement delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public void bindNull(int index) {
+            mDelegate.bindNull(index + mOffset);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            mDelegate.bindLong(index + mOffset, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            mDelegate.bindDouble(index + mOffset, value);
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            mDelegate.bindString(index + mOffset, value);
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            mDelegate.bindBlob(index + mOffset, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            mDelegate.clearBindings();
+        }
+
+        @Override
+        public void execute() {
+            mDelegate.execute();
+        }
+
+        @Override
+        public int executeUpdateDelete() {
+            return mDelegate.executeUpdateDelete();
+        }
+
+        @Override
+        public long executeInsert() {
+            return mDelegate.executeInsert();
+        }
+
+        @Override
+        public long simpleQueryForLong() {
+            return mDelegate.simpleQueryForLong();
+        }
+
+        @Override
+        public String simpleQueryForString() {
+            return mDelegate.simpleQueryForString();
+        }
+
+        @Override
+        public void close() {
+            // the delegate is owned by the adapter
+        }
+    }
 }
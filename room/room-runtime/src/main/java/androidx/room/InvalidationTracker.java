@@ -36,6 +36,7 @@ import androidx.sqlite.db.SupportSQLiteStatement;
 
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,6 +44,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 
@@ -98,6 +103,18 @@ public class InvalidationTracker {
 
     AtomicBoolean mPendingRefresh = new AtomicBoolean(false);
 
+    // When set, async refreshes are delayed by mCoalescingWindowMillis so that all the
+    // transactions ending within the window are handled by a single refresh.
+    private long mCoalescingWindowMillis = 0;
+
+    @Nullable
+    private ScheduledExecutorService mCoalescingScheduler;
+
+    // Delays the coalesced refreshes of all the databases. It only hands the refreshes over to
+    // the query executor of their database, so a single thread, which stops when idle, is enough.
+    @Nullable
+    private static ScheduledThreadPoolExecutor sCoalescingScheduler;
+
     private volatile boolean mInitialized = false;
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -210,6 +227,36 @@ public class InvalidationTracker {
         }
     }
 
+    /**
+     * Sets the window over which async refreshes are coalesced. Must be called before the
+     * database is used.
+     *
+     * @param windowMillis the delay between the first transaction that invalidates a table and
+     *                     the refresh that notifies observers, 0 to refresh immediately.
+     */
+    void setRefreshCoalescingWindow(long windowMillis) {
+        mCoalescingWindowMillis = windowMillis;
+        if (windowMillis > 0 && mCoalescingScheduler == null) {
+            mCoalescingScheduler = getCoalescingScheduler();
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getCoalescingScheduler() {
+        if (sCoalescingScheduler == null) {
+            sCoalescingScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "room_invalidation_coalescing");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            sCoalescingScheduler.setKeepAliveTime(1, TimeUnit.SECONDS);
+            sCoalescingScheduler.allowCoreThreadTimeOut(true);
+        }
+        return sCoalescingScheduler;
+    }
+
     void startMultiInstanceInvalidation(Context context, String name) {
         mMultiInstanceInvalidationClient = new MultiInstanceInvalidationClient(context, name, this,
                 mDatabase.getQueryExecutor());
@@ -402,7 +449,7 @@ public class InvalidationTracker {
         @Override
         public void run() {
             final Lock closeLock = mDatabase.getCloseLock();
-            Set<Integer> invalidatedTableIds = null;
+            BitSet invalidatedTableIds = null;
             closeLock.lock();
             try {
 
@@ -443,7 +490,7 @@ public class InvalidationTracker {
                     mAutoCloser.decrementCountAndScheduleClose();
                 }
             }
-            if (invalidatedTableIds != null && !invalidatedTableIds.isEmpty()) {
+            if (invalidatedTableIds != null) {
                 synchronized (mObserverMap) {
                     for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
                         entry.getValue().notifyByTableInvalidStatus(invalidatedTableIds);
@@ -452,25 +499,40 @@ public class InvalidationTracker {
             }
         }
 
-        private Set<Integer> checkUpdatedTable() {
-            HashSet<Integer> invalidatedTableIds = new HashSet<>();
+        /**
+         * Returns the ids of the invalidated tables or null if no table is invalidated.
+         */
+        @Nullable
+        private BitSet checkUpdatedTable() {
+            BitSet invalidatedTableIds = null;
             Cursor cursor = mDatabase.query(new SimpleSQLiteQuery(SELECT_UPDATED_TABLES_SQL));
             //noinspection TryFinallyCanBeTryWithResources
             try {
                 while (cursor.moveToNext()) {
                     final int tableId = cursor.getInt(0);
-                    invalidatedTableIds.add(tableId);
+                    if (invalidatedTableIds == null) {
+                        invalidatedTableIds = new BitSet(mTableNames.length);
+                    }
+                    invalidatedTableIds.set(tableId);
                 }
             } finally {
                 cursor.close();
             }
-            if (!invalidatedTableIds.isEmpty()) {
+            if (invalidatedTableIds != null) {
                 mCleanupStatement.executeUpdateDelete();
             }
             return invalidatedTableIds;
         }
     };
 
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final Runnable mExecuteRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mDatabase.getQueryExecutor().execute(mRefreshRunnable);
+        }
+    };
+
     /**
      * Enqueues a task to refresh the list of updated tables.
      * <p>
@@ -489,7 +551,14 @@ public class InvalidationTracker {
                 // matched with a corresponding call in mRefreshRunnable.
                 mAutoCloser.incrementCountAndEnsureDbIsOpen();
             }
-            mDatabase.getQueryExecutor().execute(mRefreshRunnable);
+            if (mCoalescingScheduler != null) {
+                // mPendingRefresh stays set until the refresh runs, so every transaction that
+                // ends within the window is picked up by this single refresh.
+                mCoalescingScheduler.schedule(mExecuteRefreshRunnable, mCoalescingWindowMillis,
+                        TimeUnit.MILLISECONDS);
+            } else {
+                mDatabase.getQueryExecutor().execute(mRefreshRunnable);
+            }
         }
     }
 
@@ -643,11 +712,20 @@ public class InvalidationTracker {
      */
     @SuppressWarnings("WeakerAccess")
     static class ObserverWrapper {
+        // Observers watching up to this many tables get a cached, immutable set for each
+        // combination of invalidated tables instead of a new set per notification.
+        private static final int MAX_CACHED_TABLE_COUNT = 6;
+
         final int[] mTableIds;
         private final String[] mTableNames;
         final Observer mObserver;
         private final Set<String> mSingleTableSet;
+        // Indexed by the bit mask of invalidated table indices, lazily populated. Only accessed
+        // while holding the lock of the tracker's observer map.
+        @Nullable
+        private final Set<String>[] mInvalidatedTablesCache;
 
+        @SuppressWarnings("unchecked")
         ObserverWrapper(Observer observer, int[] tableIds, String[] tableNames) {
             mObserver = observer;
             mTableIds = tableIds;
@@ -659,6 +737,11 @@ public class InvalidationTracker {
             } else {
                 mSingleTableSet = null;
             }
+            if (tableIds.length > 1 && tableIds.length <= MAX_CACHED_TABLE_COUNT) {
+                mInvalidatedTablesCache = new Set[1 << tableIds.length];
+            } else {
+                mInvalidatedTablesCache = null;
+            }
         }
 
         /**
@@ -667,22 +750,49 @@ public class InvalidationTracker {
          *
          * @param invalidatedTablesIds The table ids of the tables that are invalidated.
          */
-        void notifyByTableInvalidStatus(Set<Integer> invalidatedTablesIds) {
+        void notifyByTableInvalidStatus(BitSet invalidatedTablesIds) {
             Set<String> invalidatedTables = null;
             final int size = mTableIds.length;
-            for (int index = 0; index < size; index++) {
-                final int tableId = mTableIds[index];
-                if (invalidatedTablesIds.contains(tableId)) {
-                    if (size == 1) {
-                        // Optimization for a single-table observer
-                        invalidatedTables = mSingleTableSet;
-                    } else {
-                        if (invalidatedTables == null) {
-                            invalidatedTables = new HashSet<>(size);
+            if (size == 1) {
+                // Optimization for a single-table observer
+                if (invalidatedTablesIds.get(mTableIds[0])) {
+                    invalidatedTables = mSingleTableSet;
+                }
+            } else if (mInvalidatedTablesCache != null) {
+                int mask = 0;
+                for (int index = 0; index < size; index++) {
+                    if (invalidatedTablesIds.get(mTableIds[index])) {
+                        mask |= 1 << index;
+                    }
+                }
+                if (mask != 0) {
+                    invalidatedTables = mInvalidatedTablesCache[mask];
+                    if (invalidatedTables == null) {
+                        HashSet<String> set = new HashSet<>(Integer.bitCount(mask));
+                        for (int index = 0; index < size; index++) {
+                            if ((mask & (1 << index)) != 0) {
+                                set.add(mTableNames[index]);
+                            }
                         }
-                        invalidatedTables.add(mTableNames[index]);
+                        invalidatedTables = Collections.unmodifiableSet(set);
+                        mInvalidatedTablesCache[mask] = invalidatedTables;
                     }
                 }
+            } else {
+                HashSet<String> set = null;
+                for (int index = 0; index < size; index++) {
+                    if (invalidatedTablesIds.get(mTableIds[index])) {
+                        if (set == null) {
+                            set = new HashSet<>(size);
+                        }
+                        set.add(mTableNames[index]);
+                    }
+                }
+                if (set != null) {
+                    // unmodifiable like the cached sets, so that observers see the same type of
+                    // set whatever the number of tables they observe
+                    invalidatedTables = Collections.unmodifiableSet(set);
+                }
             }
             if (invalidatedTables != null) {
                 mObserver.onInvalidated(invalidatedTables);
@@ -92,6 +92,9 @@ public abstract class RoomDatabase {
     private final InvalidationTracker mInvalidationTracker;
     private boolean mAllowMainThreadQueries;
     boolean mWriteAheadLoggingEnabled;
+    // Maximum number of rows EntityInsertionAdapter binds into a single multi-row INSERT when
+    // inserting a collection of entities. 1 disables batching.
+    int mMaxInsertBatchRows = 1;
 
     /**
      * @hide
@@ -788,6 +791,11 @@ public abstract class RoomDatabase {
         private long mAutoCloseTimeout = -1L;
         private TimeUnit mAutoCloseTimeUnit;
 
+        private int mQueryPoolStripeCount = -1;
+        private int mQueryPoolStripeLimit = -1;
+        private int mMaxInsertBatchRows = 1;
+        private long mInvalidationCoalescingWindowMillis = 0;
+
         /**
          * Migrations, mapped by from-to pairs.
          */
@@ -1345,6 +1353,96 @@ public abstract class RoomDatabase {
             return this;
         }
 
+        /**
+         * Configures the pool Room uses to recycle the objects holding query bind arguments.
+         * <p>
+         * By default a single pool is shared by all threads, which can become a point of lock
+         * contention when many threads run queries concurrently. Splitting the pool into
+         * multiple stripes lets each thread mostly use its own stripe.
+         * <p>
+         * The pool is shared by all databases in the process, so it is only configured once, by
+         * the first database built with a configuration. The configurations of the databases
+         * built after it are ignored.
+         *
+         * @param stripeCount the number of independent pool stripes, rounded up to the next power
+         *                    of two and capped at 64. Must be greater than zero.
+         * @param stripeLimit the maximum number of queries kept in each stripe. Must be greater
+         *                    than zero.
+         * @return This {@link Builder} instance
+         */
+        @NonNull
+        @SuppressWarnings("MissingGetterMatchingBuilder")
+        @ExperimentalRoomApi
+        public Builder<T> setQueryPoolConfiguration(
+                @IntRange(from = 1) int stripeCount, @IntRange(from = 1) int stripeLimit) {
+            if (stripeCount < 1) {
+                throw new IllegalArgumentException("stripeCount must be >= 1");
+            }
+            if (stripeLimit < 1) {
+                throw new IllegalArgumentException("stripeLimit must be >= 1");
+            }
+            mQueryPoolStripeCount = stripeCount;
+            mQueryPoolStripeLimit = stripeLimit;
+            return this;
+        }
+
+        /**
+         * Enables multi-row {@code INSERT} statements when inserting a collection or an array of
+         * entities from an {@link Insert} method that doesn't return row ids.
+         * <p>
+         * By default each entity is inserted by executing the prepared statement once per row.
+         * When batching is enabled, up to {@code maxRowsPerStatement} entities are bound to a
+         * single {@code INSERT ... VALUES (...),(...)} statement, which reduces the per-row
+         * overhead of bulk inserts. The number of rows per statement is further limited so that
+         * the statement doesn't exceed SQLite's bind argument and compound row limits. Batching
+         * is ignored on API levels before 16, whose SQLite doesn't support multi-row inserts.
+         * <p>
+         * Insert methods that return row ids are not affected since a multi-row statement only
+         * reports the row id of its last row.
+         *
+         * @param maxRowsPerStatement the maximum number of rows bound to a single statement. Must
+         *                            be greater than zero, 1 disables batching.
+         * @return This {@link Builder} instance
+         */
+        @NonNull
+        @SuppressWarnings("MissingGetterMatchingBuilder")
+        @ExperimentalRoomApi
+        public Builder<T> setInsertBatchSize(@IntRange(from = 1) int maxRowsPerStatement) {
+            if (maxRowsPerStatement < 1) {
+                throw new IllegalArgumentException("maxRowsPerStatement must be >= 1");
+            }
+            mMaxInsertBatchRows = maxRowsPerStatement;
+            return this;
+        }
+
+        /**
+         * Coalesces table invalidation checks that happen after transactions over the given time
+         * window.
+         * <p>
+         * By default, the {@link InvalidationTracker} checks for invalidated tables on the query
+         * executor right after each transaction that may have modified observed tables. Under
+         * bursts of small write transactions this results in a refresh per transaction. When a
+         * window is set, the first such transaction schedules a single refresh after the window
+         * elapses and all the transactions ending in the meantime are handled by it, at the cost
+         * of delaying observer notifications by up to the window.
+         *
+         * @param window   the coalescing window. Must be greater or equal to zero, zero disables
+         *                 coalescing.
+         * @param timeUnit the time unit for window.
+         * @return This {@link Builder} instance
+         */
+        @NonNull
+        @SuppressWarnings("MissingGetterMatchingBuilder")
+        @ExperimentalRoomApi
+        public Builder<T> setInvalidationCoalescingWindow(
+                @IntRange(from = 0) long window, @NonNull TimeUnit timeUnit) {
+            if (window < 0) {
+                throw new IllegalArgumentException("window must be >= 0");
+            }
+            mInvalidationCoalescingWindowMillis = timeUnit.toMillis(window);
+            return this;
+        }
+
         /**
          * Creates the databases and initializes it.
          * <p>
@@ -1387,6 +1485,12 @@ public abstract class RoomDatabase {
                 }
             }
 
+            if (mQueryPoolStripeCount > 0 && !RoomSQLiteQuery.configurePoolOnce(
+                    mQueryPoolStripeCount, mQueryPoolStripeLimit)) {
+                Log.w(Room.LOG_TAG, "Ignoring the query pool configuration, the pool is shared "
+                        + "by all databases and was already configured.");
+            }
+
             SupportSQLiteOpenHelper.Factory factory;
 
             AutoCloser autoCloser = null;
@@ -1457,6 +1561,11 @@ public abstract class RoomDatabase {
                             mTypeConverters,
                             mAutoMigrationSpecs);
             T db = Room.getGeneratedImplementation(mDatabaseClass, DB_IMPL_SUFFIX);
+            // Multi-row VALUES clauses need SQLite 3.7.11, which first shipped with Jelly Bean.
+            db.mMaxInsertBatchRows = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                    ? mMaxInsertBatchRows : 1;
+            db.getInvalidationTracker().setRefreshCoalescingWindow(
+                    mInvalidationCoalescingWindowMillis);
             db.init(configuration);
             return db;
         }
@@ -78,6 +78,21 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
     @VisibleForTesting
     static final TreeMap<Integer, RoomSQLiteQuery> sQueryPool = new TreeMap<>();
 
+    // The pool is split into stripes so that threads acquiring and releasing queries concurrently
+    // don't all contend on the same monitor. The first stripe is always backed by sQueryPool so
+    // that the default, single stripe configuration behaves exactly like a single global pool.
+    private static volatile PoolStripe[] sStripes = createStripes(1, POOL_LIMIT);
+
+    @SuppressWarnings("WeakerAccess")
+    @VisibleForTesting
+    // The largest number of stripes the pool is split into.
+    static final int MAX_STRIPE_COUNT = 64;
+
+    @SuppressWarnings("WeakerAccess")
+    @VisibleForTesting
+    // Whether configurePoolOnce already configured the pool. Guarded by RoomSQLiteQuery.class.
+    static boolean sPoolConfiguredOnce = false;
+
     /**
      * Copies the given SupportSQLiteQuery and converts it into RoomSQLiteQuery.
      *
@@ -138,21 +153,142 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
      */
     @SuppressWarnings("WeakerAccess")
     public static RoomSQLiteQuery acquire(String query, int argumentCount) {
-        synchronized (sQueryPool) {
+        final PoolStripe stripe = currentStripe();
+        synchronized (stripe.mPool) {
             final Map.Entry<Integer, RoomSQLiteQuery> entry =
-                    sQueryPool.ceilingEntry(argumentCount);
+                    stripe.mPool.ceilingEntry(argumentCount);
             if (entry != null) {
-                sQueryPool.remove(entry.getKey());
+                stripe.mPool.remove(entry.getKey());
+                stripe.mHitCount++;
                 final RoomSQLiteQuery sqliteQuery = entry.getValue();
                 sqliteQuery.init(query, argumentCount);
                 return sqliteQuery;
             }
+            stripe.mMissCount++;
         }
         RoomSQLiteQuery sqLiteQuery = new RoomSQLiteQuery(argumentCount);
         sqLiteQuery.init(query, argumentCount);
         return sqLiteQuery;
     }
 
+    /**
+     * Re-configures the process wide query pool.
+     * <p>
+     * Queries are pooled in {@code stripeCount} independent stripes, each keeping up to
+     * {@code stripeLimit} queries. A thread always acquires from and releases to the same stripe,
+     * so increasing the number of stripes reduces lock contention when many threads run queries
+     * concurrently at the cost of keeping more queries alive. Queries held by the previous
+     * configuration are dropped and the pool statistics are reset.
+     *
+     * @param stripeCount The number of stripes, rounded up to the next power of two and capped
+     *                    at {@link #MAX_STRIPE_COUNT}.
+     * @param stripeLimit The maximum number of queries kept in each stripe.
+     */
+    public static void configurePool(int stripeCount, int stripeLimit) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("stripeCount must be >= 1");
+        }
+        if (stripeLimit < 1) {
+            throw new IllegalArgumentException("stripeLimit must be >= 1");
+        }
+        final int count = stripeCount == 1
+                ? 1 : Integer.highestOneBit(Math.min(stripeCount, MAX_STRIPE_COUNT) - 1) << 1;
+        synchronized (sQueryPool) {
+            sQueryPool.clear();
+        }
+        sStripes = createStripes(count, stripeLimit);
+    }
+
+    /**
+     * Re-configures the process wide query pool like {@link #configurePool(int, int)}, unless it
+     * was already configured by this method.
+     * <p>
+     * The pool is shared by all databases, so only the first one that configures it is applied.
+     * This keeps databases built later from dropping the queries pooled for the others.
+     *
+     * @param stripeCount The number of stripes.
+     * @param stripeLimit The maximum number of queries kept in each stripe.
+     * @return {@code true} if the configuration was applied, {@code false} if the pool was
+     * already configured.
+     */
+    public static synchronized boolean configurePoolOnce(int stripeCount, int stripeLimit) {
+        if (sPoolConfiguredOnce) {
+            return false;
+        }
+        configurePool(stripeCount, stripeLimit);
+        sPoolConfiguredOnce = true;
+        return true;
+    }
+
+    @VisibleForTesting
+    static int getStripeCount() {
+        return sStripes.length;
+    }
+
+    /**
+     * Returns the number of {@link #acquire(String, int)} calls served from the pool.
+     */
+    public static long getPoolHitCount() {
+        long count = 0;
+        for (PoolStripe stripe : sStripes) {
+            synchronized (stripe.mPool) {
+                count += stripe.mHitCount;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of {@link #acquire(String, int)} calls that had to allocate a new query.
+     */
+    public static long getPoolMissCount() {
+        long count = 0;
+        for (PoolStripe stripe : sStripes) {
+            synchronized (stripe.mPool) {
+                count += stripe.mMissCount;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of released queries dropped from the pool because it was full.
+     */
+    public static long getPoolEvictionCount() {
+        long count = 0;
+        for (PoolStripe stripe : sStripes) {
+            synchronized (stripe.mPool) {
+                count += stripe.mEvictionCount;
+            }
+        }
+        return count;
+    }
+
+    private static PoolStripe currentStripe() {
+        final PoolStripe[] stripes = sStripes;
+        if (stripes.length == 1) {
+            return stripes[0];
+        }
+        // spread thread ids so that consecutive ids don't end up on neighbouring stripes only
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static PoolStripe[] createStripes(int stripeCount, int stripeLimit) {
+        // Once we hit the limit, bring the stripe back to two thirds of its size, the same ratio
+        // as the default POOL_LIMIT / DESIRED_POOL_SIZE.
+        final int desiredSize = stripeLimit == POOL_LIMIT
+                ? DESIRED_POOL_SIZE : Math.max(1, stripeLimit * 2 / 3);
+        final PoolStripe[] stripes = new PoolStripe[stripeCount];
+        stripes[0] = new PoolStripe(sQueryPool, stripeLimit, desiredSize);
+        for (int i = 1; i < stripeCount; i++) {
+            stripes[i] = new PoolStripe(new TreeMap<Integer, RoomSQLiteQuery>(), stripeLimit,
+                    desiredSize);
+        }
+        return stripes;
+    }
+
     private RoomSQLiteQuery(int capacity) {
         mCapacity = capacity;
         // because, 1 based indices... we don't want to offsets everything with 1 all the time.
@@ -179,20 +315,12 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
      */
     @SuppressWarnings("WeakerAccess")
     public void release() {
-        synchronized (sQueryPool) {
-            sQueryPool.put(mCapacity, this);
-            prunePoolLocked();
-        }
-    }
-
-    private static void prunePoolLocked() {
-        if (sQueryPool.size() > POOL_LIMIT) {
-            int toBeRemoved = sQueryPool.size() - DESIRED_POOL_SIZE;
-            final Iterator<Integer> iterator = sQueryPool.descendingKeySet().iterator();
-            while (toBeRemoved-- > 0) {
-                iterator.next();
-                iterator.remove();
+        final PoolStripe stripe = currentStripe();
+        synchronized (stripe.mPool) {
+            if (stripe.mPool.put(mCapacity, this) != null) {
+                stripe.mEvictionCount++;
             }
+            stripe.pruneLocked();
         }
     }
 
@@ -296,4 +424,37 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
     @IntDef({NULL, LONG, DOUBLE, STRING, BLOB})
     @interface Binding {
     }
+
+    /**
+     * A single stripe of the query pool. Mutable fields are guarded by the
+     * monitor of {@link #mPool}, which lets stripes of consecutive configurations that share the
+     * same map exclude each other.
+     */
+    private static final class PoolStripe {
+        final TreeMap<Integer, RoomSQLiteQuery> mPool;
+        final int mLimit;
+        final int mDesiredSize;
+        long mHitCount;
+        long mMissCount;
+        long mEvictionCount;
+
+        PoolStripe(TreeMap<Integer, RoomSQLiteQuery> pool, int limit, int desiredSize) {
+            mPool = pool;
+            mLimit = limit;
+            mDesiredSize = desiredSize;
+        }
+
+        void pruneLocked() {
+            if (mPool.size() > mLimit) {
+                // We always clear the bigger queries (# of arguments).
+                int toBeRemoved = mPool.size() - mDesiredSize;
+                mEvictionCount += toBeRemoved;
+                final Iterator<Integer> iterator = mPool.descendingKeySet().iterator();
+                while (toBeRemoved-- > 0) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.paging;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+import androidx.room.RoomSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A data source implementation that pages the query by seeking on an indexed, unique sort key
+ * instead of using LIMIT & OFFSET.
+ * <p>
+ * Each page is loaded with {@code WHERE key > ? ORDER BY key LIMIT ?} (or the reverse when
+ * loading before), so the cost of a page load does not depend on how deep into the result set
+ * the page is, as long as the key column is indexed. This is the approach
+ * <a href="http://www.sqlite.org/cvstrac/wiki?p=ScrollingCursor">recommended</a> by SQLite and
+ * the one {@link LimitOffsetDataSource} refers to.
+ * <p>
+ * The key column must be unique within the query result, otherwise rows sharing a key across a
+ * page boundary will be skipped. Counting the rows is optional: when {@code countItems} is
+ * {@code false} the data source never runs a {@code COUNT(*)} over the source query and the list
+ * is loaded without placeholders. When it is {@code true}, the count is only computed during the
+ * initial load and only if placeholders are enabled.
+ * <p>
+ * Supported key types are the ones that map to SQLite's storage classes: {@link Long},
+ * {@link Integer}, {@link Short}, {@link Byte}, {@link Double}, {@link Float}, {@link String}
+ * and {@code byte[]}.
+ *
+ * @param <K> Type of the sort key.
+ * @param <T> Data type returned by the data source.
+ *
+ * @hide
+ */
+@SuppressWarnings("deprecation")
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public abstract class KeysetDataSource<K, T> extends androidx.paging.ItemKeyedDataSource<K, T> {
+    private final RoomSQLiteQuery mSourceQuery;
+    private final String mFirstPageQuery;
+    private final String mAtOrAfterQuery;
+    private final String mAfterQuery;
+    private final String mBeforeQuery;
+    private final String mCountQuery;
+    private final String mCountBeforeQuery;
+    private final RoomDatabase mDb;
+    @SuppressWarnings("FieldCanBeLocal")
+    private final InvalidationTracker.Observer mObserver;
+    private final boolean mInTransaction;
+    private final boolean mCountItems;
+    private final AtomicBoolean mRegisteredObserver = new AtomicBoolean(false);
+
+    protected KeysetDataSource(
+            @NonNull RoomDatabase db,
+            @NonNull SupportSQLiteQuery query,
+            @NonNull String keyColumn,
+            boolean inTransaction,
+            boolean countItems,
+            @NonNull String... tables) {
+        this(db, RoomSQLiteQuery.copyFrom(query), keyColumn, inTransaction, countItems, tables);
+    }
+
+    protected KeysetDataSource(
+            @NonNull RoomDatabase db,
+            @NonNull RoomSQLiteQuery query,
+            @NonNull String keyColumn,
+            boolean inTransaction,
+            boolean countItems,
+            @NonNull String... tables) {
+        mDb = db;
+        mSourceQuery = query;
+        mInTransaction = inTransaction;
+        mCountItems = countItems;
+        final String source = "SELECT * FROM ( " + mSourceQuery.getSql() + " )";
+        final String key = "`" + keyColumn + "`";
+        mFirstPageQuery = source + " ORDER BY " + key + " ASC LIMIT ?";
+        mAtOrAfterQuery = source + " WHERE " + key + " >= ? ORDER BY " + key + " ASC LIMIT ?";
+        mAfterQuery = source + " WHERE " + key + " > ? ORDER BY " + key + " ASC LIMIT ?";
+        mBeforeQuery = source + " WHERE " + key + " < ? ORDER BY " + key + " DESC LIMIT ?";
+        mCountQuery = "SELECT COUNT(*) FROM ( " + mSourceQuery.getSql() + " )";
+        mCountBeforeQuery = mCountQuery + " WHERE " + key + " < ?";
+        mObserver = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        registerObserverIfNecessary();
+    }
+
+    private void registerObserverIfNecessary() {
+        if (mRegisteredObserver.compareAndSet(false, true)) {
+            mDb.getInvalidationTracker().addWeakObserver(mObserver);
+        }
+    }
+
+    @Override
+    public boolean isInvalid() {
+        registerObserverIfNecessary();
+        mDb.getInvalidationTracker().refreshVersionsSync();
+        return super.isInvalid();
+    }
+
+    @NonNull
+    @SuppressWarnings("WeakerAccess")
+    protected abstract List<T> convertRows(@NonNull Cursor cursor);
+
+    @NonNull
+    @Override
+    public abstract K getKey(@NonNull T item);
+
+    @Override
+    public void loadInitial(@NonNull LoadInitialParams<K> params,
+            @NonNull LoadInitialCallback<T> callback) {
+        registerObserverIfNecessary();
+        final boolean countItems = mCountItems && params.placeholdersEnabled;
+        List<T> list = Collections.emptyList();
+        int position = 0;
+        int totalCount = 0;
+        mDb.beginTransaction();
+        try {
+            final RoomSQLiteQuery sqLiteQuery;
+            if (params.requestedInitialKey == null) {
+                sqLiteQuery = getSQLiteQuery(mFirstPageQuery, null, params.requestedLoadSize);
+            } else {
+                sqLiteQuery = getSQLiteQuery(mAtOrAfterQuery, params.requestedInitialKey,
+                        params.requestedLoadSize);
+            }
+            list = queryRows(sqLiteQuery);
+            if (countItems) {
+                totalCount = count(mCountQuery, null);
+                if (!list.isEmpty()) {
+                    position = count(mCountBeforeQuery, getKey(list.get(0)));
+                }
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+
+        if (countItems) {
+            callback.onResult(list, position, totalCount);
+        } else {
+            callback.onResult(list);
+        }
+    }
+
+    @Override
+    public void loadAfter(@NonNull LoadParams<K> params, @NonNull LoadCallback<T> callback) {
+        callback.onResult(loadAfter(params.key, params.requestedLoadSize));
+    }
+
+    @Override
+    public void loadBefore(@NonNull LoadParams<K> params, @NonNull LoadCallback<T> callback) {
+        callback.onResult(loadBefore(params.key, params.requestedLoadSize));
+    }
+
+    /**
+     * Return up to loadCount rows whose key is strictly greater than the given key, in ascending
+     * key order.
+     *
+     * @hide
+     */
+    @NonNull
+    public List<T> loadAfter(@NonNull K key, int loadCount) {
+        return load(getSQLiteQuery(mAfterQuery, key, loadCount));
+    }
+
+    /**
+     * Return up to loadCount rows whose key is strictly less than the given key, in ascending
+     * key order.
+     *
+     * @hide
+     */
+    @NonNull
+    public List<T> loadBefore(@NonNull K key, int loadCount) {
+        List<T> rows = load(getSQLiteQuery(mBeforeQuery, key, loadCount));
+        // rows are queried in descending order so that LIMIT picks the ones adjacent to the key
+        Collections.reverse(rows);
+        return rows;
+    }
+
+    private List<T> load(RoomSQLiteQuery sqLiteQuery) {
+        if (mInTransaction) {
+            mDb.beginTransaction();
+            try {
+                List<T> rows = queryRows(sqLiteQuery);
+                mDb.setTransactionSuccessful();
+                return rows;
+            } finally {
+                mDb.endTransaction();
+            }
+        } else {
+            return queryRows(sqLiteQuery);
+        }
+    }
+
+    private List<T> queryRows(RoomSQLiteQuery sqLiteQuery) {
+        Cursor cursor = mDb.query(sqLiteQuery);
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            return convertRows(cursor);
+        } finally {
+            cursor.close();
+            sqLiteQuery.release();
+        }
+    }
+
+    private int count(String query, @Nullable K key) {
+        final int argCount = mSourceQuery.getArgCount() + (key == null ? 0 : 1);
+        final RoomSQLiteQuery sqLiteQuery = RoomSQLiteQuery.acquire(query, argCount);
+        sqLiteQuery.copyArgumentsFrom(mSourceQuery);
+        if (key != null) {
+            bindKey(sqLiteQuery, argCount, key);
+        }
+        Cursor cursor = mDb.query(sqLiteQuery);
+        try {
+            if (cursor.moveToFirst()) {
+                return cursor.getInt(0);
+            }
+            return 0;
+        } finally {
+            cursor.close();
+            sqLiteQuery.release();
+        }
+    }
+
+    private RoomSQLiteQuery getSQLiteQuery(String query, @Nullable K key, int loadCount) {
+        final int argCount = mSourceQuery.getArgCount() + (key == null ? 1 : 2);
+        final RoomSQLiteQuery sqLiteQuery = RoomSQLiteQuery.acquire(query, argCount);
+        sqLiteQuery.copyArgumentsFrom(mSourceQuery);
+        if (key != null) {
+            bindKey(sqLiteQuery, argCount - 1, key);
+        }
+        sqLiteQuery.bindLong(argCount, loadCount);
+        return sqLiteQuery;
+    }
+
+    private static void bindKey(RoomSQLiteQuery query, int index, Object key) {
+        if (key instanceof Long || key instanceof Integer || key instanceof Short
+                || key instanceof Byte) {
+            query.bindLong(index, ((Number) key).longValue());
+        } else if (key instanceof Double || key instanceof Float) {
+            query.bindDouble(index, ((Number) key).doubleValue());
+        } else if (key instanceof String) {
+            query.bindString(index, (String) key);
+        } else if (key instanceof byte[]) {
+            query.bindBlob(index, (byte[]) key);
+        } else {
+            throw new IllegalArgumentException("Unsupported key type "
+                    + key.getClass().getName() + ", keys must be integral, floating point, "
+                    + "String or byte[] values.");
+        }
+    }
+}
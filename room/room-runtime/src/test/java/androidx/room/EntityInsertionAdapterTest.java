@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class EntityInsertionAdapterTest {
+    private static final String QUERY =
+            "INSERT OR ABORT INTO `User` (`id`,`name`) VALUES (nullif(?, 0),?)";
+    private static final String BATCH_QUERY =
+            "INSERT OR ABORT INTO `User` (`id`,`name`) VALUES (nullif(?, 0),?),(nullif(?, 0),?)";
+
+    private RoomDatabase mDb;
+    private SupportSQLiteStatement mStmt;
+    private SupportSQLiteStatement mBatchStmt;
+    private EntityInsertionAdapter<Integer> mAdapter;
+
+    @Before
+    public void init() {
+        mDb = mock(RoomDatabase.class);
+        mStmt = mock(SupportSQLiteStatement.class);
+        mBatchStmt = mock(SupportSQLiteStatement.class);
+        when(mDb.compileStatement(QUERY)).thenReturn(mStmt);
+        when(mDb.compileStatement(BATCH_QUERY)).thenReturn(mBatchStmt);
+        mAdapter = new EntityInsertionAdapter<Integer>(mDb) {
+            @Override
+            protected void bind(SupportSQLiteStatement statement, Integer entity) {
+                statement.bindLong(1, entity);
+                statement.bindString(2, "name" + entity);
+            }
+
+            @Override
+            protected String createQuery() {
+                return QUERY;
+            }
+        };
+    }
+
+    @Test
+    public void insertWithoutBatching() {
+        mDb.mMaxInsertBatchRows = 1;
+        mAdapter.insert(Arrays.asList(1, 2, 3));
+        verify(mStmt, times(3)).executeInsert();
+        verify(mStmt).bindLong(1, 3);
+    }
+
+    @Test
+    public void insertBatched() {
+        mDb.mMaxInsertBatchRows = 2;
+        mAdapter.insert(Arrays.asList(1, 2, 3, 4, 5));
+        verify(mBatchStmt, times(2)).executeInsert();
+        verify(mBatchStmt).bindLong(1, 1);
+        verify(mBatchStmt).bindString(2, "name1");
+        verify(mBatchStmt).bindLong(3, 2);
+        verify(mBatchStmt).bindString(4, "name2");
+        verify(mBatchStmt).bindLong(1, 3);
+        verify(mBatchStmt).bindLong(3, 4);
+        // the remainder goes through the single row statement
+        verify(mStmt).executeInsert();
+        verify(mStmt).bindLong(1, 5);
+        verify(mStmt).bindString(2, "name5");
+    }
+
+    @Test
+    public void insertBatchedArray() {
+        mDb.mMaxInsertBatchRows = 2;
+        mAdapter.insert(new Integer[]{1, 2});
+        verify(mBatchStmt).executeInsert();
+        verify(mStmt, times(0)).executeInsert();
+    }
+
+    @Test
+    public void insertBatchedLimitsRowCount() {
+        final String query = "INSERT OR ABORT INTO `User` (`id`) VALUES (?)";
+        final StringBuilder batchQuery = new StringBuilder(query);
+        for (int i = 1; i < 500; i++) {
+            batchQuery.append(",(?)");
+        }
+        final SupportSQLiteStatement batchStmt = mock(SupportSQLiteStatement.class);
+        when(mDb.compileStatement(query)).thenReturn(mStmt);
+        when(mDb.compileStatement(batchQuery.toString())).thenReturn(batchStmt);
+        final EntityInsertionAdapter<Integer> adapter = new EntityInsertionAdapter<Integer>(mDb) {
+            @Override
+            protected void bind(SupportSQLiteStatement statement, Integer entity) {
+                statement.bindLong(1, entity);
+            }
+
+            @Override
+            protected String createQuery() {
+                return query;
+            }
+        };
+        mDb.mMaxInsertBatchRows = 1000;
+        final Integer[] entities = new Integer[1001];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = i;
+        }
+
+        adapter.insert(entities);
+
+        // At most 500 rows fit in a VALUES clause of older SQLite versions.
+        verify(batchStmt, times(2)).executeInsert();
+        verify(batchStmt).bindLong(500, 499);
+        verify(mStmt).executeInsert();
+        verify(mStmt).bindLong(1, 1000);
+    }
+}
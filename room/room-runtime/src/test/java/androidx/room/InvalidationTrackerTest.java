@@ -17,6 +17,7 @@
 package androidx.room;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsCollectionContaining.hasItem;
 import static org.hamcrest.core.IsCollectionContaining.hasItems;
@@ -28,6 +29,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -206,6 +208,26 @@ public class InvalidationTrackerTest {
         verify(mTaskExecutorRule.getTaskExecutor()).executeOnDiskIO(mTracker.mRefreshRunnable);
     }
 
+    @Test
+    public void coalescedRefresh() throws Exception {
+        when(mRoomDatabase.query(any(SimpleSQLiteQuery.class)))
+                .thenReturn(mock(Cursor.class));
+        mTracker.setRefreshCoalescingWindow(100);
+        for (int i = 0; i < 5; i++) {
+            mTracker.refreshVersionsAsync();
+        }
+        // the refresh is only handed to the query executor once the window elapses
+        verify(mTaskExecutorRule.getTaskExecutor(), times(0))
+                .executeOnDiskIO(mTracker.mRefreshRunnable);
+
+        verify(mTaskExecutorRule.getTaskExecutor(), timeout(1000))
+                .executeOnDiskIO(mTracker.mRefreshRunnable);
+        drainTasks();
+        verify(mTaskExecutorRule.getTaskExecutor(), times(1))
+                .executeOnDiskIO(mTracker.mRefreshRunnable);
+        verify(mRoomDatabase, times(1)).query(any(SimpleSQLiteQuery.class));
+    }
+
     @Test
     public void observe1Table() throws Exception {
         LatchObserver observer = new LatchObserver(1, "a");
@@ -257,6 +279,22 @@ public class InvalidationTrackerTest {
         assertThat(observer.await(), is(false));
     }
 
+    @Test
+    public void observe2TablesReusesInvalidatedSet() throws Exception {
+        LatchObserver observer = new LatchObserver(1, "A", "B");
+        mTracker.addObserver(observer);
+        setInvalidatedTables(0, 1);
+        refreshSync();
+        assertThat(observer.await(), is(true));
+        Set<String> first = observer.getInvalidatedTables();
+
+        setInvalidatedTables(1, 0);
+        observer.reset(1);
+        refreshSync();
+        assertThat(observer.await(), is(true));
+        assertThat(observer.getInvalidatedTables(), sameInstance(first));
+    }
+
     @Test
     public void locale() {
         LatchObserver observer = new LatchObserver(1, "I");
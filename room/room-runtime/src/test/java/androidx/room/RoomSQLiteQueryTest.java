@@ -25,6 +25,7 @@ import static org.mockito.Mockito.verify;
 
 import androidx.sqlite.db.SupportSQLiteProgram;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -33,6 +34,8 @@ import org.junit.runners.JUnit4;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RunWith(JUnit4.class)
 public class RoomSQLiteQueryTest {
@@ -41,6 +44,12 @@ public class RoomSQLiteQueryTest {
         RoomSQLiteQuery.sQueryPool.clear();
     }
 
+    @After
+    public void resetPool() {
+        RoomSQLiteQuery.configurePool(1, RoomSQLiteQuery.POOL_LIMIT);
+        RoomSQLiteQuery.sPoolConfiguredOnce = false;
+    }
+
     @Test
     public void acquireBasic() {
         RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 3);
@@ -137,6 +146,99 @@ public class RoomSQLiteQueryTest {
         pruneCacheTest();
     }
 
+    @Test
+    public void poolStatistics() {
+        RoomSQLiteQuery.configurePool(1, RoomSQLiteQuery.POOL_LIMIT);
+        RoomSQLiteQuery query1 = RoomSQLiteQuery.acquire("abc", 3);
+        RoomSQLiteQuery query2 = RoomSQLiteQuery.acquire("abc", 3);
+        assertThat(RoomSQLiteQuery.getPoolMissCount(), is(2L));
+        query1.release();
+        query2.release();
+        assertThat(RoomSQLiteQuery.getPoolEvictionCount(), is(1L));
+        RoomSQLiteQuery.acquire("abc", 3);
+        assertThat(RoomSQLiteQuery.getPoolHitCount(), is(1L));
+    }
+
+    @Test
+    public void configurePoolDropsPooledQueries() {
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 3);
+        query.release();
+        RoomSQLiteQuery.configurePool(4, 5);
+        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(0));
+        assertThat(RoomSQLiteQuery.acquire("abc", 3), not(sameInstance(query)));
+    }
+
+    @Test
+    public void configurePoolRoundsStripeCount() {
+        RoomSQLiteQuery.configurePool(3, 5);
+        assertThat(RoomSQLiteQuery.getStripeCount(), is(4));
+        RoomSQLiteQuery.configurePool(8, 5);
+        assertThat(RoomSQLiteQuery.getStripeCount(), is(8));
+        RoomSQLiteQuery.configurePool(Integer.MAX_VALUE, 5);
+        assertThat(RoomSQLiteQuery.getStripeCount(), is(RoomSQLiteQuery.MAX_STRIPE_COUNT));
+    }
+
+    @Test
+    public void configurePoolOnceOnlyAppliesFirstConfiguration() {
+        assertThat(RoomSQLiteQuery.configurePoolOnce(4, 5), is(true));
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 3);
+        query.release();
+        assertThat(RoomSQLiteQuery.configurePoolOnce(8, 5), is(false));
+        assertThat(RoomSQLiteQuery.getStripeCount(), is(4));
+        assertThat(RoomSQLiteQuery.acquire("abc", 3), sameInstance(query));
+    }
+
+    @Test
+    public void stripedPoolReusesOnSameThread() {
+        RoomSQLiteQuery.configurePool(8, 5);
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 3);
+        query.release();
+        assertThat(RoomSQLiteQuery.acquire("dsa", 2), sameInstance(query));
+    }
+
+    @Test
+    public void stripedPoolLimit() {
+        RoomSQLiteQuery.configurePool(1, 3);
+        for (int i = 0; i < 4; i++) {
+            RoomSQLiteQuery.acquire("dsdsa", i).release();
+        }
+        // pruned back to two thirds of the limit, keeping the smaller queries
+        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(2));
+        assertThat(RoomSQLiteQuery.sQueryPool.lastKey(), is(1));
+        assertThat(RoomSQLiteQuery.getPoolEvictionCount(), is(2L));
+    }
+
+    @Test
+    public void stripedPoolConcurrentAccess() throws InterruptedException {
+        RoomSQLiteQuery.configurePool(4, 5);
+        final int threadCount = 8;
+        final int iterations = 1000;
+        final CountDownLatch latch = new CountDownLatch(threadCount);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threadCount; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < iterations; i++) {
+                            RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", i % 4);
+                            query.bindLong(0, i);
+                            query.release();
+                        }
+                    } catch (Throwable throwable) {
+                        failure.set(throwable);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+        assertThat(failure.get(), is((Throwable) null));
+        assertThat(RoomSQLiteQuery.getPoolHitCount() + RoomSQLiteQuery.getPoolMissCount(),
+                is((long) threadCount * iterations));
+    }
+
     private void pruneCacheTest() {
         assertThat(RoomSQLiteQuery.sQueryPool.size(), is(RoomSQLiteQuery.POOL_LIMIT));
         RoomSQLiteQuery.acquire("dsadsa", RoomSQLiteQuery.POOL_LIMIT + 1).release();
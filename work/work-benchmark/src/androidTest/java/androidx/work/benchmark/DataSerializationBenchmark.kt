@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.benchmark
+
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.filters.LargeTest
+import androidx.work.Data
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.ByteArrayOutputStream
+import java.io.ObjectOutputStream
+
+/**
+ * Compares encoding and decoding [Data] with the binary format against decoding the Java
+ * serialized payloads written by previous versions. Payload sizes are logged for each shape.
+ */
+@RunWith(Parameterized::class)
+@LargeTest
+class DataSerializationBenchmark(private val shape: Shape) {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var data: Data
+    private lateinit var bytes: ByteArray
+    private lateinit var legacyBytes: ByteArray
+
+    @Before
+    fun setUp() {
+        data = shape.create()
+        bytes = data.toByteArray()
+        legacyBytes = javaSerialize(data)
+        Log.i(TAG, "$shape: ${bytes.size} bytes, ${legacyBytes.size} bytes serialized")
+        assertTrue(bytes.size < legacyBytes.size)
+        assertEquals(data, Data.fromByteArray(legacyBytes))
+    }
+
+    @Test
+    fun encode() {
+        benchmarkRule.measureRepeated {
+            data.toByteArray()
+        }
+    }
+
+    @Test
+    fun decode() {
+        benchmarkRule.measureRepeated {
+            Data.fromByteArray(bytes)
+        }
+    }
+
+    @Test
+    fun decodeJavaSerialized() {
+        benchmarkRule.measureRepeated {
+            Data.fromByteArray(legacyBytes)
+        }
+    }
+
+    /**
+     * Writes [data] the way WorkManager did before the binary format was introduced.
+     */
+    private fun javaSerialize(data: Data): ByteArray {
+        val outputStream = ByteArrayOutputStream()
+        ObjectOutputStream(outputStream).use { objectOutputStream ->
+            objectOutputStream.writeInt(data.keyValueMap.size)
+            for ((key, value) in data.keyValueMap) {
+                objectOutputStream.writeUTF(key)
+                objectOutputStream.writeObject(value)
+            }
+        }
+        return outputStream.toByteArray()
+    }
+
+    enum class Shape {
+        /** A single id, the most common input. */
+        SINGLE_LONG {
+            override fun create() = Data.Builder()
+                .putLong("id", 123456789L)
+                .build()
+        },
+        /** A handful of scalar values. */
+        SCALARS {
+            override fun create() = Data.Builder()
+                .putString("url", "https://example.com/upload/photos/2021/IMG_0042.jpg")
+                .putString("account", "user@example.com")
+                .putInt("attempt", 3)
+                .putLong("timestamp", 1_625_000_000_000L)
+                .putBoolean("wifi_only", true)
+                .putDouble("progress", 0.75)
+                .build()
+        },
+        /** Progress style payload with primitive arrays. */
+        ARRAYS {
+            override fun create() = Data.Builder()
+                .putIntArray("sizes", IntArray(200) { it * 1024 })
+                .putLongArray("ids", LongArray(100) { 1_000_000L + it })
+                .putFloatArray("weights", FloatArray(50) { it / 50f })
+                .build()
+        },
+        /** Strings arrays with repeated values. */
+        STRINGS {
+            override fun create() = Data.Builder()
+                .putStringArray(
+                    "uris",
+                    Array(50) { "content://media/external/images/media/${it % 10}" }
+                )
+                .putStringArray("states", Array(50) { if (it % 2 == 0) "PENDING" else "DONE" })
+                .build()
+        };
+
+        abstract fun create(): Data
+    }
+
+    companion object {
+        private const val TAG = "DataSerialization"
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "shape={0}")
+        fun parameters(): List<Shape> = Shape.values().toList()
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.benchmark
+
+import android.content.Context
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.work.Configuration
+import androidx.work.ExistingWorkPolicy
+import androidx.work.OneTimeWorkRequest
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.impl.Processor
+import androidx.work.impl.Scheduler
+import androidx.work.impl.WorkContinuationImpl
+import androidx.work.impl.WorkDatabase
+import androidx.work.impl.WorkManagerImpl
+import androidx.work.impl.model.WorkSpec
+import androidx.work.impl.utils.EnqueueRunnable
+import androidx.work.impl.utils.SerialExecutor
+import androidx.work.impl.utils.taskexecutor.TaskExecutor
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.util.concurrent.Executor
+
+/**
+ * Measures enqueueing a large number of unique [OneTimeWorkRequest]s at once. [databaseOnly]
+ * covers the transaction writing the rows, [enqueue] adds the hand-off to the schedulers, which
+ * are no-ops here so that only WorkManager's own work is measured.
+ */
+@RunWith(Parameterized::class)
+@LargeTest
+class EnqueueBenchmark(private val count: Int) {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var context: Context
+    private lateinit var executor: DispatchingExecutor
+    private lateinit var database: WorkDatabase
+    private lateinit var workManager: WorkManagerImpl
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        executor = DispatchingExecutor()
+        val serialExecutor = SerialExecutor(executor)
+        val taskExecutor = object : TaskExecutor {
+            override fun postToMainThread(runnable: Runnable) {
+                serialExecutor.execute(runnable)
+            }
+
+            override fun getMainThreadExecutor(): Executor {
+                return serialExecutor
+            }
+
+            override fun executeOnBackgroundThread(runnable: Runnable) {
+                serialExecutor.execute(runnable)
+            }
+
+            override fun getBackgroundExecutor(): SerialExecutor {
+                return serialExecutor
+            }
+        }
+        val configuration = Configuration.Builder()
+            .setTaskExecutor(executor)
+            .setExecutor(executor)
+            .setMinimumLoggingLevel(Log.DEBUG)
+            .build()
+        database = WorkDatabase.create(context, executor, true)
+        val schedulers = listOf<Scheduler>(NoOpScheduler(true), NoOpScheduler(false))
+        val processor = Processor(context, configuration, taskExecutor, database, schedulers)
+        workManager = WorkManagerImpl(
+            context, configuration, taskExecutor, database, schedulers, processor
+        )
+        executor.runAllCommands()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun databaseOnly() {
+        benchmarkRule.measureRepeated {
+            val runnable = runWithTimingDisabled { createEnqueueRunnable() }
+            runnable.addToDatabase()
+            runWithTimingDisabled { database.clearAllTables() }
+        }
+    }
+
+    @Test
+    fun enqueue() {
+        benchmarkRule.measureRepeated {
+            val runnable = runWithTimingDisabled { createEnqueueRunnable() }
+            runnable.run()
+            runWithTimingDisabled { database.clearAllTables() }
+        }
+    }
+
+    private fun createEnqueueRunnable(): EnqueueRunnable {
+        val requests = List(count) { i ->
+            OneTimeWorkRequestBuilder<NoOpWorker>()
+                .addTag("sync")
+                .addTag("item-$i")
+                .build()
+        }
+        val continuation = WorkContinuationImpl(
+            workManager, "sync", ExistingWorkPolicy.APPEND_OR_REPLACE, requests
+        )
+        return EnqueueRunnable(continuation)
+    }
+
+    private class NoOpScheduler(private val limited: Boolean) : Scheduler {
+        override fun schedule(vararg workSpecs: WorkSpec) {
+        }
+
+        override fun cancel(workSpecId: String) {
+        }
+
+        override fun hasLimitedSchedulingSlots() = limited
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "count={0}")
+        fun parameters(): List<Int> = listOf(100, 1_000, 5_000)
+    }
+}
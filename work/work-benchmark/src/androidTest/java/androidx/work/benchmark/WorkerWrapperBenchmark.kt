@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.benchmark
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.work.Configuration
+import androidx.work.OneTimeWorkRequest
+import androidx.work.Worker
+import androidx.work.WorkerParameters
+import androidx.work.WorkInfo
+import androidx.work.impl.Processor
+import androidx.work.impl.WorkDatabase
+import androidx.work.impl.WorkerWrapper
+import androidx.work.impl.model.Dependency
+import androidx.work.impl.utils.SerialExecutor
+import androidx.work.impl.utils.SynchronousExecutor
+import androidx.work.impl.utils.taskexecutor.TaskExecutor
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.util.concurrent.Executor
+
+/**
+ * Runs [count] workers that do nothing through [WorkerWrapper], so that the time measured is the
+ * time WorkManager spends in the database per worker. Divide [count] by the reported time to get
+ * the number of workers per second.
+ */
+@RunWith(Parameterized::class)
+@LargeTest
+class WorkerWrapperBenchmark(private val count: Int) {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var context: Context
+    private lateinit var configuration: Configuration
+    private lateinit var taskExecutor: TaskExecutor
+    private lateinit var database: WorkDatabase
+    private lateinit var processor: Processor
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        // Everything runs on the benchmark thread, so each worker is complete once run() returns.
+        val executor = SynchronousExecutor()
+        val serialExecutor = SerialExecutor(executor)
+        taskExecutor = object : TaskExecutor {
+            override fun postToMainThread(runnable: Runnable) {
+                runnable.run()
+            }
+
+            override fun getMainThreadExecutor(): Executor {
+                return executor
+            }
+
+            override fun executeOnBackgroundThread(runnable: Runnable) {
+                runnable.run()
+            }
+
+            override fun getBackgroundExecutor(): SerialExecutor {
+                return serialExecutor
+            }
+        }
+        configuration = Configuration.Builder()
+            .setTaskExecutor(executor)
+            .setExecutor(executor)
+            .build()
+        database = WorkDatabase.create(context, executor, true)
+        processor = Processor(context, configuration, taskExecutor, database, emptyList())
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun independentWorkers() {
+        benchmarkRule.measureRepeated {
+            val ids = runWithTimingDisabled { insertWork(chained = false) }
+            for (id in ids) {
+                createWorkerWrapper(id).run()
+            }
+            runWithTimingDisabled { database.clearAllTables() }
+        }
+    }
+
+    @Test
+    fun chainedWorkers() {
+        // Every worker unblocks the next one when it succeeds.
+        benchmarkRule.measureRepeated {
+            val ids = runWithTimingDisabled { insertWork(chained = true) }
+            for (id in ids) {
+                createWorkerWrapper(id).run()
+            }
+            runWithTimingDisabled { database.clearAllTables() }
+        }
+    }
+
+    private fun insertWork(chained: Boolean): List<String> {
+        val requests = List(count) { OneTimeWorkRequest.Builder(TinyWorker::class.java).build() }
+        database.runInTransaction {
+            requests.forEachIndexed { i, request ->
+                if (chained && i > 0) {
+                    request.workSpec.state = WorkInfo.State.BLOCKED
+                }
+                database.workSpecDao().insertWorkSpec(request.workSpec)
+                if (chained && i > 0) {
+                    database.dependencyDao().insertDependency(
+                        Dependency(request.stringId, requests[i - 1].stringId)
+                    )
+                }
+            }
+        }
+        return requests.map { it.stringId }
+    }
+
+    private fun createWorkerWrapper(id: String): WorkerWrapper {
+        return WorkerWrapper.Builder(
+            context, configuration, taskExecutor, processor, database, id
+        ).build()
+    }
+
+    class TinyWorker(context: Context, parameters: WorkerParameters) :
+        Worker(context, parameters) {
+        override fun doWork(): Result {
+            return Result.success()
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "count={0}")
+        fun parameters(): List<Int> = listOf(100, 1_000)
+    }
+}
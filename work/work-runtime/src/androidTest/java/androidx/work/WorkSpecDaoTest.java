@@ -17,7 +17,9 @@
 package androidx.work;
 
 import static androidx.work.WorkInfo.State.BLOCKED;
+import static androidx.work.WorkInfo.State.CANCELLED;
 import static androidx.work.WorkInfo.State.FAILED;
+import static androidx.work.WorkInfo.State.RUNNING;
 import static androidx.work.WorkInfo.State.SUCCEEDED;
 import static androidx.work.impl.Scheduler.MAX_SCHEDULER_LIMIT;
 
@@ -218,4 +220,28 @@ public class WorkSpecDaoTest extends DatabaseTest {
         // Not using contains in any order as the scheduleRequestedAt changes post reset.
         assertThat(eligibleWorkSpecs.get(0).id, is(enqueued.getStringId()));
     }
+
+    @Test
+    @SmallTest
+    public void testSetRunningIfEnqueued() {
+        WorkSpecDao workSpecDao = mDatabase.workSpecDao();
+        OneTimeWorkRequest enqueued = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        OneTimeWorkRequest cancelled = new OneTimeWorkRequest.Builder(TestWorker.class)
+                .setInitialState(CANCELLED)
+                .build();
+        insertWork(enqueued);
+        insertWork(cancelled);
+
+        assertThat(workSpecDao.setRunningIfEnqueued(enqueued.getStringId()), is(1));
+        assertThat(workSpecDao.setRunningIfEnqueued(cancelled.getStringId()), is(0));
+        // The work is already running, so it can't be run a second time.
+        assertThat(workSpecDao.setRunningIfEnqueued(enqueued.getStringId()), is(0));
+
+        WorkSpec running = workSpecDao.getWorkSpec(enqueued.getStringId());
+        assertThat(running.state, is(RUNNING));
+        assertThat(running.runAttemptCount, is(1));
+        WorkSpec notRunning = workSpecDao.getWorkSpec(cancelled.getStringId());
+        assertThat(notRunning.state, is(CANCELLED));
+        assertThat(notRunning.runAttemptCount, is(0));
+    }
 }
@@ -114,6 +114,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -230,6 +231,30 @@ public class WorkManagerImplTest {
         assertThat(workSpecDao.getWorkSpec(work3.getStringId()), is(notNullValue()));
     }
 
+    @Test
+    @MediumTest
+    public void testEnqueue_insertManyUniqueWork() throws ExecutionException, InterruptedException {
+        final String uniqueName = "myname";
+        final String tag = "tag";
+        List<OneTimeWorkRequest> workList = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            workList.add(new OneTimeWorkRequest.Builder(TestWorker.class).addTag(tag).build());
+        }
+
+        mWorkManagerImpl.enqueueUniqueWork(uniqueName, REPLACE, workList).getResult().get();
+
+        WorkSpecDao workSpecDao = mDatabase.workSpecDao();
+        List<String> ids = new ArrayList<>();
+        for (OneTimeWorkRequest work : workList) {
+            assertThat(workSpecDao.getWorkSpec(work.getStringId()), is(notNullValue()));
+            ids.add(work.getStringId());
+        }
+        assertThat(mDatabase.workTagDao().getWorkSpecIdsWithTag(tag),
+                containsInAnyOrder(ids.toArray()));
+        assertThat(mDatabase.workNameDao().getWorkSpecIdsWithName(uniqueName),
+                containsInAnyOrder(ids.toArray()));
+    }
+
     @Test
     @MediumTest
     public void testEnqueue_insertMultipleWork_continuationBlocking()
@@ -64,6 +64,8 @@ public final class Configuration {
     @SuppressWarnings("WeakerAccess")
     final @NonNull RunnableScheduler mRunnableScheduler;
     @SuppressWarnings("WeakerAccess")
+    final @NonNull ExecutionPolicy mExecutionPolicy;
+    @SuppressWarnings("WeakerAccess")
     final @Nullable InitializationExceptionHandler mExceptionHandler;
     @SuppressWarnings("WeakerAccess")
     final @Nullable String mDefaultProcessName;
@@ -113,6 +115,12 @@ public final class Configuration {
             mRunnableScheduler = builder.mRunnableScheduler;
         }
 
+        if (builder.mExecutionPolicy == null) {
+            mExecutionPolicy = new ExecutionPolicy.Builder().build();
+        } else {
+            mExecutionPolicy = builder.mExecutionPolicy;
+        }
+
         mLoggingLevel = builder.mLoggingLevel;
         mMinJobSchedulerId = builder.mMinJobSchedulerId;
         mMaxJobSchedulerId = builder.mMaxJobSchedulerId;
@@ -168,6 +176,15 @@ public final class Configuration {
         return mRunnableScheduler;
     }
 
+    /**
+     * @return The {@link ExecutionPolicy} that decides in which order {@link WorkManager} starts
+     * work, and how much of it runs at the same time.
+     */
+    @NonNull
+    public ExecutionPolicy getExecutionPolicy() {
+        return mExecutionPolicy;
+    }
+
     /**
      * Gets the minimum logging level for {@link WorkManager}.
      *
@@ -271,6 +288,7 @@ public final class Configuration {
         InputMergerFactory mInputMergerFactory;
         Executor mTaskExecutor;
         RunnableScheduler mRunnableScheduler;
+        ExecutionPolicy mExecutionPolicy;
         @Nullable InitializationExceptionHandler mExceptionHandler;
         @Nullable String mDefaultProcessName;
 
@@ -309,6 +327,7 @@ public final class Configuration {
             mMaxJobSchedulerId = configuration.mMaxJobSchedulerId;
             mMaxSchedulerLimit = configuration.mMaxSchedulerLimit;
             mRunnableScheduler = configuration.mRunnableScheduler;
+            mExecutionPolicy = configuration.mExecutionPolicy;
             mExceptionHandler = configuration.mExceptionHandler;
             mDefaultProcessName = configuration.mDefaultProcessName;
         }
@@ -455,6 +474,19 @@ public final class Configuration {
             return this;
         }
 
+        /**
+         * Specifies the {@link ExecutionPolicy} that decides in which order {@link WorkManager}
+         * starts work, and how much of it runs at the same time.
+         *
+         * @param executionPolicy The {@link ExecutionPolicy} to be used
+         * @return This {@link Builder} instance
+         */
+        @NonNull
+        public Builder setExecutionPolicy(@NonNull ExecutionPolicy executionPolicy) {
+            mExecutionPolicy = executionPolicy;
+            return this;
+        }
+
         /**
          * Specifies the {@link InitializationExceptionHandler} that can be used to intercept
          * exceptions caused when trying to initialize  {@link WorkManager}.
@@ -26,10 +26,8 @@ import androidx.annotation.VisibleForTesting;
 import androidx.room.TypeConverter;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -363,6 +361,10 @@ public final class Data {
 
     /**
      * Converts {@link Data} to a byte array for persistent storage.
+     * <p>
+     * The byte array is written in the format of {@link DataBinaryFormat}, which previous versions
+     * of WorkManager read as empty {@link Data}, so the persisted values are lost if the app is
+     * downgraded to one of them.
      *
      * @param data The {@link Data} object to convert
      * @return The byte array representation of the input
@@ -374,41 +376,13 @@ public final class Data {
     @TypeConverter
     @NonNull
     public static byte[] toByteArrayInternal(@NonNull Data data) {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ObjectOutputStream objectOutputStream = null;
-        try {
-            objectOutputStream = new ObjectOutputStream(outputStream);
-            objectOutputStream.writeInt(data.size());
-            for (Map.Entry<String, Object> entry : data.mValues.entrySet()) {
-                objectOutputStream.writeUTF(entry.getKey());
-                objectOutputStream.writeObject(entry.getValue());
-            }
-        } catch (IOException e) {
-            Log.e(TAG, "Error in Data#toByteArray: ", e);
-            return outputStream.toByteArray();
-        } finally {
-            if (objectOutputStream != null) {
-                try {
-                    // NOTE: this writes something to the output stream for bookkeeping purposes.
-                    // Don't get the byteArray before we do this!
-                    objectOutputStream.close();
-                } catch (IOException e) {
-                    Log.e(TAG, "Error in Data#toByteArray: ", e);
-                }
-            }
-            try {
-                outputStream.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Error in Data#toByteArray: ", e);
-            }
-        }
-
-        if (outputStream.size() > MAX_DATA_BYTES) {
+        byte[] bytes = DataBinaryFormat.encode(data.mValues);
+        if (bytes.length > MAX_DATA_BYTES) {
             throw new IllegalStateException(
                     "Data cannot occupy more than " + MAX_DATA_BYTES
                             + " bytes when serialized");
         }
-        return outputStream.toByteArray();
+        return bytes;
     }
 
     /**
@@ -426,6 +400,16 @@ public final class Data {
                     "Data cannot occupy more than " + MAX_DATA_BYTES + " bytes when serialized");
         }
 
+        if (DataBinaryFormat.isBinaryFormat(bytes)) {
+            try {
+                return new Data(DataBinaryFormat.decode(bytes));
+            } catch (IOException e) {
+                Log.e(TAG, "Error in Data#fromByteArray: ", e);
+                return new Data(new HashMap<String, Object>());
+            }
+        }
+
+        // Data persisted by previous versions of WorkManager uses Java serialization.
         Map<String, Object> map = new HashMap<>();
         ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
         ObjectInputStream objectInputStream = null;
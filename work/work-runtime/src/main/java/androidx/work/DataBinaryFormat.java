@@ -0,0 +1,531 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The binary format {@link Data} is persisted with.
+ * <p>
+ * A payload starts with a two byte magic number and a version byte, followed by the number of
+ * entries and then each key and value. Lengths and integral values are written as varints
+ * (zigzag encoded for signed values), floating point values as their raw bits, and arrays are
+ * written element by element without boxing. Strings are written as their UTF-16 code units,
+ * one varint each, which keeps ASCII strings at one byte per character while preserving any
+ * char sequence exactly. Every distinct string, keys included, is written once; further
+ * occurrences refer back to it.
+ * <p>
+ * Payloads written by previous versions of WorkManager use Java serialization, which always
+ * starts with {@code 0xACED}. {@link #isBinaryFormat} tells the two apart.
+ * <p>
+ * This format is not forward compatible: previous versions of WorkManager read these payloads as
+ * empty {@link Data}. If an app is downgraded to such a version, the inputs of its pending work
+ * and the outputs of its finished work that were persisted in this format are lost.
+ */
+final class DataBinaryFormat {
+    private static final byte MAGIC_0 = (byte) 0xAB;
+    private static final byte MAGIC_1 = (byte) 0xDA;
+    private static final int VERSION = 1;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_BOOLEAN = 1;
+    private static final int TYPE_BYTE = 2;
+    private static final int TYPE_INT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_FLOAT = 5;
+    private static final int TYPE_DOUBLE = 6;
+    private static final int TYPE_STRING = 7;
+    private static final int TYPE_BOOLEAN_ARRAY = 8;
+    private static final int TYPE_BYTE_ARRAY = 9;
+    private static final int TYPE_INT_ARRAY = 10;
+    private static final int TYPE_LONG_ARRAY = 11;
+    private static final int TYPE_FLOAT_ARRAY = 12;
+    private static final int TYPE_DOUBLE_ARRAY = 13;
+    private static final int TYPE_STRING_ARRAY = 14;
+
+    private DataBinaryFormat() {
+    }
+
+    /**
+     * @return {@code true} if the payload was written by {@link #encode}, {@code false} if it
+     * was written with Java serialization.
+     */
+    static boolean isBinaryFormat(@NonNull byte[] bytes) {
+        return bytes.length >= 3 && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    @NonNull
+    static byte[] encode(@NonNull Map<String, Object> values) {
+        Writer writer = new Writer();
+        writer.writeByte(MAGIC_0);
+        writer.writeByte(MAGIC_1);
+        writer.writeByte(VERSION);
+        writer.writeVarint(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writer.writeString(entry.getKey());
+            writer.writeValue(entry.getValue());
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the payload is malformed or was written by a newer version
+     */
+    @NonNull
+    static Map<String, Object> decode(@NonNull byte[] bytes) throws IOException {
+        Reader reader = new Reader(bytes);
+        reader.readByte();
+        reader.readByte();
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported Data format version " + version);
+        }
+        int size = reader.readLength();
+        Map<String, Object> values = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            String key = reader.readString();
+            if (key == null) {
+                throw new IOException("Null key");
+            }
+            values.put(key, reader.readValue());
+        }
+        return values;
+    }
+
+    private static final class Writer {
+        private byte[] mBuffer = new byte[64];
+        private int mPosition;
+        private HashMap<String, Integer> mStrings;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            mBuffer[mPosition++] = (byte) value;
+        }
+
+        void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                mBuffer[mPosition++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mPosition++] = (byte) value;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                mBuffer[mPosition++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mPosition++] = (byte) value;
+        }
+
+        void writeSignedVarint(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        void writeSignedVarint(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeFixed32(int value) {
+            ensureCapacity(4);
+            mBuffer[mPosition++] = (byte) value;
+            mBuffer[mPosition++] = (byte) (value >> 8);
+            mBuffer[mPosition++] = (byte) (value >> 16);
+            mBuffer[mPosition++] = (byte) (value >> 24);
+        }
+
+        void writeFixed64(long value) {
+            writeFixed32((int) value);
+            writeFixed32((int) (value >> 32));
+        }
+
+        /**
+         * Writes 0 for null, {@code index << 1 | 1} for a string that was already written, or
+         * {@code (length + 1) << 1} followed by the chars for a new string.
+         */
+        void writeString(@Nullable String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            if (mStrings == null) {
+                mStrings = new HashMap<>();
+            }
+            Integer index = mStrings.get(value);
+            if (index != null) {
+                writeVarint((index << 1) | 1);
+                return;
+            }
+            mStrings.put(value, mStrings.size());
+            int length = value.length();
+            writeVarint((length + 1) << 1);
+            ensureCapacity(length * 3);
+            for (int i = 0; i < length; i++) {
+                int c = value.charAt(i);
+                while ((c & ~0x7F) != 0) {
+                    mBuffer[mPosition++] = (byte) ((c & 0x7F) | 0x80);
+                    c >>>= 7;
+                }
+                mBuffer[mPosition++] = (byte) c;
+            }
+        }
+
+        /**
+         * Writes a bitmap of the non null elements if some elements of a boxed array are null.
+         *
+         * @return {@code true} if a bitmap was written
+         */
+        boolean writeNulls(Object[] array) {
+            boolean hasNulls = false;
+            for (Object element : array) {
+                if (element == null) {
+                    hasNulls = true;
+                    break;
+                }
+            }
+            writeByte(hasNulls ? 1 : 0);
+            if (hasNulls) {
+                for (int i = 0; i < array.length; i += 8) {
+                    int bits = 0;
+                    for (int j = i; j < i + 8 && j < array.length; j++) {
+                        if (array[j] != null) {
+                            bits |= 1 << (j - i);
+                        }
+                    }
+                    writeByte(bits);
+                }
+            }
+            return hasNulls;
+        }
+
+        void writeValue(@Nullable Object value) {
+            if (value == null) {
+                writeByte(TYPE_NULL);
+            } else if (value instanceof Boolean) {
+                writeByte(TYPE_BOOLEAN);
+                writeByte((Boolean) value ? 1 : 0);
+            } else if (value instanceof Byte) {
+                writeByte(TYPE_BYTE);
+                writeByte((Byte) value);
+            } else if (value instanceof Integer) {
+                writeByte(TYPE_INT);
+                writeSignedVarint((int) (Integer) value);
+            } else if (value instanceof Long) {
+                writeByte(TYPE_LONG);
+                writeSignedVarint((long) (Long) value);
+            } else if (value instanceof Float) {
+                writeByte(TYPE_FLOAT);
+                writeFixed32(Float.floatToRawIntBits((Float) value));
+            } else if (value instanceof Double) {
+                writeByte(TYPE_DOUBLE);
+                writeFixed64(Double.doubleToRawLongBits((Double) value));
+            } else if (value instanceof String) {
+                writeByte(TYPE_STRING);
+                writeString((String) value);
+            } else if (value instanceof Boolean[]) {
+                Boolean[] array = (Boolean[]) value;
+                writeArrayHeader(TYPE_BOOLEAN_ARRAY, array);
+                for (Boolean element : array) {
+                    writeByte(element != null && element ? 1 : 0);
+                }
+            } else if (value instanceof Byte[]) {
+                Byte[] array = (Byte[]) value;
+                writeArrayHeader(TYPE_BYTE_ARRAY, array);
+                for (Byte element : array) {
+                    writeByte(element != null ? element : 0);
+                }
+            } else if (value instanceof Integer[]) {
+                Integer[] array = (Integer[]) value;
+                writeArrayHeader(TYPE_INT_ARRAY, array);
+                for (Integer element : array) {
+                    writeSignedVarint(element != null ? element : 0);
+                }
+            } else if (value instanceof Long[]) {
+                Long[] array = (Long[]) value;
+                writeArrayHeader(TYPE_LONG_ARRAY, array);
+                for (Long element : array) {
+                    writeSignedVarint(element != null ? element : 0L);
+                }
+            } else if (value instanceof Float[]) {
+                Float[] array = (Float[]) value;
+                writeArrayHeader(TYPE_FLOAT_ARRAY, array);
+                for (Float element : array) {
+                    writeFixed32(element != null ? Float.floatToRawIntBits(element) : 0);
+                }
+            } else if (value instanceof Double[]) {
+                Double[] array = (Double[]) value;
+                writeArrayHeader(TYPE_DOUBLE_ARRAY, array);
+                for (Double element : array) {
+                    writeFixed64(element != null ? Double.doubleToRawLongBits(element) : 0L);
+                }
+            } else if (value instanceof String[]) {
+                String[] array = (String[]) value;
+                writeByte(TYPE_STRING_ARRAY);
+                writeVarint(array.length);
+                for (String element : array) {
+                    writeString(element);
+                }
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported value type " + value.getClass().getName());
+            }
+        }
+
+        private void writeArrayHeader(int type, Object[] array) {
+            writeByte(type);
+            writeVarint(array.length);
+            writeNulls(array);
+        }
+
+        @NonNull
+        byte[] toByteArray() {
+            return Arrays.copyOf(mBuffer, mPosition);
+        }
+
+        private void ensureCapacity(int count) {
+            if (mPosition + count > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mPosition + count));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] mBuffer;
+        private int mPosition;
+        private final ArrayList<String> mStrings = new ArrayList<>();
+
+        Reader(@NonNull byte[] buffer) {
+            mBuffer = buffer;
+        }
+
+        int readByte() throws IOException {
+            if (mPosition >= mBuffer.length) {
+                throw new IOException("Unexpected end of Data");
+            }
+            return mBuffer[mPosition++];
+        }
+
+        int readVarint() throws IOException {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        long readVarint64() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        int readSignedVarint() throws IOException {
+            int value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readSignedVarint64() throws IOException {
+            long value = readVarint64();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readFixed32() throws IOException {
+            return (readByte() & 0xFF)
+                    | (readByte() & 0xFF) << 8
+                    | (readByte() & 0xFF) << 16
+                    | (readByte() & 0xFF) << 24;
+        }
+
+        long readFixed64() throws IOException {
+            return (readFixed32() & 0xFFFFFFFFL) | ((long) readFixed32() << 32);
+        }
+
+        /**
+         * Reads a length and checks that it cannot exceed the size of the payload, since every
+         * element takes at least a byte. This prevents a corrupt payload from causing huge
+         * allocations.
+         */
+        int readLength() throws IOException {
+            int length = readVarint();
+            if (length < 0 || length > mBuffer.length - mPosition) {
+                throw new IOException("Invalid length " + length);
+            }
+            return length;
+        }
+
+        @Nullable
+        String readString() throws IOException {
+            int tag = readVarint();
+            if (tag == 0) {
+                return null;
+            }
+            if ((tag & 1) != 0) {
+                int index = tag >>> 1;
+                if (index >= mStrings.size()) {
+                    throw new IOException("Invalid string reference " + index);
+                }
+                return mStrings.get(index);
+            }
+            int length = (tag >>> 1) - 1;
+            if (length > mBuffer.length - mPosition) {
+                throw new IOException("Invalid string length " + length);
+            }
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                int b = readByte();
+                if ((b & 0x80) == 0) {
+                    chars[i] = (char) b;
+                } else {
+                    int c = b & 0x7F;
+                    b = readByte();
+                    c |= (b & 0x7F) << 7;
+                    if ((b & 0x80) != 0) {
+                        c |= readByte() << 14;
+                    }
+                    chars[i] = (char) c;
+                }
+            }
+            String value = new String(chars);
+            mStrings.add(value);
+            return value;
+        }
+
+        /**
+         * @return the bitmap of non null elements, or {@code null} if all elements are non null
+         */
+        @Nullable
+        byte[] readNulls(int length) throws IOException {
+            if (readByte() == 0) {
+                return null;
+            }
+            byte[] bits = new byte[(length + 7) / 8];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = (byte) readByte();
+            }
+            return bits;
+        }
+
+        @Nullable
+        Object readValue() throws IOException {
+            int type = readByte();
+            switch (type) {
+                case TYPE_NULL:
+                    return null;
+                case TYPE_BOOLEAN:
+                    return readByte() != 0;
+                case TYPE_BYTE:
+                    return (byte) readByte();
+                case TYPE_INT:
+                    return readSignedVarint();
+                case TYPE_LONG:
+                    return readSignedVarint64();
+                case TYPE_FLOAT:
+                    return Float.intBitsToFloat(readFixed32());
+                case TYPE_DOUBLE:
+                    return Double.longBitsToDouble(readFixed64());
+                case TYPE_STRING:
+                    return readString();
+                case TYPE_BOOLEAN_ARRAY: {
+                    Boolean[] array = new Boolean[readLength()];
+                    byte[] nulls = readNulls(array.length);
+                    for (int i = 0; i < array.length; i++) {
+                        boolean element = readByte() != 0;
+                        array[i] = isNull(nulls, i) ? null : element;
+                    }
+                    return array;
+                }
+                case TYPE_BYTE_ARRAY: {
+                    Byte[] array = new Byte[readLength()];
+                    byte[] nulls = readNulls(array.length);
+                    for (int i = 0; i < array.length; i++) {
+                        byte element = (byte) readByte();
+                        array[i] = isNull(nulls, i) ? null : element;
+                    }
+                    return array;
+                }
+                case TYPE_INT_ARRAY: {
+                    Integer[] array = new Integer[readLength()];
+                    byte[] nulls = readNulls(array.length);
+                    for (int i = 0; i < array.length; i++) {
+                        int element = readSignedVarint();
+                        array[i] = isNull(nulls, i) ? null : element;
+                    }
+                    return array;
+                }
+                case TYPE_LONG_ARRAY: {
+                    Long[] array = new Long[readLength()];
+                    byte[] nulls = readNulls(array.length);
+                    for (int i = 0; i < array.length; i++) {
+                        long element = readSignedVarint64();
+                        array[i] = isNull(nulls, i) ? null : element;
+                    }
+                    return array;
+                }
+                case TYPE_FLOAT_ARRAY: {
+                    Float[] array = new Float[readLength()];
+                    byte[] nulls = readNulls(array.length);
+                    for (int i = 0; i < array.length; i++) {
+                        float element = Float.intBitsToFloat(readFixed32());
+                        array[i] = isNull(nulls, i) ? null : element;
+                    }
+                    return array;
+                }
+                case TYPE_DOUBLE_ARRAY: {
+                    Double[] array = new Double[readLength()];
+                    byte[] nulls = readNulls(array.length);
+                    for (int i = 0; i < array.length; i++) {
+                        double element = Double.longBitsToDouble(readFixed64());
+                        array[i] = isNull(nulls, i) ? null : element;
+                    }
+                    return array;
+                }
+                case TYPE_STRING_ARRAY: {
+                    String[] array = new String[readLength()];
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = readString();
+                    }
+                    return array;
+                }
+                default:
+                    throw new IOException("Unknown value type " + type);
+            }
+        }
+
+        private static boolean isNull(@Nullable byte[] nulls, int index) {
+            return nulls != null && (nulls[index >> 3] & (1 << (index & 7))) == 0;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import android.annotation.SuppressLint;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides in which order {@link WorkManager} starts the work that is ready to run in this process,
+ * and how much of it can run at the same time.
+ * <p>
+ * By default, work starts as soon as it is ready. An {@code ExecutionPolicy} can instead limit the
+ * number of {@link ListenableWorker}s that run at the same time, either overall or per tag. Work
+ * that can't start right away waits in a queue:
+ * <p><ul>
+ *   <li>Work with a higher priority, set on one of its tags, starts first</li>
+ *   <li>Among work with the same priority, work whose tag has the fewest running
+ *   {@link ListenableWorker}s starts first, so that a burst of work with one tag can't hold back
+ *   the work with other tags</li>
+ *   <li>Otherwise, work starts in the order it became ready</li>
+ * </ul></p>
+ * <p>
+ * For example, to keep long uploads from delaying short syncs:
+ * <pre>
+ * {@code
+ * new ExecutionPolicy.Builder()
+ *     .setMaxConcurrentWork(4)
+ *     .setTagConcurrencyLimit("upload", 2)
+ *     .setTagPriority("sync", 10)
+ *     .build();
+ * }</pre>
+ * <p>
+ * To limit work that shares a constraint, such as work that needs the network, add the same tag to
+ * these {@link WorkRequest}s.
+ * <p>
+ * The limits apply to the work started by {@link WorkManager} in the current process. Work that
+ * waits in the queue keeps its place in the {@link android.app.job.JobScheduler} job or alarm
+ * that started it, so the system may stop it if it waits for too long.
+ *
+ * @see Configuration.Builder#setExecutionPolicy(ExecutionPolicy)
+ */
+public final class ExecutionPolicy {
+
+    /**
+     * The priority of work that has no tag with a priority.
+     */
+    public static final int PRIORITY_DEFAULT = 0;
+
+    /**
+     * The value of {@link #getMaxConcurrentWork()} when the number of {@link ListenableWorker}s
+     * running at the same time is not limited.
+     */
+    @SuppressLint("MinMaxConstant")
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final int mMaxConcurrentWork;
+    private final @NonNull Map<String, Integer> mTagPriorities;
+    private final @NonNull Map<String, Integer> mTagConcurrencyLimits;
+    private final @Nullable QueueingDelayListener mQueueingDelayListener;
+
+    ExecutionPolicy(@NonNull Builder builder) {
+        mMaxConcurrentWork = builder.mMaxConcurrentWork;
+        mTagPriorities = Collections.unmodifiableMap(new HashMap<>(builder.mTagPriorities));
+        mTagConcurrencyLimits =
+                Collections.unmodifiableMap(new HashMap<>(builder.mTagConcurrencyLimits));
+        mQueueingDelayListener = builder.mQueueingDelayListener;
+    }
+
+    /**
+     * @return The maximum number of {@link ListenableWorker}s that run at the same time, or
+     * {@link #UNLIMITED}
+     */
+    public int getMaxConcurrentWork() {
+        return mMaxConcurrentWork;
+    }
+
+    /**
+     * @return The priority of the work with each tag
+     */
+    public @NonNull Map<String, Integer> getTagPriorities() {
+        return mTagPriorities;
+    }
+
+    /**
+     * @return The maximum number of {@link ListenableWorker}s with each tag that run at the same
+     * time
+     */
+    public @NonNull Map<String, Integer> getTagConcurrencyLimits() {
+        return mTagConcurrencyLimits;
+    }
+
+    /**
+     * @return The {@link QueueingDelayListener} notified when work starts, if any
+     */
+    public @Nullable QueueingDelayListener getQueueingDelayListener() {
+        return mQueueingDelayListener;
+    }
+
+    /**
+     * Listens to the time work spends waiting for the {@link ExecutionPolicy} to let it start.
+     */
+    public interface QueueingDelayListener {
+
+        /**
+         * Called when work starts. This is called on a background thread, and should return
+         * quickly.
+         *
+         * @param workSpecId          The id of the {@link WorkRequest} that starts
+         * @param queueingDelayMillis The time, in milliseconds, the work waited between being
+         *                            ready to run and starting
+         */
+        void onWorkStarted(@NonNull String workSpecId, long queueingDelayMillis);
+    }
+
+    /**
+     * A Builder for {@link ExecutionPolicy}s.
+     */
+    public static final class Builder {
+
+        int mMaxConcurrentWork = UNLIMITED;
+        final Map<String, Integer> mTagPriorities = new HashMap<>();
+        final Map<String, Integer> mTagConcurrencyLimits = new HashMap<>();
+        @Nullable QueueingDelayListener mQueueingDelayListener;
+
+        /**
+         * Specifies the maximum number of {@link ListenableWorker}s that run at the same time.
+         * <p>
+         * The default is {@link ExecutionPolicy#UNLIMITED}.
+         *
+         * @param maxConcurrentWork The maximum number of {@link ListenableWorker}s
+         * @return This {@link Builder} instance
+         */
+        public @NonNull Builder setMaxConcurrentWork(@IntRange(from = 1) int maxConcurrentWork) {
+            if (maxConcurrentWork < 1) {
+                throw new IllegalArgumentException("maxConcurrentWork must be at least 1");
+            }
+            mMaxConcurrentWork = maxConcurrentWork;
+            return this;
+        }
+
+        /**
+         * Specifies the priority of the work with a tag. Work with a higher priority starts
+         * before work with a lower priority. Work with several tags has the highest priority of
+         * its tags, or {@link ExecutionPolicy#PRIORITY_DEFAULT} when none of its tags has a
+         * priority.
+         *
+         * @param tag      The tag of the work
+         * @param priority The priority of the work
+         * @return This {@link Builder} instance
+         */
+        public @NonNull Builder setTagPriority(@NonNull String tag, int priority) {
+            mTagPriorities.put(tag, priority);
+            return this;
+        }
+
+        /**
+         * Specifies the maximum number of {@link ListenableWorker}s with a tag that run at the
+         * same time.
+         *
+         * @param tag               The tag of the work
+         * @param maxConcurrentWork The maximum number of {@link ListenableWorker}s with this tag
+         * @return This {@link Builder} instance
+         */
+        public @NonNull Builder setTagConcurrencyLimit(
+                @NonNull String tag,
+                @IntRange(from = 1) int maxConcurrentWork) {
+            if (maxConcurrentWork < 1) {
+                throw new IllegalArgumentException("maxConcurrentWork must be at least 1");
+            }
+            mTagConcurrencyLimits.put(tag, maxConcurrentWork);
+            return this;
+        }
+
+        /**
+         * Specifies a {@link QueueingDelayListener} to measure the time work waits before it
+         * starts.
+         *
+         * @param listener The {@link QueueingDelayListener}
+         * @return This {@link Builder} instance
+         */
+        public @NonNull Builder setQueueingDelayListener(
+                @NonNull QueueingDelayListener listener) {
+            mQueueingDelayListener = listener;
+            return this;
+        }
+
+        /**
+         * Builds an {@link ExecutionPolicy} object.
+         *
+         * @return An {@link ExecutionPolicy} object with this {@link Builder}'s parameters.
+         */
+        public @NonNull ExecutionPolicy build() {
+            return new ExecutionPolicy(this);
+        }
+    }
+}
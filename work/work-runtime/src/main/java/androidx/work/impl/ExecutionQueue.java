@@ -0,0 +1,275 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+import androidx.work.ExecutionPolicy;
+import androidx.work.impl.utils.SynchronousExecutor;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the work started by the {@link Processor} until the {@link ExecutionPolicy} lets it run,
+ * and then hands it to an {@link Executor}.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class ExecutionQueue {
+
+    private final ExecutionPolicy mPolicy;
+    private final Executor mExecutor;
+    private final Executor mListenerExecutor;
+    private final boolean mIsUnlimited;
+
+    // Work waiting to run, in the order it was enqueued.
+    private final LinkedHashMap<String, Entry> mPendingWork;
+    private final Map<String, Entry> mRunningWork;
+    // The number of running work per tag of the policy.
+    private final Map<String, Integer> mRunningCounts;
+    private final Object mLock;
+
+    public ExecutionQueue(@NonNull ExecutionPolicy policy, @NonNull Executor executor) {
+        mPolicy = policy;
+        mExecutor = executor;
+        mListenerExecutor = new SynchronousExecutor();
+        mIsUnlimited = policy.getMaxConcurrentWork() == ExecutionPolicy.UNLIMITED
+                && policy.getTagConcurrencyLimits().isEmpty();
+        mPendingWork = new LinkedHashMap<>();
+        mRunningWork = new HashMap<>();
+        mRunningCounts = new HashMap<>();
+        mLock = new Object();
+    }
+
+    /**
+     * @return {@code true} if the tags of the work must be passed to
+     * {@link #enqueue(String, List, Runnable, ListenableFuture)}
+     */
+    public boolean needsTags() {
+        // Priorities only order work that waits to run, which never happens when unlimited.
+        return !mIsUnlimited && (!mPolicy.getTagPriorities().isEmpty()
+                || !mPolicy.getTagConcurrencyLimits().isEmpty());
+    }
+
+    /**
+     * Runs some work as soon as the {@link ExecutionPolicy} lets it run.
+     *
+     * @param id       The work id
+     * @param tags     The tags of the work, or an empty list if {@link #needsTags()} is false
+     * @param runnable The {@link Runnable} that runs the work
+     * @param future   The {@link ListenableFuture} that completes once the work is done, or
+     *                 stopped
+     */
+    public void enqueue(
+            @NonNull final String id,
+            @NonNull List<String> tags,
+            @NonNull Runnable runnable,
+            @NonNull ListenableFuture<?> future) {
+        Entry entry = new Entry(id, tags, runnable, System.nanoTime());
+        List<Entry> toRun;
+        synchronized (mLock) {
+            mPendingWork.put(id, entry);
+            toRun = pollRunnableWorkLocked();
+        }
+        // The work may already be done if it was stopped before being enqueued, in which case
+        // this removes it right away.
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                onFinished(id);
+            }
+        }, mListenerExecutor);
+        execute(toRun);
+    }
+
+    /**
+     * @return The number of work waiting to run
+     */
+    @VisibleForTesting
+    public int getPendingCount() {
+        synchronized (mLock) {
+            return mPendingWork.size();
+        }
+    }
+
+    /**
+     * @return The number of work running
+     */
+    @VisibleForTesting
+    public int getRunningCount() {
+        synchronized (mLock) {
+            return mRunningWork.size();
+        }
+    }
+
+    // Synthetic access
+    void onFinished(@NonNull String id) {
+        List<Entry> toRun;
+        synchronized (mLock) {
+            if (mPendingWork.remove(id) != null) {
+                return;
+            }
+            Entry entry = mRunningWork.remove(id);
+            if (entry == null) {
+                return;
+            }
+            for (String tag : entry.mPolicyTags) {
+                mRunningCounts.put(tag, mRunningCounts.get(tag) - 1);
+            }
+            toRun = pollRunnableWorkLocked();
+        }
+        execute(toRun);
+    }
+
+    private void execute(@NonNull List<Entry> entries) {
+        ExecutionPolicy.QueueingDelayListener listener = mPolicy.getQueueingDelayListener();
+        for (Entry entry : entries) {
+            if (listener != null) {
+                long delayNanos = System.nanoTime() - entry.mEnqueueTimeNanos;
+                listener.onWorkStarted(entry.mId, TimeUnit.NANOSECONDS.toMillis(delayNanos));
+            }
+            mExecutor.execute(entry.mRunnable);
+        }
+    }
+
+    /**
+     * Moves the work that can run now from the pending to the running work, in the order it
+     * should start.
+     */
+    private @NonNull List<Entry> pollRunnableWorkLocked() {
+        List<Entry> toRun = new ArrayList<>();
+        if (mIsUnlimited) {
+            // Fast path: nothing is ever held back, so the work starts in the order it came.
+            for (Entry entry : mPendingWork.values()) {
+                startLocked(entry);
+                toRun.add(entry);
+            }
+            mPendingWork.clear();
+            return toRun;
+        }
+        while (mRunningWork.size() < mPolicy.getMaxConcurrentWork()) {
+            Entry next = null;
+            for (Entry entry : mPendingWork.values()) {
+                if (canRunLocked(entry) && (next == null || runsBeforeLocked(entry, next))) {
+                    next = entry;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            mPendingWork.remove(next.mId);
+            startLocked(next);
+            toRun.add(next);
+        }
+        return toRun;
+    }
+
+    private void startLocked(@NonNull Entry entry) {
+        mRunningWork.put(entry.mId, entry);
+        for (String tag : entry.mPolicyTags) {
+            Integer count = mRunningCounts.get(tag);
+            mRunningCounts.put(tag, count == null ? 1 : count + 1);
+        }
+    }
+
+    private boolean canRunLocked(@NonNull Entry entry) {
+        Map<String, Integer> limits = mPolicy.getTagConcurrencyLimits();
+        for (String tag : entry.mPolicyTags) {
+            Integer limit = limits.get(tag);
+            if (limit != null && getRunningCountLocked(tag) >= limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if {@code entry} should start before {@code other}, which was enqueued
+     * earlier
+     */
+    private boolean runsBeforeLocked(@NonNull Entry entry, @NonNull Entry other) {
+        if (entry.mPriority != other.mPriority) {
+            return entry.mPriority > other.mPriority;
+        }
+        // Fair share: the work of the tag that has the fewest running work goes first.
+        return getRunningCountLocked(entry.mShareTag) < getRunningCountLocked(other.mShareTag);
+    }
+
+    private int getRunningCountLocked(@Nullable String tag) {
+        if (tag == null) {
+            // Work without any tag of the policy shares the remaining capacity.
+            int count = mRunningWork.size();
+            for (Entry entry : mRunningWork.values()) {
+                if (entry.mShareTag != null) {
+                    count--;
+                }
+            }
+            return count;
+        }
+        Integer count = mRunningCounts.get(tag);
+        return count == null ? 0 : count;
+    }
+
+    private final class Entry {
+        final String mId;
+        final Runnable mRunnable;
+        final long mEnqueueTimeNanos;
+        // The tags of the work that have a priority or a concurrency limit.
+        final List<String> mPolicyTags;
+        final int mPriority;
+        // The tag used to share the capacity fairly, the first of the policy tags by name.
+        final @Nullable String mShareTag;
+
+        Entry(@NonNull String id, @NonNull List<String> tags, @NonNull Runnable runnable,
+                long enqueueTimeNanos) {
+            mId = id;
+            mRunnable = runnable;
+            mEnqueueTimeNanos = enqueueTimeNanos;
+            Map<String, Integer> priorities = mPolicy.getTagPriorities();
+            Map<String, Integer> limits = mPolicy.getTagConcurrencyLimits();
+            mPolicyTags = new ArrayList<>();
+            Integer priority = null;
+            String shareTag = null;
+            for (String tag : tags) {
+                Integer tagPriority = priorities.get(tag);
+                if (tagPriority == null && !limits.containsKey(tag)) {
+                    continue;
+                }
+                mPolicyTags.add(tag);
+                if (tagPriority != null && (priority == null || tagPriority > priority)) {
+                    priority = tagPriority;
+                }
+                if (shareTag == null || tag.compareTo(shareTag) < 0) {
+                    shareTag = tag;
+                }
+            }
+            mPriority = priority == null ? ExecutionPolicy.PRIORITY_DEFAULT : priority;
+            mShareTag = shareTag;
+        }
+    }
+}
@@ -37,6 +37,7 @@ import androidx.work.impl.utils.taskexecutor.TaskExecutor;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -64,6 +65,7 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
     private Map<String, WorkerWrapper> mForegroundWorkMap;
     private Map<String, WorkerWrapper> mEnqueuedWorkMap;
     private List<Scheduler> mSchedulers;
+    private ExecutionQueue mExecutionQueue;
 
     private Set<String> mCancelledIds;
 
@@ -83,6 +85,9 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
         mEnqueuedWorkMap = new HashMap<>();
         mForegroundWorkMap = new HashMap<>();
         mSchedulers = schedulers;
+        mExecutionQueue = new ExecutionQueue(
+                configuration.getExecutionPolicy(),
+                workTaskExecutor.getBackgroundExecutor());
         mCancelledIds = new HashSet<>();
         mOuterListeners = new ArrayList<>();
         mForegroundLock = null;
@@ -107,10 +112,10 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
      * @return {@code true} if the work was successfully enqueued for processing
      */
     public boolean startWork(
-            @NonNull String id,
+            @NonNull final String id,
             @Nullable WorkerParameters.RuntimeExtras runtimeExtras) {
 
-        WorkerWrapper workWrapper;
+        final WorkerWrapper workWrapper;
         synchronized (mLock) {
             // Work may get triggered multiple times if they have passing constraints
             // and new work with those constraints are added.
@@ -138,7 +143,22 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
                     mWorkTaskExecutor.getMainThreadExecutor());
             mEnqueuedWorkMap.put(id, workWrapper);
         }
-        mWorkTaskExecutor.getBackgroundExecutor().execute(workWrapper);
+        if (mExecutionQueue.needsTags()) {
+            // The ExecutionPolicy needs the tags of the work, read them off the calling thread.
+            // Avoid synthetic accessors.
+            final WorkDatabase workDatabase = mWorkDatabase;
+            final ExecutionQueue executionQueue = mExecutionQueue;
+            mWorkTaskExecutor.executeOnBackgroundThread(new Runnable() {
+                @Override
+                public void run() {
+                    List<String> tags = workDatabase.workTagDao().getTagsForWorkSpecId(id);
+                    executionQueue.enqueue(id, tags, workWrapper, workWrapper.getFuture());
+                }
+            });
+        } else {
+            mExecutionQueue.enqueue(
+                    id, Collections.<String>emptyList(), workWrapper, workWrapper.getFuture());
+        }
         Logger.get().debug(TAG, String.format("%s: processing %s", getClass().getSimpleName(), id));
         return true;
     }
@@ -34,6 +34,7 @@ import androidx.work.impl.background.systemjob.SystemJobService;
 import androidx.work.impl.model.WorkSpec;
 import androidx.work.impl.model.WorkSpecDao;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -50,6 +51,12 @@ public class Schedulers {
     public static final String GCM_SCHEDULER = "androidx.work.impl.background.gcm.GcmScheduler";
     private static final String TAG = Logger.tagWithPrefix("Schedulers");
 
+    /**
+     * The maximum number of ids bound to a single UPDATE statement, well under SQLite's default
+     * limit of 999 bound arguments.
+     */
+    private static final int MARK_SCHEDULED_BATCH_SIZE = 500;
+
     /**
      * Schedules {@link WorkSpec}s while honoring the {@link Scheduler#MAX_SCHEDULER_LIMIT}.
      *
@@ -85,9 +92,7 @@ public class Schedulers {
                 // Mark all the WorkSpecs as scheduled.
                 // Calls to Scheduler#schedule() could potentially result in more schedules
                 // on a separate thread. Therefore, this needs to be done first.
-                for (WorkSpec workSpec : eligibleWorkSpecsForLimitedSlots) {
-                    workSpecDao.markWorkSpecScheduled(workSpec.id, now);
-                }
+                markWorkSpecsScheduled(workSpecDao, eligibleWorkSpecsForLimitedSlots, now);
             }
             workDatabase.setTransactionSuccessful();
         } finally {
@@ -122,6 +127,27 @@ public class Schedulers {
         }
     }
 
+    /**
+     * Marks the {@link WorkSpec}s as scheduled with one UPDATE statement per chunk of
+     * {@link #MARK_SCHEDULED_BATCH_SIZE} ids rather than one per {@link WorkSpec}.
+     */
+    private static void markWorkSpecsScheduled(
+            @NonNull WorkSpecDao workSpecDao,
+            @NonNull List<WorkSpec> workSpecs,
+            long now) {
+        List<String> ids = new ArrayList<>(Math.min(workSpecs.size(), MARK_SCHEDULED_BATCH_SIZE));
+        for (WorkSpec workSpec : workSpecs) {
+            ids.add(workSpec.id);
+            if (ids.size() == MARK_SCHEDULED_BATCH_SIZE) {
+                workSpecDao.markWorkSpecsScheduled(ids, now);
+                ids.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            workSpecDao.markWorkSpecsScheduled(ids, now);
+        }
+    }
+
     @NonNull
     static Scheduler createBestAvailableBackgroundScheduler(
             @NonNull Context context,
@@ -32,8 +32,10 @@ import static androidx.work.impl.model.WorkTypeConverters.StateIds.COMPLETED_STA
 import android.content.Context;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
 import androidx.annotation.RestrictTo;
 import androidx.room.Database;
+import androidx.room.ExperimentalRoomApi;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
@@ -93,6 +95,10 @@ public abstract class WorkDatabase extends RoomDatabase {
 
     private static final long PRUNE_THRESHOLD_MILLIS = TimeUnit.DAYS.toMillis(1);
 
+    // The maximum number of rows written by a single INSERT statement when enqueueing many
+    // WorkRequests at once. Room further limits it for wide entities such as WorkSpec.
+    private static final int INSERT_BATCH_SIZE = 100;
+
     /**
      * Creates an instance of the WorkDatabase.
      *
@@ -104,6 +110,7 @@ public abstract class WorkDatabase extends RoomDatabase {
      * @return The created WorkDatabase
      */
     @NonNull
+    @OptIn(markerClass = ExperimentalRoomApi.class)
     public static WorkDatabase create(
             @NonNull final Context context,
             @NonNull Executor queryExecutor,
@@ -133,6 +140,7 @@ public abstract class WorkDatabase extends RoomDatabase {
         }
 
         return builder.setQueryExecutor(queryExecutor)
+                .setInsertBatchSize(INSERT_BATCH_SIZE)
                 .addCallback(generateCleanupCallback())
                 .addMigrations(WorkDatabaseMigrations.MIGRATION_1_2)
                 .addMigrations(
@@ -16,7 +16,6 @@
 
 package androidx.work.impl;
 
-import static androidx.work.WorkInfo.State.BLOCKED;
 import static androidx.work.WorkInfo.State.CANCELLED;
 import static androidx.work.WorkInfo.State.ENQUEUED;
 import static androidx.work.WorkInfo.State.FAILED;
@@ -142,6 +141,9 @@ public class WorkerWrapper implements Runnable {
             return;
         }
 
+        // Read everything the Worker needs in a single transaction, so that the inputs of the
+        // prerequisites are consistent with the WorkSpec.
+        List<Data> prerequisiteInputs = null;
         mWorkDatabase.beginTransaction();
         try {
             mWorkSpec = mWorkSpecDao.getWorkSpec(mWorkSpecId);
@@ -198,6 +200,10 @@ public class WorkerWrapper implements Runnable {
                 }
             }
 
+            if (!mWorkSpec.isPeriodic()) {
+                prerequisiteInputs = mWorkSpecDao.getInputsFromPrerequisites(mWorkSpecId);
+            }
+
             // Needed for nested transactions, such as when we're in a dependent work request when
             // using a SynchronousExecutor.
             mWorkDatabase.setTransactionSuccessful();
@@ -223,7 +229,7 @@ public class WorkerWrapper implements Runnable {
             }
             List<Data> inputs = new ArrayList<>();
             inputs.add(mWorkSpec.input);
-            inputs.addAll(mWorkSpecDao.getInputsFromPrerequisites(mWorkSpecId));
+            inputs.addAll(prerequisiteInputs);
             input = inputMerger.merge(inputs);
         }
 
@@ -340,25 +346,38 @@ public class WorkerWrapper implements Runnable {
     // Package-private for synthetic accessor.
     void onWorkFinished() {
         if (!tryCheckForInterruptionAndResolve()) {
+            // The result, its output, the dependents it unblocks and the reschedule are all
+            // written in a single transaction. The future is only resolved once it is committed.
+            boolean resolved = true;
+            boolean needsReschedule = false;
             mWorkDatabase.beginTransaction();
             try {
                 WorkInfo.State state = mWorkSpecDao.getState(mWorkSpecId);
                 mWorkDatabase.workProgressDao().delete(mWorkSpecId);
                 if (state == null) {
                     // state can be null here with a REPLACE on beginUniqueWork().
-                    // Treat it as a failure, and rescheduleAndResolve() will
-                    // turn into a no-op. We still need to notify potential observers
-                    // holding on to wake locks on our behalf.
-                    resolve(false);
+                    // Treat it as a failure, and reschedule() will turn into a no-op.
+                    // We still need to notify potential observers holding on to wake locks on
+                    // our behalf.
+                    needsReschedule = false;
                 } else if (state == RUNNING) {
-                    handleResult(mResult);
+                    needsReschedule = handleResult(mResult);
                 } else if (!state.isFinished()) {
-                    rescheduleAndResolve();
+                    reschedule();
+                    needsReschedule = true;
+                } else {
+                    resolved = false;
+                }
+                if (resolved) {
+                    resolveInTransaction(needsReschedule);
                 }
                 mWorkDatabase.setTransactionSuccessful();
             } finally {
                 mWorkDatabase.endTransaction();
             }
+            if (resolved) {
+                mFuture.set(needsReschedule);
+            }
         }
 
         // Try to schedule any newly-unblocked workers, and workers requiring rescheduling (such as
@@ -439,26 +458,7 @@ public class WorkerWrapper implements Runnable {
     private void resolve(final boolean needsReschedule) {
         mWorkDatabase.beginTransaction();
         try {
-            // IMPORTANT: We are using a transaction here as to ensure that we have some guarantees
-            // about the state of the world before we disable RescheduleReceiver.
-
-            // Check to see if there is more work to be done. If there is no more work, then
-            // disable RescheduleReceiver. Using a transaction here, as there could be more than
-            // one thread looking at the list of eligible WorkSpecs.
-            boolean hasUnfinishedWork = mWorkDatabase.workSpecDao().hasUnfinishedWork();
-            if (!hasUnfinishedWork) {
-                PackageManagerHelper.setComponentEnabled(
-                        mAppContext, RescheduleReceiver.class, false);
-            }
-            if (needsReschedule) {
-                // Set state to ENQUEUED again.
-                // Reset scheduled state so its picked up by background schedulers again.
-                mWorkSpecDao.setState(ENQUEUED, mWorkSpecId);
-                mWorkSpecDao.markWorkSpecScheduled(mWorkSpecId, SCHEDULE_NOT_REQUESTED_YET);
-            }
-            if (mWorkSpec != null && mWorker != null && mWorker.isRunInForeground()) {
-                mForegroundProcessor.stopForeground(mWorkSpecId);
-            }
+            resolveInTransaction(needsReschedule);
             mWorkDatabase.setTransactionSuccessful();
         } finally {
             mWorkDatabase.endTransaction();
@@ -466,65 +466,93 @@ public class WorkerWrapper implements Runnable {
         mFuture.set(needsReschedule);
     }
 
-    private void handleResult(ListenableWorker.Result result) {
+    /**
+     * Does the bookkeeping of {@link #resolve(boolean)}, except for setting the future. This must
+     * be called inside a transaction.
+     */
+    private void resolveInTransaction(final boolean needsReschedule) {
+        // IMPORTANT: We are using a transaction here as to ensure that we have some guarantees
+        // about the state of the world before we disable RescheduleReceiver.
+
+        // Check to see if there is more work to be done. If there is no more work, then
+        // disable RescheduleReceiver. Using a transaction here, as there could be more than
+        // one thread looking at the list of eligible WorkSpecs.
+        boolean hasUnfinishedWork = mWorkSpecDao.hasUnfinishedWork();
+        if (!hasUnfinishedWork) {
+            PackageManagerHelper.setComponentEnabled(
+                    mAppContext, RescheduleReceiver.class, false);
+        }
+        if (needsReschedule) {
+            // Set state to ENQUEUED again.
+            // Reset scheduled state so its picked up by background schedulers again.
+            mWorkSpecDao.setState(ENQUEUED, mWorkSpecId);
+            mWorkSpecDao.markWorkSpecScheduled(mWorkSpecId, SCHEDULE_NOT_REQUESTED_YET);
+        }
+        if (mWorkSpec != null && mWorker != null && mWorker.isRunInForeground()) {
+            mForegroundProcessor.stopForeground(mWorkSpecId);
+        }
+    }
+
+    /**
+     * Writes the result of the Worker. This must be called inside a transaction.
+     *
+     * @return {@code true} if the Worker needs to be rescheduled
+     */
+    private boolean handleResult(ListenableWorker.Result result) {
         if (result instanceof ListenableWorker.Result.Success) {
             Logger.get().info(
                     TAG,
                     String.format("Worker result SUCCESS for %s", mWorkDescription));
             if (mWorkSpec.isPeriodic()) {
-                resetPeriodicAndResolve();
+                resetPeriodic();
             } else {
-                setSucceededAndResolve();
+                setSucceeded();
             }
-
+            return false;
         } else if (result instanceof ListenableWorker.Result.Retry) {
             Logger.get().info(
                     TAG,
                     String.format("Worker result RETRY for %s", mWorkDescription));
-            rescheduleAndResolve();
+            reschedule();
+            return true;
         } else {
             Logger.get().info(
                     TAG,
                     String.format("Worker result FAILURE for %s", mWorkDescription));
             if (mWorkSpec.isPeriodic()) {
-                resetPeriodicAndResolve();
+                resetPeriodic();
             } else {
-                setFailedAndResolve();
+                setFailed();
             }
+            return false;
         }
     }
 
     private boolean trySetRunning() {
-        boolean setToRunning = false;
-        mWorkDatabase.beginTransaction();
-        try {
-            WorkInfo.State currentState = mWorkSpecDao.getState(mWorkSpecId);
-            if (currentState == ENQUEUED) {
-                mWorkSpecDao.setState(RUNNING, mWorkSpecId);
-                mWorkSpecDao.incrementWorkSpecRunAttemptCount(mWorkSpecId);
-                setToRunning = true;
-            }
-            mWorkDatabase.setTransactionSuccessful();
-        } finally {
-            mWorkDatabase.endTransaction();
-        }
-        return setToRunning;
+        // A single conditional update, as another thread may have modified the state since it was
+        // read at the top of runWorker().
+        return mWorkSpecDao.setRunningIfEnqueued(mWorkSpecId) > 0;
     }
 
     @VisibleForTesting
     void setFailedAndResolve() {
         mWorkDatabase.beginTransaction();
         try {
-            iterativelyFailWorkAndDependents(mWorkSpecId);
-            ListenableWorker.Result.Failure failure = (ListenableWorker.Result.Failure) mResult;
-            // Update Data as necessary.
-            Data output = failure.getOutputData();
-            mWorkSpecDao.setOutput(mWorkSpecId, output);
+            setFailed();
+            resolveInTransaction(false);
             mWorkDatabase.setTransactionSuccessful();
         } finally {
             mWorkDatabase.endTransaction();
-            resolve(false);
         }
+        mFuture.set(false);
+    }
+
+    private void setFailed() {
+        iterativelyFailWorkAndDependents(mWorkSpecId);
+        ListenableWorker.Result.Failure failure = (ListenableWorker.Result.Failure) mResult;
+        // Update Data as necessary.
+        Data output = failure.getOutputData();
+        mWorkSpecDao.setOutput(mWorkSpecId, output);
     }
 
     private void iterativelyFailWorkAndDependents(String workSpecId) {
@@ -541,63 +569,38 @@ public class WorkerWrapper implements Runnable {
         }
     }
 
-    private void rescheduleAndResolve() {
-        mWorkDatabase.beginTransaction();
-        try {
-            mWorkSpecDao.setState(ENQUEUED, mWorkSpecId);
-            mWorkSpecDao.setPeriodStartTime(mWorkSpecId, System.currentTimeMillis());
-            mWorkSpecDao.markWorkSpecScheduled(mWorkSpecId, SCHEDULE_NOT_REQUESTED_YET);
-            mWorkDatabase.setTransactionSuccessful();
-        } finally {
-            mWorkDatabase.endTransaction();
-            resolve(true);
-        }
+    private void reschedule() {
+        mWorkSpecDao.setState(ENQUEUED, mWorkSpecId);
+        mWorkSpecDao.setPeriodStartTime(mWorkSpecId, System.currentTimeMillis());
+        mWorkSpecDao.markWorkSpecScheduled(mWorkSpecId, SCHEDULE_NOT_REQUESTED_YET);
     }
 
-    private void resetPeriodicAndResolve() {
-        mWorkDatabase.beginTransaction();
-        try {
-            // The system clock may have been changed such that the periodStartTime was in the past.
-            // Therefore we always use the current time to determine the next run time of a Worker.
-            // This way, the Schedulers will correctly schedule the next instance of the
-            // PeriodicWork in the future. This happens in calculateNextRunTime() in WorkSpec.
-            mWorkSpecDao.setPeriodStartTime(mWorkSpecId, System.currentTimeMillis());
-            mWorkSpecDao.setState(ENQUEUED, mWorkSpecId);
-            mWorkSpecDao.resetWorkSpecRunAttemptCount(mWorkSpecId);
-            mWorkSpecDao.markWorkSpecScheduled(mWorkSpecId, SCHEDULE_NOT_REQUESTED_YET);
-            mWorkDatabase.setTransactionSuccessful();
-        } finally {
-            mWorkDatabase.endTransaction();
-            resolve(false);
-        }
+    private void resetPeriodic() {
+        // The system clock may have been changed such that the periodStartTime was in the past.
+        // Therefore we always use the current time to determine the next run time of a Worker.
+        // This way, the Schedulers will correctly schedule the next instance of the
+        // PeriodicWork in the future. This happens in calculateNextRunTime() in WorkSpec.
+        mWorkSpecDao.setPeriodStartTime(mWorkSpecId, System.currentTimeMillis());
+        mWorkSpecDao.setState(ENQUEUED, mWorkSpecId);
+        mWorkSpecDao.resetWorkSpecRunAttemptCount(mWorkSpecId);
+        mWorkSpecDao.markWorkSpecScheduled(mWorkSpecId, SCHEDULE_NOT_REQUESTED_YET);
     }
 
-    private void setSucceededAndResolve() {
-        mWorkDatabase.beginTransaction();
-        try {
-            mWorkSpecDao.setState(SUCCEEDED, mWorkSpecId);
-            ListenableWorker.Result.Success success = (ListenableWorker.Result.Success) mResult;
-            // Update Data as necessary.
-            Data output = success.getOutputData();
-            mWorkSpecDao.setOutput(mWorkSpecId, output);
-
-            // Unblock Dependencies and set Period Start Time
-            long currentTimeMillis = System.currentTimeMillis();
-            List<String> dependentWorkIds = mDependencyDao.getDependentWorkIds(mWorkSpecId);
-            for (String dependentWorkId : dependentWorkIds) {
-                if (mWorkSpecDao.getState(dependentWorkId) == BLOCKED
-                        && mDependencyDao.hasCompletedAllPrerequisites(dependentWorkId)) {
-                    Logger.get().info(TAG,
-                            String.format("Setting status to enqueued for %s", dependentWorkId));
-                    mWorkSpecDao.setState(ENQUEUED, dependentWorkId);
-                    mWorkSpecDao.setPeriodStartTime(dependentWorkId, currentTimeMillis);
-                }
-            }
-
-            mWorkDatabase.setTransactionSuccessful();
-        } finally {
-            mWorkDatabase.endTransaction();
-            resolve(false);
+    private void setSucceeded() {
+        mWorkSpecDao.setState(SUCCEEDED, mWorkSpecId);
+        ListenableWorker.Result.Success success = (ListenableWorker.Result.Success) mResult;
+        // Update Data as necessary.
+        Data output = success.getOutputData();
+        mWorkSpecDao.setOutput(mWorkSpecId, output);
+
+        // Unblock Dependencies and set Period Start Time
+        long currentTimeMillis = System.currentTimeMillis();
+        List<String> dependentWorkIds = mDependencyDao.getDependentWorkIdsToUnblock(mWorkSpecId);
+        for (String dependentWorkId : dependentWorkIds) {
+            Logger.get().info(TAG,
+                    String.format("Setting status to enqueued for %s", dependentWorkId));
+            mWorkSpecDao.setState(ENQUEUED, dependentWorkId);
+            mWorkSpecDao.setPeriodStartTime(dependentWorkId, currentTimeMillis);
         }
     }
 
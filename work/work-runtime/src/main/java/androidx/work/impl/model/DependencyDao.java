@@ -37,6 +37,14 @@ public interface DependencyDao {
     @Insert(onConflict = IGNORE)
     void insertDependency(Dependency dependency);
 
+    /**
+     * Attempts to insert {@link Dependency}s into the database with a single compiled statement.
+     *
+     * @param dependencies The {@link Dependency}s to insert
+     */
+    @Insert(onConflict = IGNORE)
+    void insertDependencies(List<Dependency> dependencies);
+
     /**
      * Determines if a {@link WorkSpec} has completed all prerequisites.
      *
@@ -48,6 +56,22 @@ public interface DependencyDao {
             + WorkTypeConverters.StateIds.SUCCEEDED + ")")
     boolean hasCompletedAllPrerequisites(String id);
 
+    /**
+     * Gets the {@link WorkSpec}s that depend on a given id, are {@code BLOCKED}, and have now
+     * completed all their prerequisites. This is equivalent to calling
+     * {@link #hasCompletedAllPrerequisites(String)} for every blocked dependent, in one query.
+     *
+     * @param id A {@link WorkSpec} identifier
+     * @return A list of the identifiers that depend on the input and can be enqueued
+     */
+    @Query("SELECT work_spec_id FROM dependency WHERE prerequisite_id=:id AND work_spec_id IN "
+            + "(SELECT id FROM workspec WHERE state=" + WorkTypeConverters.StateIds.BLOCKED + ")"
+            + " AND work_spec_id NOT IN "
+            + "(SELECT work_spec_id FROM dependency WHERE prerequisite_id IN "
+            + "(SELECT id FROM workspec WHERE state!="
+            + WorkTypeConverters.StateIds.SUCCEEDED + "))")
+    List<String> getDependentWorkIdsToUnblock(String id);
+
     /**
      * Gets all the direct prerequisites for a particular {@link WorkSpec}.
      *
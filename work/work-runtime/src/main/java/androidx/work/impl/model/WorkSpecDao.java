@@ -46,6 +46,14 @@ public interface WorkSpecDao {
     @Insert(onConflict = IGNORE)
     void insertWorkSpec(WorkSpec workSpec);
 
+    /**
+     * Attempts to insert {@link WorkSpec}s into the database with a single compiled statement.
+     *
+     * @param workSpecs The WorkSpecs to insert.
+     */
+    @Insert(onConflict = IGNORE)
+    void insertWorkSpecs(List<WorkSpec> workSpecs);
+
     /**
      * Deletes {@link WorkSpec}s from the database.
      *
@@ -129,6 +137,18 @@ public interface WorkSpecDao {
     @Query("UPDATE workspec SET run_attempt_count=run_attempt_count+1 WHERE id=:id")
     int incrementWorkSpecRunAttemptCount(String id);
 
+    /**
+     * Sets the state of an {@code ENQUEUED} {@link WorkSpec} to {@code RUNNING}, and increments
+     * its run attempt count. This does nothing if the {@link WorkSpec} is in any other state.
+     *
+     * @param id The identifier for the {@link WorkSpec}
+     * @return The number of rows that were updated (should be 0 or 1)
+     */
+    @Query("UPDATE workspec SET state=" + WorkTypeConverters.StateIds.RUNNING
+            + ", run_attempt_count=run_attempt_count+1 WHERE id=:id AND state="
+            + WorkTypeConverters.StateIds.ENQUEUED)
+    int setRunningIfEnqueued(String id);
+
     /**
      * Reset run attempt count of a {@link WorkSpec}.
      *
@@ -280,6 +300,17 @@ public interface WorkSpecDao {
     @Query("UPDATE workspec SET schedule_requested_at=:startTime WHERE id=:id")
     int markWorkSpecScheduled(@NonNull String id, long startTime);
 
+    /**
+     * Updates the time at which the given {@link WorkSpec}s were scheduled. The number of ids
+     * must stay within SQLite's limit on bound arguments.
+     *
+     * @param ids       The identifiers for the {@link WorkSpec}s
+     * @param startTime The time at which the {@link WorkSpec}s were scheduled.
+     * @return The number of rows that were updated
+     */
+    @Query("UPDATE workspec SET schedule_requested_at=:startTime WHERE id IN (:ids)")
+    int markWorkSpecsScheduled(@NonNull List<String> ids, long startTime);
+
     /**
      * @return The time at which the {@link WorkSpec} was scheduled.
      */
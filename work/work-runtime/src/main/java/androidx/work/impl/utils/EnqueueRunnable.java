@@ -289,6 +289,14 @@ public class EnqueueRunnable implements Runnable {
             }
         }
 
+        // Rows are collected and written with one DAO call per table instead of one per row, so
+        // that WorkDatabase's multi-row INSERT statements are used when thousands of requests
+        // are enqueued at once.
+        List<WorkSpec> workSpecs = new ArrayList<>(workList.size());
+        List<Dependency> dependencies = new ArrayList<>(hasPrerequisite
+                ? workList.size() * prerequisiteIds.length : 0);
+        List<WorkTag> workTags = new ArrayList<>(workList.size());
+        List<WorkName> workNames = new ArrayList<>(isNamed ? workList.size() : 0);
         for (WorkRequest work : workList) {
             WorkSpec workSpec = work.getWorkSpec();
 
@@ -331,23 +339,34 @@ public class EnqueueRunnable implements Runnable {
                 needsScheduling = true;
             }
 
-            workDatabase.workSpecDao().insertWorkSpec(workSpec);
+            workSpecs.add(workSpec);
 
             if (hasPrerequisite) {
                 for (String prerequisiteId : prerequisiteIds) {
-                    Dependency dep = new Dependency(work.getStringId(), prerequisiteId);
-                    workDatabase.dependencyDao().insertDependency(dep);
+                    dependencies.add(new Dependency(work.getStringId(), prerequisiteId));
                 }
             }
 
             for (String tag : work.getTags()) {
-                workDatabase.workTagDao().insert(new WorkTag(tag, work.getStringId()));
+                workTags.add(new WorkTag(tag, work.getStringId()));
             }
 
             if (isNamed) {
-                workDatabase.workNameDao().insert(new WorkName(name, work.getStringId()));
+                workNames.add(new WorkName(name, work.getStringId()));
             }
         }
+
+        // WorkSpecs go first, the other tables have foreign keys to them.
+        workDatabase.workSpecDao().insertWorkSpecs(workSpecs);
+        if (!dependencies.isEmpty()) {
+            workDatabase.dependencyDao().insertDependencies(dependencies);
+        }
+        if (!workTags.isEmpty()) {
+            workDatabase.workTagDao().insertAll(workTags);
+        }
+        if (!workNames.isEmpty()) {
+            workDatabase.workNameDao().insertAll(workNames);
+        }
         return needsScheduling;
     }
 
@@ -27,6 +27,10 @@ import androidx.annotation.NonNull;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -89,6 +93,100 @@ public class DataTest {
         assertThat(restoredData.getIntArray(KEY2), is(equalTo(expectedValue2)));
     }
 
+    @Test
+    public void testSerializeAllTypes() {
+        Data data = new Data.Builder()
+                .putBoolean("boolean", true)
+                .put("byte", (byte) -7)
+                .putInt("int", Integer.MIN_VALUE)
+                .putLong("long", Long.MAX_VALUE)
+                .putFloat("float", -1.5f)
+                .putDouble("double", Double.NaN)
+                .putString("string", "value")
+                .putString("null", null)
+                .putBooleanArray("boolean array", new boolean[]{true, false, true})
+                .putByteArray("byte array", new byte[]{-128, 0, 127})
+                .putIntArray("int array", new int[]{-1, 0, 300, Integer.MAX_VALUE})
+                .putLongArray("long array", new long[]{Long.MIN_VALUE, -1L, 1L << 40})
+                .putFloatArray("float array", new float[]{0f, Float.MAX_VALUE})
+                .putDoubleArray("double array", new double[]{-0d, Double.MIN_VALUE})
+                .putStringArray("string array", new String[]{"value", null, "", "value"})
+                .build();
+
+        Data restoredData = Data.fromByteArray(data.toByteArray());
+
+        assertThat(restoredData, is(data));
+    }
+
+    @Test
+    public void testSerializeBoxedArraysWithNulls() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("int array", new Integer[]{1, null, 3});
+        map.put("boolean array", new Boolean[]{null, false, true, null, null, null, null, null,
+                true});
+        Data data = new Data.Builder().putAll(map).build();
+
+        Data restoredData = Data.fromByteArray(data.toByteArray());
+
+        assertThat(restoredData, is(data));
+    }
+
+    @Test
+    public void testSerializeNonAsciiStrings() {
+        // Includes an unpaired surrogate, which must survive the round trip unchanged.
+        String value = "caf\u00e9 \u6f22\u5b57 \ud83d\ude00 \ud800";
+        Data data = new Data.Builder()
+                .putString(value, value)
+                .putStringArray("array", new String[]{value, value})
+                .build();
+
+        Data restoredData = Data.fromByteArray(data.toByteArray());
+
+        assertThat(restoredData, is(data));
+    }
+
+    @Test
+    public void testDeserializeJavaSerializedData() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+        objectOutputStream.writeInt(3);
+        objectOutputStream.writeUTF(KEY1);
+        objectOutputStream.writeObject("value1");
+        objectOutputStream.writeUTF(KEY2);
+        objectOutputStream.writeObject(new Integer[]{1, 2, 3});
+        objectOutputStream.writeUTF("long");
+        objectOutputStream.writeObject(5L);
+        objectOutputStream.close();
+
+        Data restoredData = Data.fromByteArray(outputStream.toByteArray());
+
+        assertThat(restoredData, is(new Data.Builder()
+                .putString(KEY1, "value1")
+                .putIntArray(KEY2, new int[]{1, 2, 3})
+                .putLong("long", 5L)
+                .build()));
+    }
+
+    @Test
+    public void testDeserializeTruncatedData() {
+        byte[] bytes = createData().toByteArray();
+
+        Data restoredData = Data.fromByteArray(Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThat(restoredData.size(), is(0));
+    }
+
+    @Test
+    public void testSerializedSizeIsSmall() {
+        Data data = new Data.Builder()
+                .putString(KEY1, "value1")
+                .putIntArray(KEY2, new int[]{1, 2, 3, 4, 5})
+                .build();
+
+        // 3 bytes of header, 1 for the size, 5 for each key, 8 for the string and 8 for the array.
+        assertThat(data.toByteArray().length, is(30));
+    }
+
     @Test
     public void testSerializePastMaxSize() {
         int[] payload = new int[Data.MAX_DATA_BYTES + 1];
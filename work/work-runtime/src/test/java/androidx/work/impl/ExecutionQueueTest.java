@@ -0,0 +1,211 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.annotation.NonNull;
+import androidx.work.ExecutionPolicy;
+import androidx.work.impl.utils.futures.SettableFuture;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+@RunWith(JUnit4.class)
+public class ExecutionQueueTest {
+
+    private final List<String> mStarted = new ArrayList<>();
+    private final Map<String, SettableFuture<Boolean>> mFutures = new HashMap<>();
+    private final Executor mExecutor = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void unlimited_startsWorkRightAway() {
+        ExecutionQueue queue = new ExecutionQueue(new ExecutionPolicy.Builder().build(), mExecutor);
+        enqueue(queue, "a");
+        enqueue(queue, "b");
+        assertThat(mStarted, is(Arrays.asList("a", "b")));
+        assertThat(queue.getRunningCount(), is(2));
+
+        finish("a");
+        finish("b");
+        assertThat(queue.getRunningCount(), is(0));
+    }
+
+    @Test
+    public void maxConcurrentWork_holdsBackWork() {
+        ExecutionPolicy policy = new ExecutionPolicy.Builder().setMaxConcurrentWork(1).build();
+        ExecutionQueue queue = new ExecutionQueue(policy, mExecutor);
+        enqueue(queue, "a");
+        enqueue(queue, "b");
+        assertThat(mStarted, is(Collections.singletonList("a")));
+        assertThat(queue.getPendingCount(), is(1));
+
+        finish("a");
+        assertThat(mStarted, is(Arrays.asList("a", "b")));
+        assertThat(queue.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void tagPriority_startsHigherPriorityFirst() {
+        ExecutionPolicy policy = new ExecutionPolicy.Builder()
+                .setMaxConcurrentWork(1)
+                .setTagPriority("sync", 10)
+                .build();
+        ExecutionQueue queue = new ExecutionQueue(policy, mExecutor);
+        enqueue(queue, "running");
+        enqueue(queue, "upload1", "upload");
+        enqueue(queue, "upload2", "upload");
+        enqueue(queue, "sync", "sync");
+
+        finish("running");
+        finish("sync");
+        finish("upload1");
+        assertThat(mStarted, is(Arrays.asList("running", "sync", "upload1", "upload2")));
+    }
+
+    @Test
+    public void needsTags_onlyWhenTagsAffectExecution() {
+        ExecutionPolicy unlimited = new ExecutionPolicy.Builder().build();
+        assertThat(new ExecutionQueue(unlimited, mExecutor).needsTags(), is(false));
+
+        // Priorities have no effect when all the work runs right away.
+        ExecutionPolicy unlimitedWithPriorities = new ExecutionPolicy.Builder()
+                .setTagPriority("sync", 10)
+                .build();
+        assertThat(new ExecutionQueue(unlimitedWithPriorities, mExecutor).needsTags(), is(false));
+
+        ExecutionPolicy limitedWithPriorities = new ExecutionPolicy.Builder()
+                .setMaxConcurrentWork(1)
+                .setTagPriority("sync", 10)
+                .build();
+        assertThat(new ExecutionQueue(limitedWithPriorities, mExecutor).needsTags(), is(true));
+
+        ExecutionPolicy tagLimit = new ExecutionPolicy.Builder()
+                .setTagConcurrencyLimit("upload", 2)
+                .build();
+        assertThat(new ExecutionQueue(tagLimit, mExecutor).needsTags(), is(true));
+    }
+
+    @Test
+    public void tagConcurrencyLimit_letsOtherWorkRun() {
+        ExecutionPolicy policy = new ExecutionPolicy.Builder()
+                .setTagConcurrencyLimit("upload", 2)
+                .build();
+        ExecutionQueue queue = new ExecutionQueue(policy, mExecutor);
+        for (int i = 0; i < 5; i++) {
+            enqueue(queue, "upload" + i, "upload");
+        }
+        enqueue(queue, "sync", "sync");
+        assertThat(mStarted, is(Arrays.asList("upload0", "upload1", "sync")));
+        assertThat(queue.getPendingCount(), is(3));
+
+        finish("upload0");
+        assertThat(mStarted.get(3), is("upload2"));
+        assertThat(queue.getPendingCount(), is(2));
+    }
+
+    @Test
+    public void fairShare_alternatesBetweenTags() {
+        ExecutionPolicy policy = new ExecutionPolicy.Builder()
+                .setMaxConcurrentWork(2)
+                .setTagConcurrencyLimit("upload", 10)
+                .setTagConcurrencyLimit("download", 10)
+                .build();
+        ExecutionQueue queue = new ExecutionQueue(policy, mExecutor);
+        enqueue(queue, "upload0", "upload");
+        enqueue(queue, "upload1", "upload");
+        enqueue(queue, "upload2", "upload");
+        enqueue(queue, "download0", "download");
+        enqueue(queue, "download1", "download");
+        assertThat(mStarted, is(Arrays.asList("upload0", "upload1")));
+
+        // The free slot goes to a download, even though upload2 was enqueued first.
+        finish("upload0");
+        assertThat(mStarted.get(2), is("download0"));
+
+        // Now uploads have fewer running work than downloads.
+        finish("upload1");
+        assertThat(mStarted.get(3), is("upload2"));
+    }
+
+    @Test
+    public void stoppedPendingWork_neverStarts() {
+        ExecutionPolicy policy = new ExecutionPolicy.Builder().setMaxConcurrentWork(1).build();
+        ExecutionQueue queue = new ExecutionQueue(policy, mExecutor);
+        enqueue(queue, "a");
+        enqueue(queue, "b");
+        finish("b");
+        assertThat(queue.getPendingCount(), is(0));
+
+        finish("a");
+        assertThat(mStarted, is(Collections.singletonList("a")));
+        assertThat(queue.getRunningCount(), is(0));
+    }
+
+    @Test
+    public void queueingDelayListener_isNotifiedWhenWorkStarts() {
+        final List<String> notified = new ArrayList<>();
+        ExecutionPolicy policy = new ExecutionPolicy.Builder()
+                .setMaxConcurrentWork(1)
+                .setQueueingDelayListener(new ExecutionPolicy.QueueingDelayListener() {
+                    @Override
+                    public void onWorkStarted(@NonNull String workSpecId,
+                            long queueingDelayMillis) {
+                        assertThat(queueingDelayMillis >= 0, is(true));
+                        notified.add(workSpecId);
+                    }
+                })
+                .build();
+        ExecutionQueue queue = new ExecutionQueue(policy, mExecutor);
+        enqueue(queue, "a");
+        enqueue(queue, "b");
+        assertThat(notified, is(Collections.singletonList("a")));
+
+        finish("a");
+        assertThat(notified, is(Arrays.asList("a", "b")));
+    }
+
+    private void enqueue(ExecutionQueue queue, final String id, String... tags) {
+        SettableFuture<Boolean> future = SettableFuture.create();
+        mFutures.put(id, future);
+        queue.enqueue(id, Arrays.asList(tags), new Runnable() {
+            @Override
+            public void run() {
+                mStarted.add(id);
+            }
+        }, future);
+    }
+
+    private void finish(String id) {
+        mFutures.get(id).set(false);
+    }
+}